@@ -0,0 +1,158 @@
+package com.ecommercehub.gateway.accesslog;
+
+import com.ecommercehub.gateway.filter.CorrelationIdFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Global filter that writes one structured access-log record per exchange
+ * <p>
+ * Replaces the old request/response logging filters. On the event loop it only
+ * reads a handful of values into a preallocated ring-buffer slot; formatting and
+ * output are done by {@link AccessLogWriter} on its own thread.
+ * <p>
+ * Records are sampled per route. Slow requests, 5xx responses and exchanges that
+ * end with an error are always logged.
+ */
+@Component
+public class AccessLogFilter implements GlobalFilter, Ordered {
+
+    private static final Set<String> MASKED_HEADERS = Set.of("authorization", "cookie", "set-cookie");
+
+    private final AccessLogProperties properties;
+    private final AccessLogRingBuffer ringBuffer;
+    private final String[] requestHeaderNames;
+    private final String[] responseHeaderNames;
+    private final boolean[] requestHeaderMasked;
+    private final boolean[] responseHeaderMasked;
+    private final long slowThresholdNanos;
+
+    public AccessLogFilter(AccessLogProperties properties, AccessLogWriter writer) {
+        this.properties = properties;
+        this.ringBuffer = writer.ringBuffer();
+        this.requestHeaderNames = properties.getRequestHeaders().toArray(String[]::new);
+        this.responseHeaderNames = properties.getResponseHeaders().toArray(String[]::new);
+        this.requestHeaderMasked = masked(requestHeaderNames);
+        this.responseHeaderMasked = masked(responseHeaderNames);
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        long startNanos = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        return chain.filter(exchange)
+                .doFinally(signal -> record(exchange, signal, startMillis, System.nanoTime() - startNanos));
+    }
+
+    private void record(ServerWebExchange exchange, SignalType signal, long startMillis, long durationNanos) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpStatusCode statusCode = response.getStatusCode();
+        int status = statusCode != null ? statusCode.value() : 0;
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : null;
+
+        boolean guaranteed = signal == SignalType.ON_ERROR
+                || status >= 500
+                || durationNanos >= slowThresholdNanos;
+        if (!guaranteed && !sampled(routeId)) {
+            return;
+        }
+
+        long seq = ringBuffer.tryClaim();
+        AccessLogRecord record;
+        if (seq >= 0) {
+            record = ringBuffer.get(seq);
+        } else if (guaranteed) {
+            record = ringBuffer.newRecord();
+        } else {
+            ringBuffer.recordDrop();
+            return;
+        }
+
+        // Whatever happens while filling it, a claimed slot must be published or
+        // discarded, or the writer stops at it for good
+        boolean filled = false;
+        try {
+            ServerHttpRequest request = exchange.getRequest();
+            record.set(startMillis, durationNanos,
+                    request.getMethod().name(),
+                    request.getURI().getRawPath(),
+                    request.getURI().getRawQuery(),
+                    status,
+                    routeId,
+                    exchange.getAttribute(CorrelationIdFilter.CORRELATION_ID_ATTR),
+                    clientAddress(request.getRemoteAddress()),
+                    guaranteed);
+            copyHeaders(request.getHeaders(), requestHeaderNames, requestHeaderMasked, record.requestHeaders());
+            copyHeaders(response.getHeaders(), responseHeaderNames, responseHeaderMasked, record.responseHeaders());
+            filled = true;
+        } finally {
+            if (seq >= 0) {
+                if (filled) {
+                    ringBuffer.publish(seq);
+                } else {
+                    ringBuffer.discard(seq);
+                }
+            } else if (filled) {
+                ringBuffer.offerOverflow(record);
+            } else {
+                ringBuffer.recordDrop();
+            }
+        }
+    }
+
+    private boolean sampled(String routeId) {
+        Map<String, Double> routeRates = properties.getRouteSampleRates();
+        Double routeRate = routeId != null ? routeRates.get(routeId) : null;
+        double rate = routeRate != null ? routeRate : properties.getSampleRate();
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private static void copyHeaders(HttpHeaders headers, String[] names, boolean[] masked, String[] target) {
+        for (int i = 0; i < names.length; i++) {
+            String value = headers.getFirst(names[i]);
+            target[i] = value != null && masked[i] ? "***" : value;
+        }
+    }
+
+    private static boolean[] masked(String[] names) {
+        boolean[] masked = new boolean[names.length];
+        for (int i = 0; i < names.length; i++) {
+            masked[i] = MASKED_HEADERS.contains(names[i].toLowerCase());
+        }
+        return masked;
+    }
+
+    private static String clientAddress(InetSocketAddress address) {
+        if (address == null) {
+            return null;
+        }
+        return address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE; // Outermost, so the duration covers the whole exchange
+    }
+}
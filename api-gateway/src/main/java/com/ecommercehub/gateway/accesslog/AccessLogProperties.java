@@ -0,0 +1,62 @@
+package com.ecommercehub.gateway.accesslog;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for the structured access log (gateway.access-log.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Preallocated records in the ring buffer, must be a power of two
+     */
+    private int bufferSize = 8192;
+
+    /**
+     * Extra queue for slow/failed requests when the ring is full
+     */
+    private int maxOverflow = 1024;
+
+    /**
+     * How long the writer sleeps when there is nothing to write
+     */
+    private Duration idleWait = Duration.ofMillis(20);
+
+    /**
+     * Share of requests logged (0.0 - 1.0) on routes without their own rate
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * Per-route sample rates, keyed by route id
+     */
+    private Map<String, Double> routeSampleRates = new HashMap<>();
+
+    /**
+     * Requests slower than this are always logged
+     */
+    private Duration slowThreshold = Duration.ofSeconds(1);
+
+    /**
+     * Request headers copied into the record; anything else is never read
+     */
+    private List<String> requestHeaders = new ArrayList<>(List.of("User-Agent", "X-User-ID"));
+
+    /**
+     * Response headers copied into the record
+     */
+    private List<String> responseHeaders = new ArrayList<>(List.of("Content-Type", "Content-Length"));
+}
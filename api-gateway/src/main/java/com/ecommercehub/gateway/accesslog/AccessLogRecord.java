@@ -0,0 +1,63 @@
+package com.ecommercehub.gateway.accesslog;
+
+import java.util.Arrays;
+
+/**
+ * One access-log entry
+ * <p>
+ * Instances are preallocated by {@link AccessLogRingBuffer} and reused: producers
+ * overwrite every field of a claimed slot, the writer reads it and hands the slot back.
+ * Header values are stored positionally, in the order of the configured allowlist.
+ */
+public final class AccessLogRecord {
+
+    long timestampMillis;
+    long durationNanos;
+    String method;
+    String path;
+    String query;
+    int status;
+    String routeId;
+    String requestId;
+    String clientAddress;
+    boolean guaranteed;
+    // Claimed but given back unfilled, see AccessLogRingBuffer.discard
+    boolean discarded;
+    final String[] requestHeaders;
+    final String[] responseHeaders;
+
+    AccessLogRecord(int requestHeaderCount, int responseHeaderCount) {
+        this.requestHeaders = new String[requestHeaderCount];
+        this.responseHeaders = new String[responseHeaderCount];
+    }
+
+    public void set(long timestampMillis, long durationNanos, String method, String path, String query,
+                    int status, String routeId, String requestId, String clientAddress, boolean guaranteed) {
+        this.timestampMillis = timestampMillis;
+        this.durationNanos = durationNanos;
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.status = status;
+        this.routeId = routeId;
+        this.requestId = requestId;
+        this.clientAddress = clientAddress;
+        this.guaranteed = guaranteed;
+        this.discarded = false;
+    }
+
+    public String[] requestHeaders() {
+        return requestHeaders;
+    }
+
+    public String[] responseHeaders() {
+        return responseHeaders;
+    }
+
+    void clear() {
+        set(0, 0, null, null, null, 0, null, null, null, false);
+        Arrays.fill(requestHeaders, null);
+        Arrays.fill(responseHeaders, null);
+        this.discarded = true;
+    }
+}
@@ -0,0 +1,171 @@
+package com.ecommercehub.gateway.accesslog;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer / single-consumer ring of preallocated access-log records
+ * <p>
+ * Producers (event-loop threads) claim a slot with one CAS, fill it in place and
+ * publish it; nothing is allocated per request. When the ring is full, sampled
+ * records are dropped and counted, while guaranteed records (slow or failed
+ * requests) go to a small overflow queue instead.
+ * <p>
+ * Usage on the producer side:
+ * <pre>
+ * long seq = ring.tryClaim();
+ * if (seq >= 0) {
+ *     try {
+ *         ring.get(seq).set(...);
+ *     } finally {
+ *         ring.publish(seq); // or ring.discard(seq) if filling failed
+ *     }
+ * }
+ * </pre>
+ * The consumer stops at the first unpublished slot, so every claimed sequence has
+ * to be published or discarded.
+ */
+public class AccessLogRingBuffer {
+
+    private final AccessLogRecord[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    private final Queue<AccessLogRecord> overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowSize = new AtomicInteger();
+    private final int maxOverflow;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final int requestHeaderCount;
+    private final int responseHeaderCount;
+
+    public AccessLogRingBuffer(int capacity, int maxOverflow, int requestHeaderCount, int responseHeaderCount) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two, got " + capacity);
+        }
+        this.slots = new AccessLogRecord[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.maxOverflow = maxOverflow;
+        this.requestHeaderCount = requestHeaderCount;
+        this.responseHeaderCount = responseHeaderCount;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new AccessLogRecord(requestHeaderCount, responseHeaderCount);
+            // Slot i is free for sequence i
+            published.set(i, i - 1);
+        }
+    }
+
+    /**
+     * Claim the next slot
+     *
+     * @return the sequence to fill and publish, or -1 when the ring is full
+     */
+    public long tryClaim() {
+        while (true) {
+            long seq = producerIndex.get();
+            if (seq - consumerIndex.get() >= slots.length) {
+                return -1;
+            }
+            if (producerIndex.compareAndSet(seq, seq + 1)) {
+                return seq;
+            }
+        }
+    }
+
+    public AccessLogRecord get(long seq) {
+        return slots[(int) (seq & mask)];
+    }
+
+    public void publish(long seq) {
+        published.lazySet((int) (seq & mask), seq);
+    }
+
+    /**
+     * Give a claimed slot back unfilled; the consumer skips it and counts a drop
+     */
+    public void discard(long seq) {
+        get(seq).clear();
+        dropped.incrementAndGet();
+        publish(seq);
+    }
+
+    /**
+     * Fresh record for the overflow path, sized like the ring slots
+     */
+    public AccessLogRecord newRecord() {
+        return new AccessLogRecord(requestHeaderCount, responseHeaderCount);
+    }
+
+    /**
+     * Queue a guaranteed record that did not fit into the ring
+     *
+     * @return false if even the overflow queue is full
+     */
+    public boolean offerOverflow(AccessLogRecord record) {
+        if (overflowSize.incrementAndGet() > maxOverflow) {
+            overflowSize.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        overflow.offer(record);
+        return true;
+    }
+
+    public void recordDrop() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Hand up to {@code max} published records to the handler, in order.
+     * Must only be called from the single writer thread.
+     *
+     * @return number of records handled
+     */
+    public int drain(Consumer<AccessLogRecord> handler, int max) {
+        int count = 0;
+
+        AccessLogRecord extra;
+        while (count < max && (extra = overflow.poll()) != null) {
+            overflowSize.decrementAndGet();
+            handler.accept(extra);
+            count++;
+        }
+
+        long next = consumerIndex.get();
+        while (count < max) {
+            int index = (int) (next & mask);
+            if (published.get(index) != next) {
+                break;
+            }
+            if (!slots[index].discarded) {
+                handler.accept(slots[index]);
+            }
+            next++;
+            count++;
+            // Free the slot for producers only after the handler is done with it
+            consumerIndex.lazySet(next);
+        }
+        return count;
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long pending() {
+        return producerIndex.get() - consumerIndex.get() + overflowSize.get();
+    }
+}
@@ -0,0 +1,178 @@
+package com.ecommercehub.gateway.accesslog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer for the access log
+ * <p>
+ * Owns the ring buffer and a single daemon thread that drains it, turns each
+ * record into one JSON line and hands it to the "gateway.access" logger.
+ * All formatting and appender I/O happen here, off the Netty event loop.
+ */
+@Slf4j
+@Component
+public class AccessLogWriter implements SmartLifecycle {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("gateway.access");
+    private static final int DRAIN_BATCH = 256;
+
+    private final AccessLogProperties properties;
+    private final AccessLogRingBuffer ringBuffer;
+    private final String[] requestHeaderNames;
+    private final String[] responseHeaderNames;
+
+    // Only touched by the writer thread
+    private final StringBuilder line = new StringBuilder(512);
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public AccessLogWriter(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.requestHeaderNames = toLowerCase(properties.getRequestHeaders());
+        this.responseHeaderNames = toLowerCase(properties.getResponseHeaders());
+        this.ringBuffer = new AccessLogRingBuffer(properties.getBufferSize(), properties.getMaxOverflow(),
+                requestHeaderNames.length, responseHeaderNames.length);
+
+        FunctionCounter.builder("gateway.access.log.dropped", ringBuffer, AccessLogRingBuffer::droppedCount)
+                .description("Access log records dropped because the buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("gateway.access.log.pending", ringBuffer, AccessLogRingBuffer::pending)
+                .description("Access log records waiting for the writer")
+                .register(meterRegistry);
+    }
+
+    public AccessLogRingBuffer ringBuffer() {
+        return ringBuffer;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "access-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        long idleNanos = properties.getIdleWait().toNanos();
+        while (running) {
+            try {
+                if (ringBuffer.drain(this::write, DRAIN_BATCH) == 0) {
+                    LockSupport.parkNanos(idleNanos);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Access log writer failed to write a record", e);
+            }
+        }
+        // Flush whatever is left on shutdown
+        while (ringBuffer.drain(this::write, DRAIN_BATCH) > 0) {
+            // keep draining
+        }
+    }
+
+    private void write(AccessLogRecord record) {
+        if (!ACCESS_LOG.isInfoEnabled()) {
+            return;
+        }
+        StringBuilder sb = line;
+        sb.setLength(0);
+        sb.append('{');
+        field(sb, "ts", Instant.ofEpochMilli(record.timestampMillis).toString()).append(',');
+        field(sb, "requestId", record.requestId).append(',');
+        field(sb, "route", record.routeId).append(',');
+        field(sb, "method", record.method).append(',');
+        field(sb, "path", record.path).append(',');
+        field(sb, "query", record.query).append(',');
+        sb.append("\"status\":").append(record.status).append(',');
+        sb.append("\"durationMs\":").append(record.durationNanos / 1_000_000).append('.')
+                .append((record.durationNanos / 1_000) % 1_000 / 100).append(',');
+        field(sb, "client", record.clientAddress);
+        headers(sb, "requestHeaders", requestHeaderNames, record.requestHeaders);
+        headers(sb, "responseHeaders", responseHeaderNames, record.responseHeaders);
+        if (record.guaranteed) {
+            sb.append(",\"forced\":true");
+        }
+        sb.append('}');
+        ACCESS_LOG.info(sb.toString());
+    }
+
+    private static void headers(StringBuilder sb, String name, String[] names, String[] values) {
+        if (names.length == 0) {
+            return;
+        }
+        sb.append(",\"").append(name).append("\":{");
+        boolean first = true;
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            field(sb, names[i], values[i]);
+            first = false;
+        }
+        sb.append('}');
+    }
+
+    private static StringBuilder field(StringBuilder sb, String name, String value) {
+        sb.append('"').append(name).append("\":");
+        if (value == null) {
+            return sb.append("null");
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"');
+    }
+
+    private static String[] toLowerCase(List<String> names) {
+        return names.stream().map(String::toLowerCase).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,245 @@
+package com.ecommercehub.gateway.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the sub-requests of a batch through the gateway, in parallel
+ * <p>
+ * Every sub-request goes through the application's whole HTTP handler, exactly like
+ * a request from the network: security, global filters, route lookup, rate limiting,
+ * circuit breakers and fallbacks all apply per sub-request. Only the socket is
+ * skipped; the response is collected in memory (see {@link BatchPartResponse}).
+ * <p>
+ * Sub-requests carry the batch request's headers (auth, user ID, correlation ID)
+ * plus their own. Results are emitted as they complete, not in request order.
+ * <p>
+ * Meter: gateway.batch.size, sub-requests per batch.
+ */
+@Slf4j
+@Component
+public class BatchDispatcher {
+
+    public static final String PATH = "/api/batch";
+
+    // Describe the batch request's own body, or are per-hop
+    private static final Set<String> SKIPPED_REQUEST_HEADERS = Set.of(
+            "content-length", "content-type", "transfer-encoding", "expect", "connection", "upgrade",
+            // Sub-responses are read by the gateway, not the client
+            "accept-encoding");
+
+    private static final Set<String> SKIPPED_RESPONSE_HEADERS = Set.of(
+            "content-length", "transfer-encoding", "connection", "keep-alive");
+
+    private final HttpHandler httpHandler;
+    private final BatchProperties properties;
+    private final ObjectMapper objectMapper;
+    private final DistributionSummary batchSize;
+
+    public BatchDispatcher(@Lazy HttpHandler httpHandler,
+                           BatchProperties properties,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.httpHandler = httpHandler;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.batchSize = DistributionSummary.builder("gateway.batch.size")
+                .description("Sub-requests per batch request")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads and validates the batch request body; errors are ResponseStatusExceptions
+     */
+    public Mono<BatchRequest> read(ServerWebExchange exchange) {
+        int maxSize = (int) properties.getMaxRequestSize().toBytes();
+        return DataBufferUtils.join(exchange.getRequest().getBody(), maxSize)
+                .map(buffer -> {
+                    try (InputStream in = buffer.asInputStream(true)) {
+                        return objectMapper.readValue(in, BatchRequest.class);
+                    } catch (IOException e) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed batch request", e);
+                    }
+                })
+                .onErrorMap(DataBufferLimitException.class, e -> new ResponseStatusException(
+                        HttpStatus.PAYLOAD_TOO_LARGE, "Batch request is larger than " + maxSize + " bytes"))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty batch request")))
+                .doOnNext(this::validate);
+    }
+
+    /**
+     * Results of all sub-requests, in completion order
+     */
+    public Flux<BatchResult> dispatch(ServerWebExchange exchange, BatchRequest batch) {
+        List<BatchRequest.Part> parts = batch.getRequests();
+        batchSize.record(parts.size());
+        return Flux.range(0, parts.size())
+                .flatMap(index -> dispatch(exchange, parts.get(index), index), properties.getMaxConcurrency());
+    }
+
+    private Mono<BatchResult> dispatch(ServerWebExchange exchange, BatchRequest.Part part, int index) {
+        String id = part.getId();
+        return Mono.defer(() -> {
+                    BatchPartRequest request = new BatchPartRequest(exchange.getRequest(), index,
+                            HttpMethod.valueOf(part.getMethod().toUpperCase()),
+                            exchange.getRequest().getURI().resolve(part.getPath()),
+                            headers(exchange.getRequest().getHeaders(), part), body(part));
+                    BatchPartResponse response = new BatchPartResponse(exchange.getResponse().bufferFactory(),
+                            (int) properties.getMaxResponseSize().toBytes());
+                    return httpHandler.handle(request, response)
+                            .then(Mono.fromSupplier(() -> result(id, response)));
+                })
+                .timeout(properties.getTimeout(),
+                        Mono.fromSupplier(() -> BatchResult.failed(id, HttpStatus.GATEWAY_TIMEOUT.value(), "Timed out")))
+                .onErrorResume(e -> {
+                    log.warn("Batch sub-request {} {} failed: {}", id, part.getPath(), e.toString());
+                    return Mono.just(BatchResult.failed(id, HttpStatus.BAD_GATEWAY.value(), "Sub-request failed"));
+                });
+    }
+
+    private void validate(BatchRequest batch) {
+        List<BatchRequest.Part> parts = batch.getRequests();
+        if (parts == null || parts.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch has no requests");
+        }
+        if (parts.size() > properties.getMaxRequests()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch has " + parts.size() + " requests, at most " + properties.getMaxRequests() + " are allowed");
+        }
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < parts.size(); i++) {
+            BatchRequest.Part part = parts.get(i);
+            if (part.getId() == null) {
+                part.setId(Integer.toString(i));
+            }
+            if (!ids.add(part.getId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate request id " + part.getId());
+            }
+            if (part.getMethod() == null) {
+                part.setMethod(HttpMethod.GET.name());
+            }
+            if (!isGatewayPath(part.getPath())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid path for request " + part.getId());
+            }
+        }
+    }
+
+    private static boolean isGatewayPath(String path) {
+        if (path == null || !path.startsWith("/") || path.startsWith("//")) {
+            return false;
+        }
+        try {
+            URI uri = new URI(path).normalize();
+            // No absolute URIs, and no batches inside batches
+            return uri.getScheme() == null && uri.getRawAuthority() == null && !uri.getPath().startsWith(PATH);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static HttpHeaders headers(HttpHeaders batchHeaders, BatchRequest.Part part) {
+        HttpHeaders headers = new HttpHeaders();
+        batchHeaders.forEach((name, values) -> {
+            if (!SKIPPED_REQUEST_HEADERS.contains(name.toLowerCase())) {
+                headers.addAll(name, values);
+            }
+        });
+        if (part.getHeaders() != null) {
+            part.getHeaders().forEach(headers::set);
+        }
+        if (part.getBody() != null && headers.getContentType() == null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        return headers;
+    }
+
+    private byte[] body(BatchRequest.Part part) {
+        if (part.getBody() == null || part.getBody().isNull()) {
+            return new byte[0];
+        }
+        try {
+            return objectMapper.writeValueAsBytes(part.getBody());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unwritable body", e);
+        }
+    }
+
+    private BatchResult result(String id, BatchPartResponse response) {
+        if (response.isTooLarge()) {
+            return BatchResult.failed(id, HttpStatus.BAD_GATEWAY.value(), "Response larger than "
+                    + properties.getMaxResponseSize().toBytes() + " bytes");
+        }
+        HttpStatusCode status = response.getStatusCode();
+        HttpHeaders responseHeaders = response.getHeaders();
+        Map<String, String> headers = new LinkedHashMap<>();
+        responseHeaders.forEach((name, values) -> {
+            if (!SKIPPED_RESPONSE_HEADERS.contains(name.toLowerCase())) {
+                headers.put(name, String.join(", ", values));
+            }
+        });
+
+        byte[] body = response.getBody();
+        JsonNode json = null;
+        String text = null;
+        byte[] data = null;
+        if (body.length > 0) {
+            MediaType type = responseHeaders.getContentType();
+            boolean encoded = responseHeaders.containsKey(HttpHeaders.CONTENT_ENCODING);
+            json = !encoded && isJson(type) ? parse(body) : null;
+            if (json == null) {
+                if (!encoded && (type == null || isText(type) || isJson(type))) {
+                    text = new String(body, type != null && type.getCharset() != null
+                            ? type.getCharset() : StandardCharsets.UTF_8);
+                } else {
+                    data = body;
+                }
+            }
+        }
+        return new BatchResult(id, status != null ? status.value() : HttpStatus.OK.value(), headers, json, text, data, null);
+    }
+
+    private JsonNode parse(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            // Not JSON after all; sent as text
+            return null;
+        }
+    }
+
+    private static boolean isJson(MediaType type) {
+        return type != null && (MediaType.APPLICATION_JSON.isCompatibleWith(type) || type.getSubtype().endsWith("+json"));
+    }
+
+    private static boolean isText(MediaType type) {
+        return "text".equals(type.getType()) || type.getSubtype().endsWith("xml")
+                || MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(type);
+    }
+}
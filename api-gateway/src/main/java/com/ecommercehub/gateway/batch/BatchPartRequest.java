@@ -0,0 +1,75 @@
+package com.ecommercehub.gateway.batch;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.AbstractServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.SslInfo;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import reactor.core.publisher.Flux;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+/**
+ * One sub-request of a batch, as seen by the gateway's filter chain
+ * <p>
+ * Connection details (client address, TLS, cookies) are the batch request's, so key
+ * resolvers and rate limits treat it like a call the client made directly.
+ */
+final class BatchPartRequest extends AbstractServerHttpRequest {
+
+    private final ServerHttpRequest batch;
+    private final int index;
+    private final byte[] body;
+
+    BatchPartRequest(ServerHttpRequest batch, int index, HttpMethod method, URI uri, HttpHeaders headers, byte[] body) {
+        super(method, uri, null, headers);
+        this.batch = batch;
+        this.index = index;
+        this.body = body;
+    }
+
+    @Override
+    protected String initId() {
+        return batch.getId() + "-" + index;
+    }
+
+    @Override
+    protected MultiValueMap<String, HttpCookie> initCookies() {
+        return new LinkedMultiValueMap<>(batch.getCookies());
+    }
+
+    @Override
+    protected SslInfo initSslInfo() {
+        return batch.getSslInfo();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return batch.getRemoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return batch.getLocalAddress();
+    }
+
+    @Override
+    public <T> T getNativeRequest() {
+        return ServerHttpRequestDecorator.getNativeRequest(batch);
+    }
+
+    @Override
+    public Flux<DataBuffer> getBody() {
+        if (body.length == 0) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)));
+    }
+}
@@ -0,0 +1,78 @@
+package com.ecommercehub.gateway.batch;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Collects the response to one sub-request in memory instead of writing it to a socket
+ * <p>
+ * Bodies over the limit are dropped and only flagged, so one large response cannot
+ * hold the whole batch's memory.
+ */
+final class BatchPartResponse extends AbstractServerHttpResponse {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int maxBodySize;
+    private volatile byte[] body = EMPTY;
+    private volatile boolean tooLarge;
+
+    BatchPartResponse(DataBufferFactory bufferFactory, int maxBodySize) {
+        super(bufferFactory);
+        this.maxBodySize = maxBodySize;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    boolean isTooLarge() {
+        return tooLarge;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getNativeResponse() {
+        return (T) this;
+    }
+
+    @Override
+    protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> body) {
+        // join() returns a Mono as it is, without applying the limit
+        return DataBufferUtils.join(Flux.from(body), maxBodySize)
+                .doOnNext(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    this.body = bytes;
+                })
+                .onErrorResume(DataBufferLimitException.class, e -> {
+                    tooLarge = true;
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    @Override
+    protected Mono<Void> writeAndFlushWithInternal(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return writeWithInternal(Flux.from(body).concatMap(Flux::from));
+    }
+
+    @Override
+    protected void applyStatusCode() {
+    }
+
+    @Override
+    protected void applyHeaders() {
+    }
+
+    @Override
+    protected void applyCookies() {
+    }
+}
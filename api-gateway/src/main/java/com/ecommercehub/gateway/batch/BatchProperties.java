@@ -0,0 +1,44 @@
+package com.ecommercehub.gateway.batch;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the /api/batch endpoint (gateway.batch.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.batch")
+public class BatchProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Most sub-requests in one batch
+     */
+    private int maxRequests = 20;
+
+    /**
+     * Sub-requests of one batch in flight at once
+     */
+    private int maxConcurrency = 10;
+
+    /**
+     * Largest batch request body, sub-request bodies included
+     */
+    private DataSize maxRequestSize = DataSize.ofKilobytes(256);
+
+    /**
+     * Largest sub-response body; larger ones are reported as 502 without a body
+     */
+    private DataSize maxResponseSize = DataSize.ofMegabytes(1);
+
+    /**
+     * Time limit per sub-request; slower ones are reported as 504
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,50 @@
+package com.ecommercehub.gateway.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Body of POST /api/batch
+ * <pre>
+ * {"requests": [
+ *   {"id": "product", "path": "/api/products/42"},
+ *   {"id": "cart", "method": "POST", "path": "/api/cart/items", "body": {"productId": 42}}
+ * ]}
+ * </pre>
+ */
+@Data
+public class BatchRequest {
+
+    private List<Part> requests = new ArrayList<>();
+
+    @Data
+    public static class Part {
+
+        /**
+         * Echoed in the result so the client can match it; defaults to the index
+         */
+        private String id;
+
+        private String method = "GET";
+
+        /**
+         * Gateway path with query string, e.g. /api/products?category=books
+         */
+        private String path;
+
+        /**
+         * Added to the batch request's own headers
+         */
+        private Map<String, String> headers = new LinkedHashMap<>();
+
+        /**
+         * Sent as application/json unless headers say otherwise
+         */
+        private JsonNode body;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommercehub.gateway.batch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+/**
+ * Outcome of one sub-request, streamed as one line of the batch response
+ * <p>
+ * The body is in exactly one of body (JSON, inlined), text (other text types)
+ * or data (anything else, base64). error is set when the sub-request produced no
+ * response of its own, e.g. on a timeout.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class BatchResult {
+
+    private final String id;
+    private final int status;
+    private final Map<String, String> headers;
+    private final JsonNode body;
+    private final String text;
+    private final byte[] data;
+    private final String error;
+
+    BatchResult(String id, int status, Map<String, String> headers, JsonNode body, String text, byte[] data, String error) {
+        this.id = id;
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.text = text;
+        this.data = data;
+        this.error = error;
+    }
+
+    static BatchResult failed(String id, int status, String error) {
+        return new BatchResult(id, status, null, null, null, null, error);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public JsonNode getBody() {
+        return body;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ecommercehub.gateway.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Response decorator that copies the body while it streams to the client
+ * <p>
+ * The body is not held back: every buffer is copied and passed on unchanged, so
+ * capturing adds no latency. Once the body completes, the listener receives the
+ * status, headers and bytes. Bodies larger than {@code maxBodyBytes} are
+ * streamed as usual but never reported.
+ * <p>
+ * Responses matching {@code holdBody} are the exception: their body is held until it
+ * completes or outgrows the limit, so the listener runs before anything is written
+ * and may still set headers (the response cache adds the ETag it computed).
+ * <p>
+ * Streaming responses (writeAndFlushWith, e.g. SSE) are never captured.
+ */
+public class BodyCapturingResponseDecorator extends ServerHttpResponseDecorator {
+
+    /**
+     * Callback for a fully captured response body
+     */
+    @FunctionalInterface
+    public interface CaptureListener {
+        void onCaptured(HttpStatusCode status, HttpHeaders headers, byte[] body);
+    }
+
+    private final int maxBodyBytes;
+    private final Predicate<ServerHttpResponse> shouldCapture;
+    private final Predicate<ServerHttpResponse> holdBody;
+    private final CaptureListener listener;
+
+    public BodyCapturingResponseDecorator(ServerHttpResponse delegate,
+                                          int maxBodyBytes,
+                                          Predicate<ServerHttpResponse> shouldCapture,
+                                          CaptureListener listener) {
+        this(delegate, maxBodyBytes, shouldCapture, response -> false, listener);
+    }
+
+    public BodyCapturingResponseDecorator(ServerHttpResponse delegate,
+                                          int maxBodyBytes,
+                                          Predicate<ServerHttpResponse> shouldCapture,
+                                          Predicate<ServerHttpResponse> holdBody,
+                                          CaptureListener listener) {
+        super(delegate);
+        this.maxBodyBytes = maxBodyBytes;
+        this.shouldCapture = shouldCapture;
+        this.holdBody = holdBody;
+        this.listener = listener;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (!shouldCapture.test(getDelegate())) {
+            return super.writeWith(body);
+        }
+
+        long contentLength = getHeaders().getContentLength();
+        if (contentLength > maxBodyBytes) {
+            return super.writeWith(body);
+        }
+
+        Accumulator accumulator = new Accumulator(contentLength > 0 ? (int) contentLength : 1024, maxBodyBytes);
+        if (holdBody.test(getDelegate())) {
+            // One list with the whole body, or the prefix that overflowed and then
+            // every later buffer on its own
+            Flux<DataBuffer> held = Flux.<DataBuffer>from(body)
+                    .bufferUntil(buffer -> {
+                        accumulator.append(buffer);
+                        return accumulator.overflowed;
+                    })
+                    .doOnNext(buffers -> report(accumulator))
+                    .doOnComplete(() -> report(accumulator))
+                    .concatMapIterable(buffers -> buffers)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+            return super.writeWith(held);
+        }
+
+        Flux<? extends DataBuffer> copying = Flux.from(body)
+                .doOnNext(accumulator::append)
+                .doOnComplete(() -> {
+                    if (!accumulator.overflowed) {
+                        listener.onCaptured(getStatusCode(), getHeaders(), accumulator.toByteArray());
+                    }
+                });
+        return super.writeWith(copying);
+    }
+
+    private void report(Accumulator accumulator) {
+        if (!accumulator.overflowed && !accumulator.reported) {
+            accumulator.reported = true;
+            listener.onCaptured(getStatusCode(), getHeaders(), accumulator.toByteArray());
+        }
+    }
+
+    /**
+     * Growable byte array that gives up once the limit is exceeded
+     */
+    private static final class Accumulator {
+
+        private final int limit;
+        private byte[] bytes;
+        private int size;
+        private boolean overflowed;
+        private boolean reported;
+
+        Accumulator(int initialCapacity, int limit) {
+            this.limit = limit;
+            this.bytes = new byte[Math.min(initialCapacity, limit)];
+        }
+
+        void append(DataBuffer buffer) {
+            if (overflowed) {
+                return;
+            }
+            int length = buffer.readableByteCount();
+            if (size + length > limit) {
+                overflowed = true;
+                bytes = null;
+                return;
+            }
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.min(limit, Math.max(bytes.length * 2, size + length)));
+            }
+            // Copy without moving the read position, the buffer still has to be written out
+            int position = buffer.readPosition();
+            buffer.read(bytes, size, length);
+            buffer.readPosition(position);
+            size += length;
+        }
+
+        byte[] toByteArray() {
+            return bytes.length == size ? bytes : Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.ecommercehub.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * Immutable copy of an upstream response held by the gateway response cache
+ * <p>
+ * Only end-to-end headers are kept. Per-exchange headers (correlation IDs, CORS,
+ * rate-limit headers, Date, hop-by-hop headers) are dropped so a cache hit never
+ * leaks another client's values.
+ */
+public final class CachedResponse {
+
+    private static final Set<String> SKIPPED_HEADERS = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "te", "trailer", "upgrade",
+            "proxy-authenticate", "proxy-authorization", "date", "age", "set-cookie",
+            "x-gateway-request-id", "x-cache");
+
+    // Rough fixed cost of the entry object, key and header map
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final String etag;
+    private final long storedAtMillis;
+    private final Duration ttl;
+
+    public CachedResponse(int status, HttpHeaders upstreamHeaders, byte[] body,
+                          String etag, long storedAtMillis, Duration ttl) {
+        this.status = status;
+        this.headers = copyEndToEnd(upstreamHeaders);
+        this.headers.setETag(etag);
+        this.body = body;
+        this.etag = etag;
+        this.storedAtMillis = storedAtMillis;
+        this.ttl = ttl;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Headers to replay on a hit; callers must not modify them
+     */
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public long ageSeconds(long nowMillis) {
+        return Math.max(0, (nowMillis - storedAtMillis) / 1000);
+    }
+
+    /**
+     * Approximate memory footprint, used as the cache weight
+     */
+    public int weight() {
+        int headerBytes = 0;
+        for (var entry : headers.entrySet()) {
+            headerBytes += entry.getKey().length();
+            for (String value : entry.getValue()) {
+                headerBytes += value.length();
+            }
+        }
+        return ENTRY_OVERHEAD_BYTES + body.length + headerBytes * 2;
+    }
+
+    static HttpHeaders copyEndToEnd(HttpHeaders source) {
+        HttpHeaders copy = new HttpHeaders();
+        source.forEach((name, values) -> {
+            String lower = name.toLowerCase();
+            if (!SKIPPED_HEADERS.contains(lower)
+                    && !lower.startsWith("access-control-")
+                    && !lower.startsWith("x-ratelimit-")) {
+                copy.put(name, new ArrayList<>(values));
+            }
+        });
+        return copy;
+    }
+}
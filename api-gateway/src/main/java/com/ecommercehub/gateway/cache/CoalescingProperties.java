@@ -0,0 +1,43 @@
+package com.ecommercehub.gateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for single-flight request coalescing (gateway.request-coalescing.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.request-coalescing")
+public class CoalescingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Request headers that are part of the coalescing key, besides method, path and query.
+     * Requests that differ in any of them never share a response.
+     */
+    private List<String> keyHeaders = new ArrayList<>(
+            List.of("Accept", "Accept-Encoding", "Accept-Language", "Authorization"));
+
+    /**
+     * Most requests that may wait on one in-flight call; later ones go upstream themselves
+     */
+    private int maxWaiters = 256;
+
+    /**
+     * Responses larger than this are not shared; waiters then go upstream themselves
+     */
+    private DataSize maxBodySize = DataSize.ofMegabytes(1);
+
+    /**
+     * How long a waiter waits for the in-flight call before going upstream itself
+     */
+    private Duration maxWait = Duration.ofSeconds(3);
+}
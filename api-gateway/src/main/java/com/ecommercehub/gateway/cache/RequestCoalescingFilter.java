@@ -0,0 +1,197 @@
+package com.ecommercehub.gateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-flight coalescing of identical concurrent GETs
+ * <p>
+ * The first request for a key (the leader) goes upstream as usual; identical requests
+ * that arrive while it is in flight wait for its response instead of making their own
+ * call. The key is method, path, query and the configured key headers.
+ * <p>
+ * Limits, after which a request simply goes upstream on its own:
+ * - more than maxWaiters requests already waiting on the same call
+ * - the leader's response is larger than maxBodySize, or streamed
+ * - no response within maxWait
+ * - the leader fails or is cancelled
+ * <p>
+ * Like the response cache it runs before NettyWriteResponseFilter, but the routes put
+ * the rate limiter ahead of it: every waiter is charged its tokens as if it had gone
+ * upstream, so coalescing cannot be used to get past a quota. Waiters still cost no
+ * upstream call, no concurrency slot and no circuit-breaker call; a stampede counts as
+ * one call against the breaker. Only use it on routes whose GETs are idempotent and
+ * not personalised beyond the key headers.
+ */
+@Slf4j
+@Component
+public class RequestCoalescingFilter implements GatewayFilter, Ordered {
+
+    public static final String COALESCED_HEADER = "X-Coalesced";
+
+    private final CoalescingProperties properties;
+    private final String[] keyHeaders;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter fallThroughs;
+
+    public RequestCoalescingFilter(CoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.keyHeaders = properties.getKeyHeaders().toArray(String[]::new);
+
+        this.leaders = outcomeCounter(meterRegistry, "leader");
+        this.followers = outcomeCounter(meterRegistry, "coalesced");
+        this.fallThroughs = outcomeCounter(meterRegistry, "fell-through");
+        Gauge.builder("gateway.coalescing.in.flight", inFlight, Map::size)
+                .description("Distinct requests currently in flight with possible waiters")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || !isCoalescable(request)) {
+            return chain.filter(exchange);
+        }
+
+        String key = coalescingKey(request);
+        InFlight candidate = new InFlight();
+        InFlight existing = inFlight.putIfAbsent(key, candidate);
+        if (existing == null) {
+            return lead(exchange, chain, key, candidate);
+        }
+        if (existing.waiters.incrementAndGet() > properties.getMaxWaiters()) {
+            fallThroughs.increment();
+            return chain.filter(exchange);
+        }
+        return follow(exchange, chain, existing);
+    }
+
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key, InFlight call) {
+        leaders.increment();
+        BodyCapturingResponseDecorator capturing = new BodyCapturingResponseDecorator(
+                exchange.getResponse(),
+                (int) properties.getMaxBodySize().toBytes(),
+                response -> true,
+                (status, headers, body) -> call.result.tryEmitValue(new SharedResponse(status, headers, body)));
+
+        return chain.filter(exchange.mutate().response(capturing).build())
+                .doFinally(signal -> {
+                    inFlight.remove(key, call);
+                    // No-op if the response was already shared; otherwise release the waiters
+                    call.result.tryEmitEmpty();
+                });
+    }
+
+    private Mono<Void> follow(ServerWebExchange exchange, GatewayFilterChain chain, InFlight call) {
+        return call.result.asMono()
+                .timeout(properties.getMaxWait(), Mono.empty())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(shared -> {
+                    if (shared.isPresent()) {
+                        followers.increment();
+                        return write(exchange.getResponse(), shared.get());
+                    }
+                    fallThroughs.increment();
+                    return chain.filter(exchange);
+                });
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status);
+        response.getHeaders().putAll(shared.headers);
+        response.getHeaders().set(COALESCED_HEADER, "true");
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body)));
+    }
+
+    private static boolean isCoalescable(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        // Conditional requests get per-client answers (304 or not), leave them alone
+        return HttpMethod.GET.equals(request.getMethod())
+                && !headers.containsKey(HttpHeaders.IF_NONE_MATCH)
+                && !headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+                && !headers.containsKey(HttpHeaders.RANGE);
+    }
+
+    private String coalescingKey(ServerHttpRequest request) {
+        StringBuilder key = new StringBuilder(128)
+                .append(request.getMethod().name()).append(' ')
+                .append(request.getURI().getRawPath());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        HttpHeaders headers = request.getHeaders();
+        for (String name : keyHeaders) {
+            List<String> values = headers.get(name);
+            // Separator that cannot appear in a header value
+            key.append('\n');
+            if (values != null) {
+                key.append(values);
+            }
+        }
+        return key.toString();
+    }
+
+    @Override
+    public int getOrder() {
+        // Must wrap the response before NettyWriteResponseFilter writes the upstream body
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("gateway.coalescing.requests")
+                .description("Coalescable requests by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * One upstream call and the requests waiting for it
+     */
+    private static final class InFlight {
+
+        final Sinks.One<SharedResponse> result = Sinks.one();
+        final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    /**
+     * Leader response as replayed to waiters, with per-exchange headers removed
+     */
+    private static final class SharedResponse {
+
+        final HttpStatusCode status;
+        final HttpHeaders headers;
+        final byte[] body;
+
+        SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = CachedResponse.copyEndToEnd(headers);
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.ecommercehub.gateway.cache;
+
+import com.ecommercehub.gateway.compression.ContentEncoding;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR;
+
+/**
+ * Shared response cache for catalog GETs
+ * <p>
+ * Must be the first filter of its route: a hit is answered right here and never
+ * reaches the rate limiter, the circuit breaker or the load balancer. It is ordered
+ * before NettyWriteResponseFilter, which writes the upstream body to the response
+ * it was given, so the capturing decorator has to be in place by then.
+ * <p>
+ * - Memory is bounded by total entry weight (body + headers)
+ * - Eviction is frequency-aware (Caffeine W-TinyLFU), so one-off requests
+ *   cannot flush the popular products out of the cache
+ * - TTL comes from the upstream Cache-Control (s-maxage, max-age) or Expires,
+ *   with a default for responses that carry neither
+ * - Responses marked no-store, private or no-cache, or setting cookies, are not stored
+ * - Requests with Authorization or Cookie may be personalised (RFC 9111 section 3.5):
+ *   they are only answered from, and stored into, entries the upstream marked public
+ *   or gave an s-maxage
+ * - Circuit breaker fallbacks (including replayed stale responses) are not stored
+ * - If-None-Match is answered with a bodiless 304 when the ETag matches; a storable
+ *   miss without an upstream ETag is held until complete and sent with the ETag
+ *   computed from its body, so the client can revalidate from the next request on
+ * - Entries are kept per negotiated content coding, so on routes with response
+ *   compression each coding is compressed once and then served from the cache
+ * <p>
+ * Hit/miss/eviction metrics are published as cache.* with cache=gateway-response-cache.
+ */
+@Slf4j
+@Component
+public class ResponseCacheFilter implements GatewayFilter, Ordered {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+    public static final String CACHE_NAME = "gateway-response-cache";
+
+    private final ResponseCacheProperties properties;
+    private final Cache<String, CachedResponse> cache;
+    private final Counter notModifiedCounter;
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse value) -> value.weight())
+                .expireAfter(new TtlExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("gateway.response.cache.weight", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("Approximate bytes held by the gateway response cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.notModifiedCounter = Counter.builder("gateway.response.cache.not.modified")
+                .description("Cache hits answered with 304 Not Modified")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || !HttpMethod.GET.equals(request.getMethod())) {
+            return chain.filter(exchange);
+        }
+
+        boolean credentialed = hasCredentials(request);
+        String key = variantKey(request);
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && (!credentialed || isShareable(cached.getHeaders()))) {
+            return writeCached(exchange, cached);
+        }
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+        response.beforeCommit(() -> {
+            // Keep the old route behaviour: cacheable GETs tell clients to cache for the default TTL
+            if (HttpStatus.OK.equals(response.getStatusCode())
+                    && !response.getHeaders().containsKey(HttpHeaders.CACHE_CONTROL)) {
+                response.getHeaders().setCacheControl("max-age=" + properties.getDefaultTtl().toSeconds());
+            }
+            return Mono.empty();
+        });
+
+        BodyCapturingResponseDecorator capturing = new BodyCapturingResponseDecorator(
+                response,
+                (int) properties.getMaxEntrySize().toBytes(),
+                storable -> !isFallback(exchange, storable) && isStorable(storable)
+                        && (!credentialed || isShareable(storable.getHeaders())),
+                storable -> storable.getHeaders().getETag() == null,
+                (status, headers, body) -> {
+                    String etag = store(key, status, headers, body);
+                    if (etag != null && !response.isCommitted() && headers.getETag() == null) {
+                        headers.setETag(etag);
+                    }
+                });
+
+        return chain.filter(exchange.mutate().response(capturing).build());
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        long age = cached.ageSeconds(System.currentTimeMillis());
+
+        if (etagMatches(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.getEtag())) {
+            notModifiedCounter.increment();
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.setETag(cached.getEtag());
+            copyIfPresent(cached.getHeaders(), headers, HttpHeaders.CACHE_CONTROL);
+            copyIfPresent(cached.getHeaders(), headers, HttpHeaders.EXPIRES);
+            copyIfPresent(cached.getHeaders(), headers, HttpHeaders.VARY);
+            headers.set(HttpHeaders.AGE, Long.toString(age));
+            headers.set(CACHE_STATUS_HEADER, "HIT");
+            return response.setComplete();
+        }
+
+        response.setStatusCode(HttpStatusCode.valueOf(cached.getStatus()));
+        headers.putAll(cached.getHeaders());
+        headers.setContentLength(cached.getBody().length);
+        headers.set(HttpHeaders.AGE, Long.toString(age));
+        headers.set(CACHE_STATUS_HEADER, "HIT");
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    private boolean isStorable(ServerHttpResponse response) {
+        HttpHeaders headers = response.getHeaders();
+        return HttpStatus.OK.equals(response.getStatusCode())
+                && !headers.containsKey(HttpHeaders.SET_COOKIE)
+                && varyIsSafe(headers.getVary())
+                && resolveTtl(headers) != null;
+    }
+
+    /**
+     * Stores the response and returns its ETag, or null when it was not stored
+     */
+    private String store(String key, HttpStatusCode status, HttpHeaders headers, byte[] body) {
+        Duration ttl = resolveTtl(headers);
+        if (ttl == null) {
+            return null;
+        }
+        String etag = headers.getETag() != null ? headers.getETag() : computeEtag(body);
+        cache.put(key, new CachedResponse(status.value(), headers, body, etag, System.currentTimeMillis(), ttl));
+        log.debug("Cached {} for {} s ({} bytes)", key, ttl.toSeconds(), body.length);
+        return etag;
+    }
+
+    /**
+     * TTL for a response, or null when it must not be stored
+     */
+    Duration resolveTtl(HttpHeaders headers) {
+        Duration ttl = null;
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            Duration maxAge = null;
+            for (String directive : cacheControl.split(",")) {
+                String d = directive.trim().toLowerCase();
+                if (d.equals("no-store") || d.equals("private") || d.equals("no-cache")) {
+                    return null;
+                }
+                if (d.startsWith("s-maxage=")) {
+                    ttl = parseSeconds(d.substring("s-maxage=".length()));
+                } else if (d.startsWith("max-age=")) {
+                    maxAge = parseSeconds(d.substring("max-age=".length()));
+                }
+            }
+            if (ttl == null) {
+                ttl = maxAge;
+            }
+        }
+        if (ttl == null) {
+            long expires = headers.getExpires();
+            ttl = expires > 0
+                    ? Duration.ofMillis(expires - System.currentTimeMillis())
+                    : properties.getDefaultTtl();
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            return null;
+        }
+        return ttl.compareTo(properties.getMaxTtl()) > 0 ? properties.getMaxTtl() : ttl;
+    }
+
+    private static Duration parseSeconds(String value) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the response comes from a circuit breaker fallback rather than the upstream.
+     * The breaker puts the failure on the shared attributes before forwarding, and a
+     * replayed stale response is also marked X-Cache: STALE.
+     */
+    static boolean isFallback(ServerWebExchange exchange, ServerHttpResponse response) {
+        return exchange.getAttributes().containsKey(CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR)
+                || "STALE".equals(response.getHeaders().getFirst(CACHE_STATUS_HEADER));
+    }
+
+    static boolean hasCredentials(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return headers.containsKey(HttpHeaders.AUTHORIZATION) || headers.containsKey(HttpHeaders.COOKIE);
+    }
+
+    /**
+     * Whether the upstream allowed a shared cache to serve the response to any user
+     * (public or s-maxage)
+     */
+    static boolean isShareable(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String d = directive.trim().toLowerCase();
+            if (d.equals("public") || d.startsWith("s-maxage=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean varyIsSafe(List<String> vary) {
+        for (String header : vary) {
+            if (!"accept-encoding".equalsIgnoreCase(header) && !"origin".equalsIgnoreCase(header)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean etagMatches(List<String> ifNoneMatch, String etag) {
+        if (etag == null) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate.trim()) || opaque.equals(stripWeak(candidate.trim()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String computeEtag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Cache key plus the coding the client would get, e.g. "/api/products/1|gzip"
+     */
+    static String variantKey(ServerHttpRequest request) {
+        ContentEncoding encoding = ContentEncoding.negotiate(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING));
+        String key = cacheKey(request);
+        return encoding != null ? key + "|" + encoding.token() : key;
+    }
+
+    static String cacheKey(ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        String path = request.getURI().getRawPath();
+        return query == null ? path : path + "?" + query;
+    }
+
+    private static void copyIfPresent(HttpHeaders from, HttpHeaders to, String name) {
+        List<String> values = from.get(name);
+        if (values != null) {
+            to.put(name, values);
+        }
+    }
+
+    long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    /**
+     * Each entry lives for the TTL it was stored with; reads do not extend it
+     */
+    private static final class TtlExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            return value.getTtl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return value.getTtl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
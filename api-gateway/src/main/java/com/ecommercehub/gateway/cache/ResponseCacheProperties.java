@@ -0,0 +1,42 @@
+package com.ecommercehub.gateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-gateway response cache (gateway.response-cache.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Turns the cache off without touching the routes
+     */
+    private boolean enabled = true;
+
+    /**
+     * Memory budget for all cached bodies and headers
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Responses larger than this are never cached
+     */
+    private DataSize maxEntrySize = DataSize.ofKilobytes(512);
+
+    /**
+     * TTL used when the upstream sends no Cache-Control max-age or Expires
+     */
+    private Duration defaultTtl = Duration.ofMinutes(5);
+
+    /**
+     * Upper bound for any TTL, whatever the upstream asks for
+     */
+    private Duration maxTtl = Duration.ofHours(1);
+}
@@ -0,0 +1,45 @@
+package com.ecommercehub.gateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the last-known-good response store behind the fallbacks (gateway.stale-response.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.stale-response")
+public class StaleResponseProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Segment file; keep it on a volume so the store survives restarts and redeploys
+     */
+    private String file = "data/stale-responses.seg";
+
+    /**
+     * Size of the segment; the oldest responses are overwritten when it is full
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(128);
+
+    /**
+     * Responses larger than this are not recorded
+     */
+    private DataSize maxEntrySize = DataSize.ofKilobytes(512);
+
+    /**
+     * A stored response is not overwritten by a fresh one younger than this,
+     * which keeps disk writes low on hot keys
+     */
+    private Duration refreshInterval = Duration.ofMinutes(1);
+
+    /**
+     * Older responses are never served, a plain 503 is returned instead
+     */
+    private Duration maxStaleness = Duration.ofHours(24);
+}
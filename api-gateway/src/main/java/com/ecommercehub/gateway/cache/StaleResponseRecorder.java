@@ -0,0 +1,90 @@
+package com.ecommercehub.gateway.cache;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records successful GET responses of a route into the {@link StaleResponseStore}
+ * <p>
+ * Also leaves the store key on the exchange, where the circuit breaker fallback
+ * (which only sees the forwarded /fallback path) picks it up. Ordered before
+ * NettyWriteResponseFilter for the same reason as the response cache.
+ * <p>
+ * Responses that are private, no-store or set cookies are never recorded, nor are
+ * responses to requests with Authorization or Cookie unless they are public or have
+ * an s-maxage, since the fallback replays them to anyone. A key is recorded at most
+ * once per refresh interval. Fallback responses are never recorded
+ * either: a replayed stale copy must keep its original timestamp, or an outage longer
+ * than the refresh interval would keep it young forever and max staleness would never
+ * take effect.
+ */
+@Component
+public class StaleResponseRecorder implements GatewayFilter, Ordered {
+
+    public static final String STALE_KEY_ATTR = StaleResponseRecorder.class.getName() + ".key";
+
+    private final StaleResponseStore store;
+    private final int maxEntryBytes;
+
+    public StaleResponseRecorder(StaleResponseStore store, StaleResponseProperties properties) {
+        this.store = store;
+        this.maxEntryBytes = (int) properties.getMaxEntrySize().toBytes();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!store.isEnabled() || !HttpMethod.GET.equals(request.getMethod())) {
+            return chain.filter(exchange);
+        }
+        String key = ResponseCacheFilter.cacheKey(request);
+        exchange.getAttributes().put(STALE_KEY_ATTR, key);
+        if (!store.needsRefresh(key, System.currentTimeMillis())) {
+            return chain.filter(exchange);
+        }
+
+        boolean credentialed = ResponseCacheFilter.hasCredentials(request);
+        BodyCapturingResponseDecorator capturing = new BodyCapturingResponseDecorator(
+                exchange.getResponse(),
+                maxEntryBytes,
+                recordable -> !ResponseCacheFilter.isFallback(exchange, recordable) && isRecordable(recordable)
+                        && (!credentialed || ResponseCacheFilter.isShareable(recordable.getHeaders())),
+                (status, headers, body) -> store.store(key, status.value(), headers, body,
+                        System.currentTimeMillis()));
+        return chain.filter(exchange.mutate().response(capturing).build());
+    }
+
+    private static boolean isRecordable(ServerHttpResponse response) {
+        HttpHeaders headers = response.getHeaders();
+        if (!HttpStatus.OK.equals(response.getStatusCode())
+                || headers.containsKey(HttpHeaders.SET_COOKIE)
+                || !ResponseCacheFilter.varyIsSafe(headers.getVary())) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                String d = directive.trim().toLowerCase();
+                if (d.equals("no-store") || d.equals("private")) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+}
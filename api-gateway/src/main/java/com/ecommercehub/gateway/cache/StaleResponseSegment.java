@@ -0,0 +1,288 @@
+package com.ecommercehub.gateway.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory-mapped ring of responses, keyed by request key
+ * <p>
+ * The file is one fixed-size segment used as a circular log. Positions are logical
+ * (they only grow); the byte offset is position modulo capacity. New records are
+ * appended at head, and the oldest records are dropped from tail until the new one
+ * fits. A record never wraps: if it does not fit before the end of the segment, the
+ * rest of the segment is skipped.
+ * <p>
+ * File layout:
+ * - header (64 bytes): magic, version, capacity, tail, head
+ * - records: magic, length, stored-at millis, status, key/headers/body lengths, then the bytes
+ * <p>
+ * Only the key index lives on the heap. It is rebuilt on open by walking the record
+ * headers from tail to head, so a restarted gateway serves stale responses at once.
+ * Writes are serialized; reads take no lock. A lookup copies the record out of the
+ * mapping and then re-checks the tail: if a concurrent put recycled the bytes while
+ * they were copied, the lookup misses instead of returning a mix of two responses.
+ */
+final class StaleResponseSegment implements Closeable {
+
+    private static final long FILE_MAGIC = 0x47575354414C4531L; // "GWSTALE1"
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_SIZE = 64;
+    private static final int VERSION_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int TAIL_OFFSET = 24;
+    private static final int HEAD_OFFSET = 32;
+
+    private static final int RECORD_MAGIC = 0x53524543;
+    private static final int WRAP_MAGIC = 0x57524150;
+    static final int RECORD_HEADER_SIZE = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapping;
+    private final ByteBuffer data;
+    private final int capacity;
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+
+    private volatile long tail;
+    private volatile long head;
+
+    private StaleResponseSegment(FileChannel channel, MappedByteBuffer mapping, int capacity) {
+        this.channel = channel;
+        this.mapping = mapping;
+        this.capacity = capacity;
+        this.data = mapping.slice(FILE_HEADER_SIZE, capacity);
+    }
+
+    /**
+     * Opens the segment, or creates it if the file is missing or was written with another size
+     */
+    static StaleResponseSegment open(Path file, int capacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = FILE_HEADER_SIZE + (long) capacity;
+            if (channel.size() != size) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            StaleResponseSegment segment = new StaleResponseSegment(channel, mapping, capacity);
+            segment.recover();
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a record; returns false if it is too large for the segment
+     */
+    synchronized boolean put(String key, long storedAtMillis, int status, byte[] headers, byte[] body) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER_SIZE + keyBytes.length + headers.length + body.length;
+        if (length > capacity / 2) {
+            return false;
+        }
+
+        int offset = offset(head);
+        int remaining = capacity - offset;
+        long start = remaining < length ? head + remaining : head;
+        while (start + length - tail > capacity) {
+            evictOldest();
+        }
+        // Tail is published before its bytes are reused, readers re-check it after reading
+        mapping.putLong(TAIL_OFFSET, tail);
+
+        if (start != head && remaining >= Integer.BYTES) {
+            data.putInt(offset, WRAP_MAGIC);
+        }
+        ByteBuffer out = data.duplicate();
+        out.position(offset(start));
+        out.putInt(RECORD_MAGIC)
+                .putInt(length)
+                .putLong(storedAtMillis)
+                .putInt(status)
+                .putInt(keyBytes.length)
+                .putInt(headers.length)
+                .putInt(body.length)
+                .put(keyBytes)
+                .put(headers)
+                .put(body);
+
+        head = start + length;
+        mapping.putLong(HEAD_OFFSET, head);
+        index.put(key, start);
+        return true;
+    }
+
+    /**
+     * Latest record for the key, or null
+     */
+    Record get(String key) {
+        Long start = index.get(key);
+        if (start == null || start < tail) {
+            return null;
+        }
+        int offset = offset(start);
+        long storedAtMillis = data.getLong(offset + 8);
+        int status = data.getInt(offset + 16);
+        int keyLength = data.getInt(offset + 20);
+        int headersLength = data.getInt(offset + 24);
+        int bodyLength = data.getInt(offset + 28);
+        int headersOffset = offset + RECORD_HEADER_SIZE + keyLength;
+        int bodyOffset = headersOffset + headersLength;
+        if (data.getInt(offset) != RECORD_MAGIC || keyLength < 0 || headersLength < 0 || bodyLength < 0
+                || (long) bodyOffset + bodyLength > capacity) {
+            return null;
+        }
+        byte[] headers = new byte[headersLength];
+        byte[] body = new byte[bodyLength];
+        data.get(headersOffset, headers);
+        data.get(bodyOffset, body);
+
+        VarHandle.acquireFence();
+        if (start < tail) {
+            // Overwritten while we were copying
+            return null;
+        }
+        return new Record(storedAtMillis, status, headers, body);
+    }
+
+    /**
+     * When the key was last stored, or -1
+     */
+    long storedAt(String key) {
+        Long start = index.get(key);
+        if (start == null || start < tail) {
+            return -1;
+        }
+        long storedAtMillis = data.getLong(offset(start) + 8);
+        VarHandle.acquireFence();
+        return start < tail ? -1 : storedAtMillis;
+    }
+
+    int entries() {
+        return index.size();
+    }
+
+    long usedBytes() {
+        return head - tail;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapping.force();
+        channel.close();
+    }
+
+    private void evictOldest() {
+        int offset = offset(tail);
+        int remaining = capacity - offset;
+        if (remaining < RECORD_HEADER_SIZE || data.getInt(offset) == WRAP_MAGIC) {
+            tail += remaining;
+            return;
+        }
+        index.remove(readKey(offset), tail);
+        tail += data.getInt(offset + 4);
+    }
+
+    private void recover() {
+        if (mapping.getLong(0) != FILE_MAGIC
+                || mapping.getInt(VERSION_OFFSET) != VERSION
+                || mapping.getLong(CAPACITY_OFFSET) != capacity) {
+            reset();
+            return;
+        }
+        long storedTail = mapping.getLong(TAIL_OFFSET);
+        long storedHead = mapping.getLong(HEAD_OFFSET);
+        if (storedTail < 0 || storedHead < storedTail || storedHead - storedTail > capacity) {
+            reset();
+            return;
+        }
+
+        long position = storedTail;
+        while (position < storedHead) {
+            int offset = offset(position);
+            int remaining = capacity - offset;
+            if (remaining < RECORD_HEADER_SIZE || data.getInt(offset) == WRAP_MAGIC) {
+                if (position + remaining > storedHead) {
+                    break;
+                }
+                position += remaining;
+                continue;
+            }
+            int length = data.getInt(offset + 4);
+            int keyLength = data.getInt(offset + 20);
+            if (data.getInt(offset) != RECORD_MAGIC
+                    || length < RECORD_HEADER_SIZE
+                    || length > remaining
+                    || position + length > storedHead
+                    || keyLength < 0
+                    || keyLength > length - RECORD_HEADER_SIZE) {
+                // Torn write at the end of the log; everything before it is intact
+                break;
+            }
+            index.put(readKey(offset), position);
+            position += length;
+        }
+        tail = storedTail;
+        head = position;
+        mapping.putLong(HEAD_OFFSET, head);
+    }
+
+    private void reset() {
+        index.clear();
+        tail = 0;
+        head = 0;
+        mapping.putLong(0, FILE_MAGIC);
+        mapping.putInt(VERSION_OFFSET, VERSION);
+        mapping.putLong(CAPACITY_OFFSET, capacity);
+        mapping.putLong(TAIL_OFFSET, 0);
+        mapping.putLong(HEAD_OFFSET, 0);
+    }
+
+    private String readKey(int offset) {
+        int keyLength = data.getInt(offset + 20);
+        byte[] key = new byte[keyLength];
+        data.get(offset + RECORD_HEADER_SIZE, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private int offset(long position) {
+        return (int) (position % capacity);
+    }
+
+    /**
+     * Copy of one stored response
+     */
+    static final class Record {
+
+        final long storedAtMillis;
+        final int status;
+        final byte[] headers;
+        final byte[] body;
+
+        Record(long storedAtMillis, int status, byte[] headers, byte[] body) {
+            this.storedAtMillis = storedAtMillis;
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+}
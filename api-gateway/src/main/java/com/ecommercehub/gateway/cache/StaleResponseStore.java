@@ -0,0 +1,220 @@
+package com.ecommercehub.gateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last-known-good responses for the circuit breaker fallbacks (stale-if-error)
+ * <p>
+ * Successful GETs recorded by {@link StaleResponseRecorder} are kept in a
+ * memory-mapped segment file ({@link StaleResponseSegment}), so the store is bounded
+ * on disk, costs almost no heap and is still there after a restart. A lookup copies
+ * the response out of the mapping, so a concurrent store can never change a body
+ * while it is being written to the client.
+ * <p>
+ * If the file cannot be opened the store logs a warning and stays empty; fallbacks
+ * then answer with their plain 503.
+ * <p>
+ * Meters:
+ * - gateway.stale.responses{route,outcome}: fallback lookups, outcome served or missing
+ * - gateway.stale.store.entries / gateway.stale.store.used: keys and bytes in the segment
+ */
+@Slf4j
+@Component
+public class StaleResponseStore implements DisposableBean {
+
+    private final StaleResponseProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final StaleResponseSegment segment;
+    private final Map<String, Counter> servedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> missingCounters = new ConcurrentHashMap<>();
+
+    public StaleResponseStore(StaleResponseProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.segment = properties.isEnabled() ? openSegment(properties) : null;
+
+        if (segment != null) {
+            Gauge.builder("gateway.stale.store.entries", segment, StaleResponseSegment::entries)
+                    .description("Responses available to the fallbacks")
+                    .register(meterRegistry);
+            Gauge.builder("gateway.stale.store.used", segment, StaleResponseSegment::usedBytes)
+                    .description("Bytes of the stale response segment in use")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return segment != null;
+    }
+
+    /**
+     * Whether a fresh response for the key should be recorded, i.e. there is none
+     * or the stored one is older than the refresh interval
+     */
+    public boolean needsRefresh(String key, long nowMillis) {
+        if (segment == null) {
+            return false;
+        }
+        long storedAt = segment.storedAt(key);
+        return storedAt < 0 || nowMillis - storedAt >= properties.getRefreshInterval().toMillis();
+    }
+
+    public void store(String key, int status, HttpHeaders headers, byte[] body, long nowMillis) {
+        if (segment == null || body.length > properties.getMaxEntrySize().toBytes()) {
+            return;
+        }
+        byte[] encodedHeaders = encode(CachedResponse.copyEndToEnd(headers));
+        if (!segment.put(key, nowMillis, status, encodedHeaders, body)) {
+            log.debug("Response for {} is too large for the stale segment ({} bytes)", key, body.length);
+        }
+    }
+
+    /**
+     * Stored response for the key, or null if there is none or it is older than max staleness
+     */
+    public StaleResponse lookup(String routeId, String key, long nowMillis) {
+        StaleResponseSegment.Record record = segment != null && key != null ? segment.get(key) : null;
+        if (record == null || nowMillis - record.storedAtMillis > properties.getMaxStaleness().toMillis()) {
+            counter(missingCounters, routeId, "missing").increment();
+            return null;
+        }
+        counter(servedCounters, routeId, "served").increment();
+        return new StaleResponse(record.status, decode(record.headers), record.body,
+                Math.max(0, (nowMillis - record.storedAtMillis) / 1000));
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private Counter counter(Map<String, Counter> counters, String routeId, String outcome) {
+        return counters.computeIfAbsent(routeId, route -> Counter.builder("gateway.stale.responses")
+                .description("Circuit breaker fallbacks looked up in the stale response store")
+                .tag("route", route)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    private static StaleResponseSegment openSegment(StaleResponseProperties properties) {
+        Path file = Path.of(properties.getFile());
+        long size = properties.getSegmentSize().toBytes();
+        if (size > Integer.MAX_VALUE - 64) {
+            log.warn("Stale response segment size {} is above the 2 GB mapping limit, using 2 GB", size);
+            size = Integer.MAX_VALUE - 64;
+        }
+        try {
+            StaleResponseSegment segment = StaleResponseSegment.open(file, (int) size);
+            log.info("Stale response store {} opened with {} entries ({} bytes in use)",
+                    file.toAbsolutePath(), segment.entries(), segment.usedBytes());
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Stale response store {} could not be opened, fallbacks will not serve stale responses",
+                    file.toAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Header block: count, then per header the name and its values, all length-prefixed.
+     * Counts and lengths are ints, so long header values round-trip intact.
+     */
+    static byte[] encode(HttpHeaders headers) {
+        int size = Integer.BYTES;
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            size += Integer.BYTES + utf8Length(entry.getKey()) + Integer.BYTES;
+            for (String value : entry.getValue()) {
+                size += Integer.BYTES + utf8Length(value);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(headers.size());
+        headers.forEach((name, values) -> {
+            putString(buffer, name);
+            buffer.putInt(values.size());
+            values.forEach(value -> putString(buffer, value));
+        });
+        return buffer.array();
+    }
+
+    static HttpHeaders decode(byte[] encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        HttpHeaders headers = new HttpHeaders();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            String name = getString(buffer);
+            int values = buffer.getInt();
+            for (int j = 0; j < values; j++) {
+                headers.add(name, getString(buffer));
+            }
+        }
+        return headers;
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A stored response ready to be replayed, copied out of the segment
+     */
+    public static final class StaleResponse {
+
+        private final int status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final long ageSeconds;
+
+        StaleResponse(int status, HttpHeaders headers, byte[] body, long ageSeconds) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.ageSeconds = ageSeconds;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public long getAgeSeconds() {
+            return ageSeconds;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ecommercehub.gateway.compression;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for gateway response compression (gateway.compression.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.compression")
+public class CompressionProperties {
+
+    /**
+     * Turns compression off without touching the routes
+     */
+    private boolean enabled = true;
+
+    /**
+     * Bodies with a smaller Content-Length are sent as they are
+     */
+    private DataSize minSize = DataSize.ofKilobytes(1);
+
+    /**
+     * 1 (fastest) to 9 (smallest)
+     */
+    private int level = 6;
+
+    /**
+     * Content types worth compressing
+     */
+    private List<String> mimeTypes = new ArrayList<>(List.of(
+            "application/json", "application/*+json", "application/xml", "application/javascript",
+            "text/html", "text/plain", "text/css", "text/xml"));
+
+    /**
+     * Initial size of the pooled buffers compressed output is written to
+     */
+    private DataSize bufferSize = DataSize.ofKilobytes(8);
+
+    /**
+     * Idle compressors kept for reuse, per encoding
+     */
+    private int poolSize = 64;
+}
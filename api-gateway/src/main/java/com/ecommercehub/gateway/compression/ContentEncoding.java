@@ -0,0 +1,80 @@
+package com.ecommercehub.gateway.compression;
+
+import java.util.List;
+
+/**
+ * Content codings the gateway compresses with
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip"),
+
+    /**
+     * zlib-wrapped deflate, as RFC 9110 defines "deflate"
+     */
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    /**
+     * Preferred coding for the given Accept-Encoding values, or null if the client
+     * accepts neither. Highest q-value wins, gzip on a tie; "*" covers codings the
+     * header does not name, q=0 rules a coding out.
+     */
+    public static ContentEncoding negotiate(List<String> acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double[] quality = {-1, -1};
+        double wildcard = -1;
+        for (String value : acceptEncoding) {
+            for (String part : value.split(",")) {
+                int semicolon = part.indexOf(';');
+                String coding = (semicolon >= 0 ? part.substring(0, semicolon) : part).trim();
+                double q = semicolon >= 0 ? parseQuality(part.substring(semicolon + 1)) : 1.0;
+                if (coding.equals("*")) {
+                    wildcard = q;
+                    continue;
+                }
+                for (ContentEncoding encoding : values()) {
+                    if (encoding.token.equalsIgnoreCase(coding)) {
+                        quality[encoding.ordinal()] = q;
+                    }
+                }
+            }
+        }
+
+        ContentEncoding best = null;
+        double bestQuality = 0;
+        for (ContentEncoding encoding : values()) {
+            double q = quality[encoding.ordinal()] >= 0 ? quality[encoding.ordinal()] : wildcard;
+            if (q > bestQuality) {
+                best = encoding;
+                bestQuality = q;
+            }
+        }
+        return best;
+    }
+
+    private static double parseQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String p = parameter.trim();
+            if (p.startsWith("q=") || p.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(p.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1.0;
+    }
+}
@@ -0,0 +1,172 @@
+package com.ecommercehub.gateway.compression;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compression state of one response body
+ * <p>
+ * Reads each input buffer in place and deflates straight into buffers from the
+ * response's factory (pooled on Netty), so the body is never copied to the heap.
+ * The gzip header and trailer are written by hand around raw deflate output.
+ * <p>
+ * Calls are serialized by the body's Flux; the lock only guards against a
+ * cancel returning the deflater to the pool while a buffer is being compressed.
+ */
+final class DeflateStream {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final ResponseCompressor compressor;
+    private final ContentEncoding encoding;
+    private final DataBufferFactory bufferFactory;
+    private final int bufferSize;
+    private final CRC32 crc;
+
+    private Deflater deflater;
+    private boolean headerWritten;
+    private long bytesIn;
+    private long bytesOut;
+    private long nanos;
+
+    DeflateStream(ResponseCompressor compressor, ContentEncoding encoding, Deflater deflater,
+                  DataBufferFactory bufferFactory, int bufferSize) {
+        this.compressor = compressor;
+        this.encoding = encoding;
+        this.deflater = deflater;
+        this.bufferFactory = bufferFactory;
+        this.bufferSize = bufferSize;
+        this.crc = encoding == ContentEncoding.GZIP ? new CRC32() : null;
+    }
+
+    /**
+     * Compresses one body buffer and releases it; null while the deflater is still buffering
+     */
+    synchronized DataBuffer write(DataBuffer input) {
+        if (deflater == null) {
+            DataBufferUtils.release(input);
+            return null;
+        }
+        long start = System.nanoTime();
+        List<DataBuffer> output = new ArrayList<>(1);
+        try (DataBuffer.ByteBufferIterator buffers = input.readableByteBuffers()) {
+            writeHeader(output);
+            while (buffers.hasNext()) {
+                ByteBuffer buffer = buffers.next();
+                bytesIn += buffer.remaining();
+                if (crc != null) {
+                    crc.update(buffer.duplicate());
+                }
+                deflater.setInput(buffer);
+                while (!deflater.needsInput()) {
+                    deflate(output);
+                }
+            }
+        } catch (RuntimeException e) {
+            output.forEach(DataBufferUtils::release);
+            throw e;
+        } finally {
+            DataBufferUtils.release(input);
+            nanos += System.nanoTime() - start;
+        }
+        return join(output);
+    }
+
+    /**
+     * Remaining compressed data plus the gzip trailer
+     */
+    synchronized DataBuffer finish() {
+        if (deflater == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        List<DataBuffer> output = new ArrayList<>(1);
+        writeHeader(output);
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate(output);
+        }
+        if (crc != null) {
+            DataBuffer last = writable(output);
+            writeIntLe(last, (int) crc.getValue());
+            writeIntLe(last, (int) bytesIn);
+            bytesOut += 8;
+        }
+        nanos += System.nanoTime() - start;
+        return join(output);
+    }
+
+    /**
+     * Returns the deflater to the pool; safe to call more than once
+     */
+    synchronized void close() {
+        if (deflater != null) {
+            compressor.release(encoding, deflater);
+            deflater = null;
+        }
+    }
+
+    long bytesIn() {
+        return bytesIn;
+    }
+
+    long bytesOut() {
+        return bytesOut;
+    }
+
+    long nanos() {
+        return nanos;
+    }
+
+    private void writeHeader(List<DataBuffer> output) {
+        if (!headerWritten) {
+            headerWritten = true;
+            if (encoding == ContentEncoding.GZIP) {
+                writable(output).write(GZIP_HEADER);
+                bytesOut += GZIP_HEADER.length;
+            }
+        }
+    }
+
+    private void deflate(List<DataBuffer> output) {
+        DataBuffer target = writable(output);
+        int written;
+        try (DataBuffer.ByteBufferIterator buffers = target.writableByteBuffers()) {
+            written = deflater.deflate(buffers.next(), Deflater.NO_FLUSH);
+        }
+        target.writePosition(target.writePosition() + written);
+        bytesOut += written;
+    }
+
+    private DataBuffer writable(List<DataBuffer> output) {
+        DataBuffer last = output.isEmpty() ? null : output.get(output.size() - 1);
+        if (last == null || last.writableByteCount() == 0) {
+            last = bufferFactory.allocateBuffer(bufferSize);
+            output.add(last);
+        }
+        return last;
+    }
+
+    private DataBuffer join(List<DataBuffer> output) {
+        if (output.isEmpty()) {
+            return null;
+        }
+        DataBuffer joined = output.size() == 1 ? output.get(0) : bufferFactory.join(output);
+        if (joined.readableByteCount() == 0) {
+            DataBufferUtils.release(joined);
+            return null;
+        }
+        return joined;
+    }
+
+    private static void writeIntLe(DataBuffer buffer, int value) {
+        buffer.write(new byte[]{(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)});
+    }
+}
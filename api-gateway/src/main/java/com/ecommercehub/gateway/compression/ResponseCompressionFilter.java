@@ -0,0 +1,111 @@
+package com.ecommercehub.gateway.compression;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Route filter that gzip/deflate-compresses responses for clients that accept it
+ * <p>
+ * The gateway owns compression on these routes: Accept-Encoding is removed from the
+ * upstream request, so upstreams send plain bodies and identical requests still
+ * coalesce regardless of the client's codings. The body is compressed as it streams
+ * (see {@link ResponseCompressor}); small, already encoded and non-text responses
+ * go out as they are.
+ * <p>
+ * Put it right after the response cache: the cache then stores what this filter
+ * produced, under a key that includes the negotiated coding, so repeated hits are
+ * served compressed without compressing again.
+ */
+@Component
+public class ResponseCompressionFilter implements GatewayFilter, Ordered {
+
+    private final ResponseCompressor compressor;
+
+    public ResponseCompressionFilter(ResponseCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!compressor.isEnabled() || HttpMethod.HEAD.equals(request.getMethod())) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : null;
+        ContentEncoding encoding = ContentEncoding.negotiate(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING));
+
+        ServerWebExchange mutated = exchange.mutate()
+                .request(r -> r.headers(headers -> headers.remove(HttpHeaders.ACCEPT_ENCODING)))
+                .response(new CompressingResponse(exchange.getResponse(), encoding, routeId))
+                .build();
+        return chain.filter(mutated);
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    /**
+     * Compresses the body on its way out when the response qualifies
+     */
+    private final class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final ContentEncoding encoding;
+        private final String routeId;
+
+        CompressingResponse(ServerHttpResponse delegate, ContentEncoding encoding, String routeId) {
+            super(delegate);
+            this.encoding = encoding;
+            this.routeId = routeId;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            ResponseCompressor.Outcome skip = compressor.skipReason(getStatusCode(), headers);
+            if (skip == null && !varies(headers)) {
+                // Compressible, so the representation depends on Accept-Encoding
+                headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (encoding == null || skip != null) {
+                compressor.skipped(routeId, encoding == null ? ResponseCompressor.Outcome.NOT_ACCEPTED : skip);
+                return super.writeWith(body);
+            }
+
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding.token());
+            String etag = headers.getETag();
+            if (etag != null && !etag.startsWith("W/")) {
+                // Same resource, different bytes: no longer a strong validator
+                headers.setETag("W/" + etag);
+            }
+            return super.writeWith(compressor.compress(body, encoding, bufferFactory(), routeId));
+        }
+    }
+
+    private static boolean varies(HttpHeaders headers) {
+        for (String vary : headers.getVary()) {
+            if (vary.equals("*") || HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(vary)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,214 @@
+package com.ecommercehub.gateway.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Decides which responses to compress, compresses them and keeps the metrics
+ * <p>
+ * Deflaters are pooled per encoding: each one holds a few hundred KB of native
+ * zlib state, too much to allocate per response.
+ * <p>
+ * Meters:
+ * - gateway.compression.responses{route,outcome}: compressed, or why not
+ * - gateway.compression.time{route,encoding}: time spent compressing one body
+ * - gateway.compression.bytes.in / gateway.compression.bytes.saved{route}: body bytes
+ *   before compression, and how many of them did not go over the wire
+ */
+@Component
+public class ResponseCompressor {
+
+    /**
+     * What happened to a response
+     */
+    public enum Outcome {
+        COMPRESSED,
+        NOT_ACCEPTED,
+        STATUS,
+        ENCODED,
+        NO_TRANSFORM,
+        TYPE,
+        SMALL;
+
+        public String tagValue() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    private final CompressionProperties properties;
+    private final MeterRegistry registry;
+    private final List<MimeType> mimeTypes;
+    private final int bufferSize;
+    private final BlockingQueue<Deflater>[] pools;
+    private final Map<String, RouteMeters> routes = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public ResponseCompressor(CompressionProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        this.mimeTypes = properties.getMimeTypes().stream().map(MimeType::valueOf).toList();
+        this.bufferSize = (int) properties.getBufferSize().toBytes();
+        this.pools = new BlockingQueue[ContentEncoding.values().length];
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            pools[encoding.ordinal()] = new ArrayBlockingQueue<>(Math.max(1, properties.getPoolSize()));
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Why a response must go out as it is, or null if it can be compressed
+     */
+    public Outcome skipReason(HttpStatusCode status, HttpHeaders headers) {
+        if (status == null || !status.is2xxSuccessful()
+                || status.value() == HttpStatus.NO_CONTENT.value()
+                || status.value() == HttpStatus.PARTIAL_CONTENT.value()) {
+            return Outcome.STATUS;
+        }
+        String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding.trim())) {
+            return Outcome.ENCODED;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null && cacheControl.toLowerCase().contains("no-transform")) {
+            return Outcome.NO_TRANSFORM;
+        }
+        if (!isCompressibleType(headers.getContentType())) {
+            return Outcome.TYPE;
+        }
+        long contentLength = headers.getContentLength();
+        if (contentLength >= 0 && contentLength < properties.getMinSize().toBytes()) {
+            return Outcome.SMALL;
+        }
+        return null;
+    }
+
+    /**
+     * Compresses a body as it streams; source buffers are released as they are consumed
+     */
+    public Flux<DataBuffer> compress(Publisher<? extends DataBuffer> body, ContentEncoding encoding,
+                                     DataBufferFactory bufferFactory, String routeId) {
+        Flux<DataBuffer> source = Flux.from(body);
+        return Flux.defer(() -> {
+            DeflateStream stream = new DeflateStream(this, encoding, acquire(encoding), bufferFactory, bufferSize);
+            return source
+                    .<DataBuffer>handle((buffer, sink) -> {
+                        DataBuffer output = stream.write(buffer);
+                        if (output != null) {
+                            sink.next(output);
+                        }
+                    })
+                    .concatWith(Mono.fromSupplier(stream::finish))
+                    .doOnComplete(() -> record(routeId, encoding, stream))
+                    .doFinally(signal -> stream.close())
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    public void skipped(String routeId, Outcome outcome) {
+        meters(routeId).outcomes[outcome.ordinal()].increment();
+    }
+
+    void release(ContentEncoding encoding, Deflater deflater) {
+        deflater.reset();
+        if (!pools[encoding.ordinal()].offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private Deflater acquire(ContentEncoding encoding) {
+        Deflater deflater = pools[encoding.ordinal()].poll();
+        if (deflater == null) {
+            // gzip framing is written by DeflateStream, so gzip needs raw deflate output
+            deflater = new Deflater(properties.getLevel(), encoding == ContentEncoding.GZIP);
+        }
+        return deflater;
+    }
+
+    private boolean isCompressibleType(MediaType contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        for (MimeType mimeType : mimeTypes) {
+            if (mimeType.includes(contentType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void record(String routeId, ContentEncoding encoding, DeflateStream stream) {
+        RouteMeters meters = meters(routeId);
+        meters.outcomes[Outcome.COMPRESSED.ordinal()].increment();
+        meters.time[encoding.ordinal()].record(stream.nanos(), TimeUnit.NANOSECONDS);
+        meters.bytesIn.increment(stream.bytesIn());
+        meters.bytesSaved.increment(Math.max(0, stream.bytesIn() - stream.bytesOut()));
+    }
+
+    private RouteMeters meters(String routeId) {
+        String route = routeId != null ? routeId : "unmatched";
+        RouteMeters meters = routes.get(route);
+        return meters != null ? meters : routes.computeIfAbsent(route, RouteMeters::new);
+    }
+
+    /**
+     * Cached meters of one route
+     */
+    private final class RouteMeters {
+
+        final Counter[] outcomes = new Counter[Outcome.values().length];
+        final Timer[] time = new Timer[ContentEncoding.values().length];
+        final Counter bytesIn;
+        final Counter bytesSaved;
+
+        RouteMeters(String routeId) {
+            for (Outcome outcome : Outcome.values()) {
+                outcomes[outcome.ordinal()] = Counter.builder("gateway.compression.responses")
+                        .description("Responses by compression outcome")
+                        .tag("route", routeId)
+                        .tag("outcome", outcome.tagValue())
+                        .register(registry);
+            }
+            for (ContentEncoding encoding : ContentEncoding.values()) {
+                time[encoding.ordinal()] = Timer.builder("gateway.compression.time")
+                        .description("Time spent compressing one response body")
+                        .tag("route", routeId)
+                        .tag("encoding", encoding.token())
+                        .register(registry);
+            }
+            bytesIn = Counter.builder("gateway.compression.bytes.in")
+                    .description("Body bytes before compression")
+                    .baseUnit("bytes")
+                    .tag("route", routeId)
+                    .register(registry);
+            bytesSaved = Counter.builder("gateway.compression.bytes.saved")
+                    .description("Body bytes saved by compression")
+                    .baseUnit("bytes")
+                    .tag("route", routeId)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.ecommercehub.gateway.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Adaptive per-route concurrency limits with priority-based load shedding
+ * <p>
+ * Two checks run before a request may go upstream:
+ * - route limit: each route learns its sustainable number of in-flight requests
+ *   from observed latency ({@link GradientLimit}); requests over it get a 503
+ * - gateway ceiling: when total in-flight requests approach maxInFlight, browsing
+ *   is shed first, then normal traffic, and checkout/payments last
+ * <p>
+ * Only upstream 5xx responses and timeouts shrink the limit. Fallback responses (an
+ * open breaker's 503, a local or stale fallback) are judged by the error that tripped
+ * the breaker, and other errors (refused connections, no instance) are not sampled.
+ * <p>
+ * Meters: gateway.concurrency.limit{route}, gateway.concurrency.in.flight{route},
+ * gateway.concurrency.global.in.flight and gateway.concurrency.rejected{route,priority,reason}.
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final String UNMATCHED_ROUTE = "unmatched";
+    private static final String FAILURE_ATTR = AdaptiveConcurrencyLimiter.class.getName() + ".failure";
+
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry registry;
+    private final Map<String, RouteLimit> routes = new ConcurrentHashMap<>();
+    private final AtomicInteger globalInFlight = new AtomicInteger();
+    private final int[] priorityCeilings = new int[RequestPriority.values().length];
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        for (RequestPriority priority : RequestPriority.values()) {
+            double share = properties.getShedThresholds().getOrDefault(priority, 1.0);
+            priorityCeilings[priority.ordinal()] = (int) (properties.getMaxInFlight() * share);
+        }
+        Gauge.builder("gateway.concurrency.global.in.flight", globalInFlight, AtomicInteger::get)
+                .description("Requests in flight through concurrency-limited routes")
+                .register(registry);
+    }
+
+    /**
+     * Route filter enforcing the adaptive limit; put it right before the circuit breaker
+     */
+    public GatewayFilter filter(RequestPriority priority) {
+        return (exchange, chain) -> {
+            if (!properties.isEnabled()) {
+                return chain.filter(exchange);
+            }
+            RouteLimit route = route(exchange);
+
+            if (globalInFlight.incrementAndGet() > priorityCeilings[priority.ordinal()]) {
+                globalInFlight.decrementAndGet();
+                return reject(exchange, route, priority, "shed");
+            }
+            int inFlight = route.inFlight.incrementAndGet();
+            if (inFlight > route.limit.admissionLimit()) {
+                route.inFlight.decrementAndGet();
+                globalInFlight.decrementAndGet();
+                return reject(exchange, route, priority, "limit");
+            }
+
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doOnError(error -> exchange.getAttributes().put(FAILURE_ATTR, error))
+                    .doFinally(signal -> {
+                        route.inFlight.decrementAndGet();
+                        globalInFlight.decrementAndGet();
+                        long now = System.nanoTime();
+                        release(exchange, route, signal, now - start, inFlight, now);
+                    });
+        };
+    }
+
+    private void release(ServerWebExchange exchange, RouteLimit route, SignalType signal,
+                         long rttNanos, int inFlight, long nowNanos) {
+        if (signal == SignalType.CANCEL) {
+            // Client went away, the sample says nothing about the upstream
+            return;
+        }
+        Throwable fallbackCause = exchange.getAttribute(CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR);
+        if (fallbackCause != null) {
+            // The response is the fallback's: a 503 from an open breaker or a local
+            // fallback says nothing about the upstream, only what tripped it does
+            if (isUpstreamFailure(fallbackCause)) {
+                route.limit.onDropped();
+            }
+            return;
+        }
+        if (signal == SignalType.ON_ERROR) {
+            if (isUpstreamFailure(exchange.getAttribute(FAILURE_ATTR))) {
+                route.limit.onDropped();
+            }
+            return;
+        }
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (status != null && status.is5xxServerError()) {
+            route.limit.onDropped();
+        } else {
+            route.limit.onSample(rttNanos, inFlight, nowNanos);
+        }
+    }
+
+    /**
+     * Upstream timeout, or a 5xx the breaker turned into an error
+     */
+    private static boolean isUpstreamFailure(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException) {
+                return true;
+            }
+            if (t instanceof HttpStatusCodeException statusError) {
+                return statusError.getStatusCode().is5xxServerError();
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, RouteLimit route, RequestPriority priority, String reason) {
+        Counter.builder("gateway.concurrency.rejected")
+                .description("Requests rejected by the adaptive concurrency limiter")
+                .tag("route", route.routeId)
+                .tag("priority", priority.tagValue())
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+        log.debug("Rejected request on {} ({}): {}", route.routeId, priority, reason);
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return response.setComplete();
+    }
+
+    private RouteLimit route(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : UNMATCHED_ROUTE;
+        RouteLimit limit = routes.get(routeId);
+        return limit != null ? limit : routes.computeIfAbsent(routeId, this::createRoute);
+    }
+
+    private RouteLimit createRoute(String routeId) {
+        GradientLimit limit = new GradientLimit(
+                properties.getInitialLimit(),
+                properties.getMinLimit(),
+                properties.getMaxLimit(),
+                properties.getTolerance(),
+                properties.getSmoothing(),
+                properties.getBackoffRatio(),
+                properties.getBaselineWindow().toNanos(),
+                System.nanoTime());
+        RouteLimit routeLimit = new RouteLimit(routeId, limit);
+
+        Gauge.builder("gateway.concurrency.limit", limit, GradientLimit::getLimit)
+                .description("Current adaptive concurrency limit of the route")
+                .tag("route", routeId)
+                .register(registry);
+        Gauge.builder("gateway.concurrency.in.flight", routeLimit.inFlight, AtomicInteger::get)
+                .description("Requests in flight on the route")
+                .tag("route", routeId)
+                .register(registry);
+        return routeLimit;
+    }
+
+    /**
+     * Limit and in-flight count of one route
+     */
+    private static final class RouteLimit {
+
+        final String routeId;
+        final GradientLimit limit;
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        RouteLimit(String routeId, GradientLimit limit) {
+            this.routeId = routeId;
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.ecommercehub.gateway.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings for adaptive concurrency limiting and load shedding (gateway.concurrency-limit.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Per-route limit before any latency has been measured
+     */
+    private int initialLimit = 20;
+
+    private int minLimit = 4;
+
+    private int maxLimit = 1000;
+
+    /**
+     * How much slower than the long-term RTT a sample may be before the limit shrinks
+     */
+    private double tolerance = 1.5;
+
+    /**
+     * Weight of each new limit estimate (0.0 - 1.0)
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Factor applied to the limit when a request fails or times out
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * How often the no-load RTT baseline is re-measured
+     */
+    private Duration baselineWindow = Duration.ofSeconds(30);
+
+    /**
+     * Requests in flight across all routes before shedding starts
+     */
+    private int maxInFlight = 2000;
+
+    /**
+     * Share of maxInFlight each priority may use; lower priorities are shed first
+     */
+    private Map<RequestPriority, Double> shedThresholds = new EnumMap<>(Map.of(
+            RequestPriority.BROWSE, 0.7,
+            RequestPriority.NORMAL, 0.85,
+            RequestPriority.CRITICAL, 1.0));
+}
@@ -0,0 +1,129 @@
+package com.ecommercehub.gateway.concurrency;
+
+/**
+ * Latency-driven concurrency limit of one upstream (gradient algorithm)
+ * <p>
+ * Compares the RTT the upstream has when nothing is queued (the baseline) with a
+ * short-term average of recent samples:
+ * - gradient = tolerance * baseline / recent RTT, clamped to [0.5, 1.0]
+ * - new limit = limit * gradient + sqrt(limit), smoothed
+ * <p>
+ * While the upstream answers as fast as usual the limit grows by about sqrt(limit);
+ * once requests queue upstream the RTT rises and the limit shrinks in proportion.
+ * Failed or timed-out requests cut the limit right away.
+ * <p>
+ * The baseline is refreshed once per window so it can follow an upstream that really
+ * got slower. If the route had spare capacity during the window (some requests started
+ * with less than half the limit in flight) the lowest RTT of the window is used. If it
+ * was saturated the whole time, those RTTs may include queueing, so the next window
+ * starts with a probe: admission drops to half the limit until a request that started
+ * under it completes, and that request's RTT becomes the baseline. The probe usually
+ * lasts about one RTT.
+ * <p>
+ * Updates are cheap compared to the request itself, so they are simply synchronized.
+ */
+public class GradientLimit {
+
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final long baselineWindowNanos;
+
+    private double limit;
+    private double shortRttNanos;
+    private double baselineNanos;
+    private double windowMinNanos = Double.MAX_VALUE;
+    private boolean windowHadHeadroom;
+    private long windowStartNanos;
+    private boolean probing;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                         double smoothing, double backoffRatio, long baselineWindowNanos, long nowNanos) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+        this.baselineWindowNanos = baselineWindowNanos;
+        this.windowStartNanos = nowNanos;
+    }
+
+    /**
+     * Current limit, rounded down
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Requests that may be in flight right now; lower than the limit while probing
+     */
+    public synchronized int admissionLimit() {
+        return probing ? Math.max(minLimit, (int) (limit / 2)) : (int) limit;
+    }
+
+    /**
+     * Successful request that took rttNanos, with inFlight requests outstanding when it started
+     */
+    public synchronized void onSample(long rttNanos, int inFlight, long nowNanos) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        updateBaseline(rttNanos, inFlight, nowNanos);
+        shortRttNanos = shortRttNanos == 0
+                ? rttNanos
+                : shortRttNanos + (rttNanos - shortRttNanos) * SHORT_RTT_WEIGHT;
+
+        // Do not grow a limit the traffic is not even using
+        if (probing || inFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - smoothing) + newLimit * smoothing);
+    }
+
+    /**
+     * Request failed with a server error or timeout: back off immediately
+     */
+    public synchronized void onDropped() {
+        limit = clamp(limit * backoffRatio);
+    }
+
+    private void updateBaseline(long rttNanos, int inFlight, long nowNanos) {
+        boolean headroom = inFlight < limit / 2;
+        if (baselineNanos == 0 || rttNanos < baselineNanos) {
+            baselineNanos = rttNanos;
+        }
+        if (probing) {
+            if (headroom) {
+                baselineNanos = rttNanos;
+                probing = false;
+            }
+            return;
+        }
+
+        windowMinNanos = Math.min(windowMinNanos, rttNanos);
+        windowHadHeadroom |= headroom;
+        if (nowNanos - windowStartNanos >= baselineWindowNanos) {
+            if (windowHadHeadroom) {
+                baselineNanos = windowMinNanos;
+            } else {
+                probing = true;
+            }
+            windowMinNanos = Double.MAX_VALUE;
+            windowHadHeadroom = false;
+            windowStartNanos = nowNanos;
+        }
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
@@ -0,0 +1,18 @@
+package com.ecommercehub.gateway.concurrency;
+
+/**
+ * How important a route's traffic is when the gateway has to shed load
+ * <p>
+ * Lower priorities are shed first: browsing goes before account/cart traffic,
+ * which goes before checkout and payments.
+ */
+public enum RequestPriority {
+
+    BROWSE,
+    NORMAL,
+    CRITICAL;
+
+    public String tagValue() {
+        return name().toLowerCase();
+    }
+}
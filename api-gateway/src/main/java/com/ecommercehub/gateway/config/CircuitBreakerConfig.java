@@ -21,6 +21,16 @@ import java.time.Duration;
  * - CLOSED: Normal operation, calls go through
  * - OPEN: Circuit is open, calls fail fast
  * - HALF_OPEN: Testing if service is back up
+ * <p>
+ * Route breakers take their thresholds and timeout from the route table
+ * (gateway.route-table), so they can be changed through the config server
+ * without a restart. The default below covers every other breaker.
+ * <p>
+ * With outlier detection on (gateway.outlier-detection), the route breakers listed
+ * there are driven by instance health instead: disabled while enough instances are
+ * healthy, forced open below the healthy fraction. The thresholds below then only
+ * apply to breakers not listed. Failing instances are handled by their own
+ * breakers (see OutlierDetector).
  */
 @Configuration
 @Slf4j
@@ -34,10 +44,9 @@ public class CircuitBreakerConfig {
     public Customizer<ReactiveResilience4JCircuitBreakerFactory> defaultCustomizer() {
         return factory -> factory.configureDefault(id -> new Resilience4JConfigBuilder(id)
                 .circuitBreakerConfig(
-                        io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.custom()
+                        breakerDefaults()
                                 // Sliding window settings
                                 .slidingWindowSize(10)                    // Monitor last 10 calls
-                                .slidingWindowType(SlidingWindowType.COUNT_BASED)
                                 .minimumNumberOfCalls(5)                  // Need at least 5 calls before evaluation
 
                                 // Failure threshold
@@ -47,17 +56,6 @@ public class CircuitBreakerConfig {
 
                                 // State transition settings
                                 .waitDurationInOpenState(Duration.ofSeconds(30))  // Stay open for 30 seconds
-                                .permittedNumberOfCallsInHalfOpenState(3)         // Allow 3 test calls in half-open
-
-                                // What constitutes a failure
-                                .recordExceptions(
-                                        java.net.ConnectException.class,
-                                        java.util.concurrent.TimeoutException.class,
-                                        org.springframework.web.client.ResourceAccessException.class
-                                )
-                                .ignoreExceptions(
-                                        java.lang.IllegalArgumentException.class  // Don't count client errors
-                                )
 
                                 .build())
                 .timeLimiterConfig(
@@ -68,42 +66,24 @@ public class CircuitBreakerConfig {
     }
 
     /**
-     * Specific configuration for critical services (payments, orders)
+     * What every breaker shares: window type, half-open probing and which errors count
+     * <p>
+     * Thresholds of the route breakers come from the route table (gateway.route-table,
+     * see RouteFactory) and are applied on top of this.
      */
-    @Bean
-    public Customizer<ReactiveResilience4JCircuitBreakerFactory> criticalServiceCustomizer() {
-        return factory -> factory.configure(builder -> builder
-                .circuitBreakerConfig(
-                        io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.custom()
-                                .slidingWindowSize(20)                    // Larger window for more accuracy
-                                .minimumNumberOfCalls(10)
-                                .failureRateThreshold(30.0f)              // More sensitive to failures
-                                .waitDurationInOpenState(Duration.ofMinutes(1))  // Longer wait time
-                                .build())
-                .timeLimiterConfig(
-                        TimeLimiterConfig.custom()
-                                .timeoutDuration(Duration.ofSeconds(3))   // Shorter timeout
-                                .build())
-                .build(), "payment-service-cb", "order-service-cb");
-    }
+    public static io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.Builder breakerDefaults() {
+        return io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.custom()
+                .slidingWindowType(SlidingWindowType.COUNT_BASED)
+                .permittedNumberOfCallsInHalfOpenState(3)         // Allow 3 test calls in half-open
 
-    /**
-     * Configuration for non-critical services (products, search)
-     */
-    @Bean
-    public Customizer<ReactiveResilience4JCircuitBreakerFactory> nonCriticalServiceCustomizer() {
-        return factory -> factory.configure(builder -> builder
-                .circuitBreakerConfig(
-                        io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.custom()
-                                .slidingWindowSize(5)
-                                .minimumNumberOfCalls(3)
-                                .failureRateThreshold(70.0f)              // More tolerant of failures
-                                .waitDurationInOpenState(Duration.ofSeconds(15))
-                                .build())
-                .timeLimiterConfig(
-                        TimeLimiterConfig.custom()
-                                .timeoutDuration(Duration.ofSeconds(10))  // Longer timeout
-                                .build())
-                .build(), "product-service-cb", "search-service-cb");
+                // What constitutes a failure
+                .recordExceptions(
+                        java.net.ConnectException.class,
+                        java.util.concurrent.TimeoutException.class,
+                        org.springframework.web.client.ResourceAccessException.class
+                )
+                .ignoreExceptions(
+                        java.lang.IllegalArgumentException.class  // Don't count client errors
+                );
     }
 }
\ No newline at end of file
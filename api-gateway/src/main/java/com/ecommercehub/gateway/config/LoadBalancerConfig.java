@@ -0,0 +1,16 @@
+package com.ecommercehub.gateway.config;
+
+import com.ecommercehub.gateway.loadbalancer.GatewayLoadBalancerClientConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Instance selection for lb:// routes
+ * <p>
+ * Every service gets a route-aware balancer: round robin by default, peak-EWMA on
+ * routes with the metadata entry "load-balancer: peak-ewma".
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = GatewayLoadBalancerClientConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -1,6 +1,9 @@
 package com.ecommercehub.gateway.config;
 
+import com.ecommercehub.gateway.ratelimit.HybridRateLimiter;
+import com.ecommercehub.gateway.ratelimit.PipelinedRedisRateLimiter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,6 +13,8 @@ import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 
+import java.time.Duration;
+
 /**
  * Rate Limiting Configuration using Redis
  * <p>
@@ -41,14 +46,24 @@ public class RateLimitConfig {
 
     /**
      * Stricter rate limiter for sensitive operations (payments, orders)
+     * <p>
+     * The routes' own limits come from the route table (limiter: exact) and can change
+     * at runtime. Redis stays the source of truth for every request, but the checks of
+     * one event loop are sent together: one script call per batchWindow or maxBatchSize
+     * checks, instead of one per request.
      */
     @Bean
-    public RedisRateLimiter strictRateLimiter() {
-        return new RedisRateLimiter(
+    public RedisRateLimiter strictRateLimiter(
+            ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+            @Value("${gateway.rate-limiter.exact.batch-window:500us}") Duration batchWindow,
+            @Value("${gateway.rate-limiter.exact.max-batch-size:128}") int maxBatchSize) {
+        return new PipelinedRedisRateLimiter(reactiveRedisTemplate,
                 2,    // replenishRate: 2 requests per second
                 5,    // burstCapacity: up to 5 requests in burst
                 1     // requestedTokens: 1 token per request
-        );
+        )
+                .setBatchWindow(batchWindow)
+                .setMaxBatchSize(maxBatchSize);
     }
 
     /**
@@ -63,6 +78,26 @@ public class RateLimitConfig {
         );
     }
 
+    /**
+     * Hybrid rate limiter with the same limits as {@link #defaultRateLimiter()}
+     * <p>
+     * Decides on an in-memory bucket and syncs consumed quota to Redis in the background,
+     * so the request path never waits on Redis. The cluster may briefly over-admit by about
+     * replenishRate * syncInterval per additional gateway node.
+     * <p>
+     * Shared by all routes with "limiter: hybrid" in the route table; each of them has
+     * its own buckets and limits, the ones here only apply to routes without.
+     */
+    @Bean
+    public HybridRateLimiter hybridDefaultRateLimiter(
+            ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+            @Value("${gateway.rate-limiter.hybrid.sync-interval:100ms}") Duration syncInterval,
+            @Value("${gateway.rate-limiter.hybrid.max-batch-size:500}") int maxBatchSize) {
+        return new HybridRateLimiter(reactiveRedisTemplate, 10, 20, 1)
+                .setSyncInterval(syncInterval)
+                .setMaxBatchSize(maxBatchSize);
+    }
+
     /**
      * Key resolver for user-based rate limiting.
      * Marked as @Primary to be used by default.
@@ -0,0 +1,22 @@
+package com.ecommercehub.gateway.config;
+
+import com.ecommercehub.gateway.requestid.RequestIdGenerator;
+import com.ecommercehub.gateway.requestid.TimeOrderedIdGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Correlation ID generation
+ * <p>
+ * The default generator can be replaced by defining another {@link RequestIdGenerator} bean.
+ */
+@Configuration
+public class RequestIdConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(RequestIdGenerator.class)
+    public RequestIdGenerator requestIdGenerator() {
+        return new TimeOrderedIdGenerator();
+    }
+}
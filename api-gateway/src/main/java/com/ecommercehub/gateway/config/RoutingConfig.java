@@ -0,0 +1,29 @@
+package com.ecommercehub.gateway.config;
+
+import com.ecommercehub.gateway.routing.IndexedRoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Route lookup through a compiled path index
+ * <p>
+ * Registered under the name of the gateway's own handler mapping, whose auto-configured
+ * bean is conditional on no other RoutePredicateHandlerMapping, so it replaces that
+ * mapping and requests are matched once, not by a second scan after a miss.
+ */
+@Configuration
+public class RoutingConfig {
+
+    @Bean(name = "routePredicateHandlerMapping")
+    public IndexedRoutePredicateHandlerMapping indexedRoutePredicateHandlerMapping(
+            FilteringWebHandler webHandler,
+            RouteLocator routeLocator,
+            GlobalCorsProperties globalCorsProperties,
+            Environment environment) {
+        return new IndexedRoutePredicateHandlerMapping(webHandler, routeLocator, globalCorsProperties, environment);
+    }
+}
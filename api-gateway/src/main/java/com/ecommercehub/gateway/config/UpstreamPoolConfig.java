@@ -0,0 +1,41 @@
+package com.ecommercehub.gateway.config;
+
+import com.ecommercehub.gateway.upstream.InstanceConnectionProvider;
+import com.ecommercehub.gateway.upstream.UpstreamPools;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+
+/**
+ * The gateway's upstream HTTP client with one connection pool per service instance
+ * <p>
+ * Replaces Spring Cloud Gateway's client factory only to swap the connection provider;
+ * timeouts, SSL, proxy and the shared pool settings still come from
+ * spring.cloud.gateway.httpclient.*, and that shared pool serves every host that is
+ * not a registry instance.
+ */
+@Configuration
+public class UpstreamPoolConfig {
+
+    @Bean
+    public HttpClientFactory gatewayHttpClientFactory(
+            HttpClientProperties properties,
+            ServerProperties serverProperties,
+            List<HttpClientCustomizer> customizers,
+            HttpClientSslConfigurer sslConfigurer,
+            UpstreamPools pools) {
+        return new HttpClientFactory(properties, serverProperties, sslConfigurer, customizers) {
+            @Override
+            protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+                return new InstanceConnectionProvider(pools, super.buildConnectionProvider(properties));
+            }
+        };
+    }
+}
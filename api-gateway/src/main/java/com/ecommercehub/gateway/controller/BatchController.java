@@ -0,0 +1,42 @@
+package com.ecommercehub.gateway.controller;
+
+import com.ecommercehub.gateway.batch.BatchDispatcher;
+import com.ecommercehub.gateway.batch.BatchProperties;
+import com.ecommercehub.gateway.batch.BatchResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+
+/**
+ * Many API calls in one client round trip
+ * <p>
+ * POST /api/batch with a list of sub-requests (see BatchRequest). They are dispatched
+ * in parallel through the regular routes, and each result is streamed back as one
+ * NDJSON line as soon as it completes, with its id and status. A malformed or too
+ * large batch is rejected as a whole with 400/413; failures of single sub-requests
+ * are reported in their own line.
+ */
+@RestController
+public class BatchController {
+
+    private final BatchDispatcher dispatcher;
+    private final BatchProperties properties;
+
+    public BatchController(BatchDispatcher dispatcher, BatchProperties properties) {
+        this.dispatcher = dispatcher;
+        this.properties = properties;
+    }
+
+    @PostMapping(path = BatchDispatcher.PATH, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchResult> batch(ServerWebExchange exchange) {
+        if (!properties.isEnabled()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
+        }
+        return dispatcher.read(exchange)
+                .flatMapMany(batch -> dispatcher.dispatch(exchange, batch));
+    }
+}
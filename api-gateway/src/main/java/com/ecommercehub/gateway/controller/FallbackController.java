@@ -1,11 +1,16 @@
 package com.ecommercehub.gateway.controller;
 
+import com.ecommercehub.gateway.cache.ResponseCacheFilter;
+import com.ecommercehub.gateway.cache.StaleResponseRecorder;
+import com.ecommercehub.gateway.cache.StaleResponseStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
@@ -14,12 +19,24 @@ import java.util.Map;
 /**
  * Fallback controller for circuit breaker responses
  * When a service is down, these endpoints return graceful degradation responses
+ * <p>
+ * Catalog and search fallbacks first try the last-known-good response for the
+ * original request (see StaleResponseStore). A stale response keeps its status and
+ * headers and is marked with X-Cache: STALE, Age and a 110 Warning.
  */
 @RestController
 @RequestMapping("/fallback")
 @Slf4j
 public class FallbackController {
 
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    private final StaleResponseStore staleResponseStore;
+
+    public FallbackController(StaleResponseStore staleResponseStore) {
+        this.staleResponseStore = staleResponseStore;
+    }
+
     @GetMapping("/user-service")
     public Mono<ResponseEntity<Map<String, Object>>> userServiceFallback() {
         log.warn("User service fallback triggered");
@@ -32,8 +49,12 @@ public class FallbackController {
     }
 
     @GetMapping("/product-service")
-    public Mono<ResponseEntity<Map<String, Object>>> productServiceFallback() {
+    public Mono<ResponseEntity<Object>> productServiceFallback(ServerWebExchange exchange) {
         log.warn("Product service fallback triggered");
+        ResponseEntity<Object> stale = staleResponse(exchange, "product-service");
+        if (stale != null) {
+            return Mono.just(stale);
+        }
         return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
                 .body(Map.of(
                         "error", "Product service is temporarily unavailable",
@@ -64,5 +85,39 @@ public class FallbackController {
                 )));
     }
 
+    @GetMapping("/search-service")
+    public Mono<ResponseEntity<Object>> searchServiceFallback(ServerWebExchange exchange) {
+        log.warn("Search service fallback triggered");
+        ResponseEntity<Object> stale = staleResponse(exchange, "search-service");
+        if (stale != null) {
+            return Mono.just(stale);
+        }
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of(
+                        "error", "Search service is temporarily unavailable",
+                        "timestamp", LocalDateTime.now(),
+                        "suggestion", "Browse product categories or try again later"
+                )));
+    }
+
     // Add other service fallbacks...
+
+    /**
+     * Last-known-good response for the request that tripped the fallback, or null
+     */
+    private ResponseEntity<Object> staleResponse(ServerWebExchange exchange, String routeId) {
+        String key = exchange.getAttribute(StaleResponseRecorder.STALE_KEY_ATTR);
+        StaleResponseStore.StaleResponse stale = staleResponseStore.lookup(routeId, key, System.currentTimeMillis());
+        if (stale == null) {
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(stale.getHeaders());
+        headers.set(HttpHeaders.AGE, Long.toString(stale.getAgeSeconds()));
+        headers.set(HttpHeaders.WARNING, STALE_WARNING);
+        headers.set(ResponseCacheFilter.CACHE_STATUS_HEADER, "STALE");
+        return ResponseEntity.status(stale.getStatus())
+                .headers(headers)
+                .body(exchange.getResponse().bufferFactory().wrap(stale.getBody()));
+    }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.ecommercehub.gateway.filter;
 
+import com.ecommercehub.gateway.requestid.RequestIdGenerator;
+import com.ecommercehub.gateway.requestid.RequestIdProperties;
+import com.ecommercehub.gateway.requestid.TraceParent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
@@ -10,11 +13,12 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.util.UUID;
-
 /**
  * Ensures every request has a correlation ID header (X-Gateway-Request-Id)
  * and propagates it to the response.
+ * <p>
+ * Missing IDs come from the {@link RequestIdGenerator}. Optionally a W3C traceparent
+ * with the same ID is sent upstream when the client did not send one.
  */
 @Component
 @Slf4j
@@ -22,19 +26,45 @@ public class CorrelationIdFilter implements GlobalFilter, Ordered {
 
     private static final String CORRELATION_HEADER = "X-Gateway-Request-Id";
 
+    /**
+     * Exchange attribute holding the correlation ID, readable by filters that run earlier
+     */
+    public static final String CORRELATION_ID_ATTR = "correlationId";
+
+    private final RequestIdGenerator idGenerator;
+    private final RequestIdProperties properties;
+
+    public CorrelationIdFilter(RequestIdGenerator idGenerator, RequestIdProperties properties) {
+        this.idGenerator = idGenerator;
+        this.properties = properties;
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
         String correlationId = request.getHeaders().getFirst(CORRELATION_HEADER);
         if (correlationId == null || correlationId.isBlank()) {
-            correlationId = UUID.randomUUID().toString();
+            correlationId = idGenerator.nextId();
+        }
+
+        exchange.getAttributes().put(CORRELATION_ID_ATTR, correlationId);
+
+        String traceParent = null;
+        if (properties.isTraceparent() && !request.getHeaders().containsKey(TraceParent.HEADER)) {
+            traceParent = TraceParent.fromRequestId(correlationId, properties.isSampled());
         }
 
+        String finalCorrelationId = correlationId;
+        String finalTraceParent = traceParent;
         ServerHttpRequest mutated = request.mutate()
-                .header(CORRELATION_HEADER, correlationId)
+                .headers(headers -> {
+                    headers.set(CORRELATION_HEADER, finalCorrelationId);
+                    if (finalTraceParent != null) {
+                        headers.set(TraceParent.HEADER, finalTraceParent);
+                    }
+                })
                 .build();
 
-        String finalCorrelationId = correlationId;
         exchange.getResponse().beforeCommit(() -> {
             ServerHttpResponse response = exchange.getResponse();
             response.getHeaders().set(CORRELATION_HEADER, finalCorrelationId);
@@ -46,8 +76,6 @@ public class CorrelationIdFilter implements GlobalFilter, Ordered {
 
     @Override
     public int getOrder() {
-        return Ordered.HIGHEST_PRECEDENCE + 1; // right after request logging
+        return Ordered.HIGHEST_PRECEDENCE + 2; // right after access log and latency metrics
     }
 }
-
-
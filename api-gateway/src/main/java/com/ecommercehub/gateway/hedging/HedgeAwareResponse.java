@@ -0,0 +1,67 @@
+package com.ecommercehub.gateway.hedging;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Response seen by the primary request while a hedge may be racing it
+ * <p>
+ * Until the race is decided everything passes through, so filters can still set
+ * headers (rate limit headers, for example). The primary claims the race when it
+ * sets a status or writes; if the hedge has already won, whatever the primary
+ * produces is dropped instead of reaching the client.
+ */
+class HedgeAwareResponse extends ServerHttpResponseDecorator {
+
+    private final HedgeRace race;
+    private final HttpHeaders discardedHeaders = new HttpHeaders();
+
+    HedgeAwareResponse(ServerHttpResponse delegate, HedgeRace race) {
+        super(delegate);
+        this.race = race;
+    }
+
+    @Override
+    public boolean setStatusCode(HttpStatusCode status) {
+        return race.claim(HedgeRace.Side.PRIMARY) && super.setStatusCode(status);
+    }
+
+    @Override
+    @Deprecated
+    public boolean setRawStatusCode(Integer value) {
+        return race.claim(HedgeRace.Side.PRIMARY) && super.setRawStatusCode(value);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return race.isWinner(HedgeRace.Side.HEDGE) ? discardedHeaders : super.getHeaders();
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (race.claim(HedgeRace.Side.PRIMARY)) {
+            return super.writeWith(body);
+        }
+        return Flux.from(body).doOnNext(DataBufferUtils::release).then();
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        if (race.claim(HedgeRace.Side.PRIMARY)) {
+            return super.writeAndFlushWith(body);
+        }
+        return Flux.from(body).concatMap(Flux::from).doOnNext(DataBufferUtils::release).then();
+    }
+
+    @Override
+    public Mono<Void> setComplete() {
+        return race.claim(HedgeRace.Side.PRIMARY) ? super.setComplete() : Mono.empty();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecommercehub.gateway.hedging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps hedges at a share of traffic over a sliding pair of windows
+ * <p>
+ * Every hedgeable request is counted in a LongAdder, so the common path does not
+ * contend. Only hedge decisions, which happen for the slow tail, touch the shared
+ * hedge counter. A hedge is allowed while
+ * hedges(previous + current window) + 1 <= ratio * requests(previous + current window).
+ */
+public class HedgeBudget {
+
+    private final double ratio;
+    private final long windowNanos;
+
+    private volatile Window current;
+    private volatile Window previous;
+
+    public HedgeBudget(double ratio, long windowNanos, long nowNanos) {
+        this.ratio = ratio;
+        this.windowNanos = windowNanos;
+        this.current = new Window(nowNanos);
+        this.previous = new Window(nowNanos - windowNanos);
+    }
+
+    public void onRequest(long nowNanos) {
+        window(nowNanos).requests.increment();
+    }
+
+    public boolean tryAcquire(long nowNanos) {
+        Window window = window(nowNanos);
+        Window before = previous;
+        double allowed = ratio * (before.requests.sum() + window.requests.sum());
+        while (true) {
+            long hedges = window.hedges.get();
+            if (before.hedges.get() + hedges + 1 > allowed) {
+                return false;
+            }
+            if (window.hedges.compareAndSet(hedges, hedges + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hedges allowed right now, for the budget gauge
+     */
+    public double remaining(long nowNanos) {
+        Window window = window(nowNanos);
+        Window before = previous;
+        return ratio * (before.requests.sum() + window.requests.sum())
+                - before.hedges.get() - window.hedges.get();
+    }
+
+    private Window window(long nowNanos) {
+        Window window = current;
+        if (nowNanos - window.startNanos < windowNanos) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            if (nowNanos - window.startNanos >= windowNanos) {
+                // After a long gap the old window says nothing about current traffic
+                previous = nowNanos - window.startNanos < 2 * windowNanos ? window : new Window(nowNanos - windowNanos);
+                window = new Window(nowNanos);
+                current = window;
+            }
+            return window;
+        }
+    }
+
+    private static final class Window {
+
+        final long startNanos;
+        final LongAdder requests = new LongAdder();
+        final AtomicLong hedges = new AtomicLong();
+
+        Window(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
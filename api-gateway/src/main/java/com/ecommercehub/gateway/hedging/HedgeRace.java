@@ -0,0 +1,47 @@
+package com.ecommercehub.gateway.hedging;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides which of the primary and the hedge answers the client
+ * <p>
+ * The first side to receive response headers claims the race; the other is cancelled.
+ */
+final class HedgeRace {
+
+    enum Side {
+        PRIMARY,
+        HEDGE
+    }
+
+    private final AtomicReference<Side> winner = new AtomicReference<>();
+    private final Sinks.One<Side> decided = Sinks.one();
+
+    /**
+     * True if this side won, now or earlier
+     */
+    boolean claim(Side side) {
+        if (winner.compareAndSet(null, side)) {
+            decided.tryEmitValue(side);
+            return true;
+        }
+        return winner.get() == side;
+    }
+
+    boolean isWinner(Side side) {
+        return winner.get() == side;
+    }
+
+    /**
+     * Emits once the given side has won; never completes otherwise
+     * <p>
+     * Used as the other side's takeUntilOther trigger, which also fires on completion,
+     * so a race the other side lost must not complete it.
+     */
+    Mono<Side> won(Side side) {
+        return decided.asMono().filter(s -> s == side).switchIfEmpty(Mono.never());
+    }
+}
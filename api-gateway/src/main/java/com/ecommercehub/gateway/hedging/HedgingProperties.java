@@ -0,0 +1,60 @@
+package com.ecommercehub.gateway.hedging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for hedged requests (gateway.hedging.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.hedging")
+public class HedgingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Most hedges as a share of hedgeable requests, across all routes (0.05 = 5%)
+     */
+    private double budgetRatio = 0.05;
+
+    /**
+     * Length of one budget window; the budget looks at the current and the previous window
+     */
+    private Duration budgetWindow = Duration.ofSeconds(10);
+
+    /**
+     * Route latency percentile after which a hedge is sent
+     */
+    private double percentile = 0.95;
+
+    /**
+     * Lower bound for the percentile-derived delay
+     */
+    private Duration minDelay = Duration.ofMillis(20);
+
+    /**
+     * Delay used until the route has latency data
+     */
+    private Duration defaultDelay = Duration.ofMillis(250);
+
+    /**
+     * How often the percentile-derived delay is re-read from the latency histogram
+     */
+    private Duration delayRefresh = Duration.ofSeconds(1);
+
+    /**
+     * Fixed delays per route id, instead of the percentile
+     */
+    private Map<String, Duration> routeDelays = new HashMap<>();
+
+    /**
+     * Timeout of the hedge request itself, matches the circuit breaker time limiter
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,348 @@
+package com.ecommercehub.gateway.hedging;
+
+import com.ecommercehub.gateway.metrics.GatewayLatencyMetrics;
+import com.ecommercehub.gateway.outlier.OutlierDetector;
+import com.ecommercehub.gateway.outlier.UpstreamServerError;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Hedged requests for idempotent GET routes
+ * <p>
+ * The request goes through the route as usual. If it has no response after the
+ * hedge delay, the same GET is sent straight to a different instance of the service
+ * that the outlier detector has not ejected.
+ * Whichever gets response headers first answers the client; the other is cancelled.
+ * <p>
+ * - Delay: the route's current latency percentile (p95 by default, refreshed every
+ *   second), or a fixed delay per route
+ * - Budget: hedges are capped at a share of hedgeable traffic across all routes
+ * - Circuit breaker: the hedge asks the route's breaker for permission and reports
+ *   its own outcome to it and to the breaker of the instance it hit, 5xx as a failure,
+ *   so every upstream call is counted once. A cancelled loser, primary or hedge, is
+ *   released without being counted
+ * <p>
+ * Like the response cache it runs before NettyWriteResponseFilter, so the primary's
+ * response can be held back when the hedge wins.
+ */
+@Slf4j
+@Component
+public class RequestHedger {
+
+    public static final String HEDGED_HEADER = "X-Hedged";
+
+    private static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "te", "trailer", "upgrade",
+            "proxy-authenticate", "proxy-authorization", "host");
+
+    private final HedgingProperties properties;
+    private final GatewayLatencyMetrics latencyMetrics;
+    private final ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory;
+    private final ReactiveDiscoveryClient discoveryClient;
+    private final OutlierDetector outlierDetector;
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final HedgeBudget budget;
+    private final Map<String, RouteDelay> delays = new ConcurrentHashMap<>();
+
+    public RequestHedger(HedgingProperties properties,
+                         GatewayLatencyMetrics latencyMetrics,
+                         ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory,
+                         ReactiveDiscoveryClient discoveryClient,
+                         OutlierDetector outlierDetector,
+                         WebClient.Builder webClientBuilder,
+                         MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.latencyMetrics = latencyMetrics;
+        this.circuitBreakerFactory = circuitBreakerFactory;
+        this.discoveryClient = discoveryClient;
+        this.outlierDetector = outlierDetector;
+        this.webClient = webClientBuilder.build();
+        this.meterRegistry = meterRegistry;
+        this.budget = new HedgeBudget(properties.getBudgetRatio(),
+                properties.getBudgetWindow().toNanos(), System.nanoTime());
+
+        Gauge.builder("gateway.hedging.budget.remaining", budget, b -> b.remaining(System.nanoTime()))
+                .description("Hedges the budget would still allow right now")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hedging filter for a route protected by the given circuit breaker
+     */
+    public GatewayFilter filter(String circuitBreakerName) {
+        return new OrderedGatewayFilter((exchange, chain) -> hedge(exchange, chain, circuitBreakerName), ORDER);
+    }
+
+    private Mono<Void> hedge(ServerWebExchange exchange, GatewayFilterChain chain, String circuitBreakerName) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled()
+                || route == null
+                || !"lb".equals(route.getUri().getScheme())
+                || !HttpMethod.GET.equals(exchange.getRequest().getMethod())) {
+            return chain.filter(exchange);
+        }
+        budget.onRequest(System.nanoTime());
+
+        HedgeRace race = new HedgeRace();
+        AtomicReference<Throwable> primaryError = new AtomicReference<>();
+
+        Mono<HedgeRace.Side> primary = chain
+                .filter(exchange.mutate().response(new HedgeAwareResponse(exchange.getResponse(), race)).build())
+                .takeUntilOther(race.won(HedgeRace.Side.HEDGE))
+                .doOnError(primaryError::set)
+                // A primary that finished without writing still owns the response
+                .then(Mono.fromSupplier(() -> race.claim(HedgeRace.Side.PRIMARY) ? HedgeRace.Side.PRIMARY : null));
+
+        Mono<HedgeRace.Side> hedge = Mono.delay(delay(route.getId()))
+                .flatMap(tick -> sendHedge(exchange, route, circuitBreakerName, race))
+                .takeUntilOther(race.won(HedgeRace.Side.PRIMARY));
+
+        return Mono.firstWithValue(primary, hedge)
+                .onErrorMap(NoSuchElementException.class,
+                        e -> primaryError.get() != null ? primaryError.get() : e)
+                .then();
+    }
+
+    private Mono<HedgeRace.Side> sendHedge(ServerWebExchange exchange, Route route,
+                                           String circuitBreakerName, HedgeRace race) {
+        String routeId = route.getId();
+        Response<ServiceInstance> primaryInstance = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        URI primaryUrl = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        if (primaryInstance == null || !primaryInstance.hasServer() || primaryUrl == null) {
+            // Still queued in front of the load balancer, a hedge would not overtake it
+            return skipped(routeId, "not-routed");
+        }
+        CircuitBreaker breaker = circuitBreakerFactory.getCircuitBreakerRegistry()
+                .find(circuitBreakerName).orElse(null);
+        if (breaker == null) {
+            return skipped(routeId, "no-breaker");
+        }
+        if (!budget.tryAcquire(System.nanoTime())) {
+            return skipped(routeId, "budget");
+        }
+
+        ServiceInstance primaryServer = primaryInstance.getServer();
+        return discoveryClient.getInstances(route.getUri().getHost())
+                .filter(instance -> !sameInstance(instance, primaryServer) && outlierDetector.isAdmitted(instance))
+                .collectList()
+                .flatMap(candidates -> {
+                    if (candidates.isEmpty()) {
+                        return skipped(routeId, "no-instance");
+                    }
+                    if (!breaker.tryAcquirePermission()) {
+                        return skipped(routeId, "breaker");
+                    }
+                    ServiceInstance target = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+                    return call(exchange, routeId, hedgeUrl(primaryUrl, target),
+                            new Outcome(breaker, target, instanceBreaker(target), outlierDetector), race);
+                });
+    }
+
+    private Mono<HedgeRace.Side> call(ServerWebExchange exchange, String routeId, URI url,
+                                      Outcome outcome, HedgeRace race) {
+        count(routeId, "sent");
+        ServerHttpResponse response = exchange.getResponse();
+
+        return webClient.get()
+                .uri(url)
+                .headers(headers -> copyRequestHeaders(exchange.getRequest().getHeaders(), headers))
+                .exchangeToMono(clientResponse -> {
+                    outcome.onResponse(clientResponse.statusCode());
+                    if (!race.claim(HedgeRace.Side.HEDGE)) {
+                        count(routeId, "lost");
+                        return clientResponse.releaseBody().then(Mono.empty());
+                    }
+                    count(routeId, "won");
+                    response.setStatusCode(clientResponse.statusCode());
+                    HttpHeaders headers = response.getHeaders();
+                    clientResponse.headers().asHttpHeaders().forEach((name, values) -> {
+                        if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                            headers.put(name, values);
+                        }
+                    });
+                    headers.set(HEDGED_HEADER, "true");
+                    return response.writeWith(clientResponse.bodyToFlux(DataBuffer.class))
+                            .thenReturn(HedgeRace.Side.HEDGE);
+                })
+                .timeout(properties.getTimeout())
+                .doOnError(outcome::onError)
+                .doOnCancel(outcome::onCancel)
+                .onErrorResume(e -> {
+                    log.debug("Hedge to {} failed", url, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Breaker of the instance the hedge goes to, or null when its call is not counted:
+     * outlier detection is off, or the instance's trial calls are taken
+     */
+    private CircuitBreaker instanceBreaker(ServiceInstance target) {
+        if (!outlierDetector.isEnabled()) {
+            return null;
+        }
+        return outlierDetector.acquire(target);
+    }
+
+    private Duration delay(String routeId) {
+        Duration fixed = properties.getRouteDelays().get(routeId);
+        if (fixed != null) {
+            return fixed;
+        }
+        long now = System.nanoTime();
+        RouteDelay cached = delays.get(routeId);
+        if (cached != null && now - cached.refreshedAtNanos < properties.getDelayRefresh().toNanos()) {
+            return cached.delay;
+        }
+        Duration percentile = latencyMetrics.percentile(routeId, properties.getPercentile());
+        Duration delay = percentile == null
+                ? properties.getDefaultDelay()
+                : (percentile.compareTo(properties.getMinDelay()) < 0 ? properties.getMinDelay() : percentile);
+        delays.put(routeId, new RouteDelay(delay, now));
+        return delay;
+    }
+
+    private Mono<HedgeRace.Side> skipped(String routeId, String reason) {
+        count(routeId, "skipped-" + reason);
+        return Mono.empty();
+    }
+
+    private void count(String routeId, String outcome) {
+        Counter.builder("gateway.hedging.requests")
+                .description("Hedge decisions and outcomes")
+                .tag("route", routeId)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        return a.getHost().equals(b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    private static URI hedgeUrl(URI primaryUrl, ServiceInstance target) {
+        return UriComponentsBuilder.fromUri(primaryUrl)
+                .scheme(target.isSecure() ? "https" : "http")
+                .host(target.getHost())
+                .port(target.getPort())
+                .build(true)
+                .toUri();
+    }
+
+    private static void copyRequestHeaders(HttpHeaders from, HttpHeaders to) {
+        from.forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                to.put(name, List.copyOf(values));
+            }
+        });
+        to.set(HEDGED_HEADER, "true");
+    }
+
+    /**
+     * Reports a hedge's outcome once, to the route breaker and to the breaker of the
+     * instance it hit, the same way OutlierDetectionFilter reports routed calls
+     */
+    private static final class Outcome {
+
+        private final CircuitBreaker routeBreaker;
+        private final ServiceInstance target;
+        private final CircuitBreaker instanceBreaker;
+        private final OutlierDetector outlierDetector;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        Outcome(CircuitBreaker routeBreaker, ServiceInstance target, CircuitBreaker instanceBreaker,
+                OutlierDetector outlierDetector) {
+            this.routeBreaker = routeBreaker;
+            this.target = target;
+            this.instanceBreaker = instanceBreaker;
+            this.outlierDetector = outlierDetector;
+        }
+
+        void onResponse(HttpStatusCode status) {
+            if (status.is5xxServerError()) {
+                onError(new UpstreamServerError(status));
+            } else if (recorded.compareAndSet(false, true)) {
+                long elapsed = System.nanoTime() - startNanos;
+                routeBreaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+                if (instanceBreaker != null) {
+                    instanceBreaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        void onError(Throwable error) {
+            if (recorded.compareAndSet(false, true)) {
+                long elapsed = System.nanoTime() - startNanos;
+                routeBreaker.onError(elapsed, TimeUnit.NANOSECONDS, error);
+                if (instanceBreaker != null) {
+                    instanceBreaker.onError(elapsed, TimeUnit.NANOSECONDS, error);
+                }
+            }
+        }
+
+        void onCancel() {
+            if (recorded.compareAndSet(false, true)) {
+                routeBreaker.releasePermission();
+                if (instanceBreaker != null) {
+                    outlierDetector.release(target, instanceBreaker);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hedge delay of a route and when it was read from the histogram
+     */
+    private static final class RouteDelay {
+
+        final Duration delay;
+        final long refreshedAtNanos;
+
+        RouteDelay(Duration delay, long refreshedAtNanos) {
+            this.delay = delay;
+            this.refreshedAtNanos = refreshedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+import com.ecommercehub.gateway.outlier.EjectingServiceInstanceListSupplier;
+import com.ecommercehub.gateway.outlier.OutlierDetector;
+import com.ecommercehub.gateway.registry.RegistryFeedClient;
+import com.ecommercehub.gateway.registry.RegistryFeedServiceInstanceListSupplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-service load balancer configuration
+ * <p>
+ * Both strategies choose among the instances the outlier detector has not ejected,
+ * taken from the registry change feed while it is live and from the polled registry
+ * otherwise.
+ * <p>
+ * Not a @Configuration on purpose: Spring Cloud LoadBalancer creates it in a child
+ * context per service id (see LoadBalancerConfig), so it must stay out of component scanning.
+ */
+public class GatewayLoadBalancerClientConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory clientFactory,
+            InstanceStatsRegistry stats,
+            LoadBalancerProperties properties,
+            OutlierDetector outlierDetector,
+            RegistryFeedClient registryFeed) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        ObjectProvider<ServiceInstanceListSupplier> discovered = new SimpleObjectProvider<>(
+                new RegistryFeedServiceInstanceListSupplier(serviceId,
+                        clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), registryFeed));
+        ObjectProvider<ServiceInstanceListSupplier> supplier = new SimpleObjectProvider<>(
+                new EjectingServiceInstanceListSupplier(serviceId, discovered, outlierDetector));
+
+        Map<LoadBalancingStrategy, ReactorServiceInstanceLoadBalancer> delegates =
+                new EnumMap<>(LoadBalancingStrategy.class);
+        delegates.put(LoadBalancingStrategy.ROUND_ROBIN, new RoundRobinLoadBalancer(supplier, serviceId));
+        delegates.put(LoadBalancingStrategy.PEAK_EWMA, new PeakEwmaLoadBalancer(supplier, serviceId, stats));
+        return new RouteAwareLoadBalancer(delegates, properties.getDefaultStrategy());
+    }
+}
@@ -0,0 +1,65 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Records response time and in-flight count of the instance picked for an lb:// request
+ * <p>
+ * Runs right after {@link ReactiveLoadBalancerClientFilter}; its chain completes when
+ * the upstream response headers have arrived. Errors and 5xx responses are recorded
+ * with the failure penalty, cancelled calls (timeouts, client gone) only release the
+ * in-flight slot.
+ */
+@Component
+public class InstanceStatsFilter implements GlobalFilter, Ordered {
+
+    private final InstanceStatsRegistry registry;
+
+    public InstanceStatsFilter(InstanceStatsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> lbResponse = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return chain.filter(exchange);
+        }
+        PeakEwma stats = registry.stats(lbResponse.getServer());
+        stats.start();
+        long startNanos = registry.now();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    stats.complete(responseTime(exchange, signal, registry.now() - startNanos), registry.now());
+                    registry.sweepIdle();
+                });
+    }
+
+    private long responseTime(ServerWebExchange exchange, SignalType signal, long elapsedNanos) {
+        if (signal == SignalType.CANCEL) {
+            return -1;
+        }
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError())) {
+            return Math.max(elapsedNanos, registry.failurePenaltyNanos());
+        }
+        return elapsedNanos;
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+}
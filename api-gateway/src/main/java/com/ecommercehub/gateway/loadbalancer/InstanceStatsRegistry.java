@@ -0,0 +1,124 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Response time and in-flight statistics per service instance, as seen by this gateway
+ * <p>
+ * Fed by {@link InstanceStatsFilter} for every lb:// request and read by
+ * {@link PeakEwmaLoadBalancer}. Meters per instance:
+ * - gateway.loadbalancer.instance.score{service,instance}: load estimate, lower is better
+ * - gateway.loadbalancer.instance.latency{service,instance}: decayed peak-EWMA, ms
+ * - gateway.loadbalancer.instance.in.flight{service,instance}
+ */
+@Component
+public class InstanceStatsRegistry {
+
+    private final LoadBalancerProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier clock;
+    private final Map<String, Entry> instances = new ConcurrentHashMap<>();
+    private volatile long lastSweepNanos;
+
+    @Autowired
+    public InstanceStatsRegistry(LoadBalancerProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    InstanceStatsRegistry(LoadBalancerProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.lastSweepNanos = clock.getAsLong();
+    }
+
+    public PeakEwma stats(ServiceInstance instance) {
+        String key = key(instance);
+        Entry entry = instances.get(key);
+        if (entry == null) {
+            entry = instances.computeIfAbsent(key, k -> createEntry(instance));
+        }
+        entry.lastUsedNanos = clock.getAsLong();
+        return entry.stats;
+    }
+
+    /**
+     * Response time recorded for a failed request
+     */
+    public long failurePenaltyNanos() {
+        return properties.getFailurePenalty().toNanos();
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Drops instances that have not been used for a while, e.g. after a redeploy
+     */
+    void sweepIdle() {
+        long now = clock.getAsLong();
+        long ttl = properties.getIdleInstanceTtl().toNanos();
+        if (now - lastSweepNanos < ttl / 4) {
+            return;
+        }
+        lastSweepNanos = now;
+        instances.forEach((key, entry) -> {
+            if (now - entry.lastUsedNanos > ttl && entry.stats.inFlight() == 0 && instances.remove(key, entry)) {
+                entry.meters.forEach(meterRegistry::remove);
+            }
+        });
+    }
+
+    private Entry createEntry(ServiceInstance instance) {
+        PeakEwma stats = new PeakEwma(properties.getDecayTime().toNanos(), clock.getAsLong());
+        Tags tags = Tags.of("service", instance.getServiceId().toLowerCase(),
+                "instance", instance.getHost() + ":" + instance.getPort());
+
+        List<Meter> meters = new ArrayList<>(3);
+        meters.add(Gauge.builder("gateway.loadbalancer.instance.score", stats, s -> s.score(clock.getAsLong()))
+                .description("Peak-EWMA load estimate of the instance, lower is better")
+                .tags(tags)
+                .register(meterRegistry));
+        meters.add(Gauge.builder("gateway.loadbalancer.instance.latency", stats,
+                        s -> s.latencyNanos(clock.getAsLong()) / 1_000_000.0)
+                .description("Peak-EWMA response time of the instance")
+                .baseUnit("milliseconds")
+                .tags(tags)
+                .register(meterRegistry));
+        meters.add(Gauge.builder("gateway.loadbalancer.instance.in.flight", stats, PeakEwma::inFlight)
+                .description("Requests outstanding on the instance")
+                .tags(tags)
+                .register(meterRegistry));
+        return new Entry(stats, meters, clock.getAsLong());
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + "/" + instance.getHost() + ":" + instance.getPort();
+    }
+
+    private static final class Entry {
+
+        final PeakEwma stats;
+        final List<Meter> meters;
+        volatile long lastUsedNanos;
+
+        Entry(PeakEwma stats, List<Meter> meters, long nowNanos) {
+            this.stats = stats;
+            this.meters = meters;
+            this.lastUsedNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the gateway's instance selection (gateway.load-balancer.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+public class LoadBalancerProperties {
+
+    /**
+     * Strategy for routes without a "load-balancer" metadata entry
+     */
+    private LoadBalancingStrategy defaultStrategy = LoadBalancingStrategy.ROUND_ROBIN;
+
+    /**
+     * Decay time of the response time average; higher reacts slower to recovery
+     */
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    /**
+     * Response time recorded for failed requests (errors and 5xx), so an instance
+     * that fails fast does not look fast
+     */
+    private Duration failurePenalty = Duration.ofSeconds(1);
+
+    /**
+     * Instances without traffic for this long lose their statistics and metrics
+     */
+    private Duration idleInstanceTtl = Duration.ofMinutes(5);
+}
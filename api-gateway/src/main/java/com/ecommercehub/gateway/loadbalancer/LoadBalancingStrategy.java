@@ -0,0 +1,42 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+/**
+ * Instance selection strategies a route can pick with the "load-balancer" metadata key
+ */
+public enum LoadBalancingStrategy {
+
+    /**
+     * Spring Cloud's default: next instance in turn
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Lower of two random instances by peak-EWMA latency times outstanding requests
+     */
+    PEAK_EWMA;
+
+    public static final String METADATA_KEY = "load-balancer";
+
+    /**
+     * Value for the route metadata, e.g. "peak-ewma"
+     */
+    public String metadataValue() {
+        return name().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * Parses a metadata value such as "peak-ewma"; null or unknown values give the fallback
+     */
+    public static LoadBalancingStrategy fromMetadata(Object value, LoadBalancingStrategy fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        String name = value.toString().trim().replace('-', '_').toUpperCase();
+        for (LoadBalancingStrategy strategy : values()) {
+            if (strategy.name().equals(name)) {
+                return strategy;
+            }
+        }
+        return fallback;
+    }
+}
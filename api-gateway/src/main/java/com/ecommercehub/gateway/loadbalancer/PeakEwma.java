@@ -0,0 +1,75 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+/**
+ * Load estimate of one service instance: peak-sensitive moving average of response
+ * times, multiplied by the requests it has outstanding
+ * <p>
+ * - A sample slower than the average replaces it at once (peak), so a GC pause or a
+ *   noisy neighbour is noticed on the first slow response
+ * - Faster samples pull the average down with a time-based decay (tau)
+ * - Without new samples the average decays towards zero, so an instance that was
+ *   slow gets probed again after a while instead of being avoided forever
+ * - An instance that has never answered is tried with one request at a time until
+ *   its first response arrives
+ */
+public class PeakEwma {
+
+    // Score of an instance whose first request is still outstanding
+    private static final double UNPROBED_PENALTY = Double.MAX_VALUE / 2;
+
+    private final double tauNanos;
+
+    private double costNanos;
+    private long stampNanos;
+    private int inFlight;
+
+    public PeakEwma(long tauNanos, long nowNanos) {
+        this.tauNanos = tauNanos;
+        this.stampNanos = nowNanos;
+    }
+
+    public synchronized void start() {
+        inFlight++;
+    }
+
+    /**
+     * Request finished after rttNanos (or was abandoned with rttNanos < 0)
+     */
+    public synchronized void complete(long rttNanos, long nowNanos) {
+        inFlight = Math.max(0, inFlight - 1);
+        if (rttNanos < 0) {
+            return;
+        }
+        double w = weight(nowNanos);
+        double decayed = costNanos * w;
+        costNanos = rttNanos > decayed ? rttNanos : decayed + rttNanos * (1 - w);
+        stampNanos = nowNanos;
+    }
+
+    /**
+     * Lower is better
+     */
+    public synchronized double score(long nowNanos) {
+        double cost = decayed(nowNanos);
+        if (cost == 0 && inFlight > 0) {
+            return UNPROBED_PENALTY + inFlight;
+        }
+        return cost * (inFlight + 1);
+    }
+
+    public synchronized double latencyNanos(long nowNanos) {
+        return decayed(nowNanos);
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private double decayed(long nowNanos) {
+        return costNanos * weight(nowNanos);
+    }
+
+    private double weight(long nowNanos) {
+        return Math.exp(-Math.max(0, nowNanos - stampNanos) / tauNanos);
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency-aware instance selection: power of two choices over peak-EWMA scores
+ * <p>
+ * Two distinct instances are drawn at random and the one with the lower score
+ * (response time times outstanding requests, see {@link PeakEwma}) wins. Comparing
+ * just two keeps a herd of gateway threads from piling onto the single best
+ * instance, while a slow or overloaded instance still loses almost every draw.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final InstanceStatsRegistry stats;
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                String serviceId, InstanceStatsRegistry stats) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.stats = stats;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request)
+                .next()
+                .map(instances -> {
+                    ServiceInstance instance = choose(instances, stats.now());
+                    return instance != null ? new DefaultResponse(instance) : new EmptyResponse();
+                });
+    }
+
+    ServiceInstance choose(List<ServiceInstance> instances, long nowNanos) {
+        int size = instances.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return stats.stats(a).score(nowNanos) <= stats.stats(b).score(nowNanos) ? a : b;
+    }
+
+    @Override
+    public String toString() {
+        return "PeakEwmaLoadBalancer[" + serviceId + "]";
+    }
+}
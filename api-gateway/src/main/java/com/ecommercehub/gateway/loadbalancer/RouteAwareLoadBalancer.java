@@ -0,0 +1,49 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Picks the load-balancing strategy from the "load-balancer" metadata of the matched route
+ * <p>
+ * Routes without the entry, and lb:// calls made outside a gateway route, use the
+ * configured default strategy.
+ */
+public class RouteAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final Map<LoadBalancingStrategy, ReactorServiceInstanceLoadBalancer> delegates;
+    private final LoadBalancingStrategy defaultStrategy;
+
+    public RouteAwareLoadBalancer(Map<LoadBalancingStrategy, ReactorServiceInstanceLoadBalancer> delegates,
+                                  LoadBalancingStrategy defaultStrategy) {
+        this.delegates = delegates;
+        this.defaultStrategy = defaultStrategy;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        return delegates.get(strategy(request)).choose(request);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private LoadBalancingStrategy strategy(Request request) {
+        if (request != null && request.getContext() instanceof RequestDataContext context
+                && context.getClientRequest() != null
+                && context.getClientRequest().getAttributes() != null
+                && context.getClientRequest().getAttributes().get(GATEWAY_ROUTE_ATTR) instanceof Route route) {
+            return LoadBalancingStrategy.fromMetadata(
+                    route.getMetadata().get(LoadBalancingStrategy.METADATA_KEY), defaultStrategy);
+        }
+        return defaultStrategy;
+    }
+}
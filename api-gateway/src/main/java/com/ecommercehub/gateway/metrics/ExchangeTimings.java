@@ -0,0 +1,57 @@
+package com.ecommercehub.gateway.metrics;
+
+/**
+ * nanoTime stamps collected while one exchange passes the filter chain
+ * <p>
+ * One instance per exchange, stored under {@link #ATTRIBUTE}. Marks are written
+ * by whichever thread runs that part of the chain; reactive signals give the
+ * necessary happens-before edges, so plain fields are enough.
+ */
+public final class ExchangeTimings {
+
+    public static final String ATTRIBUTE = ExchangeTimings.class.getName();
+
+    private static final LatencyPhase[] PHASES = LatencyPhase.values();
+
+    private final long startNanos;
+    private final long[] phaseStart = new long[PHASES.length];
+    private long upstreamEndNanos;
+
+    public ExchangeTimings(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public void mark(LatencyPhase phase, long nanos) {
+        // Keep the first mark, e.g. when a fallback forward runs the chain again
+        if (phaseStart[phase.ordinal()] == 0) {
+            phaseStart[phase.ordinal()] = nanos;
+        }
+    }
+
+    public void markUpstreamEnd(long nanos) {
+        upstreamEndNanos = nanos;
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Duration of a phase, or -1 if the exchange never reached it
+     */
+    public long phaseNanos(LatencyPhase phase, long endNanos) {
+        long start = phaseStart[phase.ordinal()];
+        if (start == 0) {
+            return -1;
+        }
+        if (phase == LatencyPhase.UPSTREAM) {
+            return (upstreamEndNanos != 0 ? upstreamEndNanos : endNanos) - start;
+        }
+        for (int next = phase.ordinal() + 1; next < PHASES.length; next++) {
+            if (phaseStart[next] != 0) {
+                return phaseStart[next] - start;
+            }
+        }
+        return endNanos - start;
+    }
+}
@@ -0,0 +1,195 @@
+package com.ecommercehub.gateway.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-route latency histograms, phase timings and SLO counters
+ * <p>
+ * Meters:
+ * - gateway.route.latency{route}: whole exchange, p50/p95/p99/p99.9 plus histogram buckets
+ * - gateway.route.latency.status{route,status}: same, split by response status
+ * - gateway.route.phase.latency{route,phase}: rate limiter, circuit breaker, upstream
+ * - gateway.slo.requests / gateway.slo.violations{route}: SLO event counters
+ * <p>
+ * Recording goes through HdrHistogram recorders inside Micrometer, so the hot path
+ * takes no locks; meters are looked up once per route and cached.
+ */
+@Component
+public class GatewayLatencyMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+    private static final String UNMATCHED_ROUTE = "unmatched";
+
+    private final MeterRegistry registry;
+    private final LatencySloProperties sloProperties;
+    private final Map<String, RouteMeters> routes = new ConcurrentHashMap<>();
+
+    public GatewayLatencyMetrics(MeterRegistry registry, LatencySloProperties sloProperties) {
+        this.registry = registry;
+        this.sloProperties = sloProperties;
+    }
+
+    /**
+     * Filter that stamps the start of a phase; put it right before the filter it measures
+     */
+    public GatewayFilter phaseMarker(LatencyPhase phase) {
+        return (exchange, chain) -> {
+            ExchangeTimings timings = exchange.getAttribute(ExchangeTimings.ATTRIBUTE);
+            if (timings != null) {
+                timings.mark(phase, System.nanoTime());
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    public void record(String routeId, int status, ExchangeTimings timings, long endNanos) {
+        RouteMeters meters = meters(routeId != null ? routeId : UNMATCHED_ROUTE);
+        long totalNanos = endNanos - timings.startNanos();
+
+        meters.total.record(totalNanos, TimeUnit.NANOSECONDS);
+        meters.status(status).record(totalNanos, TimeUnit.NANOSECONDS);
+        for (LatencyPhase phase : LatencyPhase.values()) {
+            long phaseNanos = timings.phaseNanos(phase, endNanos);
+            if (phaseNanos >= 0) {
+                meters.phases[phase.ordinal()].record(phaseNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        boolean bad = status >= 500 || totalNanos > meters.sloThresholdNanos;
+        meters.sloRequests.increment();
+        if (bad) {
+            meters.sloViolations.increment();
+        }
+        meters.sloWindow.record(bad, System.currentTimeMillis());
+    }
+
+    /**
+     * Recent latency percentile of a route, or null if nothing was recorded yet.
+     * Supported percentiles: 0.5, 0.95, 0.99, 0.999
+     */
+    public Duration percentile(String routeId, double percentile) {
+        RouteMeters meters = routes.get(routeId);
+        if (meters == null || meters.total.count() == 0) {
+            return null;
+        }
+        for (ValueAtPercentile value : meters.total.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+            }
+        }
+        return null;
+    }
+
+    Map<String, RouteMeters> routeMeters() {
+        return routes;
+    }
+
+    double sloTarget(String routeId) {
+        return sloProperties.targetFor(routeId);
+    }
+
+    private RouteMeters meters(String routeId) {
+        RouteMeters meters = routes.get(routeId);
+        return meters != null ? meters : routes.computeIfAbsent(routeId, this::createMeters);
+    }
+
+    private RouteMeters createMeters(String routeId) {
+        Duration threshold = sloProperties.thresholdFor(routeId);
+        Timer total = Timer.builder("gateway.route.latency")
+                .description("Whole-exchange latency per route")
+                .tag("route", routeId)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(threshold)
+                .register(registry);
+
+        Timer[] phases = new Timer[LatencyPhase.values().length];
+        for (LatencyPhase phase : LatencyPhase.values()) {
+            phases[phase.ordinal()] = Timer.builder("gateway.route.phase.latency")
+                    .description("Latency of one phase of the filter chain")
+                    .tag("route", routeId)
+                    .tag("phase", phase.tagValue())
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        Counter requests = Counter.builder("gateway.slo.requests")
+                .description("Requests counted against the route latency SLO")
+                .tag("route", routeId)
+                .register(registry);
+        Counter violations = Counter.builder("gateway.slo.violations")
+                .description("Requests slower than the SLO threshold or failed with 5xx")
+                .tag("route", routeId)
+                .register(registry);
+
+        return new RouteMeters(routeId, total, phases, requests, violations, threshold.toNanos());
+    }
+
+    /**
+     * Cached meters of one route
+     */
+    final class RouteMeters {
+
+        final String routeId;
+        final Timer total;
+        final Timer[] phases;
+        final Counter sloRequests;
+        final Counter sloViolations;
+        final long sloThresholdNanos;
+        final SloWindow sloWindow = new SloWindow();
+
+        // Index = HTTP status code, 0 = no status
+        private final AtomicReferenceArray<Timer> byStatus = new AtomicReferenceArray<>(600);
+
+        RouteMeters(String routeId, Timer total, Timer[] phases, Counter sloRequests,
+                    Counter sloViolations, long sloThresholdNanos) {
+            this.routeId = routeId;
+            this.total = total;
+            this.phases = phases;
+            this.sloRequests = sloRequests;
+            this.sloViolations = sloViolations;
+            this.sloThresholdNanos = sloThresholdNanos;
+        }
+
+        Timer status(int status) {
+            int index = status > 0 && status < 600 ? status : 0;
+            Timer timer = byStatus.get(index);
+            if (timer == null) {
+                timer = Timer.builder("gateway.route.latency.status")
+                        .description("Whole-exchange latency per route and response status")
+                        .tag("route", routeId)
+                        .tag("status", index == 0 ? "NONE" : Integer.toString(index))
+                        .publishPercentiles(PERCENTILES)
+                        .publishPercentileHistogram()
+                        .register(registry);
+                byStatus.compareAndSet(index, null, timer);
+            }
+            return timer;
+        }
+
+        Map<String, HistogramSnapshot> statusSnapshots() {
+            Map<String, HistogramSnapshot> snapshots = new TreeMap<>();
+            for (int i = 0; i < byStatus.length(); i++) {
+                Timer timer = byStatus.get(i);
+                if (timer != null) {
+                    snapshots.put(i == 0 ? "NONE" : Integer.toString(i), timer.takeSnapshot());
+                }
+            }
+            return snapshots;
+        }
+    }
+}
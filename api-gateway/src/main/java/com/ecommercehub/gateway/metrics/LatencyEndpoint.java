@@ -0,0 +1,100 @@
+package com.ecommercehub.gateway.metrics;
+
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint with latency percentiles and SLO burn rates per route
+ * <p>
+ * GET /actuator/latency          - all routes
+ * GET /actuator/latency/{route}  - one route, including the per-status split
+ */
+@Component
+@Endpoint(id = "latency")
+public class LatencyEndpoint {
+
+    private final GatewayLatencyMetrics metrics;
+
+    public LatencyEndpoint(GatewayLatencyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> routes() {
+        Map<String, Object> result = new TreeMap<>();
+        metrics.routeMeters().forEach((routeId, meters) -> result.put(routeId, describe(meters, false)));
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> route(@Selector String routeId) {
+        GatewayLatencyMetrics.RouteMeters meters = metrics.routeMeters().get(routeId);
+        return meters != null ? describe(meters, true) : Map.of();
+    }
+
+    private Map<String, Object> describe(GatewayLatencyMetrics.RouteMeters meters, boolean withStatus) {
+        long now = System.currentTimeMillis();
+        double target = metrics.sloTarget(meters.routeId);
+
+        Map<String, Object> route = new LinkedHashMap<>();
+        route.put("latency", percentiles(meters.total.takeSnapshot()));
+
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (LatencyPhase phase : LatencyPhase.values()) {
+            phases.put(phase.tagValue(), percentiles(meters.phases[phase.ordinal()].takeSnapshot()));
+        }
+        route.put("phases", phases);
+
+        if (withStatus) {
+            Map<String, Object> statuses = new LinkedHashMap<>();
+            meters.statusSnapshots().forEach((status, snapshot) -> statuses.put(status, percentiles(snapshot)));
+            route.put("status", statuses);
+        }
+
+        Map<String, Object> slo = new LinkedHashMap<>();
+        slo.put("thresholdMs", TimeUnit.NANOSECONDS.toMillis(meters.sloThresholdNanos));
+        slo.put("target", target);
+        slo.put("requests", (long) meters.sloRequests.count());
+        slo.put("violations", (long) meters.sloViolations.count());
+        slo.put("burnRate5m", meters.sloWindow.burnRate(5, target, now));
+        slo.put("burnRate1h", meters.sloWindow.burnRate(60, target, now));
+        route.put("slo", slo);
+        return route;
+    }
+
+    private static Map<String, Object> percentiles(HistogramSnapshot snapshot) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", snapshot.count());
+        values.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        values.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            values.put(label(value.percentile()), value.value(TimeUnit.MILLISECONDS));
+        }
+        return values;
+    }
+
+    private static String label(double percentile) {
+        if (percentile == 0.5) {
+            return "p50Ms";
+        }
+        if (percentile == 0.95) {
+            return "p95Ms";
+        }
+        if (percentile == 0.99) {
+            return "p99Ms";
+        }
+        if (percentile == 0.999) {
+            return "p999Ms";
+        }
+        return "p" + percentile + "Ms";
+    }
+}
@@ -0,0 +1,48 @@
+package com.ecommercehub.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Global filter that times the whole exchange with nanoTime
+ * <p>
+ * Creates the {@link ExchangeTimings} that phase markers write into and
+ * records everything into {@link GatewayLatencyMetrics} when the exchange ends.
+ */
+@Component
+public class LatencyMetricsFilter implements GlobalFilter, Ordered {
+
+    private final GatewayLatencyMetrics metrics;
+
+    public LatencyMetricsFilter(GatewayLatencyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ExchangeTimings timings = new ExchangeTimings(System.nanoTime());
+        exchange.getAttributes().put(ExchangeTimings.ATTRIBUTE, timings);
+
+        return chain.filter(exchange).doFinally(signal -> {
+            long end = System.nanoTime();
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            metrics.record(route != null ? route.getId() : null,
+                    status != null ? status.value() : 0,
+                    timings, end);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1; // right inside the access log
+    }
+}
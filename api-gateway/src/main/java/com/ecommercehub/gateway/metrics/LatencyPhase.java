@@ -0,0 +1,26 @@
+package com.ecommercehub.gateway.metrics;
+
+/**
+ * Phases of a routed exchange, in the order they run
+ * <p>
+ * A phase lasts from its own marker to the next marker that was reached
+ * (or to the end of the exchange). CIRCUIT_BREAKER therefore also covers
+ * load-balancer instance selection; UPSTREAM runs from handing the request to
+ * Netty until the upstream response headers arrive.
+ */
+public enum LatencyPhase {
+
+    RATE_LIMITER("rate_limiter"),
+    CIRCUIT_BREAKER("circuit_breaker"),
+    UPSTREAM("upstream");
+
+    private final String tagValue;
+
+    LatencyPhase(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecommercehub.gateway.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Latency SLOs per route (gateway.latency.*)
+ * <p>
+ * A request is "bad" for the SLO when it is slower than the route threshold
+ * or ends with a 5xx.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.latency")
+public class LatencySloProperties {
+
+    /**
+     * Threshold for routes without their own entry
+     */
+    private Duration defaultThreshold = Duration.ofMillis(500);
+
+    /**
+     * Share of requests that must be good (0.99 = 99%)
+     */
+    private double defaultTarget = 0.99;
+
+    /**
+     * Per-route overrides, keyed by route id
+     */
+    private Map<String, Slo> routes = new HashMap<>();
+
+    @Data
+    public static class Slo {
+        private Duration threshold;
+        private Double target;
+    }
+
+    public Duration thresholdFor(String routeId) {
+        Slo slo = routes.get(routeId);
+        return slo != null && slo.getThreshold() != null ? slo.getThreshold() : defaultThreshold;
+    }
+
+    public double targetFor(String routeId) {
+        Slo slo = routes.get(routeId);
+        return slo != null && slo.getTarget() != null ? slo.getTarget() : defaultTarget;
+    }
+}
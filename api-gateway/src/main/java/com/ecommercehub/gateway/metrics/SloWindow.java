@@ -0,0 +1,63 @@
+package com.ecommercehub.gateway.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling one-hour count of total and bad events in one-minute buckets
+ * <p>
+ * Recording is lock-free: each bucket remembers the minute it belongs to and the
+ * first writer of a new minute resets it with a CAS. A racing increment at the
+ * exact minute boundary may be lost, which is irrelevant for burn-rate alerts.
+ */
+public final class SloWindow {
+
+    private static final int BUCKETS = 60;
+    private static final long MINUTE_MILLIS = 60_000;
+
+    // Per bucket: [minute, total, bad]
+    private final AtomicLongArray slots = new AtomicLongArray(BUCKETS * 3);
+
+    public SloWindow() {
+        for (int i = 0; i < BUCKETS; i++) {
+            slots.set(i * 3, -1);
+        }
+    }
+
+    public void record(boolean bad, long nowMillis) {
+        long minute = nowMillis / MINUTE_MILLIS;
+        int base = (int) (minute % BUCKETS) * 3;
+        long owner = slots.get(base);
+        if (owner != minute && slots.compareAndSet(base, owner, minute)) {
+            slots.set(base + 1, 0);
+            slots.set(base + 2, 0);
+        }
+        slots.incrementAndGet(base + 1);
+        if (bad) {
+            slots.incrementAndGet(base + 2);
+        }
+    }
+
+    /**
+     * Error-budget burn rate over the last {@code minutes} minutes:
+     * observed bad ratio divided by the allowed bad ratio (1 - target).
+     * 1.0 means the budget is consumed exactly at the sustainable pace.
+     */
+    public double burnRate(int minutes, double target, long nowMillis) {
+        long current = nowMillis / MINUTE_MILLIS;
+        long total = 0;
+        long bad = 0;
+        for (int i = 0; i < Math.min(minutes, BUCKETS); i++) {
+            long minute = current - i;
+            int base = (int) (minute % BUCKETS) * 3;
+            if (slots.get(base) == minute) {
+                total += slots.get(base + 1);
+                bad += slots.get(base + 2);
+            }
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        double allowed = 1.0 - target;
+        return allowed <= 0 ? Double.POSITIVE_INFINITY : ((double) bad / total) / allowed;
+    }
+}
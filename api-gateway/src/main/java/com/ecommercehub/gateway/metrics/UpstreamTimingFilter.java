@@ -0,0 +1,35 @@
+package com.ecommercehub.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stamps the upstream phase around the Netty routing filter
+ * <p>
+ * Runs directly before {@link NettyRoutingFilter}; its chain completes when the
+ * upstream response headers have arrived.
+ */
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ExchangeTimings timings = exchange.getAttribute(ExchangeTimings.ATTRIBUTE);
+        if (timings == null) {
+            return chain.filter(exchange);
+        }
+        timings.mark(LatencyPhase.UPSTREAM, System.nanoTime());
+        return chain.filter(exchange)
+                .doFinally(signal -> timings.markUpstreamEnd(System.nanoTime()));
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+}
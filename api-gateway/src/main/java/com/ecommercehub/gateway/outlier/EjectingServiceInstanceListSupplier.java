@@ -0,0 +1,49 @@
+package com.ecommercehub.gateway.outlier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Instance list for load balancing without the instances the {@link OutlierDetector} ejected,
+ * or readmitted on probation with all their probe calls taken
+ */
+public class EjectingServiceInstanceListSupplier implements ServiceInstanceListSupplier {
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> delegate;
+    private final OutlierDetector outlierDetector;
+
+    public EjectingServiceInstanceListSupplier(String serviceId,
+                                               ObjectProvider<ServiceInstanceListSupplier> delegate,
+                                               OutlierDetector outlierDetector) {
+        this.serviceId = serviceId;
+        this.delegate = delegate;
+        this.outlierDetector = outlierDetector;
+    }
+
+    @Override
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return delegate().get().map(instances -> outlierDetector.filter(serviceId, instances));
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Flux<List<ServiceInstance>> get(Request request) {
+        return delegate().get(request).map(instances -> outlierDetector.filter(serviceId, instances));
+    }
+
+    private ServiceInstanceListSupplier delegate() {
+        return delegate.getIfAvailable(NoopServiceInstanceListSupplier::new);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ecommercehub.gateway.outlier;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Reports the outcome of every lb:// call to the breaker of the instance that served it
+ * <p>
+ * Errors and 5xx responses are failures; calls slower than the slow-call duration are
+ * slow. A call cancelled after that duration (route timeout) counts as slow, one
+ * cancelled earlier (client gone) is not counted. Calls the instance breaker does not
+ * permit, because the instance could not be ejected or its trial calls are taken,
+ * still go through but are not counted.
+ */
+@Component
+public class OutlierDetectionFilter implements GlobalFilter, Ordered {
+
+    private final OutlierDetector outlierDetector;
+    private final long slowCallNanos;
+
+    public OutlierDetectionFilter(OutlierDetector outlierDetector, OutlierDetectionProperties properties) {
+        this.outlierDetector = outlierDetector;
+        this.slowCallNanos = properties.getSlowCallDuration().toNanos();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> lbResponse = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (!outlierDetector.isEnabled() || lbResponse == null || !lbResponse.hasServer()) {
+            return chain.filter(exchange);
+        }
+        ServiceInstance instance = lbResponse.getServer();
+        CircuitBreaker breaker = outlierDetector.acquire(instance);
+        if (breaker == null) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(ignored -> {
+                    long elapsed = System.nanoTime() - start;
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is5xxServerError()) {
+                        breaker.onError(elapsed, TimeUnit.NANOSECONDS, new UpstreamServerError(status));
+                    } else {
+                        breaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .doOnError(error -> breaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, error))
+                .doOnCancel(() -> {
+                    long elapsed = System.nanoTime() - start;
+                    if (elapsed >= slowCallNanos) {
+                        breaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+                    } else {
+                        outlierDetector.release(instance, breaker);
+                    }
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 2;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ecommercehub.gateway.outlier;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for per-instance circuit breakers and outlier ejection (gateway.outlier-detection.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.outlier-detection")
+public class OutlierDetectionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Calls per instance the failure and slow-call rates are computed over
+     */
+    private int slidingWindowSize = 20;
+
+    /**
+     * Calls an instance needs before it can be ejected
+     */
+    private int minimumNumberOfCalls = 10;
+
+    /**
+     * Failure rate (errors and 5xx, percent) that ejects an instance
+     */
+    private float failureRateThreshold = 50.0f;
+
+    /**
+     * Calls slower than this count as slow
+     */
+    private Duration slowCallDuration = Duration.ofSeconds(2);
+
+    /**
+     * Slow-call rate (percent) that ejects an instance
+     */
+    private float slowCallRateThreshold = 80.0f;
+
+    /**
+     * First ejection time; doubles with every ejection in a row, up to max-ejection-time
+     */
+    private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+    private Duration maxEjectionTime = Duration.ofMinutes(5);
+
+    /**
+     * Trial calls a readmitted instance gets before it is trusted again
+     */
+    private int probeCalls = 3;
+
+    /**
+     * Most instances of a service that may be ejected at once, in percent
+     */
+    private int maxEjectionPercent = 50;
+
+    /**
+     * Route breakers open only when fewer instances than this fraction are healthy
+     */
+    private double minHealthyFraction = 0.5;
+
+    /**
+     * Route circuit breakers driven by instance health, breaker name to service id
+     */
+    private Map<String, String> routeBreakers = new HashMap<>();
+}
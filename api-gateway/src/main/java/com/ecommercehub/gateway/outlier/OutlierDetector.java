@@ -0,0 +1,343 @@
+package com.ecommercehub.gateway.outlier;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-instance circuit breakers and outlier ejection for lb:// services
+ * <p>
+ * Every upstream instance gets its own breaker, fed by {@link OutlierDetectionFilter}.
+ * When it opens, the instance is ejected: {@link EjectingServiceInstanceListSupplier}
+ * leaves it out of load balancing until the breaker lets trial calls through again.
+ * While half-open it is offered to load balancing only until its probe-calls are
+ * taken, so a recovering instance gets a handful of probes, not its full share;
+ * it is back in full rotation once the breaker closes, and ejected again if it opens.
+ * Ejection time grows with every ejection in a row. No more than max-ejection-percent
+ * of a service's instances are ejected at once; beyond that a failing instance stays
+ * in rotation.
+ * <p>
+ * The route breakers listed under route-breakers no longer trip on their own failure
+ * rate, one bad instance must not take the whole service out. They are disabled while
+ * enough instances are healthy and forced open when the healthy fraction (instances
+ * whose breaker is not open) drops below min-healthy-fraction.
+ * <p>
+ * Meters:
+ * - gateway.outlier.events{service,event}: ejected, readmitted, or skipped (ejection cap reached)
+ * - gateway.outlier.ejected.instances{service}
+ * - gateway.outlier.healthy.fraction{service}
+ */
+@Slf4j
+@Component
+public class OutlierDetector {
+
+    private final OutlierDetectionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry routeBreakerRegistry;
+    private final CircuitBreakerConfig instanceBreakerConfig;
+    private final Map<String, List<String>> routeBreakersByService = new HashMap<>();
+    private final Map<String, ServiceState> services = new ConcurrentHashMap<>();
+
+    public OutlierDetector(OutlierDetectionProperties properties,
+                           ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.routeBreakerRegistry = circuitBreakerFactory.getCircuitBreakerRegistry();
+        this.instanceBreakerConfig = CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallDurationThreshold(properties.getSlowCallDuration())
+                .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+                .waitIntervalFunctionInOpenState(IntervalFunction.ofExponentialBackoff(
+                        properties.getBaseEjectionTime().toMillis(), 2.0,
+                        properties.getMaxEjectionTime().toMillis()))
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .permittedNumberOfCallsInHalfOpenState(properties.getProbeCalls())
+                // Probes that never complete must not keep the instance out forever
+                .maxWaitDurationInHalfOpenState(properties.getBaseEjectionTime())
+                .build();
+
+        if (properties.isEnabled()) {
+            properties.getRouteBreakers().forEach((breakerName, serviceId) -> routeBreakersByService
+                    .computeIfAbsent(serviceId.toLowerCase(), id -> new ArrayList<>())
+                    .add(breakerName));
+            // Take route breakers over as they appear, and again when a route table reload replaces them
+            routeBreakerRegistry.getEventPublisher()
+                    .onEntryAdded(event -> takeOver(event.getAddedEntry()))
+                    .onEntryReplaced(event -> takeOver(event.getNewEntry()));
+        }
+    }
+
+    private void takeOver(CircuitBreaker breaker) {
+        String serviceId = properties.getRouteBreakers().get(breaker.getName());
+        if (serviceId != null) {
+            applyRouteState(breaker, healthyFraction(serviceId));
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * The instances of a service that are not ejected and, if on probation, still have probes free
+     */
+    public List<ServiceInstance> filter(String serviceId, List<ServiceInstance> instances) {
+        if (!properties.isEnabled()) {
+            return instances;
+        }
+        ServiceState state = state(serviceId);
+        state.update(instances);
+        if (state.ejected.isEmpty() && state.probes.isEmpty()) {
+            return instances;
+        }
+        List<ServiceInstance> admitted = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (state.isAdmitted(key(instance))) {
+                admitted.add(instance);
+            }
+        }
+        return admitted.isEmpty() ? instances : admitted;
+    }
+
+    /**
+     * Whether new calls may go to the instance, as in {@link #filter}
+     */
+    public boolean isAdmitted(ServiceInstance instance) {
+        ServiceState state = services.get(instance.getServiceId().toLowerCase());
+        return state == null || state.isAdmitted(key(instance));
+    }
+
+    /**
+     * Takes a call permission from the instance's breaker, or returns null when the call
+     * is not counted (the instance could not be ejected, or its probes are taken). A
+     * permission taken while the breaker is half-open is one of the instance's probes.
+     */
+    public CircuitBreaker acquire(ServiceInstance instance) {
+        CircuitBreaker breaker = breaker(instance);
+        if (!breaker.tryAcquirePermission()) {
+            return null;
+        }
+        if (breaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+            AtomicInteger taken = state(instance.getServiceId()).probes.get(key(instance));
+            if (taken != null) {
+                taken.incrementAndGet();
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Hands back a permission from {@link #acquire} whose call was dropped without an outcome
+     */
+    public void release(ServiceInstance instance, CircuitBreaker breaker) {
+        breaker.releasePermission();
+        ServiceState state = services.get(instance.getServiceId().toLowerCase());
+        AtomicInteger taken = state != null ? state.probes.get(key(instance)) : null;
+        if (taken != null) {
+            taken.updateAndGet(n -> Math.max(0, n - 1));
+        }
+    }
+
+    /**
+     * Breaker of one instance, created on first use
+     */
+    public CircuitBreaker breaker(ServiceInstance instance) {
+        ServiceState state = state(instance.getServiceId());
+        String key = key(instance);
+        CircuitBreaker breaker = state.breakers.get(key);
+        if (breaker == null) {
+            breaker = state.breakers.computeIfAbsent(key, k -> createBreaker(state, k));
+        }
+        return breaker;
+    }
+
+    /**
+     * Share of the service's known instances whose breaker is not open; 1.0 if none are known
+     */
+    public double healthyFraction(String serviceId) {
+        ServiceState state = services.get(serviceId.toLowerCase());
+        return state != null ? state.healthyFraction() : 1.0;
+    }
+
+    private CircuitBreaker createBreaker(ServiceState state, String key) {
+        CircuitBreaker breaker = CircuitBreaker.of(key, instanceBreakerConfig);
+        breaker.getEventPublisher().onStateTransition(event -> onTransition(state, key, breaker,
+                event.getStateTransition().getToState()));
+        return breaker;
+    }
+
+    private void onTransition(ServiceState state, String key, CircuitBreaker breaker, CircuitBreaker.State to) {
+        if (state.breakers.get(key) != breaker) {
+            // Instance left the registry meanwhile
+            return;
+        }
+        synchronized (state) {
+            if (to == CircuitBreaker.State.OPEN) {
+                int maxEjected = (int) Math.floor(state.instances.size() * properties.getMaxEjectionPercent() / 100.0);
+                if (state.ejected.size() < maxEjected) {
+                    state.ejected.add(key);
+                    state.ejectedCounter.increment();
+                    log.warn("Ejected {} (failure rate {}%, slow call rate {}%)", key,
+                            breaker.getMetrics().getFailureRate(), breaker.getMetrics().getSlowCallRate());
+                } else {
+                    state.skippedCounter.increment();
+                    log.warn("{} is failing but {} of {} instances are already ejected, keeping it",
+                            key, state.ejected.size(), state.instances.size());
+                }
+            } else if (to == CircuitBreaker.State.HALF_OPEN && state.ejected.contains(key)) {
+                // Limited to its probes before it leaves the ejected set
+                state.probes.put(key, new AtomicInteger());
+                state.ejected.remove(key);
+                state.readmittedCounter.increment();
+                log.info("Readmitted {} for {} probe calls", key, properties.getProbeCalls());
+            } else {
+                state.probes.remove(key);
+                if (state.ejected.remove(key)) {
+                    state.readmittedCounter.increment();
+                    log.info("Readmitted {} ({})", key, to);
+                }
+            }
+            updateRouteBreakers(state);
+        }
+    }
+
+    private void updateRouteBreakers(ServiceState state) {
+        List<String> names = routeBreakersByService.get(state.serviceId);
+        if (names == null) {
+            return;
+        }
+        double fraction = state.healthyFraction();
+        for (String name : names) {
+            routeBreakerRegistry.find(name).ifPresent(breaker -> applyRouteState(breaker, fraction));
+        }
+    }
+
+    private void applyRouteState(CircuitBreaker breaker, double healthyFraction) {
+        boolean healthy = healthyFraction >= properties.getMinHealthyFraction();
+        CircuitBreaker.State target = healthy ? CircuitBreaker.State.DISABLED : CircuitBreaker.State.FORCED_OPEN;
+        if (breaker.getState() == target) {
+            return;
+        }
+        if (healthy) {
+            breaker.transitionToDisabledState();
+            log.info("Route breaker {} closed, {}% of instances healthy", breaker.getName(),
+                    Math.round(healthyFraction * 100));
+        } else {
+            breaker.transitionToForcedOpenState();
+            log.warn("Route breaker {} opened, only {}% of instances healthy", breaker.getName(),
+                    Math.round(healthyFraction * 100));
+        }
+    }
+
+    private ServiceState state(String serviceId) {
+        String id = serviceId.toLowerCase();
+        ServiceState state = services.get(id);
+        return state != null ? state : services.computeIfAbsent(id, ServiceState::new);
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId().toLowerCase() + "/" + instance.getHost() + ":" + instance.getPort();
+    }
+
+    /**
+     * Instances, breakers and ejections of one service
+     */
+    private final class ServiceState {
+
+        final String serviceId;
+        final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+        final Set<String> ejected = ConcurrentHashMap.newKeySet();
+        // Half-open instances readmitted from ejection, to the probes taken so far
+        final Map<String, AtomicInteger> probes = new ConcurrentHashMap<>();
+        final Counter ejectedCounter;
+        final Counter readmittedCounter;
+        final Counter skippedCounter;
+        volatile List<ServiceInstance> instances = List.of();
+
+        ServiceState(String serviceId) {
+            this.serviceId = serviceId;
+            this.ejectedCounter = eventCounter("ejected");
+            this.readmittedCounter = eventCounter("readmitted");
+            this.skippedCounter = eventCounter("skipped");
+            Gauge.builder("gateway.outlier.ejected.instances", ejected, Set::size)
+                    .description("Instances currently out of load balancing")
+                    .tag("service", serviceId)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.outlier.healthy.fraction", this, ServiceState::healthyFraction)
+                    .description("Share of instances whose circuit breaker is not open")
+                    .tag("service", serviceId)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Takes a new instance list from discovery; breakers of instances that are gone are dropped
+         */
+        void update(List<ServiceInstance> current) {
+            // The caching supplier hands out the same list until discovery refreshes
+            if (current == instances) {
+                return;
+            }
+            synchronized (this) {
+                instances = current;
+                Set<String> live = new HashSet<>();
+                current.forEach(instance -> live.add(key(instance)));
+                breakers.keySet().retainAll(live);
+                ejected.retainAll(live);
+                probes.keySet().retainAll(live);
+                updateRouteBreakers(this);
+            }
+        }
+
+        boolean isAdmitted(String key) {
+            if (ejected.contains(key)) {
+                return false;
+            }
+            AtomicInteger taken = probes.get(key);
+            return taken == null || taken.get() < properties.getProbeCalls();
+        }
+
+        double healthyFraction() {
+            List<ServiceInstance> current = instances;
+            if (current.isEmpty()) {
+                return 1.0;
+            }
+            int healthy = 0;
+            for (ServiceInstance instance : current) {
+                CircuitBreaker breaker = breakers.get(key(instance));
+                if (breaker == null || breaker.getState() != CircuitBreaker.State.OPEN) {
+                    healthy++;
+                }
+            }
+            return (double) healthy / current.size();
+        }
+
+        private Counter eventCounter(String event) {
+            return Counter.builder("gateway.outlier.events")
+                    .description("Outlier ejection events")
+                    .tag("service", serviceId)
+                    .tag("event", event)
+                    .register(meterRegistry);
+        }
+    }
+}
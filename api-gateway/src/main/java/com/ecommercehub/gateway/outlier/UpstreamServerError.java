@@ -0,0 +1,13 @@
+package com.ecommercehub.gateway.outlier;
+
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Recorded on a breaker for 5xx responses; no stack trace, it is only counted
+ */
+public final class UpstreamServerError extends RuntimeException {
+
+    public UpstreamServerError(HttpStatusCode status) {
+        super("Upstream responded " + status.value(), null, false, false);
+    }
+}
@@ -0,0 +1,307 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rate limiter that decides locally and syncs with Redis in the background
+ * <p>
+ * Every gateway node keeps a token bucket per (route, key) in memory, so the
+ * request path never waits on Redis. A background job pushes the tokens consumed
+ * on this node to a shared Redis counter in batches (one script call per batch)
+ * and charges the consumption of the other nodes back into the local buckets.
+ * <p>
+ * Over-admission across the cluster is bounded: between two syncs each of the
+ * other N-1 nodes can admit at most replenishRate * syncInterval tokens that this
+ * node does not know about yet (plus one burst per node on a cold start).
+ * If Redis is slow or down, nodes keep limiting on their local view only.
+ */
+@Slf4j
+public class HybridRateLimiter extends AbstractRateLimiter<HybridRateLimiter.Config>
+        implements InitializingBean, DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "hybrid-rate-limiter";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+    // Adds each node's delta to its counter and returns the new cluster-wide totals.
+    // All keys of one call share a hash tag, so Redis Cluster keeps them in one slot.
+    private static final String SYNC_SCRIPT_SOURCE = """
+            local ttl = tonumber(ARGV[1])
+            local totals = {}
+            for i, key in ipairs(KEYS) do
+              totals[i] = redis.call('incrby', key, ARGV[i + 1])
+              redis.call('pexpire', key, ttl)
+            end
+            return totals
+            """;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisScript<List<Long>> SYNC_SCRIPT =
+            (RedisScript) RedisScript.of(SYNC_SCRIPT_SOURCE, List.class);
+
+    // Counters are spread over this many hash tags; one sync call per tag
+    private static final int SLOT_GROUPS = 16;
+
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final Config defaultConfig;
+    private final Map<String, LocalTokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Config> routeConfigs = new ConcurrentHashMap<>();
+
+    private Duration syncInterval = Duration.ofMillis(100);
+    private int maxBatchSize = 500;
+    private Duration counterTtl = Duration.ofMinutes(2);
+    private Duration idleBucketTtl = Duration.ofMinutes(5);
+
+    private Disposable syncTask;
+
+    public HybridRateLimiter(ReactiveRedisTemplate<String, String> redisTemplate,
+                             int replenishRate, int burstCapacity, int requestedTokens) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, (ConfigurationService) null);
+        this.redisTemplate = redisTemplate;
+        this.defaultConfig = new Config()
+                .setReplenishRate(replenishRate)
+                .setBurstCapacity(burstCapacity)
+                .setRequestedTokens(requestedTokens);
+    }
+
+    /**
+     * Takes the request's cost from the context when the route has a cost filter
+     * (see {@link RequestCost}), otherwise the route's requestedTokens
+     */
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        return Mono.deferContextual(context -> {
+            Config config = getConfig().getOrDefault(routeId, defaultConfig);
+            long tokens = RequestCost.tokens(context, config.getRequestedTokens(), config.getBurstCapacity());
+            long now = System.nanoTime();
+
+            String key = bucketKey(routeId, id);
+            long tokensLeft;
+            do {
+                LocalTokenBucket bucket = buckets.computeIfAbsent(key,
+                        k -> new LocalTokenBucket(config.getBurstCapacity(), now));
+                tokensLeft = bucket.tryConsume(tokens, config.getReplenishRate(), config.getBurstCapacity(), now);
+                if (tokensLeft == LocalTokenBucket.EVICTED) {
+                    // Lost the race with the sync job's eviction; start over with a fresh bucket
+                    buckets.remove(key, bucket);
+                }
+            } while (tokensLeft == LocalTokenBucket.EVICTED);
+
+            boolean allowed = tokensLeft >= 0;
+            return Mono.just(new Response(allowed, getHeaders(config, allowed ? tokensLeft : 0, tokens)));
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        syncTask = Flux.interval(syncInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> sync(), 1)
+                .subscribe();
+    }
+
+    @Override
+    public void destroy() {
+        if (syncTask != null) {
+            syncTask.dispose();
+        }
+    }
+
+    /**
+     * Push pending consumption of every dirty bucket to Redis and pull back
+     * the consumption of the other nodes. Also drops buckets that went idle.
+     */
+    Mono<Void> sync() {
+        long now = System.nanoTime();
+        long idleNanos = idleBucketTtl.toNanos();
+
+        Map<Integer, List<String>> keysByGroup = new HashMap<>();
+        Map<Integer, List<Long>> deltasByGroup = new HashMap<>();
+        buckets.forEach((key, bucket) -> {
+            if (bucket.hasPending()) {
+                int group = slotGroup(key);
+                keysByGroup.computeIfAbsent(group, g -> new ArrayList<>()).add(key);
+                deltasByGroup.computeIfAbsent(group, g -> new ArrayList<>()).add(bucket.drainPending());
+            } else if (bucket.evictIfIdle(now, idleNanos)) {
+                buckets.remove(key, bucket);
+            }
+        });
+        if (keysByGroup.isEmpty()) {
+            return Mono.empty();
+        }
+
+        List<Mono<Void>> batches = new ArrayList<>();
+        keysByGroup.forEach((group, keys) -> {
+            List<Long> deltas = deltasByGroup.get(group);
+            for (int from = 0; from < keys.size(); from += maxBatchSize) {
+                int to = Math.min(from + maxBatchSize, keys.size());
+                batches.add(syncBatch(group, keys.subList(from, to), deltas.subList(from, to)));
+            }
+        });
+        return Flux.concat(batches).then();
+    }
+
+    private Mono<Void> syncBatch(int group, List<String> keys, List<Long> deltas) {
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        List<String> args = new ArrayList<>(keys.size() + 1);
+        args.add(Long.toString(counterTtl.toMillis()));
+        for (int i = 0; i < keys.size(); i++) {
+            redisKeys.add(redisKey(group, keys.get(i)));
+            args.add(Long.toString(deltas.get(i)));
+        }
+
+        return redisTemplate.execute(SYNC_SCRIPT, redisKeys, args)
+                .reduce(new ArrayList<Long>(), (totals, values) -> {
+                    totals.addAll(values);
+                    return totals;
+                })
+                .doOnNext(totals -> applyTotals(keys, deltas, totals))
+                .onErrorResume(e -> {
+                    log.debug("Rate limit sync to Redis failed, keeping local state only", e);
+                    restorePending(keys, deltas);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void applyTotals(List<String> keys, List<Long> deltas, List<Long> totals) {
+        for (int i = 0; i < keys.size() && i < totals.size(); i++) {
+            LocalTokenBucket bucket = buckets.get(keys.get(i));
+            if (bucket != null) {
+                bucket.applyGlobal(totals.get(i), deltas.get(i), capacityFor(keys.get(i)));
+            }
+        }
+    }
+
+    private void restorePending(List<String> keys, List<Long> deltas) {
+        for (int i = 0; i < keys.size(); i++) {
+            LocalTokenBucket bucket = buckets.get(keys.get(i));
+            if (bucket != null) {
+                bucket.restorePending(deltas.get(i), capacityFor(keys.get(i)));
+            }
+        }
+    }
+
+    private long capacityFor(String bucketKey) {
+        String routeId = bucketKey.substring(0, bucketKey.indexOf(':'));
+        return getConfig().getOrDefault(routeId, defaultConfig).getBurstCapacity();
+    }
+
+    private Map<String, String> getHeaders(Config config, long tokensLeft, long requestedTokens) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(REMAINING_HEADER, Long.toString(tokensLeft));
+        headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        headers.put(REQUESTED_TOKENS_HEADER, String.valueOf(requestedTokens));
+        return headers;
+    }
+
+    private static String bucketKey(String routeId, String id) {
+        return routeId + ":" + id;
+    }
+
+    static int slotGroup(String bucketKey) {
+        // String.hashCode is specified, so every node picks the same group
+        return Math.floorMod(bucketKey.hashCode(), SLOT_GROUPS);
+    }
+
+    static String redisKey(int group, String bucketKey) {
+        // The hash tag is the group, not the key, so one sync call stays in one cluster slot
+        return "request_rate_limiter.{hybrid-" + group + "}." + bucketKey + ".consumed";
+    }
+
+    /**
+     * Per-route settings; concurrent, so the route table can change them while requests are served
+     */
+    @Override
+    public Map<String, Config> getConfig() {
+        return routeConfigs;
+    }
+
+    public Config getDefaultConfig() {
+        return defaultConfig;
+    }
+
+    public HybridRateLimiter setSyncInterval(Duration syncInterval) {
+        this.syncInterval = syncInterval;
+        return this;
+    }
+
+    public HybridRateLimiter setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public HybridRateLimiter setCounterTtl(Duration counterTtl) {
+        this.counterTtl = counterTtl;
+        return this;
+    }
+
+    public HybridRateLimiter setIdleBucketTtl(Duration idleBucketTtl) {
+        this.idleBucketTtl = idleBucketTtl;
+        return this;
+    }
+
+    /**
+     * Per-route settings, same meaning as {@code RedisRateLimiter.Config}
+     */
+    public static class Config {
+
+        private int replenishRate;
+        private long burstCapacity = 1;
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public long getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(long burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{replenishRate=" + replenishRate
+                    + ", burstCapacity=" + burstCapacity
+                    + ", requestedTokens=" + requestedTokens + '}';
+        }
+    }
+}
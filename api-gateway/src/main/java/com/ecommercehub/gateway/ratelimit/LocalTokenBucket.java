@@ -0,0 +1,134 @@
+package com.ecommercehub.gateway.ratelimit;
+
+/**
+ * In-memory token bucket kept per rate-limit key on a single gateway node.
+ * <p>
+ * Tokens refill continuously at the replenish rate up to the burst capacity.
+ * Tokens consumed locally are remembered as "pending" until the next Redis sync,
+ * and consumption reported by other nodes is charged back into this bucket,
+ * which may drive it into debt (negative tokens) for a short time.
+ * <p>
+ * All access is synchronized on the bucket itself; contention only happens
+ * between requests that share the same key.
+ */
+public final class LocalTokenBucket {
+
+    /**
+     * Returned by {@link #tryConsume} once the bucket was evicted; the caller must
+     * look up (or create) the bucket that replaced it
+     */
+    public static final long EVICTED = Long.MIN_VALUE;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long lastAccessNanos;
+
+    // Tokens consumed on this node that have not been pushed to Redis yet
+    private long pendingConsumed;
+
+    // Global counter value seen after our last successful sync
+    private long lastSeenGlobal;
+    private boolean synced;
+
+    // Set under the lock when the sync job drops the bucket, so no consumption is lost with it
+    private boolean evicted;
+
+    public LocalTokenBucket(long capacity, long nowNanos) {
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+        this.lastAccessNanos = nowNanos;
+    }
+
+    /**
+     * Try to take {@code requested} tokens.
+     *
+     * @return tokens left after the call, -1 if the request is denied,
+     * or {@link #EVICTED} if the bucket is no longer in use
+     */
+    public synchronized long tryConsume(long requested, double replenishRate, long capacity, long nowNanos) {
+        if (evicted) {
+            return EVICTED;
+        }
+        refill(replenishRate, capacity, nowNanos);
+        lastAccessNanos = nowNanos;
+        if (tokens < requested) {
+            return -1;
+        }
+        tokens -= requested;
+        pendingConsumed += requested;
+        return (long) tokens;
+    }
+
+    /**
+     * Hand the locally consumed tokens over to the sync job and reset the counter.
+     */
+    public synchronized long drainPending() {
+        long drained = pendingConsumed;
+        pendingConsumed = 0;
+        return drained;
+    }
+
+    /**
+     * Put tokens back into the pending counter after a failed sync, so they are
+     * reported on the next attempt. Capped to avoid unbounded growth during a
+     * long Redis outage.
+     */
+    public synchronized void restorePending(long drained, long capacity) {
+        pendingConsumed = Math.min(pendingConsumed + drained, Math.max(capacity, 1) * 10);
+    }
+
+    /**
+     * Apply the result of a sync: {@code globalTotal} is the cluster-wide consumption
+     * counter after our own {@code pushed} tokens were added to it.
+     * Whatever else moved the counter was consumed by other nodes and is charged here.
+     * <p>
+     * The first sync of a new bucket (after a restart or an idle eviction) only takes
+     * the counter as its baseline: what it already holds was consumed before this
+     * bucket existed and is charged nowhere.
+     */
+    public synchronized void applyGlobal(long globalTotal, long pushed, long capacity) {
+        if (!synced) {
+            synced = true;
+            lastSeenGlobal = globalTotal;
+            return;
+        }
+        long remote = globalTotal - lastSeenGlobal - pushed;
+        // Counter expired in Redis and was recreated - nothing reliable to charge
+        if (globalTotal < lastSeenGlobal || remote < 0) {
+            remote = 0;
+        }
+        lastSeenGlobal = globalTotal;
+        if (remote > 0) {
+            // Never go deeper in debt than one full bucket
+            tokens = Math.max(tokens - remote, -capacity);
+        }
+    }
+
+    public synchronized boolean hasPending() {
+        return pendingConsumed > 0;
+    }
+
+    public synchronized boolean isIdle(long nowNanos, long idleNanos) {
+        return pendingConsumed == 0 && nowNanos - lastAccessNanos > idleNanos;
+    }
+
+    /**
+     * Retire the bucket if it is idle. Checked and flagged under the same lock as
+     * {@link #tryConsume}, so a request that still holds the bucket cannot consume
+     * tokens after the check that would then never be synced.
+     */
+    public synchronized boolean evictIfIdle(long nowNanos, long idleNanos) {
+        if (!evicted && isIdle(nowNanos, idleNanos)) {
+            evicted = true;
+        }
+        return evicted;
+    }
+
+    private void refill(double replenishRate, long capacity, long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * replenishRate / 1_000_000_000d);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact Redis rate limiter that checks many requests per Redis round trip
+ * <p>
+ * Same token bucket, keys and response headers as the stock RedisRateLimiter, but
+ * checks are not sent one script call each. They are collected per calling thread
+ * (in the gateway: per event loop) for up to batchWindow, or until maxBatchSize are
+ * waiting, and evaluated by one multi-key script call. Each waiting exchange then gets
+ * its own answer. Buckets are evaluated in arrival order, so two checks of the same
+ * key in one batch see each other.
+ * <p>
+ * Like the stock limiter it fails open: if Redis is down, requests are allowed and
+ * X-RateLimit-Remaining is -1.
+ * <p>
+ * Batches mix keys from any user, so this needs a standalone or Sentinel Redis; a
+ * Redis Cluster would reject the multi-key call across slots.
+ */
+@Slf4j
+public class PipelinedRedisRateLimiter extends ReloadableRedisRateLimiter {
+
+    // The stock token bucket script, looped over (tokens key, timestamp key) pairs
+    private static final String BATCH_SCRIPT_SOURCE = """
+            local now = tonumber(redis.call('TIME')[1])
+            local results = {}
+            for i = 1, #KEYS / 2 do
+              local tokens_key = KEYS[i * 2 - 1]
+              local timestamp_key = KEYS[i * 2]
+              local rate = tonumber(ARGV[i * 3 - 2])
+              local capacity = tonumber(ARGV[i * 3 - 1])
+              local requested = tonumber(ARGV[i * 3])
+              local ttl = math.floor(capacity / rate * 2)
+
+              local last_tokens = tonumber(redis.call('get', tokens_key)) or capacity
+              local last_refreshed = tonumber(redis.call('get', timestamp_key)) or 0
+              local filled_tokens = math.min(capacity, last_tokens + math.max(0, now - last_refreshed) * rate)
+
+              local allowed = 0
+              if filled_tokens >= requested then
+                filled_tokens = filled_tokens - requested
+                allowed = 1
+              end
+              if ttl > 0 then
+                redis.call('setex', tokens_key, ttl, filled_tokens)
+                redis.call('setex', timestamp_key, ttl, now)
+              end
+              results[i * 2 - 1] = allowed
+              results[i * 2] = filled_tokens
+            end
+            return results
+            """;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisScript<List<Long>> BATCH_SCRIPT =
+            (RedisScript) RedisScript.of(BATCH_SCRIPT_SOURCE, List.class);
+
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final Config defaultConfig;
+    private final Stripe[] stripes;
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder roundTrips = new LongAdder();
+
+    private Duration batchWindow = Duration.ofNanos(500_000);
+    private int maxBatchSize = 128;
+    private Scheduler scheduler = Schedulers.parallel();
+
+    public PipelinedRedisRateLimiter(ReactiveRedisTemplate<String, String> redisTemplate,
+                                     int replenishRate, int burstCapacity, int requestedTokens) {
+        super(replenishRate, burstCapacity, requestedTokens);
+        this.redisTemplate = redisTemplate;
+        this.defaultConfig = new Config()
+                .setReplenishRate(replenishRate)
+                .setBurstCapacity(burstCapacity)
+                .setRequestedTokens(requestedTokens);
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes the request's cost from the context when the route has a cost filter
+     * (see {@link RequestCost}), otherwise the route's requestedTokens
+     */
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        return Mono.create(sink -> {
+            long tokens = RequestCost.tokens(sink.contextView(), config.getRequestedTokens(), config.getBurstCapacity());
+            checks.increment();
+            stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)]
+                    .add(new Check(id, config, tokens, sink));
+        });
+    }
+
+    /**
+     * Script calls made so far, to compare with {@link #checkCount()}
+     */
+    public long roundTripCount() {
+        return roundTrips.sum();
+    }
+
+    public long checkCount() {
+        return checks.sum();
+    }
+
+    public PipelinedRedisRateLimiter setBatchWindow(Duration batchWindow) {
+        this.batchWindow = batchWindow;
+        return this;
+    }
+
+    public PipelinedRedisRateLimiter setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        return this;
+    }
+
+    public PipelinedRedisRateLimiter setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    private void send(List<Check> batch) {
+        List<String> keys = new ArrayList<>(batch.size() * 2);
+        List<String> args = new ArrayList<>(batch.size() * 3);
+        for (Check check : batch) {
+            // Same keys as the stock limiter, so both can run side by side during a rollout
+            String prefix = "request_rate_limiter.{" + check.id;
+            keys.add(prefix + "}.tokens");
+            keys.add(prefix + "}.timestamp");
+            args.add(Integer.toString(check.config.getReplenishRate()));
+            args.add(Long.toString(check.config.getBurstCapacity()));
+            args.add(Long.toString(check.tokens));
+        }
+
+        roundTrips.increment();
+        redisTemplate.execute(BATCH_SCRIPT, keys, args)
+                .reduce(new ArrayList<Long>(batch.size() * 2), (results, values) -> {
+                    results.addAll(values);
+                    return results;
+                })
+                .subscribe(results -> complete(batch, results), e -> {
+                    log.error("Error checking {} rate limits in Redis, allowing them", batch.size(), e);
+                    complete(batch, List.of());
+                });
+    }
+
+    private void complete(List<Check> batch, List<Long> results) {
+        for (int i = 0; i < batch.size(); i++) {
+            Check check = batch.get(i);
+            if (results.size() >= i * 2 + 2) {
+                long tokensLeft = results.get(i * 2 + 1);
+                check.sink.success(new Response(results.get(i * 2) == 1L, headers(check, tokensLeft)));
+            } else {
+                check.sink.success(new Response(true, headers(check, -1L)));
+            }
+        }
+    }
+
+    private Map<String, String> headers(Check check, long tokensLeft) {
+        Map<String, String> headers = getHeaders(check.config, tokensLeft);
+        if (isIncludeHeaders()) {
+            headers.put(getRequestedTokensHeader(), Long.toString(check.tokens));
+        }
+        return headers;
+    }
+
+    /**
+     * One waiting rate-limit check
+     */
+    private static final class Check {
+
+        final String id;
+        final Config config;
+        final long tokens;
+        final MonoSink<Response> sink;
+
+        Check(String id, Config config, long tokens, MonoSink<Response> sink) {
+            this.id = id;
+            this.config = config;
+            this.tokens = tokens;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * Checks collected from the threads that map to this stripe
+     * <p>
+     * While checks are waiting, exactly one flush is scheduled; a full batch is sent
+     * right away and leftovers go with that scheduled flush.
+     */
+    private final class Stripe {
+
+        private List<Check> waiting = new ArrayList<>();
+        private boolean flushScheduled;
+
+        void add(Check check) {
+            List<Check> full = null;
+            boolean schedule = false;
+            synchronized (this) {
+                waiting.add(check);
+                if (waiting.size() >= maxBatchSize) {
+                    full = take();
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    schedule = true;
+                }
+            }
+            if (schedule) {
+                scheduler.schedule(this::flush, batchWindow.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            if (full != null) {
+                send(full);
+            }
+        }
+
+        private void flush() {
+            List<Check> batch;
+            synchronized (this) {
+                flushScheduled = false;
+                batch = waiting.isEmpty() ? null : take();
+            }
+            if (batch != null) {
+                send(batch);
+            }
+        }
+
+        private List<Check> take() {
+            List<Check> batch = waiting;
+            waiting = new ArrayList<>(Math.min(maxBatchSize, batch.size() * 2));
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exact Redis rate limiter whose per-route limits can change while requests are served
+ * <p>
+ * The stock limiter keeps its per-route config in a plain HashMap that is only meant
+ * to be filled at start-up; the route table updates it on every reload.
+ */
+public class ReloadableRedisRateLimiter extends RedisRateLimiter {
+
+    private final Map<String, Config> routeConfigs = new ConcurrentHashMap<>();
+
+    public ReloadableRedisRateLimiter(int replenishRate, int burstCapacity, int requestedTokens) {
+        super(replenishRate, burstCapacity, requestedTokens);
+    }
+
+    @Override
+    public Map<String, Config> getConfig() {
+        return routeConfigs;
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import reactor.util.context.ContextView;
+
+/**
+ * Tokens one request costs, handed from the route's cost filter to the rate limiter
+ * <p>
+ * RateLimiter.isAllowed only sees the route and the key, so the cost travels in the
+ * Reactor context of the filter chain: {@link RequestCostModel} writes it, the
+ * limiters read it through {@link #tokens}. Requests without a cost filter charge the
+ * route's requestedTokens as before.
+ */
+public final class RequestCost {
+
+    public static final String CONTEXT_KEY = RequestCost.class.getName();
+
+    public static final String HEADER = "X-RateLimit-Cost";
+
+    private RequestCost() {
+    }
+
+    /**
+     * Tokens to take for this request, never more than the bucket holds
+     */
+    public static long tokens(ContextView context, int requestedTokens, long burstCapacity) {
+        Long tokens = context.getOrDefault(CONTEXT_KEY, null);
+        return tokens != null ? Math.max(1, Math.min(tokens, burstCapacity)) : requestedTokens;
+    }
+}
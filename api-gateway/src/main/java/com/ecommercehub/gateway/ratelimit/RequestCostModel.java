@@ -0,0 +1,138 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import com.ecommercehub.gateway.metrics.ExchangeTimings;
+import com.ecommercehub.gateway.metrics.LatencyPhase;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides how many rate-limit tokens a request costs
+ * <p>
+ * Per route, the first matching {@link RequestCostRule} gives the request its class
+ * and cost; requests no rule matches are class "default" with cost 1. With adaptive
+ * cost on, each class also tracks the upstream latency it causes (an exponentially
+ * weighted average), and costs at least one token per reference-latency of it, up to
+ * max-cost. Heavy queries thus drain quota in proportion to the load they put on the
+ * upstream, even without a rule for them.
+ * <p>
+ * The tokens charged are the route's requestedTokens times the cost. They reach the
+ * limiter through the Reactor context (see {@link RequestCost}) and are returned in
+ * the X-RateLimit-Cost header, also on 429s.
+ * <p>
+ * Meter: gateway.ratelimit.cost{route,class}, tokens charged per request.
+ */
+@Component
+public class RequestCostModel {
+
+    private static final String DEFAULT_CLASS = "default";
+
+    // Weight of the newest latency sample
+    private static final double ALPHA = 0.1;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CostClass> classes = new ConcurrentHashMap<>();
+
+    public RequestCostModel(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Cost filter for one route; goes right before the route's rate limiter
+     */
+    public GatewayFilter filter(String routeId, List<RequestCostRule> rules, int requestedTokens,
+                                boolean adaptive, Duration referenceLatency, int maxCost) {
+        return new CostFilter(routeId, List.copyOf(rules), requestedTokens, adaptive,
+                referenceLatency.toNanos(), Math.max(1, maxCost));
+    }
+
+    private CostClass costClass(String routeId, String name) {
+        String key = routeId + "/" + name;
+        CostClass costClass = classes.get(key);
+        return costClass != null ? costClass : classes.computeIfAbsent(key, k -> new CostClass(
+                DistributionSummary.builder("gateway.ratelimit.cost")
+                        .description("Rate-limit tokens charged per request")
+                        .baseUnit("tokens")
+                        .tag("route", routeId)
+                        .tag("class", name)
+                        .register(meterRegistry)));
+    }
+
+    private final class CostFilter implements GatewayFilter {
+
+        private final String routeId;
+        private final List<RequestCostRule> rules;
+        private final int requestedTokens;
+        private final boolean adaptive;
+        private final long referenceNanos;
+        private final int maxCost;
+
+        CostFilter(String routeId, List<RequestCostRule> rules, int requestedTokens,
+                   boolean adaptive, long referenceNanos, int maxCost) {
+            this.routeId = routeId;
+            this.rules = rules;
+            this.requestedTokens = requestedTokens;
+            this.adaptive = adaptive;
+            this.referenceNanos = Math.max(1, referenceNanos);
+            this.maxCost = maxCost;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            RequestCostRule rule = null;
+            for (RequestCostRule candidate : rules) {
+                if (candidate.matches(exchange.getRequest())) {
+                    rule = candidate;
+                    break;
+                }
+            }
+            CostClass costClass = costClass(routeId, rule != null ? rule.getName() : DEFAULT_CLASS);
+            int cost = rule != null ? rule.getCost() : 1;
+            if (adaptive) {
+                cost = Math.max(cost, (int) Math.min(maxCost, Math.ceil(costClass.latencyNanos / referenceNanos)));
+            }
+            long tokens = (long) requestedTokens * Math.min(cost, maxCost);
+
+            costClass.charged.record(tokens);
+            exchange.getResponse().getHeaders().set(RequestCost.HEADER, Long.toString(tokens));
+            Mono<Void> result = chain.filter(exchange)
+                    .contextWrite(context -> context.put(RequestCost.CONTEXT_KEY, tokens));
+            if (!adaptive) {
+                return result;
+            }
+            return result.doFinally(signal -> {
+                ExchangeTimings timings = exchange.getAttribute(ExchangeTimings.ATTRIBUTE);
+                long upstreamNanos = timings != null ? timings.phaseNanos(LatencyPhase.UPSTREAM, System.nanoTime()) : -1;
+                if (upstreamNanos >= 0) {
+                    costClass.recordLatency(upstreamNanos);
+                }
+            });
+        }
+    }
+
+    /**
+     * Meter and latency average of one request class of a route
+     */
+    private static final class CostClass {
+
+        final DistributionSummary charged;
+        volatile double latencyNanos;
+
+        CostClass(DistributionSummary charged) {
+            this.charged = charged;
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencyNanos = latencyNanos == 0 ? nanos : latencyNanos + ALPHA * (nanos - latencyNanos);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A request class with its cost, e.g. searches with facets=all cost 5 tokens
+ * <p>
+ * A request matches when every condition given matches: one of the methods, one of
+ * the path patterns, and all query conditions ("name" for present, "name=value"
+ * for that value).
+ */
+public final class RequestCostRule {
+
+    private final String name;
+    private final Set<HttpMethod> methods;
+    private final List<PathPattern> paths;
+    private final List<String[]> queryParams;
+    private final int cost;
+
+    public RequestCostRule(String name, List<HttpMethod> methods, List<String> paths, List<String> queryParams, int cost) {
+        this.name = name;
+        this.methods = Set.copyOf(methods);
+        this.paths = paths.stream().map(PathPatternParser.defaultInstance::parse).toList();
+        this.queryParams = queryParams.stream().map(param -> param.split("=", 2)).toList();
+        this.cost = Math.max(1, cost);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    boolean matches(ServerHttpRequest request) {
+        if (!methods.isEmpty() && !methods.contains(request.getMethod())) {
+            return false;
+        }
+        if (!paths.isEmpty()) {
+            PathContainer path = request.getPath().pathWithinApplication();
+            if (paths.stream().noneMatch(pattern -> pattern.matches(path))) {
+                return false;
+            }
+        }
+        MultiValueMap<String, String> params = request.getQueryParams();
+        for (String[] condition : queryParams) {
+            List<String> values = params.get(condition[0]);
+            if (values == null || (condition.length == 2 && !values.contains(condition[1]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
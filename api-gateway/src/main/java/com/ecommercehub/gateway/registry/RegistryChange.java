@@ -0,0 +1,37 @@
+package com.ecommercehub.gateway.registry;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One change from the registry's change feed, or one instance of a snapshot
+ */
+@Data
+public class RegistryChange {
+
+    public static final String REGISTERED = "REGISTERED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String EVICTED = "EVICTED";
+    public static final String STATUS = "STATUS";
+
+    private long seq;
+    private String type;
+    private String app;
+    private String instanceId;
+    private String host;
+    private int port;
+    private boolean secure;
+    private String status;
+    private Map<String, String> metadata = new HashMap<>();
+
+    /**
+     * When the registry published the change, epoch millis
+     */
+    private long timestamp;
+
+    boolean removes() {
+        return CANCELLED.equals(type) || EVICTED.equals(type) || !"UP".equals(status);
+    }
+}
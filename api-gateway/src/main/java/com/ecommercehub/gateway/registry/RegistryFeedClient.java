@@ -0,0 +1,278 @@
+package com.ecommercehub.gateway.registry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the registry's change feed and keeps every service's instance list current
+ * <p>
+ * The Eureka client polls every 30 s, and the server's response cache adds up to
+ * another 30 s, so a dead instance can stay in the balancer's list for a minute. The
+ * feed (service-discovery's GET /registry/changes, server-sent events) instead pushes
+ * each registration, cancel, eviction and status change as it happens:
+ * - a "snapshot" replaces all instances and sets the sequence number
+ * - each "change" must carry the next sequence number and is applied in place; a gap
+ *   means changes were lost, so the client reconnects without Last-Event-ID and starts
+ *   over from a new snapshot
+ * - after a dropped connection it reconnects with Last-Event-ID and receives only the
+ *   changes it missed
+ * <p>
+ * Only UP instances are kept. While disconnected, the last known lists are used for
+ * stale-after; after that {@link #instances} returns null and load balancing falls
+ * back to the polled registry.
+ * <p>
+ * Meters:
+ * - gateway.registry.feed.lag: from the registry publishing a change to it being applied here
+ * - gateway.registry.feed.resyncs: snapshots requested because of a sequence gap
+ * - gateway.registry.feed.live: 1 while the feed's instance lists are used
+ */
+@Slf4j
+@Component
+public class RegistryFeedClient implements SmartLifecycle {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RegistryFeedProperties properties;
+    private final ObjectMapper objectMapper;
+    private final WebClient webClient;
+    private final URI url;
+    private final String[] credentials;
+    private final Timer lag;
+    private final Counter resyncs;
+
+    // Written only by the feed subscription, one event at a time
+    private final Map<String, ServiceInstances> services = new ConcurrentHashMap<>();
+    private volatile String epoch;
+    private volatile long seq;
+    private volatile boolean synced;
+    private volatile boolean resume;
+    private volatile boolean connected;
+    private volatile long disconnectedAt;
+
+    private volatile Disposable subscription;
+
+    public RegistryFeedClient(RegistryFeedProperties properties,
+                              WebClient.Builder webClientBuilder,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.webClient = webClientBuilder.build();
+        String userInfo = properties.getUrl().getUserInfo();
+        this.credentials = userInfo != null ? userInfo.split(":", 2) : null;
+        this.url = UriComponentsBuilder.fromUri(properties.getUrl()).userInfo(null).build(true).toUri();
+
+        this.lag = Timer.builder("gateway.registry.feed.lag")
+                .description("Time from the registry publishing a change to the gateway applying it")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("gateway.registry.feed.resyncs")
+                .description("Registry snapshots requested because changes were missed")
+                .register(meterRegistry);
+        Gauge.builder("gateway.registry.feed.live", this, client -> client.isLive() ? 1 : 0)
+                .description("Whether load balancing uses the registry feed's instance lists")
+                .register(meterRegistry);
+    }
+
+    /**
+     * UP instances of the service, or null while the feed cannot be trusted
+     */
+    public List<ServiceInstance> instances(String serviceId) {
+        if (!isLive()) {
+            return null;
+        }
+        ServiceInstances service = services.get(serviceId.toUpperCase(Locale.ROOT));
+        return service != null ? service.list : List.of();
+    }
+
+    public boolean isLive() {
+        return synced && (connected || System.nanoTime() - disconnectedAt < properties.getStaleAfter().toNanos());
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        subscription = Flux.defer(this::connect)
+                .doOnNext(this::handle)
+                .doOnTerminate(this::disconnected)
+                .doOnCancel(this::disconnected)
+                // The registry ends subscriptions after its connection timeout: resume
+                .repeatWhen(completed -> completed.delayElements(properties.getReconnectDelay()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getReconnectDelay())
+                        .maxBackoff(properties.getMaxReconnectDelay())
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> log.warn("Registry feed {} interrupted, reconnecting: {}",
+                                url, signal.failure().toString())))
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        subscription = null;
+        if (current != null) {
+            current.dispose();
+        }
+        synced = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null;
+    }
+
+    private Flux<ServerSentEvent<String>> connect() {
+        String lastEventId = resume ? epoch + ":" + seq : null;
+        return webClient.get()
+                .uri(url)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .headers(headers -> {
+                    if (credentials != null && credentials.length == 2) {
+                        headers.setBasicAuth(credentials[0], credentials[1]);
+                    }
+                    if (lastEventId != null) {
+                        headers.set("Last-Event-ID", lastEventId);
+                    }
+                })
+                .retrieve()
+                .bodyToFlux(EVENT_TYPE);
+    }
+
+    private void handle(ServerSentEvent<String> event) {
+        connected = true;
+        if (event.event() == null || event.data() == null) {
+            // Keepalive
+            return;
+        }
+        switch (event.event()) {
+            case "snapshot" -> applySnapshot(read(event.data(), RegistrySnapshot.class));
+            case "change" -> applyChange(event.id(), read(event.data(), RegistryChange.class));
+            default -> log.debug("Ignoring registry feed event {}", event.event());
+        }
+    }
+
+    private void applySnapshot(RegistrySnapshot snapshot) {
+        Map<String, Map<String, ServiceInstance>> byService = new HashMap<>();
+        for (RegistryChange instance : snapshot.getInstances()) {
+            if (!instance.removes()) {
+                byService.computeIfAbsent(instance.getApp().toUpperCase(Locale.ROOT), app -> new HashMap<>())
+                        .put(instance.getInstanceId(), serviceInstance(instance));
+            }
+        }
+        services.keySet().retainAll(byService.keySet());
+        byService.forEach((app, instances) -> services.computeIfAbsent(app, key -> new ServiceInstances()).replace(instances));
+
+        epoch = snapshot.getEpoch();
+        seq = snapshot.getSeq();
+        synced = true;
+        resume = true;
+        log.info("Registry feed synced at {}:{}, {} services", epoch, seq, byService.size());
+    }
+
+    private void applyChange(String id, RegistryChange change) {
+        if (!synced || id == null || !id.startsWith(epoch + ":")) {
+            resync("change " + id + " does not continue " + epoch + ":" + seq);
+        }
+        if (change.getSeq() <= seq) {
+            // Already part of the snapshot
+            return;
+        }
+        if (change.getSeq() != seq + 1) {
+            resync("changes " + (seq + 1) + " to " + (change.getSeq() - 1) + " are missing");
+        }
+
+        String app = change.getApp().toUpperCase(Locale.ROOT);
+        if (change.removes()) {
+            ServiceInstances service = services.get(app);
+            if (service != null) {
+                service.remove(change.getInstanceId());
+            }
+        } else {
+            services.computeIfAbsent(app, key -> new ServiceInstances()).put(change.getInstanceId(), serviceInstance(change));
+        }
+        seq = change.getSeq();
+        lag.record(Math.max(0, System.currentTimeMillis() - change.getTimestamp()), TimeUnit.MILLISECONDS);
+    }
+
+    private void resync(String reason) {
+        resyncs.increment();
+        resume = false;
+        // Ends this connection; the retry asks for a snapshot
+        throw new IllegalStateException("Registry feed out of sequence, " + reason);
+    }
+
+    private void disconnected() {
+        if (connected) {
+            connected = false;
+            disconnectedAt = System.nanoTime();
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ServiceInstance serviceInstance(RegistryChange change) {
+        return new DefaultServiceInstance(change.getInstanceId(), change.getApp(), change.getHost(),
+                change.getPort(), change.isSecure(), change.getMetadata() != null ? change.getMetadata() : Map.of());
+    }
+
+    /**
+     * Instances of one service; the list is rebuilt on every change, so readers never copy
+     */
+    private static final class ServiceInstances {
+
+        private final Map<String, ServiceInstance> byId = new HashMap<>();
+        volatile List<ServiceInstance> list = List.of();
+
+        void put(String instanceId, ServiceInstance instance) {
+            byId.put(instanceId, instance);
+            list = List.copyOf(byId.values());
+        }
+
+        void remove(String instanceId) {
+            if (byId.remove(instanceId) != null) {
+                list = List.copyOf(byId.values());
+            }
+        }
+
+        void replace(Map<String, ServiceInstance> instances) {
+            byId.clear();
+            byId.putAll(instances);
+            list = List.copyOf(byId.values());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.ecommercehub.gateway.registry;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Settings for following the registry's change feed (gateway.registry-feed.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.registry-feed")
+public class RegistryFeedProperties {
+
+    private boolean enabled;
+
+    /**
+     * The registry's /registry/changes endpoint; user info in the URI is sent as HTTP Basic
+     */
+    private URI url = URI.create("http://localhost:8761/registry/changes");
+
+    /**
+     * First wait before reconnecting; doubles per failed attempt up to max-reconnect-delay
+     */
+    private Duration reconnectDelay = Duration.ofMillis(500);
+
+    private Duration maxReconnectDelay = Duration.ofSeconds(30);
+
+    /**
+     * How long the last known instances are still used while disconnected, before
+     * load balancing falls back to the polled Eureka registry
+     */
+    private Duration staleAfter = Duration.ofSeconds(30);
+}
@@ -0,0 +1,55 @@
+package com.ecommercehub.gateway.registry;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Instance list from the {@link RegistryFeedClient} while the feed is live, from the
+ * polled registry otherwise
+ */
+public class RegistryFeedServiceInstanceListSupplier implements ServiceInstanceListSupplier {
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> delegate;
+    private final RegistryFeedClient registryFeed;
+
+    public RegistryFeedServiceInstanceListSupplier(String serviceId,
+                                                   ObjectProvider<ServiceInstanceListSupplier> delegate,
+                                                   RegistryFeedClient registryFeed) {
+        this.serviceId = serviceId;
+        this.delegate = delegate;
+        this.registryFeed = registryFeed;
+    }
+
+    @Override
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return Flux.defer(() -> {
+            List<ServiceInstance> instances = registryFeed.instances(serviceId);
+            return instances != null ? Flux.just(instances) : delegate().get();
+        });
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Flux<List<ServiceInstance>> get(Request request) {
+        return Flux.defer(() -> {
+            List<ServiceInstance> instances = registryFeed.instances(serviceId);
+            return instances != null ? Flux.just(instances) : delegate().get(request);
+        });
+    }
+
+    private ServiceInstanceListSupplier delegate() {
+        return delegate.getIfAvailable(NoopServiceInstanceListSupplier::new);
+    }
+}
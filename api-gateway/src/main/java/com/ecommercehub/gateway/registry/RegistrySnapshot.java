@@ -0,0 +1,17 @@
+package com.ecommercehub.gateway.registry;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every registered instance, current as of change seq of registry process epoch
+ */
+@Data
+public class RegistrySnapshot {
+
+    private String epoch;
+    private long seq;
+    private List<RegistryChange> instances = new ArrayList<>();
+}
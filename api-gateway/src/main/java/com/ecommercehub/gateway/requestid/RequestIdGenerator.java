@@ -0,0 +1,17 @@
+package com.ecommercehub.gateway.requestid;
+
+/**
+ * Creates the correlation ID for requests that arrive without one
+ * <p>
+ * Called on the Netty event loop for every such request, so implementations must
+ * be thread-safe and should not block. Define a bean of this type to replace the
+ * default {@link TimeOrderedIdGenerator}.
+ * <p>
+ * IDs in UUID form (8-4-4-4-12 hex) can also be turned into a W3C trace-id,
+ * see {@link TraceParent}.
+ */
+@FunctionalInterface
+public interface RequestIdGenerator {
+
+    String nextId();
+}
@@ -0,0 +1,25 @@
+package com.ecommercehub.gateway.requestid;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for generated correlation IDs (gateway.request-id.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.request-id")
+public class RequestIdProperties {
+
+    /**
+     * Send a W3C traceparent upstream, built from the correlation ID,
+     * when the request does not already carry one
+     */
+    private boolean traceparent = false;
+
+    /**
+     * Value of the sampled flag in generated traceparent headers
+     */
+    private boolean sampled = true;
+}
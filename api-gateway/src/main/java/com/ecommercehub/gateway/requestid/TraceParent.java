@@ -0,0 +1,68 @@
+package com.ecommercehub.gateway.requestid;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * W3C Trace Context helpers (https://www.w3.org/TR/trace-context/)
+ * <p>
+ * The gateway does not trace by itself; it only starts a trace whose trace-id is the
+ * correlation ID, so log lines and traces of the same request can be joined.
+ */
+public final class TraceParent {
+
+    public static final String HEADER = "traceparent";
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private TraceParent() {
+    }
+
+    /**
+     * traceparent value for a UUID-shaped request ID, or null if the ID cannot be a trace-id
+     */
+    public static String fromRequestId(String requestId, boolean sampled) {
+        if (requestId == null || requestId.length() != 36) {
+            return null;
+        }
+        // 00-<32 hex trace-id>-<16 hex parent-id>-<2 hex flags>
+        byte[] out = new byte[55];
+        out[0] = '0';
+        out[1] = '0';
+        out[2] = '-';
+        int pos = 3;
+        boolean allZero = true;
+        for (int i = 0; i < 36; i++) {
+            char c = requestId.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return null;
+                }
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                return null;
+            }
+            allZero &= digit == 0;
+            out[pos++] = HEX[digit];
+        }
+        if (allZero) {
+            return null;
+        }
+        out[pos++] = '-';
+        long parentId = ThreadLocalRandom.current().nextLong();
+        if (parentId == 0) {
+            parentId = 1;
+        }
+        for (int i = pos + 15; i >= pos; i--) {
+            out[i] = HEX[(int) (parentId & 0xF)];
+            parentId >>>= 4;
+        }
+        pos += 16;
+        out[pos++] = '-';
+        out[pos++] = '0';
+        out[pos] = (byte) (sampled ? '1' : '0');
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,278 @@
+package com.ecommercehub.gateway.routing;
+
+import com.ecommercehub.gateway.cache.RequestCoalescingFilter;
+import com.ecommercehub.gateway.cache.ResponseCacheFilter;
+import com.ecommercehub.gateway.cache.StaleResponseRecorder;
+import com.ecommercehub.gateway.compression.ResponseCompressionFilter;
+import com.ecommercehub.gateway.concurrency.AdaptiveConcurrencyLimiter;
+import com.ecommercehub.gateway.config.CircuitBreakerConfig;
+import com.ecommercehub.gateway.hedging.RequestHedger;
+import com.ecommercehub.gateway.loadbalancer.LoadBalancingStrategy;
+import com.ecommercehub.gateway.metrics.GatewayLatencyMetrics;
+import com.ecommercehub.gateway.metrics.LatencyPhase;
+import com.ecommercehub.gateway.ratelimit.HybridRateLimiter;
+import com.ecommercehub.gateway.ratelimit.RequestCostModel;
+import com.ecommercehub.gateway.ratelimit.RequestCostRule;
+import com.ecommercehub.gateway.routing.RouteTableProperties.Breaker;
+import com.ecommercehub.gateway.routing.RouteTableProperties.RateLimit;
+import com.ecommercehub.gateway.routing.RouteTableProperties.RouteSpec;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.SpringCloudCircuitBreakerFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the gateway's routes from the route table
+ * <p>
+ * Filter layout of every route, in this order (entries only where the route asks for them):
+ * - response cache, compression
+ * - request cost, if the route charges by request class or upstream latency
+ * - rate limiter (hybrid or exact, by user or IP) behind its latency phase marker
+ * - request coalescing, stale-response recorder, hedger
+ * - adaptive concurrency limit for the route's priority
+ * - circuit breaker with fallback behind its latency phase marker
+ * <p>
+ * Everything up to the hedger runs before NettyWriteResponseFilter, which the response
+ * wrappers need; the rate limiter is ordered in with them so that only cache hits skip
+ * it and every coalesced waiter is charged like a request of its own.
+ * <p>
+ * Limiter state never lives in a route: the limiters keep their buckets per route id
+ * and read the route's limits from their per-route config, which {@link #apply} updates
+ * in place. Breakers are registered eagerly with the table's settings; a changed
+ * breaker is replaced in the registry and starts over closed.
+ */
+@Slf4j
+@Component
+public class GatewayRouteFactory implements RouteFactory {
+
+    private final RequestRateLimiterGatewayFilterFactory rateLimiterFilterFactory;
+    private final SpringCloudCircuitBreakerFilterFactory circuitBreakerFilterFactory;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    private final HybridRateLimiter hybridRateLimiter;
+    private final RedisRateLimiter exactRateLimiter;
+    private final KeyResolver userKeyResolver;
+    private final KeyResolver ipKeyResolver;
+    private final RequestCostModel requestCostModel;
+    private final ResponseCacheFilter responseCacheFilter;
+    private final ResponseCompressionFilter responseCompressionFilter;
+    private final RequestCoalescingFilter requestCoalescingFilter;
+    private final StaleResponseRecorder staleResponseRecorder;
+    private final RequestHedger requestHedger;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final GatewayLatencyMetrics latencyMetrics;
+
+    public GatewayRouteFactory(RequestRateLimiterGatewayFilterFactory rateLimiterFilterFactory,
+                               SpringCloudCircuitBreakerFilterFactory circuitBreakerFilterFactory,
+                               ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory,
+                               @Qualifier("hybridDefaultRateLimiter") HybridRateLimiter hybridRateLimiter,
+                               @Qualifier("strictRateLimiter") RedisRateLimiter exactRateLimiter,
+                               @Qualifier("userKeyResolver") KeyResolver userKeyResolver,
+                               @Qualifier("ipKeyResolver") KeyResolver ipKeyResolver,
+                               RequestCostModel requestCostModel,
+                               ResponseCacheFilter responseCacheFilter,
+                               ResponseCompressionFilter responseCompressionFilter,
+                               RequestCoalescingFilter requestCoalescingFilter,
+                               StaleResponseRecorder staleResponseRecorder,
+                               RequestHedger requestHedger,
+                               AdaptiveConcurrencyLimiter concurrencyLimiter,
+                               GatewayLatencyMetrics latencyMetrics) {
+        this.rateLimiterFilterFactory = rateLimiterFilterFactory;
+        this.circuitBreakerFilterFactory = circuitBreakerFilterFactory;
+        this.circuitBreakerRegistry = circuitBreakerFactory.getCircuitBreakerRegistry();
+        this.timeLimiterRegistry = circuitBreakerFactory.getTimeLimiterRegistry();
+        this.hybridRateLimiter = hybridRateLimiter;
+        this.exactRateLimiter = exactRateLimiter;
+        this.userKeyResolver = userKeyResolver;
+        this.ipKeyResolver = ipKeyResolver;
+        this.requestCostModel = requestCostModel;
+        this.responseCacheFilter = responseCacheFilter;
+        this.responseCompressionFilter = responseCompressionFilter;
+        this.requestCoalescingFilter = requestCoalescingFilter;
+        this.staleResponseRecorder = staleResponseRecorder;
+        this.requestHedger = requestHedger;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    @Override
+    public Route build(String id, RouteSpec spec) {
+        if (spec.getUri() == null) {
+            throw new IllegalArgumentException("Route " + id + " has no uri");
+        }
+        IndexedRoutePredicate predicate = IndexedRoutePredicate.path(spec.getPaths().toArray(String[]::new));
+        if (!spec.getMethods().isEmpty()) {
+            predicate = predicate.methods(spec.getMethods().toArray(HttpMethod[]::new));
+        }
+
+        Breaker breaker = spec.getCircuitBreaker();
+        List<GatewayFilter> filters = new ArrayList<>();
+        if (spec.isCache()) {
+            filters.add(responseCacheFilter);
+        }
+        if (spec.isCompress()) {
+            filters.add(responseCompressionFilter);
+        }
+        RateLimit rateLimit = spec.getRateLimit();
+        if (rateLimit != null) {
+            if (!rateLimit.getCosts().isEmpty() || rateLimit.isAdaptiveCost()) {
+                filters.add(beforeResponseWriter(requestCostModel.filter(id, costRules(rateLimit),
+                        rateLimit.getRequestedTokens(), rateLimit.isAdaptiveCost(), rateLimit.getReferenceLatency(),
+                        rateLimit.getMaxCost())));
+            }
+            filters.add(beforeResponseWriter(latencyMetrics.phaseMarker(LatencyPhase.RATE_LIMITER)));
+            filters.add(beforeResponseWriter(rateLimiterFilterFactory.apply(id, config -> config
+                    .setRateLimiter(rateLimiter(rateLimit))
+                    .setKeyResolver(rateLimit.getKey() == RouteTableProperties.KeyType.IP
+                            ? ipKeyResolver : userKeyResolver))));
+        }
+        if (spec.isCoalesce()) {
+            filters.add(requestCoalescingFilter);
+        }
+        if (spec.isStaleResponses()) {
+            filters.add(staleResponseRecorder);
+        }
+        if (spec.isHedge()) {
+            if (breaker == null) {
+                throw new IllegalArgumentException("Route " + id + " hedges but has no circuit breaker");
+            }
+            filters.add(requestHedger.filter(breakerName(id, breaker)));
+        }
+        filters.add(ordered(concurrencyLimiter.filter(spec.getPriority())));
+        if (breaker != null) {
+            filters.add(ordered(latencyMetrics.phaseMarker(LatencyPhase.CIRCUIT_BREAKER)));
+            filters.add(ordered(circuitBreakerFilterFactory.apply(id, config -> config
+                    .setName(breakerName(id, breaker))
+                    .setFallbackUri(breaker.getFallbackUri() != null
+                            ? breaker.getFallbackUri() : "forward:/fallback/" + id))));
+        }
+
+        Route.AsyncBuilder route = Route.async()
+                .id(id)
+                .uri(spec.getUri())
+                .order(spec.getOrder())
+                .asyncPredicate(predicate)
+                .filters(filters);
+        if (spec.getLoadBalancer() != null) {
+            route.metadata(LoadBalancingStrategy.METADATA_KEY, spec.getLoadBalancer().metadataValue());
+        }
+        return route.build();
+    }
+
+    @Override
+    public void apply(String id, RouteSpec spec) {
+        applyLimits(id, spec.getRateLimit());
+        Breaker breaker = spec.getCircuitBreaker();
+        if (breaker != null) {
+            applyBreaker(breakerName(id, breaker), breaker);
+        }
+    }
+
+    @Override
+    public void release(String id, RouteSpec spec) {
+        hybridRateLimiter.getConfig().remove(id);
+        exactRateLimiter.getConfig().remove(id);
+    }
+
+    private void applyLimits(String id, RateLimit rateLimit) {
+        if (rateLimit == null) {
+            release(id, null);
+            return;
+        }
+        switch (rateLimit.getLimiter()) {
+            case HYBRID -> {
+                hybridRateLimiter.getConfig().put(id, new HybridRateLimiter.Config()
+                        .setReplenishRate(rateLimit.getReplenishRate())
+                        .setBurstCapacity(rateLimit.getBurstCapacity())
+                        .setRequestedTokens(rateLimit.getRequestedTokens()));
+                exactRateLimiter.getConfig().remove(id);
+            }
+            case EXACT -> {
+                exactRateLimiter.getConfig().put(id, new RedisRateLimiter.Config()
+                        .setReplenishRate(rateLimit.getReplenishRate())
+                        .setBurstCapacity(rateLimit.getBurstCapacity())
+                        .setRequestedTokens(rateLimit.getRequestedTokens()));
+                hybridRateLimiter.getConfig().remove(id);
+            }
+        }
+    }
+
+    private void applyBreaker(String name, Breaker breaker) {
+        io.github.resilience4j.circuitbreaker.CircuitBreakerConfig breakerConfig = CircuitBreakerConfig.breakerDefaults()
+                .slidingWindowSize(breaker.getSlidingWindowSize())
+                .minimumNumberOfCalls(breaker.getMinimumNumberOfCalls())
+                .failureRateThreshold(breaker.getFailureRateThreshold())
+                .slowCallRateThreshold(breaker.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(breaker.getSlowCallDuration())
+                .waitDurationInOpenState(breaker.getWaitDurationInOpenState())
+                .build();
+        TimeLimiterConfig timeLimiterConfig = TimeLimiterConfig.custom()
+                .timeoutDuration(breaker.getTimeout())
+                .build();
+
+        if (circuitBreakerRegistry.find(name).isPresent()) {
+            circuitBreakerRegistry.replace(name, CircuitBreaker.of(name, breakerConfig));
+            log.info("Circuit breaker {} reconfigured", name);
+        } else {
+            circuitBreakerRegistry.circuitBreaker(name, breakerConfig);
+        }
+        if (timeLimiterRegistry.find(name).isPresent()) {
+            timeLimiterRegistry.replace(name, TimeLimiter.of(name, timeLimiterConfig));
+        } else {
+            timeLimiterRegistry.timeLimiter(name, timeLimiterConfig);
+        }
+    }
+
+    private RateLimiter<?> rateLimiter(RateLimit rateLimit) {
+        return switch (rateLimit.getLimiter()) {
+            case HYBRID -> hybridRateLimiter;
+            case EXACT -> exactRateLimiter;
+        };
+    }
+
+    private static List<RequestCostRule> costRules(RateLimit rateLimit) {
+        List<RequestCostRule> rules = new ArrayList<>(rateLimit.getCosts().size());
+        for (RouteTableProperties.CostRule rule : rateLimit.getCosts()) {
+            rules.add(new RequestCostRule(rule.getName(), rule.getMethods(), rule.getPaths(),
+                    rule.getQueryParams(), rule.getCost()));
+        }
+        return rules;
+    }
+
+    private static String breakerName(String routeId, Breaker breaker) {
+        return breaker.getName() != null ? breaker.getName() : routeId + "-cb";
+    }
+
+    /**
+     * Same as the route DSL: filters without an order of their own run at 0, in list order
+     */
+    private static GatewayFilter ordered(GatewayFilter filter) {
+        return filter instanceof Ordered ? filter : new OrderedGatewayFilter(filter, 0);
+    }
+
+    /**
+     * Runs the filter at the order of the response-wrapping filters, in list order among them
+     */
+    private static GatewayFilter beforeResponseWriter(GatewayFilter filter) {
+        return new OrderedGatewayFilter(filter, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+}
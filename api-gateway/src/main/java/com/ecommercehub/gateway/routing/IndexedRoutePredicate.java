@@ -0,0 +1,127 @@
+package com.ecommercehub.gateway.routing;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ROUTE_ID_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Path and method predicate that the {@link RouteIndex} can compile into its path trie
+ * <p>
+ * Matches like the built-in Path and Method predicates (Spring path patterns, a
+ * trailing slash matched unless turned off, URI variables and the matched pattern
+ * exposed the same way), but keeps its patterns readable for the index.
+ * Routes built with the plain DSL predicates still work, they are just evaluated one
+ * by one.
+ */
+public final class IndexedRoutePredicate implements AsyncPredicate<ServerWebExchange> {
+
+    private static final PathPatternParser TRAILING_SLASH_PARSER = parser(true);
+    private static final PathPatternParser STRICT_PARSER = parser(false);
+
+    private final List<String> patterns;
+    private final PathPattern[] pathPatterns;
+    private final Set<HttpMethod> methods;
+    private final boolean matchTrailingSlash;
+
+    private IndexedRoutePredicate(List<String> patterns, Set<HttpMethod> methods, boolean matchTrailingSlash) {
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("At least one path pattern is required");
+        }
+        PathPatternParser parser = matchTrailingSlash ? TRAILING_SLASH_PARSER : STRICT_PARSER;
+        this.patterns = patterns;
+        this.pathPatterns = patterns.stream().map(parser::parse).toArray(PathPattern[]::new);
+        this.methods = methods;
+        this.matchTrailingSlash = matchTrailingSlash;
+    }
+
+    /**
+     * Requests whose path matches any of the patterns, with or without a trailing slash
+     */
+    public static IndexedRoutePredicate path(String... patterns) {
+        return new IndexedRoutePredicate(List.of(patterns), Set.of(), true);
+    }
+
+    /**
+     * Same paths, restricted to the given methods
+     */
+    public IndexedRoutePredicate methods(HttpMethod... methods) {
+        return new IndexedRoutePredicate(patterns, Set.copyOf(Arrays.asList(methods)), matchTrailingSlash);
+    }
+
+    /**
+     * Same paths and methods; with false, "/items/{id}" no longer matches "/items/1/"
+     * (the built-in predicate's matchTrailingSlash)
+     */
+    public IndexedRoutePredicate matchTrailingSlash(boolean matchTrailingSlash) {
+        return new IndexedRoutePredicate(patterns, methods, matchTrailingSlash);
+    }
+
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Allowed methods; empty means any
+     */
+    public Set<HttpMethod> getMethods() {
+        return methods;
+    }
+
+    public boolean matches(ServerWebExchange exchange) {
+        if (!methods.isEmpty() && !methods.contains(exchange.getRequest().getMethod())) {
+            return false;
+        }
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        for (PathPattern pattern : pathPatterns) {
+            PathPattern.PathMatchInfo match = pattern.matchAndExtract(path);
+            if (match != null) {
+                Map<String, String> variables = match.getUriVariables();
+                if (!variables.isEmpty()) {
+                    ServerWebExchangeUtils.putUriTemplateVariables(exchange, variables);
+                }
+                exchange.getAttributes().put(GATEWAY_PREDICATE_MATCHED_PATH_ATTR, pattern.getPatternString());
+                String routeId = exchange.getAttribute(GATEWAY_PREDICATE_ROUTE_ATTR);
+                if (routeId != null) {
+                    exchange.getAttributes().put(GATEWAY_PREDICATE_MATCHED_PATH_ROUTE_ID_ATTR, routeId);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Publisher<Boolean> apply(ServerWebExchange exchange) {
+        return Mono.just(matches(exchange));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static PathPatternParser parser(boolean matchTrailingSlash) {
+        // Deprecated in Spring Framework 6, but still what the built-in Path predicate sets
+        PathPatternParser parser = new PathPatternParser();
+        parser.setMatchOptionalTrailingSeparator(matchTrailingSlash);
+        return parser;
+    }
+
+    @Override
+    public String toString() {
+        return methods.isEmpty()
+                ? "Paths: " + patterns
+                : "Paths: " + patterns + " && Methods: " + methods;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ecommercehub.gateway.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Gateway handler mapping that finds the route through a compiled {@link RouteIndex}
+ * instead of testing every route predicate in turn
+ * <p>
+ * The index is rebuilt in the background after each route refresh; lookups keep
+ * using the previous one until the new one is ready.
+ */
+@Slf4j
+public class IndexedRoutePredicateHandlerMapping extends RoutePredicateHandlerMapping
+        implements ApplicationListener<RefreshRoutesResultEvent> {
+
+    private final RouteLocator routeLocator;
+    private volatile RouteIndex index;
+
+    public IndexedRoutePredicateHandlerMapping(FilteringWebHandler webHandler,
+                                               RouteLocator routeLocator,
+                                               GlobalCorsProperties globalCorsProperties,
+                                               Environment environment) {
+        super(webHandler, routeLocator, globalCorsProperties, environment);
+        this.routeLocator = routeLocator;
+    }
+
+    @Override
+    protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+        RouteIndex current = index;
+        Mono<RouteIndex> source = current != null ? Mono.just(current) : compile();
+        return source
+                .flatMap(routeIndex -> routeIndex.lookup(exchange))
+                .map(route -> {
+                    validateRoute(route, exchange);
+                    return route;
+                });
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        compile().subscribe(
+                routeIndex -> { },
+                error -> log.error("Route index rebuild failed, keeping the previous index", error));
+    }
+
+    private Mono<RouteIndex> compile() {
+        return routeLocator.getRoutes()
+                .collectList()
+                .map(RouteIndex::compile)
+                .doOnNext(routeIndex -> {
+                    index = routeIndex;
+                    log.info("Route index compiled: {} routes, {} evaluated linearly",
+                            routeIndex.size(), routeIndex.unindexedCount());
+                });
+    }
+}
@@ -0,0 +1,125 @@
+package com.ecommercehub.gateway.routing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Segment trie over path patterns, returning the routes a path may match
+ * <p>
+ * Literal segments are trie edges. Segments with wildcards or variables ("*",
+ * "{id}", "v*") become a single any-segment edge, and "**" or "{*rest}" mark a node
+ * whose subtree matches everything. The result is a superset: candidates are checked
+ * with their real predicate afterwards, the trie only has to never miss one.
+ * <p>
+ * Lookup visits at most one literal and one wildcard child per segment, so its cost
+ * depends on the path length and the wildcard fan-out, not on the number of routes.
+ */
+final class PathTrie {
+
+    private static final int[] NONE = new int[0];
+
+    private final Node root = new Node();
+
+    void add(String pattern, int route) {
+        Node node = root;
+        for (String segment : segments(pattern)) {
+            if (segment.equals("**") || segment.startsWith("{*")) {
+                node.subtree = append(node.subtree, route);
+                return;
+            }
+            if (isWildcard(segment)) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        node.exact = append(node.exact, route);
+    }
+
+    /**
+     * Routes that may match the path segments, ascending and without duplicates
+     */
+    int[] candidates(List<String> pathSegments) {
+        Collector collector = new Collector();
+        collect(root, pathSegments, 0, collector);
+        return collector.sortedDistinct();
+    }
+
+    private static void collect(Node node, List<String> path, int index, Collector collector) {
+        collector.addAll(node.subtree);
+        if (index == path.size()) {
+            collector.addAll(node.exact);
+            if (node.wildcard != null) {
+                // A single-segment wildcard can also match an empty trailing segment
+                collector.addAll(node.wildcard.exact);
+                collector.addAll(node.wildcard.subtree);
+            }
+            return;
+        }
+        Node literal = node.literals.get(path.get(index));
+        if (literal != null) {
+            collect(literal, path, index + 1, collector);
+        }
+        if (node.wildcard != null) {
+            collect(node.wildcard, path, index + 1, collector);
+        }
+    }
+
+    static String[] segments(String path) {
+        return Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+    private static boolean isWildcard(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0;
+    }
+
+    private static int[] append(int[] routes, int route) {
+        int[] grown = Arrays.copyOf(routes, routes.length + 1);
+        grown[routes.length] = route;
+        return grown;
+    }
+
+    private static final class Node {
+
+        final Map<String, Node> literals = new HashMap<>();
+        Node wildcard;
+        int[] exact = NONE;
+        int[] subtree = NONE;
+    }
+
+    private static final class Collector {
+
+        private int[] routes = NONE;
+        private int size;
+
+        void addAll(int[] more) {
+            if (more.length == 0) {
+                return;
+            }
+            if (size + more.length > routes.length) {
+                routes = Arrays.copyOf(routes, Math.max(Math.max(routes.length * 2, 8), size + more.length));
+            }
+            System.arraycopy(more, 0, routes, size, more.length);
+            size += more.length;
+        }
+
+        int[] sortedDistinct() {
+            if (size == 0) {
+                return NONE;
+            }
+            Arrays.sort(routes, 0, size);
+            int distinct = 1;
+            for (int i = 1; i < size; i++) {
+                if (routes[i] != routes[distinct - 1]) {
+                    routes[distinct++] = routes[i];
+                }
+            }
+            return Arrays.copyOf(routes, distinct);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommercehub.gateway.routing;
+
+import com.ecommercehub.gateway.routing.RouteTableProperties.RouteSpec;
+import org.springframework.cloud.gateway.route.Route;
+
+/**
+ * Turns route table entries into gateway routes for the {@link SnapshotRouteLocator}
+ */
+public interface RouteFactory {
+
+    /**
+     * New route with its own filter instances. Must not touch shared state:
+     * the result may be thrown away if another route of the same reload fails.
+     */
+    Route build(String id, RouteSpec spec);
+
+    /**
+     * Push the route's limits and breaker settings to the shared limiters and breakers;
+     * called for new and changed routes once the whole table has been built
+     */
+    default void apply(String id, RouteSpec spec) {
+    }
+
+    /**
+     * Forget the settings of a route that left the table
+     */
+    default void release(String id, RouteSpec spec) {
+    }
+}
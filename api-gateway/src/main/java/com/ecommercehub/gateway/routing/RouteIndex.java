@@ -0,0 +1,127 @@
+package com.ecommercehub.gateway.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Route table compiled for lookup, built once per route refresh
+ * <p>
+ * Routes whose predicate is an {@link IndexedRoutePredicate} go into a {@link PathTrie};
+ * all other routes are kept in a list and evaluated one by one, as the gateway does by
+ * default. A lookup merges the trie candidates with that list in route order and
+ * returns the first route whose predicate matches, so the result is the same as a
+ * linear scan.
+ */
+@Slf4j
+public final class RouteIndex {
+
+    private final Route[] routes;
+    private final IndexedRoutePredicate[] indexed;
+    private final int[] unindexed;
+    private final PathTrie trie = new PathTrie();
+
+    private RouteIndex(List<Route> routes) {
+        this.routes = routes.toArray(Route[]::new);
+        this.indexed = new IndexedRoutePredicate[this.routes.length];
+        List<Integer> linear = new ArrayList<>();
+        for (int i = 0; i < this.routes.length; i++) {
+            if (this.routes[i].getPredicate() instanceof IndexedRoutePredicate predicate) {
+                indexed[i] = predicate;
+                for (String pattern : predicate.getPatterns()) {
+                    trie.add(pattern, i);
+                }
+            } else {
+                linear.add(i);
+            }
+        }
+        this.unindexed = linear.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Compiles routes that are already in their final order
+     */
+    public static RouteIndex compile(List<Route> routes) {
+        return new RouteIndex(routes);
+    }
+
+    public int size() {
+        return routes.length;
+    }
+
+    /**
+     * Routes that need a linear evaluation on every lookup
+     */
+    public int unindexedCount() {
+        return unindexed.length;
+    }
+
+    /**
+     * First route matching the exchange, or empty
+     */
+    public Mono<Route> lookup(ServerWebExchange exchange) {
+        int[] candidates = trie.candidates(pathSegments(exchange));
+        if (unindexed.length == 0) {
+            for (int position : candidates) {
+                exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, routes[position].getId());
+                if (indexed[position].matches(exchange)) {
+                    return Mono.just(routes[position]);
+                }
+            }
+            return Mono.empty();
+        }
+        int[] ordered = merge(candidates, unindexed);
+        return Flux.range(0, ordered.length)
+                .concatMap(i -> test(routes[ordered[i]], exchange))
+                .next();
+    }
+
+    private Mono<Route> test(Route route, ServerWebExchange exchange) {
+        return Mono.just(route)
+                .filterWhen(r -> {
+                    exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, r.getId());
+                    return r.getPredicate().apply(exchange);
+                })
+                .onErrorResume(e -> {
+                    log.error("Error applying predicate for route: {}", route.getId(), e);
+                    return Mono.empty();
+                });
+    }
+
+    private static List<String> pathSegments(ServerWebExchange exchange) {
+        List<PathContainer.Element> elements = exchange.getRequest().getPath().pathWithinApplication().elements();
+        List<String> segments = new ArrayList<>(elements.size() / 2 + 1);
+        for (PathContainer.Element element : elements) {
+            // Decoded, as path patterns match against the decoded segment
+            if (element instanceof PathContainer.PathSegment segment && !segment.valueToMatch().isEmpty()) {
+                segments.add(segment.valueToMatch());
+            }
+        }
+        return segments;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            merged[k++] = a[i] < b[j] ? a[i++] : b[j++];
+        }
+        while (i < a.length) {
+            merged[k++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[k++] = b[j++];
+        }
+        return merged;
+    }
+}
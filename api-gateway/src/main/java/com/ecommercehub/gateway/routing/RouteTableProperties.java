@@ -0,0 +1,198 @@
+package com.ecommercehub.gateway.routing;
+
+import com.ecommercehub.gateway.concurrency.RequestPriority;
+import com.ecommercehub.gateway.loadbalancer.LoadBalancingStrategy;
+import lombok.Data;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The gateway's routes with their rate limits and breaker settings (gateway.route-table.*)
+ * <p>
+ * Not a bean: {@link SnapshotRouteLocator} binds it straight from the environment on
+ * start-up and after every config refresh, so each reload gets its own objects to
+ * compare against the live snapshot.
+ */
+@Data
+public class RouteTableProperties {
+
+    public static final String PREFIX = "gateway.route-table";
+
+    /**
+     * Routes keyed by route id
+     */
+    private Map<String, RouteSpec> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class RouteSpec {
+
+        /**
+         * Path patterns, e.g. /api/products/**
+         */
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Allowed methods; empty allows all
+         */
+        private List<HttpMethod> methods = new ArrayList<>();
+
+        private URI uri;
+
+        private int order;
+
+        /**
+         * Shedding priority for the concurrency limiter
+         */
+        private RequestPriority priority = RequestPriority.NORMAL;
+
+        /**
+         * Serve GETs from the response cache
+         */
+        private boolean cache;
+
+        /**
+         * gzip/deflate responses for clients that accept it
+         */
+        private boolean compress;
+
+        /**
+         * Share one upstream call between identical concurrent GETs
+         */
+        private boolean coalesce;
+
+        /**
+         * Record last-known-good GET responses for the fallback
+         */
+        private boolean staleResponses;
+
+        /**
+         * Hedge slow GETs to a second instance; needs a circuit breaker
+         */
+        private boolean hedge;
+
+        /**
+         * Instance selection; unset uses gateway.load-balancer.default-strategy
+         */
+        private LoadBalancingStrategy loadBalancer;
+
+        /**
+         * Unset means no rate limiting
+         */
+        private RateLimit rateLimit;
+
+        /**
+         * Unset means no circuit breaker
+         */
+        private Breaker circuitBreaker;
+    }
+
+    @Data
+    public static class RateLimit {
+
+        private LimiterType limiter = LimiterType.HYBRID;
+        private KeyType key = KeyType.USER;
+        private int replenishRate = 10;
+        private int burstCapacity = 20;
+        private int requestedTokens = 1;
+
+        /**
+         * Request classes that cost more than one request; the first match wins
+         */
+        private List<CostRule> costs = new ArrayList<>();
+
+        /**
+         * Also charge each request class by the upstream latency it causes
+         */
+        private boolean adaptiveCost;
+
+        /**
+         * Upstream latency that costs one request, with adaptive cost on
+         */
+        private Duration referenceLatency = Duration.ofMillis(100);
+
+        /**
+         * Most a single request can cost, in requests
+         */
+        private int maxCost = 10;
+    }
+
+    @Data
+    public static class CostRule {
+
+        /**
+         * Request class, the class tag of gateway.ratelimit.cost
+         */
+        private String name;
+
+        /**
+         * Empty means any method
+         */
+        private List<HttpMethod> methods = new ArrayList<>();
+
+        /**
+         * Path patterns; empty means any path of the route
+         */
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * "name" (present) or "name=value"; all must match
+         */
+        private List<String> queryParams = new ArrayList<>();
+
+        /**
+         * In requests: the request costs cost x requestedTokens tokens
+         */
+        private int cost = 1;
+    }
+
+    public enum LimiterType {
+
+        /**
+         * Decides in memory, syncs quota to Redis in the background
+         */
+        HYBRID,
+
+        /**
+         * One Redis round trip per request
+         */
+        EXACT
+    }
+
+    public enum KeyType {
+
+        /**
+         * X-User-ID header, client IP without it
+         */
+        USER,
+
+        IP
+    }
+
+    @Data
+    public static class Breaker {
+
+        /**
+         * Defaults to "{route id}-cb"
+         */
+        private String name;
+
+        /**
+         * Defaults to "forward:/fallback/{route id}"
+         */
+        private String fallbackUri;
+
+        private Duration timeout = Duration.ofSeconds(5);
+        private int slidingWindowSize = 10;
+        private int minimumNumberOfCalls = 5;
+        private float failureRateThreshold = 50.0f;
+        private float slowCallRateThreshold = 80.0f;
+        private Duration slowCallDuration = Duration.ofSeconds(3);
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+    }
+}
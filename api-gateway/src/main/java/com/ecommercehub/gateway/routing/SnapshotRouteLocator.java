@@ -0,0 +1,154 @@
+package com.ecommercehub.gateway.routing;
+
+import com.ecommercehub.gateway.routing.RouteTableProperties.RouteSpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Route locator serving an immutable snapshot of the route table
+ * (gateway.route-table), swapped in whole when the config changes
+ * <p>
+ * A config refresh (config server + /actuator/refresh or the bus) that touches the
+ * route table builds the next snapshot off the request path:
+ * - routes whose entry did not change are carried over as they are, with their filter instances
+ * - new and changed routes are built fresh, then their limits and breaker settings are applied
+ * - the snapshot reference is swapped and a route refresh is published, so the gateway's
+ *   route cache and the route index pick it up
+ * <p>
+ * Readers never wait on a reload. Requests that already matched a route keep it and its
+ * filters until they complete, even if it is gone from the new snapshot. If any route
+ * fails to build, the whole reload is dropped and the current snapshot stays.
+ */
+@Slf4j
+public class SnapshotRouteLocator implements RouteLocator,
+        ApplicationListener<EnvironmentChangeEvent>, ApplicationEventPublisherAware {
+
+    private final RouteFactory routeFactory;
+    private final Environment environment;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    private ApplicationEventPublisher eventPublisher;
+
+    public SnapshotRouteLocator(RouteFactory routeFactory, Environment environment) {
+        this.routeFactory = routeFactory;
+        this.environment = environment;
+        reload(bind());
+    }
+
+    @Override
+    public Flux<Route> getRoutes() {
+        return Flux.fromIterable(snapshot.get().routes);
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().noneMatch(key -> key.startsWith(RouteTableProperties.PREFIX))) {
+            return;
+        }
+        try {
+            reload(bind());
+        } catch (RuntimeException e) {
+            log.error("Route table reload failed, keeping version {}", snapshot.get().version, e);
+        }
+    }
+
+    /**
+     * Build and publish the snapshot for the given table. Reloads are serialized;
+     * readers keep using the current snapshot until the swap.
+     */
+    synchronized Snapshot reload(RouteTableProperties table) {
+        Snapshot current = snapshot.get();
+        Map<String, RouteSpec> specs = new LinkedHashMap<>(table.getRoutes());
+        Map<String, Route> routes = new LinkedHashMap<>();
+        List<String> changed = new ArrayList<>();
+
+        for (Map.Entry<String, RouteSpec> entry : specs.entrySet()) {
+            String id = entry.getKey();
+            RouteSpec spec = entry.getValue();
+            Route existing = current.byId.get(id);
+            if (existing != null && spec.equals(current.specs.get(id))) {
+                routes.put(id, existing);
+            } else {
+                routes.put(id, routeFactory.build(id, spec));
+                changed.add(id);
+            }
+        }
+
+        // Everything built, only now touch the shared limiters and breakers
+        for (String id : changed) {
+            routeFactory.apply(id, specs.get(id));
+        }
+        List<String> removed = new ArrayList<>();
+        current.specs.forEach((id, spec) -> {
+            if (!specs.containsKey(id)) {
+                routeFactory.release(id, spec);
+                removed.add(id);
+            }
+        });
+
+        Snapshot next = new Snapshot(current.version + 1, specs, routes);
+        snapshot.set(next);
+        log.info("Route table version {} applied: {} routes, {} unchanged, changed/added {}, removed {}",
+                next.version, routes.size(), routes.size() - changed.size(), changed, removed);
+
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new RefreshRoutesEvent(this));
+        }
+        return next;
+    }
+
+    Snapshot current() {
+        return snapshot.get();
+    }
+
+    private RouteTableProperties bind() {
+        return Binder.get(environment)
+                .bind(RouteTableProperties.PREFIX, RouteTableProperties.class)
+                .orElseGet(RouteTableProperties::new);
+    }
+
+    /**
+     * One version of the route table and the routes built from it; never modified
+     */
+    static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0, Map.of(), Map.of());
+
+        final long version;
+        final Map<String, RouteSpec> specs;
+        final Map<String, Route> byId;
+        final List<Route> routes;
+
+        Snapshot(long version, Map<String, RouteSpec> specs, Map<String, Route> byId) {
+            this.version = version;
+            this.specs = Collections.unmodifiableMap(specs);
+            this.byId = Collections.unmodifiableMap(byId);
+            this.routes = List.copyOf(byId.values());
+        }
+
+        Route route(String id) {
+            return byId.get(id);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.ecommercehub.gateway.upstream;
+
+import io.netty.resolver.AddressResolverGroup;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.TransportConfig;
+
+import java.net.SocketAddress;
+import java.util.function.Supplier;
+
+/**
+ * Connection provider of the gateway's HTTP client that picks the pool of the target instance
+ * <p>
+ * Requests to registry instances use that instance's pool from {@link UpstreamPools};
+ * anything else (static URIs, instances not seen yet) falls back to the pool built from
+ * spring.cloud.gateway.httpclient.pool.
+ */
+public class InstanceConnectionProvider implements ConnectionProvider {
+
+    private final UpstreamPools pools;
+    private final ConnectionProvider fallback;
+
+    public InstanceConnectionProvider(UpstreamPools pools, ConnectionProvider fallback) {
+        this.pools = pools;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Mono<? extends Connection> acquire(TransportConfig config, ConnectionObserver connectionObserver,
+                                              Supplier<? extends SocketAddress> remoteAddress,
+                                              AddressResolverGroup<?> resolverGroup) {
+        SocketAddress address = remoteAddress != null ? remoteAddress.get() : null;
+        UpstreamPools.InstancePool pool = pools.find(address);
+        if (pool == null) {
+            return fallback.acquire(config, connectionObserver, remoteAddress, resolverGroup);
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return pool.provider.acquire(config, connectionObserver, () -> address, resolverGroup)
+                    .doOnSuccess(connection -> pool.recordAcquire(System.nanoTime() - start, true))
+                    .doOnError(e -> pool.recordAcquire(System.nanoTime() - start, false));
+        });
+    }
+
+    @Override
+    public void dispose() {
+        disposeLater().block();
+    }
+
+    @Override
+    public Mono<Void> disposeLater() {
+        return Mono.when(pools.closeAll(), fallback.disposeLater());
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return fallback.isDisposed();
+    }
+
+    @Override
+    public int maxConnections() {
+        return fallback.maxConnections();
+    }
+
+    @Override
+    public String name() {
+        return fallback.name();
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecommercehub.gateway.upstream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the per-instance connection pools in step with the service registry
+ * <p>
+ * Runs on start-up and after every registry fetch (the Eureka client publishes a
+ * HeartbeatEvent each time):
+ * - new instances get a pool, and warm-connections requests to warm-path open that
+ *   many connections right away, so the first real requests skip the TCP connect
+ * - pools of instances that left the registry are drained
+ * <p>
+ * The load balancer's instance cache lags the registry, so a new instance is normally
+ * warm before it receives traffic. An empty registry (e.g. before the first fetch) is
+ * ignored rather than draining every pool.
+ */
+@Slf4j
+@Component
+public class UpstreamPoolManager {
+
+    private final DiscoveryClient discoveryClient;
+    private final UpstreamPools pools;
+    private final UpstreamPoolProperties properties;
+    private final ObjectProvider<HttpClient> httpClient;
+    private final String applicationName;
+
+    public UpstreamPoolManager(DiscoveryClient discoveryClient,
+                               UpstreamPools pools,
+                               UpstreamPoolProperties properties,
+                               ObjectProvider<HttpClient> httpClient,
+                               @Value("${spring.application.name}") String applicationName) {
+        this.discoveryClient = discoveryClient;
+        this.pools = pools;
+        this.properties = properties;
+        this.httpClient = httpClient;
+        this.applicationName = applicationName;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, HeartbeatEvent.class})
+    public void onRegistryChange() {
+        if (properties.isEnabled()) {
+            sync();
+        }
+    }
+
+    synchronized void sync() {
+        List<ServiceInstance> added = new ArrayList<>();
+        Set<String> live = new HashSet<>();
+        for (String serviceId : discoveryClient.getServices()) {
+            if (serviceId.equalsIgnoreCase(applicationName)) {
+                continue;
+            }
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                live.add(UpstreamPools.address(instance.getHost(), instance.getPort()));
+                if (pools.open(instance)) {
+                    added.add(instance);
+                }
+            }
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+        for (String address : new ArrayList<>(pools.addresses())) {
+            if (!live.contains(address)) {
+                pools.retire(address);
+            }
+        }
+        added.forEach(this::warm);
+    }
+
+    private void warm(ServiceInstance instance) {
+        UpstreamPoolProperties.Pool settings = properties.pool(instance.getServiceId());
+        int connections = Math.min(settings.getWarmConnections(), settings.getMaxConnections());
+        HttpClient client = httpClient.getIfAvailable();
+        if (connections <= 0 || client == null) {
+            return;
+        }
+        String uri = instance.getUri().resolve(settings.getWarmPath()).toString();
+        String address = UpstreamPools.address(instance.getHost(), instance.getPort());
+
+        // Concurrent requests, so each one opens its own connection
+        Flux.range(0, connections)
+                .flatMap(i -> client.get()
+                        .uri(uri)
+                        .responseSingle((response, body) -> body.asByteArray().then())
+                        .timeout(properties.getWarmupTimeout())
+                        .thenReturn(true)
+                        .onErrorReturn(false), connections)
+                .filter(Boolean::booleanValue)
+                .count()
+                .subscribe(warmed -> log.info("Pre-warmed {}/{} connections to {} instance {}",
+                        warmed, connections, instance.getServiceId().toLowerCase(), address));
+    }
+}
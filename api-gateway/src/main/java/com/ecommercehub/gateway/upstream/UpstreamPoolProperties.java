@@ -0,0 +1,78 @@
+package com.ecommercehub.gateway.upstream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the per-instance upstream connection pools (gateway.upstream-pools.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.upstream-pools")
+public class UpstreamPoolProperties {
+
+    /**
+     * Off: every upstream shares the pool from spring.cloud.gateway.httpclient.pool
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long a pre-warm request may take before it is given up
+     */
+    private Duration warmupTimeout = Duration.ofSeconds(2);
+
+    /**
+     * How often idle and expired connections are closed in the background
+     */
+    private Duration evictionInterval = Duration.ofSeconds(15);
+
+    /**
+     * Pool settings of services without their own entry in services
+     */
+    private Pool defaults = new Pool();
+
+    /**
+     * Pool settings per service id, e.g. order-service; unset fields use the built-in defaults
+     */
+    private Map<String, Pool> services = new LinkedHashMap<>();
+
+    public Pool pool(String serviceId) {
+        Pool pool = services.get(serviceId.toLowerCase());
+        return pool != null ? pool : defaults;
+    }
+
+    @Data
+    public static class Pool {
+
+        /**
+         * Connections per instance
+         */
+        private int maxConnections = 50;
+
+        /**
+         * Requests that may wait for a connection per instance; beyond that they fail fast
+         */
+        private int pendingAcquireMaxCount = 200;
+
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+
+        /**
+         * Connections opened as soon as an instance shows up in the registry; 0 disables pre-warming
+         */
+        private int warmConnections = 2;
+
+        /**
+         * Path requested on a new instance to open its connections
+         */
+        private String warmPath = "/actuator/health";
+    }
+}
@@ -0,0 +1,195 @@
+package com.ecommercehub.gateway.upstream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One connection pool per upstream instance, keyed by host:port
+ * <p>
+ * Pools are opened and retired by {@link UpstreamPoolManager} as instances come and
+ * go in the registry and used through {@link InstanceConnectionProvider}. Sizes come
+ * from the instance's service (see {@link UpstreamPoolProperties}).
+ * <p>
+ * Meters per instance:
+ * - gateway.upstream.pool.connections{service,instance,state}: active and idle connections
+ * - gateway.upstream.pool.pending{service,instance}: requests waiting for a connection
+ * - gateway.upstream.pool.max{service,instance}: pool size
+ * - gateway.upstream.pool.acquire{service,instance,outcome}: time to get a connection,
+ *   including the connect when none was idle
+ */
+@Slf4j
+@Component
+public class UpstreamPools {
+
+    private final UpstreamPoolProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, InstancePool> pools = new ConcurrentHashMap<>();
+
+    public UpstreamPools(UpstreamPoolProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Opens a pool for the instance; false if it already has one
+     */
+    public boolean open(ServiceInstance instance) {
+        String address = address(instance.getHost(), instance.getPort());
+        if (pools.containsKey(address)) {
+            return false;
+        }
+        String serviceId = instance.getServiceId().toLowerCase();
+        UpstreamPoolProperties.Pool settings = properties.pool(serviceId);
+        InstancePool pool = new InstancePool(serviceId, address, settings, properties, meterRegistry);
+        if (pools.putIfAbsent(address, pool) != null) {
+            pool.provider.dispose();
+            return false;
+        }
+        log.info("Opened connection pool for {} instance {} (max {} connections)",
+                serviceId, address, settings.getMaxConnections());
+        return true;
+    }
+
+    /**
+     * Closes an instance's idle connections now and the busy ones as their requests finish
+     */
+    public void retire(String address) {
+        InstancePool pool = pools.remove(address);
+        if (pool == null) {
+            return;
+        }
+        log.info("Draining connection pool for {} instance {}", pool.serviceId, address);
+        pool.provider.disposeLater()
+                .doFinally(signal -> pool.removeMeters())
+                .subscribe(null, e -> log.warn("Failed to drain connection pool for {}: {}", address, e.toString()));
+    }
+
+    public Set<String> addresses() {
+        return pools.keySet();
+    }
+
+    Mono<Void> closeAll() {
+        return Flux.fromIterable(pools.keySet())
+                .flatMap(address -> {
+                    InstancePool pool = pools.remove(address);
+                    return pool != null ? pool.provider.disposeLater().doFinally(s -> pool.removeMeters()) : Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * The pool of the instance behind a remote address, or null for hosts outside the registry
+     */
+    InstancePool find(SocketAddress remoteAddress) {
+        if (remoteAddress instanceof InetSocketAddress inet && !pools.isEmpty()) {
+            return pools.get(address(inet.getHostString(), inet.getPort()));
+        }
+        return null;
+    }
+
+    public static String address(String host, int port) {
+        return host + ":" + port;
+    }
+
+    /**
+     * Connection pool of one instance with its meters
+     */
+    static final class InstancePool implements ConnectionProvider.MeterRegistrar {
+
+        final String serviceId;
+        final String address;
+        final ConnectionProvider provider;
+        private final MeterRegistry meterRegistry;
+        private final Tags tags;
+        private final Timer acquired;
+        private final Timer failed;
+        private final List<Meter> meters = new CopyOnWriteArrayList<>();
+
+        InstancePool(String serviceId, String address, UpstreamPoolProperties.Pool settings,
+                     UpstreamPoolProperties properties, MeterRegistry meterRegistry) {
+            this.serviceId = serviceId;
+            this.address = address;
+            this.meterRegistry = meterRegistry;
+            this.tags = Tags.of("service", serviceId, "instance", address);
+            this.acquired = acquireTimer("acquired");
+            this.failed = acquireTimer("failed");
+            this.provider = ConnectionProvider.builder(serviceId + "@" + address)
+                    .maxConnections(settings.getMaxConnections())
+                    .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+                    .pendingAcquireTimeout(settings.getPendingAcquireTimeout())
+                    .maxIdleTime(settings.getMaxIdleTime())
+                    .maxLifeTime(settings.getMaxLifeTime())
+                    .evictInBackground(properties.getEvictionInterval())
+                    .metrics(true, () -> this)
+                    .build();
+        }
+
+        void recordAcquire(long nanos, boolean success) {
+            (success ? acquired : failed).record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+            // Reactor Netty passes a wrapper nothing else holds on to: the gauges must keep it
+            // alive, or they read NaN after the next GC. removeMeters() lets go of it.
+            meters.add(Gauge.builder("gateway.upstream.pool.connections", metrics, ConnectionPoolMetrics::acquiredSize)
+                    .description("Connections to the instance by state")
+                    .tags(tags).tag("state", "active")
+                    .strongReference(true)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("gateway.upstream.pool.connections", metrics, ConnectionPoolMetrics::idleSize)
+                    .description("Connections to the instance by state")
+                    .tags(tags).tag("state", "idle")
+                    .strongReference(true)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("gateway.upstream.pool.pending", metrics, ConnectionPoolMetrics::pendingAcquireSize)
+                    .description("Requests waiting for a connection to the instance")
+                    .tags(tags)
+                    .strongReference(true)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("gateway.upstream.pool.max", metrics, ConnectionPoolMetrics::maxAllocatedSize)
+                    .description("Most connections the pool opens to the instance")
+                    .tags(tags)
+                    .strongReference(true)
+                    .register(meterRegistry));
+        }
+
+        /**
+         * Removes the pool's meters once it has been disposed
+         */
+        void removeMeters() {
+            meters.forEach(meterRegistry::remove);
+            meters.clear();
+            meterRegistry.remove(acquired);
+            meterRegistry.remove(failed);
+        }
+
+        private Timer acquireTimer(String outcome) {
+            return Timer.builder("gateway.upstream.pool.acquire")
+                    .description("Time to get a connection to the instance")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecommercehub.gateway.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogRingBufferTest {
+
+    private final AccessLogRingBuffer ring = new AccessLogRingBuffer(4, 2, 0, 0);
+
+    @Test
+    void discardedSlotIsSkippedWithoutStallingTheConsumer() {
+        publish("/a");
+        long failed = ring.tryClaim();
+        publish("/c");
+        ring.discard(failed);
+
+        assertThat(drainPaths()).containsExactly("/a", "/c");
+        assertThat(ring.droppedCount()).isEqualTo(1);
+        assertThat(ring.pending()).isZero();
+
+        // The slot is reused normally once the ring wraps
+        for (int i = 0; i < 4; i++) {
+            publish("/" + i);
+        }
+        assertThat(drainPaths()).containsExactly("/0", "/1", "/2", "/3");
+    }
+
+    private void publish(String path) {
+        long seq = ring.tryClaim();
+        ring.get(seq).set(0, 0, "GET", path, null, 200, "route", null, null, false);
+        ring.publish(seq);
+    }
+
+    private List<String> drainPaths() {
+        List<String> paths = new ArrayList<>();
+        ring.drain(record -> paths.add(record.path), 16);
+        return paths;
+    }
+}
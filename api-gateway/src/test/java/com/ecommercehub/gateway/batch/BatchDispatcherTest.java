@@ -0,0 +1,241 @@
+package com.ecommercehub.gateway.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchDispatcherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BatchProperties properties = new BatchProperties();
+    private final Map<String, ServerHttpRequest> received = new ConcurrentHashMap<>();
+    private final Map<String, String> receivedBodies = new ConcurrentHashMap<>();
+
+    private Function<ServerHttpRequest, Mono<Reply>> upstream = request -> Mono.just(Reply.json("{\"ok\":true}"));
+
+    // Stands in for the application's whole handler chain
+    private final HttpHandler httpHandler = (request, response) -> {
+        String path = request.getURI().getRawPath();
+        received.put(path, request);
+        return DataBufferUtils.join(request.getBody())
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                .doOnNext(body -> receivedBodies.put(path, body))
+                .then(Mono.defer(() -> upstream.apply(request)))
+                .flatMap(reply -> reply.writeTo(response));
+    };
+
+    private final BatchDispatcher dispatcher =
+            new BatchDispatcher(httpHandler, properties, objectMapper, meterRegistry);
+
+    @Test
+    void subRequestsCarryTheBatchHeadersPlusTheirOwn() {
+        MockServerWebExchange exchange = batch("""
+                {"requests": [
+                  {"id": "product", "path": "/api/products/42?fields=name", "headers": {"Accept-Language": "de"}},
+                  {"id": "cart", "method": "post", "path": "/api/cart/items", "body": {"productId": 42}}
+                ]}""");
+
+        List<BatchResult> results = run(exchange);
+
+        assertThat(results).extracting(BatchResult::getId).containsExactlyInAnyOrder("product", "cart");
+        ServerHttpRequest product = received.get("/api/products/42");
+        assertThat(product.getMethod()).isEqualTo(HttpMethod.GET);
+        assertThat(product.getURI().getQuery()).isEqualTo("fields=name");
+        assertThat(product.getHeaders().getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer token");
+        assertThat(product.getHeaders().getFirst(HttpHeaders.ACCEPT_LANGUAGE)).isEqualTo("de");
+        assertThat(product.getHeaders()).doesNotContainKeys(HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE,
+                HttpHeaders.ACCEPT_ENCODING);
+        assertThat(product.getId()).isEqualTo(exchange.getRequest().getId() + "-0");
+
+        ServerHttpRequest cart = received.get("/api/cart/items");
+        assertThat(cart.getMethod()).isEqualTo(HttpMethod.POST);
+        assertThat(cart.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(receivedBodies.get("/api/cart/items")).isEqualTo("{\"productId\":42}");
+        assertThat(meterRegistry.get("gateway.batch.size").summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void responseBodiesAreInlinedByContentType() {
+        upstream = request -> Mono.just(switch (request.getURI().getPath()) {
+            case "/api/products/1" -> Reply.json("{\"id\":1}");
+            case "/api/products/2" -> new Reply(HttpStatus.OK, MediaType.TEXT_PLAIN, "in stock".getBytes());
+            default -> new Reply(HttpStatus.NOT_FOUND, MediaType.APPLICATION_OCTET_STREAM, new byte[] {1, 2});
+        });
+
+        Map<String, BatchResult> results = byId(run(batch("""
+                {"requests": [
+                  {"id": "json", "path": "/api/products/1"},
+                  {"id": "text", "path": "/api/products/2"},
+                  {"id": "data", "path": "/api/products/3"}
+                ]}""")));
+
+        assertThat(results.get("json").getStatus()).isEqualTo(200);
+        assertThat(results.get("json").getBody().get("id").asInt()).isEqualTo(1);
+        assertThat(results.get("json").getHeaders()).containsEntry(HttpHeaders.CONTENT_TYPE, "application/json")
+                .doesNotContainKey(HttpHeaders.CONTENT_LENGTH);
+        assertThat(results.get("text").getText()).isEqualTo("in stock");
+        assertThat(results.get("text").getBody()).isNull();
+        assertThat(results.get("data").getStatus()).isEqualTo(404);
+        assertThat(results.get("data").getData()).containsExactly(1, 2);
+    }
+
+    @Test
+    void failedSubRequestsAreReportedWithoutFailingTheBatch() {
+        properties.setTimeout(Duration.ofMillis(200));
+        properties.setMaxResponseSize(DataSize.ofBytes(16));
+        upstream = request -> switch (request.getURI().getPath()) {
+            case "/api/slow" -> Mono.never();
+            case "/api/broken" -> Mono.error(new IllegalStateException("boom"));
+            case "/api/large" -> Mono.just(Reply.json("{\"items\":[1,2,3,4,5,6,7,8,9]}"));
+            default -> Mono.just(Reply.json("{}"));
+        };
+
+        Map<String, BatchResult> results = byId(run(batch("""
+                {"requests": [
+                  {"id": "slow", "path": "/api/slow"},
+                  {"id": "broken", "path": "/api/broken"},
+                  {"id": "large", "path": "/api/large"},
+                  {"id": "fine", "path": "/api/fine"}
+                ]}""")));
+
+        assertThat(results.get("slow").getStatus()).isEqualTo(504);
+        assertThat(results.get("broken").getStatus()).isEqualTo(502);
+        assertThat(results.get("large").getStatus()).isEqualTo(502);
+        assertThat(results.get("large").getError()).contains("16 bytes");
+        assertThat(results.get("fine").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void subRequestsRunInParallelUpToTheLimit() {
+        properties.setMaxConcurrency(3);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        upstream = request -> Mono.defer(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            // Leaves before it answers, so the next sub-request cannot overlap it
+            return Mono.delay(Duration.ofMillis(50))
+                    .doOnNext(tick -> inFlight.decrementAndGet())
+                    .thenReturn(Reply.json("{}"));
+        });
+
+        List<BatchResult> results = run(batch("""
+                {"requests": [
+                  {"path": "/api/products/1"}, {"path": "/api/products/2"}, {"path": "/api/products/3"},
+                  {"path": "/api/products/4"}, {"path": "/api/products/5"}, {"path": "/api/products/6"}
+                ]}"""));
+
+        assertThat(results).extracting(BatchResult::getId).containsExactlyInAnyOrder("0", "1", "2", "3", "4", "5");
+        assertThat(maxInFlight).hasValue(3);
+    }
+
+    @Test
+    void missingIdsAndMethodsAreFilledIn() {
+        BatchRequest request = dispatcher.read(batch("""
+                {"requests": [{"path": "/api/products", "method": null}, {"id": "x", "path": "/api/cart"}]}"""))
+                .block();
+
+        assertThat(request.getRequests()).extracting(BatchRequest.Part::getId).containsExactly("0", "x");
+        assertThat(request.getRequests()).extracting(BatchRequest.Part::getMethod).containsExactly("GET", "GET");
+    }
+
+    @Test
+    void invalidBatchesAreRejected() {
+        properties.setMaxRequests(2);
+
+        assertRejected("{\"requests\": []}", HttpStatus.BAD_REQUEST, "no requests");
+        assertRejected("{\"requests\": [{\"path\": \"/a\"}, {\"path\": \"/b\"}, {\"path\": \"/c\"}]}",
+                HttpStatus.BAD_REQUEST, "at most 2");
+        assertRejected("{\"requests\": [{\"id\": \"a\", \"path\": \"/a\"}, {\"id\": \"a\", \"path\": \"/b\"}]}",
+                HttpStatus.BAD_REQUEST, "Duplicate request id a");
+        assertRejected("{\"requests\": [", HttpStatus.BAD_REQUEST, "Malformed");
+
+        MockServerWebExchange empty = MockServerWebExchange.from(MockServerHttpRequest.post(BatchDispatcher.PATH));
+        assertThatThrownBy(() -> dispatcher.read(empty).block())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getReason()).isEqualTo("Empty batch request"));
+    }
+
+    @Test
+    void pathsMustStayInsideTheGateway() {
+        for (String path : List.of("http://evil.example/api", "//evil.example/api", "api/products",
+                "/api/batch", "/api/products/../batch")) {
+            assertRejected("{\"requests\": [{\"path\": \"" + path + "\"}]}", HttpStatus.BAD_REQUEST, "Invalid path");
+        }
+    }
+
+    @Test
+    void oversizedBatchIsRejected() {
+        properties.setMaxRequestSize(DataSize.ofBytes(64));
+
+        assertRejected("{\"requests\": [{\"path\": \"/api/products?q=" + "x".repeat(100) + "\"}]}",
+                HttpStatus.PAYLOAD_TOO_LARGE, "64 bytes");
+    }
+
+    private void assertRejected(String body, HttpStatus status, String reason) {
+        assertThatThrownBy(() -> dispatcher.read(batch(body)).block())
+                .as(body)
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(status);
+                    assertThat(e.getReason()).contains(reason);
+                });
+    }
+
+    private List<BatchResult> run(MockServerWebExchange exchange) {
+        return dispatcher.read(exchange)
+                .flatMapMany(batch -> dispatcher.dispatch(exchange, batch))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+    }
+
+    private static Map<String, BatchResult> byId(List<BatchResult> results) {
+        return results.stream().collect(Collectors.toMap(BatchResult::getId, Function.identity()));
+    }
+
+    private static MockServerWebExchange batch(String body) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("http://gateway" + BatchDispatcher.PATH)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer token")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body));
+    }
+
+    private record Reply(HttpStatus status, MediaType type, byte[] body) {
+
+        static Reply json(String json) {
+            return new Reply(HttpStatus.OK, MediaType.APPLICATION_JSON, json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Mono<Void> writeTo(ServerHttpResponse response) {
+            response.setStatusCode(status);
+            response.getHeaders().setContentType(type);
+            response.getHeaders().setContentLength(body.length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        }
+    }
+}
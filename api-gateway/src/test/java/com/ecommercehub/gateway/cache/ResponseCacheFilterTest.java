@@ -0,0 +1,183 @@
+package com.ecommercehub.gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR;
+
+class ResponseCacheFilterTest {
+
+    private final ResponseCacheProperties properties = new ResponseCacheProperties();
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(properties, new SimpleMeterRegistry());
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @Test
+    void missCarriesTheEtagThatTheNextRequestRevalidatesWith() {
+        MockServerWebExchange miss = get(MockServerHttpRequest.get("/api/products/1"), headers -> { });
+
+        String etag = miss.getResponse().getHeaders().getETag();
+        assertThat(miss.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("MISS");
+        assertThat(miss.getResponse().getBodyAsString().block()).isEqualTo("product /api/products/1");
+        assertThat(etag).isNotBlank();
+
+        MockServerWebExchange revalidated = get(MockServerHttpRequest.get("/api/products/1").ifNoneMatch(etag),
+                headers -> { });
+
+        assertThat(revalidated.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidated.getResponse().getHeaders().getETag()).isEqualTo(etag);
+        assertThat(revalidated.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("HIT");
+        assertThat(revalidated.getResponse().getBodyAsString().block()).isEmpty();
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void upstreamEtagIsKeptAndAnOtherEtagGetsTheBody() {
+        Consumer<HttpHeaders> tagged = headers -> headers.setETag("\"v7\"");
+        MockServerWebExchange miss = get(MockServerHttpRequest.get("/api/products/2"), tagged);
+        assertThat(miss.getResponse().getHeaders().getETag()).isEqualTo("\"v7\"");
+
+        MockServerWebExchange weak = get(MockServerHttpRequest.get("/api/products/2").ifNoneMatch("W/\"v7\""), tagged);
+        MockServerWebExchange other = get(MockServerHttpRequest.get("/api/products/2").ifNoneMatch("\"v6\""), tagged);
+
+        assertThat(weak.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(other.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(other.getResponse().getBodyAsString().block()).isEqualTo("product /api/products/2");
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void keysOnPathQueryAndContentCoding() {
+        get(MockServerHttpRequest.get("/api/products?page=1"), headers -> { });
+        get(MockServerHttpRequest.get("/api/products?page=1"), headers -> { });
+        get(MockServerHttpRequest.get("/api/products?page=2"), headers -> { });
+        get(MockServerHttpRequest.get("/api/products?page=1").header(HttpHeaders.ACCEPT_ENCODING, "gzip"),
+                headers -> { });
+
+        assertThat(upstreamCalls).hasValue(3);
+        assertThat(ResponseCacheFilter.variantKey(MockServerHttpRequest.get("/api/products?page=1")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build())).isEqualTo("/api/products?page=1|gzip");
+        assertThat(ResponseCacheFilter.variantKey(MockServerHttpRequest.get("/api/products?page=1").build()))
+                .isEqualTo("/api/products?page=1");
+    }
+
+    @Test
+    void uncacheableResponsesGoUpstreamEveryTime() {
+        get(MockServerHttpRequest.get("/api/cart"), headers -> headers.setCacheControl("no-store"));
+        get(MockServerHttpRequest.get("/api/cart"), headers -> headers.setCacheControl("no-store"));
+        get(MockServerHttpRequest.get("/api/me"), headers -> headers.add(HttpHeaders.SET_COOKIE, "session=1"));
+        get(MockServerHttpRequest.get("/api/me"), headers -> headers.add(HttpHeaders.SET_COOKIE, "session=1"));
+
+        assertThat(upstreamCalls).hasValue(4);
+    }
+
+    @Test
+    void credentialedRequestsOnlyShareExplicitlyPublicResponses() {
+        // Stored from an anonymous request, then requested with credentials
+        get(MockServerHttpRequest.get("/api/products/6"), headers -> { });
+        MockServerWebExchange authorized = get(MockServerHttpRequest.get("/api/products/6")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer alice"), headers -> { });
+        assertThat(authorized.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER))
+                .isEqualTo("MISS");
+        assertThat(upstreamCalls).hasValue(2);
+
+        // Responses to credentialed requests are not stored for anyone else
+        get(MockServerHttpRequest.get("/api/products/7").header(HttpHeaders.COOKIE, "session=alice"),
+                headers -> headers.setCacheControl("max-age=60"));
+        MockServerWebExchange anonymous = get(MockServerHttpRequest.get("/api/products/7"), headers -> { });
+        assertThat(anonymous.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER))
+                .isEqualTo("MISS");
+        assertThat(upstreamCalls).hasValue(4);
+
+        // Unless the upstream says they may be shared
+        get(MockServerHttpRequest.get("/api/products/8").header(HttpHeaders.AUTHORIZATION, "Bearer alice"),
+                headers -> headers.setCacheControl("public, max-age=60"));
+        get(MockServerHttpRequest.get("/api/products/8").header(HttpHeaders.AUTHORIZATION, "Bearer bob"),
+                headers -> headers.setCacheControl("public, max-age=60"));
+        get(MockServerHttpRequest.get("/api/products/9").header(HttpHeaders.COOKIE, "session=alice"),
+                headers -> headers.setCacheControl("s-maxage=60"));
+        MockServerWebExchange shared = get(MockServerHttpRequest.get("/api/products/9"), headers -> { });
+        assertThat(shared.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER))
+                .isEqualTo("HIT");
+        assertThat(upstreamCalls).hasValue(6);
+    }
+
+    @Test
+    void fallbackResponsesAreNotStored() {
+        MockServerWebExchange fallback = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/4"));
+        fallback.getAttributes().put(CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR, new IllegalStateException("open"));
+        filter.filter(fallback, upstream(headers -> { })).block();
+        get(MockServerHttpRequest.get("/api/products/5"),
+                headers -> headers.set(ResponseCacheFilter.CACHE_STATUS_HEADER, "STALE"));
+
+        get(MockServerHttpRequest.get("/api/products/4"), headers -> { });
+        get(MockServerHttpRequest.get("/api/products/5"), headers -> { });
+
+        assertThat(upstreamCalls).hasValue(4);
+    }
+
+    @Test
+    void ttlComesFromCacheControlOrExpiresWithinTheMaximum() {
+        assertThat(filter.resolveTtl(headers("max-age=60, s-maxage=30"))).isEqualTo(Duration.ofSeconds(30));
+        assertThat(filter.resolveTtl(headers("public, max-age=60"))).isEqualTo(Duration.ofSeconds(60));
+        assertThat(filter.resolveTtl(headers("max-age=86400"))).isEqualTo(properties.getMaxTtl());
+        assertThat(filter.resolveTtl(new HttpHeaders())).isEqualTo(properties.getDefaultTtl());
+        assertThat(filter.resolveTtl(headers("max-age=0"))).isNull();
+        assertThat(filter.resolveTtl(headers("max-age=60, private"))).isNull();
+        assertThat(filter.resolveTtl(headers("no-cache"))).isNull();
+
+        HttpHeaders expired = new HttpHeaders();
+        expired.setExpires(System.currentTimeMillis() - 1000);
+        assertThat(filter.resolveTtl(expired)).isNull();
+    }
+
+    @Test
+    void entriesExpireAfterTheirTtl() throws InterruptedException {
+        get(MockServerHttpRequest.get("/api/products/3"), headers -> headers.setCacheControl("max-age=1"));
+        get(MockServerHttpRequest.get("/api/products/3"), headers -> headers.setCacheControl("max-age=1"));
+        assertThat(upstreamCalls).hasValue(1);
+
+        Thread.sleep(1100);
+        MockServerWebExchange afterTtl = get(MockServerHttpRequest.get("/api/products/3"),
+                headers -> headers.setCacheControl("max-age=1"));
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(afterTtl.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("MISS");
+    }
+
+    private MockServerWebExchange get(MockServerHttpRequest.BaseBuilder<?> request, Consumer<HttpHeaders> upstreamHeaders) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, upstream(upstreamHeaders)).block();
+        return exchange;
+    }
+
+    private GatewayFilterChain upstream(Consumer<HttpHeaders> upstreamHeaders) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            byte[] body = ("product " + exchange.getRequest().getPath().value()).getBytes(StandardCharsets.UTF_8);
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentLength(body.length);
+            upstreamHeaders.accept(response.getHeaders());
+            return response.writeWith(Flux.just(response.bufferFactory().wrap(body)));
+        };
+    }
+
+    private static HttpHeaders headers(String cacheControl) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(cacheControl);
+        return headers;
+    }
+}
@@ -0,0 +1,173 @@
+package com.ecommercehub.gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR;
+
+class StaleResponseRecorderTest {
+
+    private static final String ROUTE = "product-service";
+    private static final Duration MAX_STALENESS = Duration.ofMinutes(5);
+
+    @TempDir
+    Path dir;
+
+    private StaleResponseStore store;
+    private StaleResponseRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        StaleResponseProperties properties = new StaleResponseProperties();
+        properties.setFile(dir.resolve("stale.seg").toString());
+        properties.setSegmentSize(DataSize.ofMegabytes(1));
+        properties.setRefreshInterval(Duration.ofMillis(10));
+        properties.setMaxStaleness(MAX_STALENESS);
+        store = new StaleResponseStore(properties, new SimpleMeterRegistry());
+        recorder = new StaleResponseRecorder(store, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.destroy();
+    }
+
+    @Test
+    void staleReplayWhileTheBreakerIsOpenKeepsTheOriginalTimestamp() throws InterruptedException {
+        long before = System.currentTimeMillis();
+        get(upstream("product 1"));
+        long after = System.currentTimeMillis();
+        String key = key();
+
+        // The breaker stays open for longer than the refresh interval
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(30);
+            assertThat(store.needsRefresh(key, System.currentTimeMillis())).isTrue();
+            MockServerWebExchange replayed = get(openBreaker());
+            assertThat(replayed.getResponse().getBodyAsString().block()).isEqualTo("product 1");
+        }
+
+        assertThat(store.lookup(ROUTE, key, before + MAX_STALENESS.toMillis())).isNotNull();
+        // Had a replay been recorded, the entry would still be young here
+        assertThat(store.lookup(ROUTE, key, after + MAX_STALENESS.toMillis() + 1)).isNull();
+    }
+
+    @Test
+    void upstreamResponsesRefreshTheEntryAfterTheInterval() throws InterruptedException {
+        get(upstream("product 1"));
+        Thread.sleep(30);
+        long before = System.currentTimeMillis();
+        get(upstream("product 1, updated"));
+
+        StaleResponseStore.StaleResponse stale = store.lookup(ROUTE, key(), before + MAX_STALENESS.toMillis());
+        assertThat(stale).isNotNull();
+        assertThat(new String(stale.getBody(), StandardCharsets.UTF_8)).isEqualTo("product 1, updated");
+    }
+
+    @Test
+    void responsesToCredentialedRequestsAreRecordedOnlyWhenPublic() {
+        long now = System.currentTimeMillis();
+        MockServerWebExchange personal = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer alice"));
+        recorder.filter(personal, upstream("alice's product 1")).block();
+        assertThat(store.lookup(ROUTE, key(), now)).isNull();
+
+        HttpHeaders publicHeaders = new HttpHeaders();
+        publicHeaders.setCacheControl("public, max-age=60");
+        MockServerWebExchange shared = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer alice"));
+        recorder.filter(shared, exchange -> write(exchange.getResponse(),
+                "product 1".getBytes(StandardCharsets.UTF_8), publicHeaders)).block();
+        assertThat(store.lookup(ROUTE, key(), now)).isNotNull();
+    }
+
+    @Test
+    void longHeaderValuesRoundTrip() {
+        String link = "<https://cdn.example.com/p/1>; rel=preload, ".repeat(1000);
+        assertThat(link.length()).isGreaterThan(40_000);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LINK, link);
+        headers.add(HttpHeaders.CONTENT_TYPE, "application/json");
+
+        HttpHeaders decoded = StaleResponseStore.decode(StaleResponseStore.encode(headers));
+
+        assertThat(decoded.getFirst(HttpHeaders.LINK)).isEqualTo(link);
+        assertThat(decoded.getFirst(HttpHeaders.CONTENT_TYPE)).isEqualTo("application/json");
+    }
+
+    @Test
+    void servedBodyIsNotChangedByLaterStores() {
+        long now = System.currentTimeMillis();
+        byte[] first = new byte[300 * 1024];
+        Arrays.fill(first, (byte) 'a');
+        store.store("/api/products/1", 200, new HttpHeaders(), first, now);
+        StaleResponseStore.StaleResponse served = store.lookup(ROUTE, "/api/products/1", now);
+
+        // Cycles the 1 MB ring past the first record
+        for (int i = 2; i < 6; i++) {
+            byte[] other = new byte[300 * 1024];
+            Arrays.fill(other, (byte) ('a' + i));
+            store.store("/api/products/" + i, 200, new HttpHeaders(), other, now);
+        }
+
+        assertThat(store.lookup(ROUTE, "/api/products/1", now)).isNull();
+        assertThat(served.getBody()).isEqualTo(first);
+    }
+
+    private MockServerWebExchange get(GatewayFilterChain chain) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+        recorder.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static String key() {
+        return ResponseCacheFilter.cacheKey(MockServerHttpRequest.get("/api/products/1").build());
+    }
+
+    private static GatewayFilterChain upstream(String body) {
+        return exchange -> write(exchange.getResponse(), body.getBytes(StandardCharsets.UTF_8), new HttpHeaders());
+    }
+
+    /**
+     * What the breaker does when it is open: marks the exchange and lets the fallback
+     * replay the stored response, as FallbackController does
+     */
+    private GatewayFilterChain openBreaker() {
+        return exchange -> {
+            exchange.getAttributes().put(CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR, new IllegalStateException("open"));
+            String key = exchange.getAttribute(StaleResponseRecorder.STALE_KEY_ATTR);
+            StaleResponseStore.StaleResponse stale = store.lookup(ROUTE, key, System.currentTimeMillis());
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(stale.getHeaders());
+            headers.set(HttpHeaders.AGE, Long.toString(stale.getAgeSeconds()));
+            headers.set(ResponseCacheFilter.CACHE_STATUS_HEADER, "STALE");
+            return write(exchange.getResponse(), stale.getBody(), headers);
+        };
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, byte[] body, HttpHeaders headers) {
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().putAll(headers);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Flux.just(response.bufferFactory().wrap(body)));
+    }
+}
@@ -0,0 +1,49 @@
+package com.ecommercehub.gateway.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentEncodingTest {
+
+    @Test
+    void highestQualityWinsAndGzipOnATie() {
+        assertThat(negotiate("gzip, deflate")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(negotiate("deflate, gzip")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(negotiate("gzip;q=0.5, deflate;q=0.8")).isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(negotiate("deflate")).isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(negotiate("br, GZIP;Q=0.3")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(ContentEncoding.negotiate(List.of("br;q=1.0", "deflate;q=0.2"))).isEqualTo(ContentEncoding.DEFLATE);
+    }
+
+    @Test
+    void zeroQualityRulesACodingOut() {
+        assertThat(negotiate("gzip;q=0, deflate")).isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(negotiate("gzip;q=0, deflate;q=0")).isNull();
+        assertThat(negotiate("gzip;q=abc")).isNull();
+    }
+
+    @Test
+    void wildcardCoversCodingsNotNamed() {
+        assertThat(negotiate("*")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(negotiate("gzip;q=0, *")).isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(negotiate("*;q=0.1, deflate;q=0.5")).isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(negotiate("*;q=0")).isNull();
+    }
+
+    @Test
+    void identityDoesNotSelectACoding() {
+        assertThat(negotiate("identity")).isNull();
+        assertThat(negotiate("identity;q=0")).isNull();
+        assertThat(negotiate("identity;q=0, gzip")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(negotiate("br")).isNull();
+        assertThat(ContentEncoding.negotiate(null)).isNull();
+        assertThat(ContentEncoding.negotiate(List.of())).isNull();
+    }
+
+    private static ContentEncoding negotiate(String acceptEncoding) {
+        return ContentEncoding.negotiate(List.of(acceptEncoding));
+    }
+}
@@ -0,0 +1,208 @@
+package com.ecommercehub.gateway.compression;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCompressionFilterTest {
+
+    private static final byte[] JSON = json();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCompressionFilter filter = new ResponseCompressionFilter(
+            new ResponseCompressor(new CompressionProperties(), meterRegistry));
+    private final AtomicReference<HttpHeaders> upstreamRequestHeaders = new AtomicReference<>();
+
+    @Test
+    void gzipOutputRoundTripsThroughGzipInputStream() throws IOException {
+        MockServerWebExchange exchange = get("gzip", JSON, MediaType.APPLICATION_JSON, headers -> { });
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        byte[] compressed = body(exchange.getResponse());
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(headers.getVary()).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(headers.containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+        assertThat(compressed.length).isLessThan(JSON.length / 4);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            // GZIPInputStream also checks the CRC and length in the trailer
+            assertThat(in.readAllBytes()).isEqualTo(JSON);
+        }
+        assertThat(upstreamRequestHeaders.get().containsKey(HttpHeaders.ACCEPT_ENCODING)).isFalse();
+        assertThat(outcome("compressed")).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.compression.bytes.in").counter().count()).isEqualTo(JSON.length);
+    }
+
+    @Test
+    void deflateOutputRoundTripsThroughInflater() throws DataFormatException {
+        MockServerWebExchange exchange = get("deflate", JSON, MediaType.APPLICATION_JSON, headers -> { });
+
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("deflate");
+        assertThat(inflate(body(exchange.getResponse()))).isEqualTo(JSON);
+    }
+
+    @Test
+    void pooledDeflatersStartOverForEveryResponse() throws IOException, DataFormatException {
+        for (int i = 0; i < 3; i++) {
+            byte[] body = ("{\"round\": " + i + ", \"items\": " + new String(JSON, StandardCharsets.UTF_8) + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+
+            byte[] gzipped = body(get("gzip", body, MediaType.APPLICATION_JSON, headers -> { }).getResponse());
+            byte[] deflated = body(get("deflate", body, MediaType.APPLICATION_JSON, headers -> { }).getResponse());
+
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+                assertThat(in.readAllBytes()).isEqualTo(body);
+            }
+            assertThat(inflate(deflated)).isEqualTo(body);
+        }
+    }
+
+    @Test
+    void strongEtagBecomesWeak() {
+        MockServerWebExchange exchange = get("gzip", JSON, MediaType.APPLICATION_JSON,
+                headers -> headers.setETag("\"v1\""));
+
+        assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo("W/\"v1\"");
+    }
+
+    @Test
+    void alreadyEncodedBodiesGoOutAsTheyAre() {
+        MockServerWebExchange exchange = get("gzip", JSON, MediaType.APPLICATION_JSON,
+                headers -> headers.set(HttpHeaders.CONTENT_ENCODING, "br"));
+
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("br");
+        assertThat(body(exchange.getResponse())).isEqualTo(JSON);
+        assertThat(outcome("encoded")).isEqualTo(1);
+    }
+
+    @Test
+    void smallBodiesGoOutAsTheyAre() {
+        byte[] small = "{\"id\": 1}".getBytes(StandardCharsets.UTF_8);
+        MockServerWebExchange exchange = get("gzip", small, MediaType.APPLICATION_JSON, headers -> { });
+
+        assertThat(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(exchange.getResponse().getHeaders().getContentLength()).isEqualTo(small.length);
+        assertThat(body(exchange.getResponse())).isEqualTo(small);
+        assertThat(outcome("small")).isEqualTo(1);
+    }
+
+    @Test
+    void nonCompressibleTypesGoOutAsTheyAre() {
+        MockServerWebExchange exchange = get("gzip", JSON, MediaType.IMAGE_PNG, headers -> { });
+
+        assertThat(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(exchange.getResponse().getHeaders().getVary()).doesNotContain(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(body(exchange.getResponse())).isEqualTo(JSON);
+        assertThat(outcome("type")).isEqualTo(1);
+    }
+
+    @Test
+    void clientsThatAcceptNoCodingGetThePlainBodyWithVary() {
+        MockServerWebExchange exchange = get("identity", JSON, MediaType.APPLICATION_JSON, headers -> { });
+
+        assertThat(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(exchange.getResponse().getHeaders().getVary()).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(body(exchange.getResponse())).isEqualTo(JSON);
+        assertThat(outcome("not-accepted")).isEqualTo(1);
+    }
+
+    private MockServerWebExchange get(String acceptEncoding, byte[] body, MediaType type,
+                                      Consumer<HttpHeaders> upstreamHeaders) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+        filter.filter(exchange, upstream(body, type, upstreamHeaders)).block();
+        return exchange;
+    }
+
+    /**
+     * Sends the body in 4 KB buffers, as the proxy does with the upstream's chunks
+     */
+    private GatewayFilterChain upstream(byte[] body, MediaType type, Consumer<HttpHeaders> upstreamHeaders) {
+        return exchange -> {
+            upstreamRequestHeaders.set(exchange.getRequest().getHeaders());
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(type);
+            response.getHeaders().setContentLength(body.length);
+            upstreamHeaders.accept(response.getHeaders());
+            List<DataBuffer> chunks = new ArrayList<>();
+            for (int offset = 0; offset < body.length; offset += 4096) {
+                chunks.add(response.bufferFactory().wrap(
+                        Arrays.copyOfRange(body, offset, Math.min(body.length, offset + 4096))));
+            }
+            return response.writeWith(Flux.fromIterable(chunks));
+        };
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("gateway.compression.responses").tag("outcome", outcome).counter().count();
+    }
+
+    private static byte[] body(MockServerHttpResponse response) {
+        return DataBufferUtils.join(response.getBody())
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .block();
+    }
+
+    private static byte[] inflate(byte[] deflated) throws DataFormatException {
+        // zlib-wrapped, as Content-Encoding: deflate requires
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            byte[] out = new byte[JSON.length * 2];
+            int length = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(out, length, out.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            assertThat(inflater.finished()).as("complete zlib stream").isTrue();
+            return Arrays.copyOf(out, length);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] json() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 400; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"id\": ").append(i)
+                    .append(", \"name\": \"Product ").append(i)
+                    .append("\", \"category\": \"electronics\", \"inStock\": true}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
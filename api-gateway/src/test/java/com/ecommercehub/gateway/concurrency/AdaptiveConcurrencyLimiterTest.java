@@ -0,0 +1,92 @@
+package com.ecommercehub.gateway.concurrency;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Which outcomes shrink a route's limit (initial 20, backoff 0.9)
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final Route ROUTE = Route.async().id("products").uri("http://localhost:8082")
+            .predicate(exchange -> true).build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GatewayFilter filter = new AdaptiveConcurrencyLimiter(new ConcurrencyLimitProperties(), meterRegistry)
+            .filter(RequestPriority.NORMAL);
+
+    @Test
+    void openBreakerFallbackIsNotADrop() {
+        run(fallback(CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("products"))));
+
+        assertThat(limit()).isEqualTo(20);
+    }
+
+    @Test
+    void fallbackForAnUnreachableUpstreamIsNotADrop() {
+        run(fallback(new ConnectException("Connection refused")));
+
+        assertThat(limit()).isEqualTo(20);
+    }
+
+    @Test
+    void fallbackForATimeoutIsADrop() {
+        run(fallback(new TimeoutException("Did not observe any item or terminal signal within 5000ms")));
+
+        assertThat(limit()).isEqualTo(18);
+    }
+
+    @Test
+    void upstreamServerErrorIsADrop() {
+        run(exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+            return exchange.getResponse().setComplete();
+        });
+
+        assertThat(limit()).isEqualTo(18);
+    }
+
+    @Test
+    void upstreamTimeoutErrorIsADrop() {
+        run(exchange -> Mono.error(new IllegalStateException(new TimeoutException("Response took longer than timeout"))));
+
+        assertThat(limit()).isEqualTo(18);
+    }
+
+    private void run(GatewayFilterChain chain) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        filter.filter(exchange, chain).onErrorResume(e -> Mono.empty()).block();
+    }
+
+    /**
+     * What the breaker filter does when it forwards to the route's fallback
+     */
+    private static GatewayFilterChain fallback(Throwable cause) {
+        return exchange -> {
+            exchange.getAttributes().put(CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR, cause);
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        };
+    }
+
+    private double limit() {
+        return meterRegistry.get("gateway.concurrency.limit").tag("route", "products").gauge().value();
+    }
+}
@@ -0,0 +1,216 @@
+package com.ecommercehub.gateway.hedging;
+
+import com.ecommercehub.gateway.metrics.GatewayLatencyMetrics;
+import com.ecommercehub.gateway.metrics.LatencySloProperties;
+import com.ecommercehub.gateway.outlier.OutlierDetectionProperties;
+import com.ecommercehub.gateway.outlier.OutlierDetector;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigurationProperties;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Requests hedged after 10 ms to a local server; the primary is a stand-in chain
+ */
+class RequestHedgerTest {
+
+    private static final String SERVICE = "product-service";
+    private static final String BREAKER = "products";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry breakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final ReactiveResilience4JCircuitBreakerFactory breakerFactory = new ReactiveResilience4JCircuitBreakerFactory(
+            breakerRegistry, TimeLimiterRegistry.ofDefaults(), new Resilience4JConfigurationProperties());
+    private final OutlierDetector outlierDetector = new OutlierDetector(new OutlierDetectionProperties(),
+            breakerFactory, meterRegistry);
+    private final CircuitBreaker routeBreaker = breakerRegistry.circuitBreaker(BREAKER);
+    private final ServiceInstance primary = new DefaultServiceInstance("primary", SERVICE, "10.0.0.1", 8082, false);
+
+    private HttpServer hedgeServer;
+    private volatile int hedgeStatus = 200;
+    private volatile String hedgeBody = "";
+    private volatile long hedgeDelayMillis;
+    private ServiceInstance hedgeTarget;
+    private RequestHedger hedger;
+
+    @BeforeEach
+    void start() throws IOException {
+        hedgeServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        hedgeServer.createContext("/", exchange -> {
+            try {
+                Thread.sleep(hedgeDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = hedgeBody.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(hedgeStatus, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            exchange.close();
+        });
+        hedgeServer.start();
+        hedgeTarget = new DefaultServiceInstance("hedge", SERVICE, "localhost", hedgeServer.getAddress().getPort(), false);
+
+        HedgingProperties properties = new HedgingProperties();
+        properties.setBudgetRatio(1.0);
+        properties.getRouteDelays().put(BREAKER, Duration.ofMillis(10));
+        hedger = new RequestHedger(properties, new GatewayLatencyMetrics(meterRegistry, new LatencySloProperties()),
+                breakerFactory, new StaticDiscovery(primary, hedgeTarget), outlierDetector, WebClient.builder(),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void stop() {
+        hedgeServer.stop(0);
+    }
+
+    @Test
+    void hedgeAnsweredWithServerErrorIsAFailureOfItsInstance() {
+        hedgeStatus = 503;
+
+        MockServerWebExchange exchange = hedge(neverAnswers());
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(exchange.getResponse().getHeaders().getFirst(RequestHedger.HEDGED_HEADER)).isEqualTo("true");
+        assertThat(outlierDetector.breaker(hedgeTarget).getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+        assertThat(outlierDetector.breaker(primary).getMetrics().getNumberOfBufferedCalls()).isZero();
+        assertThat(routeBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void successfulHedgeIsASuccessOfItsInstance() {
+        hedgeStatus = 204;
+
+        MockServerWebExchange exchange = hedge(neverAnswers());
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(outlierDetector.breaker(hedgeTarget).getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+        assertThat(outlierDetector.breaker(hedgeTarget).getMetrics().getNumberOfFailedCalls()).isZero();
+        assertThat(routeBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void winningHedgeBodyReachesTheClient() {
+        hedgeBody = "product 1 from the hedge";
+
+        MockServerWebExchange exchange = hedge(neverAnswers());
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst(RequestHedger.HEDGED_HEADER)).isEqualTo("true");
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("product 1 from the hedge");
+        assertThat(hedges("won")).isEqualTo(1);
+    }
+
+    @Test
+    void primaryAnsweringBeforeTheDelayIsNotHedged() {
+        MockServerWebExchange exchange = hedge(answers(Duration.ZERO));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("product 1");
+        assertThat(exchange.getResponse().getHeaders().containsKey(RequestHedger.HEDGED_HEADER)).isFalse();
+        assertThat(meterRegistry.find("gateway.hedging.requests").counters()).isEmpty();
+    }
+
+    @Test
+    void primaryAnsweringWhileTheHedgeIsInFlightWinsAndTheHedgeIsReleased() {
+        hedgeDelayMillis = 1000;
+        hedgeBody = "product 1 from the hedge";
+
+        MockServerWebExchange exchange = hedge(answers(Duration.ofMillis(200)));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("product 1");
+        assertThat(exchange.getResponse().getHeaders().containsKey(RequestHedger.HEDGED_HEADER)).isFalse();
+        assertThat(hedges("sent")).isEqualTo(1);
+        // The cancelled hedge is not counted against either breaker
+        assertThat(routeBreaker.getMetrics().getNumberOfBufferedCalls()).isZero();
+        assertThat(outlierDetector.breaker(hedgeTarget).getMetrics().getNumberOfBufferedCalls()).isZero();
+    }
+
+    private double hedges(String outcome) {
+        return meterRegistry.get("gateway.hedging.requests").tag("outcome", outcome).counter().count();
+    }
+
+    private static GatewayFilterChain neverAnswers() {
+        return primaryCall -> Mono.never();
+    }
+
+    /**
+     * A primary that writes its response after the given time, as the proxy would
+     */
+    private static GatewayFilterChain answers(Duration after) {
+        return primaryCall -> Mono.delay(after).then(Mono.defer(() -> {
+            ServerHttpResponse response = primaryCall.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            return response.writeWith(Mono.just(response.bufferFactory()
+                    .wrap("product 1".getBytes(StandardCharsets.UTF_8))));
+        }));
+    }
+
+    private MockServerWebExchange hedge(GatewayFilterChain primaryCall) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.async().id(BREAKER).uri("lb://" + SERVICE)
+                .predicate(e -> true).build());
+        exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(primary));
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("http://10.0.0.1:8082/api/products/1"));
+
+        hedger.filter(BREAKER).filter(exchange, primaryCall).block(Duration.ofSeconds(5));
+        return exchange;
+    }
+
+    private static final class StaticDiscovery implements ReactiveDiscoveryClient {
+
+        private final ServiceInstance[] instances;
+
+        StaticDiscovery(ServiceInstance... instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public String description() {
+            return "static";
+        }
+
+        @Override
+        public Flux<ServiceInstance> getInstances(String serviceId) {
+            return Flux.just(instances);
+        }
+
+        @Override
+        public Flux<String> getServices() {
+            return Flux.just(SERVICE);
+        }
+    }
+}
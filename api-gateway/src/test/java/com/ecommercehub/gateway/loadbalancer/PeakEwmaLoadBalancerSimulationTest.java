@@ -0,0 +1,144 @@
+package com.ecommercehub.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Discrete-event simulation of the balancer against synthetic instances
+ * <p>
+ * Requests arrive as a Poisson stream; each instance answers after its own
+ * (exponentially jittered) service time. Simulated time drives the statistics clock,
+ * so a minute of traffic runs in milliseconds.
+ */
+class PeakEwmaLoadBalancerSimulationTest {
+
+    private static final int INSTANCES = 4;
+    private static final double REQUESTS_PER_SECOND = 400;
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final InstanceStatsRegistry registry = new InstanceStatsRegistry(
+            new LoadBalancerProperties(), new SimpleMeterRegistry(), clock::get);
+    private final PeakEwmaLoadBalancer balancer = new PeakEwmaLoadBalancer(null, "product-service", registry);
+    private final List<ServiceInstance> instances = new ArrayList<>();
+
+    PeakEwmaLoadBalancerSimulationTest() {
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(new DefaultServiceInstance("product-service-" + i, "product-service",
+                    "10.0.0." + i, 8080, false));
+        }
+    }
+
+    @Test
+    void slowInstanceGetsLittleTraffic() {
+        SimulationResult result = simulate(Duration.ofSeconds(60), (instance, now) -> instance == 0 ? SLOW : FAST);
+
+        // Round robin would send 25% to the slow instance
+        assertThat(result.share(0)).isLessThan(0.05);
+        for (int i = 1; i < INSTANCES; i++) {
+            assertThat(result.share(i)).isBetween(0.25, 0.40);
+        }
+        // Round robin mean: 0.25 * 250ms + 0.75 * 20ms = 77.5ms
+        assertThat(result.meanLatencyMillis()).isLessThan(35);
+    }
+
+    @Test
+    void recoveredInstanceWinsTrafficBack() {
+        long slowUntil = TimeUnit.SECONDS.toNanos(30);
+        simulate(Duration.ofSeconds(30), (instance, now) -> instance == 0 && now < slowUntil ? SLOW : FAST);
+
+        SimulationResult afterRecovery = simulate(Duration.ofSeconds(60), (instance, now) -> FAST);
+
+        assertThat(afterRecovery.share(0)).isGreaterThan(0.15);
+    }
+
+    @Test
+    void failingFastInstanceIsNotPreferred() {
+        // Instance 0 answers immediately, but with errors recorded at the failure penalty
+        long penalty = registry.failurePenaltyNanos();
+        SimulationResult result = simulate(Duration.ofSeconds(60),
+                (instance, now) -> instance == 0 ? -penalty : FAST);
+
+        assertThat(result.share(0)).isLessThan(0.05);
+    }
+
+    /**
+     * Service time of an instance at a point in simulated time; a negative value is a
+     * failure that answers at once but is recorded with that (absolute) response time
+     */
+    private interface ServiceTime {
+        long nanos(int instance, long nowNanos);
+    }
+
+    private SimulationResult simulate(Duration duration, ServiceTime serviceTime) {
+        Random random = new Random(42);
+        PriorityQueue<Completion> pending = new PriorityQueue<>();
+        long[] picks = new long[INSTANCES];
+        long totalLatency = 0;
+        long requests = 0;
+        long end = clock.get() + duration.toNanos();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / REQUESTS_PER_SECOND;
+        long nextArrival = clock.get();
+
+        while (nextArrival < end) {
+            while (!pending.isEmpty() && pending.peek().atNanos <= nextArrival) {
+                Completion completion = pending.poll();
+                clock.set(completion.atNanos);
+                registry.stats(instances.get(completion.instance)).complete(completion.recordedNanos, clock.get());
+            }
+            clock.set(nextArrival);
+
+            ServiceInstance chosen = balancer.choose(instances, clock.get());
+            int index = instances.indexOf(chosen);
+            picks[index]++;
+            registry.stats(chosen).start();
+
+            long planned = serviceTime.nanos(index, clock.get());
+            long actual = planned < 0 ? 0 : (long) (planned * -Math.log(1 - random.nextDouble()));
+            long recorded = planned < 0 ? -planned : actual;
+            pending.add(new Completion(clock.get() + actual, index, recorded));
+            totalLatency += actual;
+            requests++;
+
+            nextArrival += (long) (meanGapNanos * -Math.log(1 - random.nextDouble()));
+        }
+        while (!pending.isEmpty()) {
+            Completion completion = pending.poll();
+            clock.set(completion.atNanos);
+            registry.stats(instances.get(completion.instance)).complete(completion.recordedNanos, clock.get());
+        }
+        return new SimulationResult(picks, requests, totalLatency);
+    }
+
+    private record Completion(long atNanos, int instance, long recordedNanos) implements Comparable<Completion> {
+
+        @Override
+        public int compareTo(Completion other) {
+            return Long.compare(atNanos, other.atNanos);
+        }
+    }
+
+    private record SimulationResult(long[] picks, long requests, long totalLatencyNanos) {
+
+        double share(int instance) {
+            return (double) picks[instance] / requests;
+        }
+
+        double meanLatencyMillis() {
+            return totalLatencyNanos / (double) requests / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ecommercehub.gateway.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExchangeTimingsTest {
+
+    private final ExchangeTimings timings = new ExchangeTimings(1_000);
+
+    @Test
+    void eachPhaseRunsUntilTheNextMarker() {
+        timings.mark(LatencyPhase.RATE_LIMITER, 1_100);
+        timings.mark(LatencyPhase.CIRCUIT_BREAKER, 1_300);
+        timings.mark(LatencyPhase.UPSTREAM, 1_600);
+        timings.markUpstreamEnd(2_600);
+
+        assertThat(timings.phaseNanos(LatencyPhase.RATE_LIMITER, 3_000)).isEqualTo(200);
+        assertThat(timings.phaseNanos(LatencyPhase.CIRCUIT_BREAKER, 3_000)).isEqualTo(300);
+        assertThat(timings.phaseNanos(LatencyPhase.UPSTREAM, 3_000)).isEqualTo(1_000);
+    }
+
+    @Test
+    void skippedPhaseRunsUntilTheNextMarkerThatWasReached() {
+        // Route without a circuit breaker
+        timings.mark(LatencyPhase.RATE_LIMITER, 1_100);
+        timings.mark(LatencyPhase.UPSTREAM, 1_600);
+
+        assertThat(timings.phaseNanos(LatencyPhase.RATE_LIMITER, 3_000)).isEqualTo(500);
+        assertThat(timings.phaseNanos(LatencyPhase.CIRCUIT_BREAKER, 3_000)).isEqualTo(-1);
+    }
+
+    @Test
+    void lastPhaseReachedRunsUntilTheEnd() {
+        // Rejected by the rate limiter
+        timings.mark(LatencyPhase.RATE_LIMITER, 1_100);
+
+        assertThat(timings.phaseNanos(LatencyPhase.RATE_LIMITER, 1_400)).isEqualTo(300);
+        assertThat(timings.phaseNanos(LatencyPhase.UPSTREAM, 1_400)).isEqualTo(-1);
+    }
+
+    @Test
+    void upstreamWithoutResponseHeadersRunsUntilTheEnd() {
+        timings.mark(LatencyPhase.UPSTREAM, 1_600);
+
+        assertThat(timings.phaseNanos(LatencyPhase.UPSTREAM, 2_100)).isEqualTo(500);
+    }
+
+    @Test
+    void repeatedMarkKeepsTheFirst() {
+        timings.mark(LatencyPhase.CIRCUIT_BREAKER, 1_300);
+        timings.mark(LatencyPhase.UPSTREAM, 1_600);
+        // Fallback forward runs the chain again
+        timings.mark(LatencyPhase.CIRCUIT_BREAKER, 2_000);
+
+        assertThat(timings.phaseNanos(LatencyPhase.CIRCUIT_BREAKER, 3_000)).isEqualTo(300);
+        assertThat(timings.startNanos()).isEqualTo(1_000);
+    }
+}
@@ -0,0 +1,75 @@
+package com.ecommercehub.gateway.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SloWindowTest {
+
+    private static final long MINUTE = 60_000;
+    // Not a multiple of the window, so bucket indexes do not start at zero
+    private static final long T0 = 1_000 * MINUTE + 17 * MINUTE;
+
+    private final SloWindow window = new SloWindow();
+
+    @Test
+    void burnRateIsBadRatioOverAllowedRatio() {
+        record(98, false, T0);
+        record(2, true, T0 + 30_000);
+
+        // 2% bad against a 1% budget
+        assertThat(window.burnRate(5, 0.99, T0 + 45_000)).isCloseTo(2.0, within(1e-9));
+        // 2% bad against a 4% budget
+        assertThat(window.burnRate(5, 0.96, T0 + 45_000)).isCloseTo(0.5, within(1e-9));
+    }
+
+    @Test
+    void noTrafficBurnsNothing() {
+        assertThat(window.burnRate(60, 0.99, T0)).isZero();
+    }
+
+    @Test
+    void anyErrorAgainstAPerfectTargetIsAnInfiniteBurn() {
+        record(1, true, T0);
+
+        assertThat(window.burnRate(5, 1.0, T0)).isInfinite();
+    }
+
+    @Test
+    void onlyTheRequestedMinutesCount() {
+        record(10, true, T0);
+        record(10, false, T0 + 10 * MINUTE);
+
+        assertThat(window.burnRate(5, 0.9, T0 + 10 * MINUTE)).isZero();
+        assertThat(window.burnRate(11, 0.9, T0 + 10 * MINUTE)).isCloseTo(5.0, within(1e-9));
+        // Capped at the one-hour window
+        assertThat(window.burnRate(120, 0.9, T0 + 10 * MINUTE)).isCloseTo(5.0, within(1e-9));
+    }
+
+    @Test
+    void bucketOfAnHourAgoIsResetWhenItsMinuteComesAround() {
+        record(10, true, T0);
+
+        // Same bucket, next hour
+        record(10, false, T0 + 60 * MINUTE);
+
+        assertThat(window.burnRate(60, 0.9, T0 + 60 * MINUTE)).isZero();
+    }
+
+    @Test
+    void bucketsOlderThanAnHourAreIgnoredBeforeTheyAreReused() {
+        record(10, true, T0);
+
+        // Nothing recorded since; the old bucket still holds its counts but is out of the window
+        assertThat(window.burnRate(60, 0.9, T0 + 59 * MINUTE)).isCloseTo(10.0, within(1e-9));
+        assertThat(window.burnRate(60, 0.9, T0 + 60 * MINUTE)).isZero();
+        assertThat(window.burnRate(60, 0.9, T0 + 61 * MINUTE)).isZero();
+    }
+
+    private void record(int count, boolean bad, long nowMillis) {
+        for (int i = 0; i < count; i++) {
+            window.record(bad, nowMillis);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.ecommercehub.gateway.outlier;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigurationProperties;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Four instances of one service, two failed calls open an instance's breaker
+ */
+class OutlierDetectorTest {
+
+    private static final String SERVICE = "product-service";
+    private static final String ROUTE_BREAKER = "product-service-cb";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry breakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final OutlierDetector detector = new OutlierDetector(properties(),
+            new ReactiveResilience4JCircuitBreakerFactory(breakerRegistry, TimeLimiterRegistry.ofDefaults(),
+                    new Resilience4JConfigurationProperties()),
+            meterRegistry);
+
+    private final ServiceInstance a = instance(1);
+    private final ServiceInstance b = instance(2);
+    private final ServiceInstance c = instance(3);
+    private final ServiceInstance d = instance(4);
+    private final List<ServiceInstance> instances = List.of(a, b, c, d);
+
+    @Test
+    void failingInstanceIsEjected() {
+        assertThat(detector.filter(SERVICE, instances)).containsExactly(a, b, c, d);
+
+        fail(a);
+
+        assertThat(detector.breaker(a).getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(detector.filter(SERVICE, instances)).containsExactly(b, c, d);
+        assertThat(detector.isAdmitted(a)).isFalse();
+        assertThat(events("ejected")).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.outlier.ejected.instances").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void noMoreThanMaxEjectionPercentAreEjected() {
+        detector.filter(SERVICE, instances);
+
+        fail(a);
+        fail(b);
+        fail(c);
+
+        // Half of four instances; the third failing one stays in rotation
+        assertThat(detector.filter(SERVICE, instances)).containsExactly(c, d);
+        assertThat(detector.breaker(c).getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(events("ejected")).isEqualTo(2);
+        assertThat(events("skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void halfOpenInstanceGetsOnlyItsProbes() {
+        detector.filter(SERVICE, instances);
+        fail(a);
+        CircuitBreaker breaker = detector.breaker(a);
+
+        breaker.transitionToHalfOpenState();
+        assertThat(detector.filter(SERVICE, instances)).containsExactly(a, b, c, d);
+
+        CircuitBreaker first = detector.acquire(a);
+        detector.acquire(a);
+        detector.acquire(a);
+        assertThat(detector.filter(SERVICE, instances)).containsExactly(b, c, d);
+        assertThat(detector.isAdmitted(a)).isFalse();
+
+        // A dropped probe frees its slot again
+        detector.release(a, first);
+        assertThat(detector.filter(SERVICE, instances)).containsExactly(a, b, c, d);
+
+        detector.acquire(a);
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(1, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(detector.filter(SERVICE, instances)).containsExactly(a, b, c, d);
+        assertThat(detector.acquire(a)).isSameAs(breaker);
+        assertThat(detector.isAdmitted(a)).isTrue();
+    }
+
+    @Test
+    void routeBreakerOpensOnlyWhenTooFewInstancesAreHealthy() {
+        CircuitBreaker routeBreaker = breakerRegistry.circuitBreaker(ROUTE_BREAKER);
+        assertThat(routeBreaker.getState()).isEqualTo(CircuitBreaker.State.DISABLED);
+
+        detector.filter(SERVICE, instances);
+        fail(a);
+        fail(b);
+        assertThat(routeBreaker.getState()).isEqualTo(CircuitBreaker.State.DISABLED);
+
+        fail(c);
+        assertThat(detector.healthyFraction(SERVICE)).isEqualTo(0.25);
+        assertThat(routeBreaker.getState()).isEqualTo(CircuitBreaker.State.FORCED_OPEN);
+
+        detector.breaker(a).transitionToClosedState();
+        assertThat(routeBreaker.getState()).isEqualTo(CircuitBreaker.State.DISABLED);
+    }
+
+    private void fail(ServiceInstance instance) {
+        for (int i = 0; i < 2; i++) {
+            CircuitBreaker breaker = detector.acquire(instance);
+            breaker.onError(1, TimeUnit.MILLISECONDS, new IllegalStateException("connection refused"));
+        }
+    }
+
+    private double events(String event) {
+        return meterRegistry.get("gateway.outlier.events").tag("event", event).counter().count();
+    }
+
+    private static OutlierDetectionProperties properties() {
+        OutlierDetectionProperties properties = new OutlierDetectionProperties();
+        properties.setSlidingWindowSize(2);
+        properties.setMinimumNumberOfCalls(2);
+        // Long enough that no breaker leaves OPEN on its own during a test
+        properties.setBaseEjectionTime(Duration.ofHours(1));
+        properties.setMaxEjectionTime(Duration.ofHours(1));
+        properties.getRouteBreakers().put(ROUTE_BREAKER, SERVICE);
+        return properties;
+    }
+
+    private static ServiceInstance instance(int n) {
+        return new DefaultServiceInstance("instance-" + n, SERVICE, "10.0.0." + n, 8082, false);
+    }
+}
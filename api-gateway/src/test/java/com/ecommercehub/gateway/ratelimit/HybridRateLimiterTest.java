@@ -0,0 +1,116 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HybridRateLimiterTest {
+
+    private static final String ROUTE = "product-service";
+    private static final Pattern HASH_TAG = Pattern.compile("\\{([^}]*)}");
+
+    private final InMemoryRedis redis = new InMemoryRedis();
+    private final HybridRateLimiter limiter = new HybridRateLimiter(redis, 1, 10, 1);
+
+    @Test
+    void newBucketIsNotChargedForCounterHistory() {
+        // Another node kept the key alive while this one restarted
+        redis.counters.put(HybridRateLimiter.redisKey(HybridRateLimiter.slotGroup(ROUTE + ":client"), ROUTE + ":client"),
+                5_000L);
+
+        assertThat(limiter.isAllowed(ROUTE, "client").block().isAllowed()).isTrue();
+        limiter.sync().block();
+
+        for (int i = 0; i < 9; i++) {
+            assertThat(limiter.isAllowed(ROUTE, "client").block().isAllowed()).isTrue();
+        }
+        assertThat(limiter.isAllowed(ROUTE, "client").block().isAllowed()).isFalse();
+    }
+
+    @Test
+    void requestsAreAdmittedWhileTheBucketCoversTheirCost() {
+        assertThat(isAllowed("client", 4)).isTrue();
+        assertThat(isAllowed("client", 4)).isTrue();
+        // 2 tokens left
+        assertThat(isAllowed("client", 4)).isFalse();
+        assertThat(isAllowed("client", 2)).isTrue();
+    }
+
+    @Test
+    void costAboveTheBurstCapacityTakesTheWholeBucket() {
+        RateLimiter.Response response = limiter.isAllowed(ROUTE, "client")
+                .contextWrite(context -> context.put(RequestCost.CONTEXT_KEY, 50L))
+                .block();
+
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getHeaders()).containsEntry(HybridRateLimiter.REQUESTED_TOKENS_HEADER, "10")
+                .containsEntry(HybridRateLimiter.REMAINING_HEADER, "0");
+        assertThat(isAllowed("client", 1)).isFalse();
+    }
+
+    @Test
+    void eachSyncCallStaysInOneClusterSlot() {
+        for (int i = 0; i < 200; i++) {
+            limiter.isAllowed(ROUTE, "client-" + i).block();
+        }
+        limiter.sync().block();
+
+        assertThat(redis.calls).hasSizeGreaterThan(1);
+        int synced = 0;
+        for (List<String> keys : redis.calls) {
+            assertThat(keys).extracting(HybridRateLimiterTest::hashTag).containsOnly(hashTag(keys.get(0)));
+            synced += keys.size();
+        }
+        assertThat(synced).isEqualTo(200);
+    }
+
+    private boolean isAllowed(String id, long cost) {
+        return limiter.isAllowed(ROUTE, id)
+                .contextWrite(context -> context.put(RequestCost.CONTEXT_KEY, cost))
+                .block()
+                .isAllowed();
+    }
+
+    private static String hashTag(String key) {
+        Matcher matcher = HASH_TAG.matcher(key);
+        assertThat(matcher.find()).as("hash tag in %s", key).isTrue();
+        return matcher.group(1);
+    }
+
+    /**
+     * Answers the sync script like Redis: INCRBY per key, returning the new totals
+     */
+    private static final class InMemoryRedis extends ReactiveStringRedisTemplate {
+
+        final Map<String, Long> counters = new ConcurrentHashMap<>();
+        final List<List<String>> calls = new CopyOnWriteArrayList<>();
+
+        InMemoryRedis() {
+            super(new LettuceConnectionFactory());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Flux<T> execute(RedisScript<T> script, List<String> keys, List<?> args) {
+            calls.add(List.copyOf(keys));
+            List<Long> totals = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                totals.add(counters.merge(keys.get(i), Long.parseLong(args.get(i + 1).toString()), Long::sum));
+            }
+            return Flux.just((T) totals);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reconciliation of a node's bucket with the cluster-wide Redis counter; the clock
+ * stands still, so no tokens refill unless a test moves it
+ */
+class LocalTokenBucketTest {
+
+    private static final long CAPACITY = 10;
+    private static final double RATE = 1;
+
+    private final LocalTokenBucket bucket = new LocalTokenBucket(CAPACITY, 0);
+
+    @Test
+    void firstSyncTakesCounterAsBaselineWithoutCharging() {
+        consume(1);
+        // Other nodes have kept the key alive with 1000 tokens of history
+        bucket.applyGlobal(1001, bucket.drainPending(), CAPACITY);
+
+        assertThat(consume(9)).isZero();
+    }
+
+    @Test
+    void laterSyncsChargeWhatOtherNodesConsumed() {
+        consume(1);
+        bucket.applyGlobal(1001, bucket.drainPending(), CAPACITY);
+
+        consume(2);
+        // Our 2 plus 5 from elsewhere
+        bucket.applyGlobal(1008, bucket.drainPending(), CAPACITY);
+
+        assertThat(consume(2)).isZero();
+        assertThat(consume(1)).isEqualTo(-1);
+    }
+
+    @Test
+    void recreatedCounterIsNotCharged() {
+        consume(1);
+        bucket.applyGlobal(1001, bucket.drainPending(), CAPACITY);
+
+        consume(1);
+        // Counter expired and started over
+        bucket.applyGlobal(1, bucket.drainPending(), CAPACITY);
+        consume(1);
+        bucket.applyGlobal(4, bucket.drainPending(), CAPACITY);
+
+        // 3 consumed here, 2 charged from elsewhere
+        assertThat(consume(5)).isZero();
+    }
+
+    @Test
+    void debtIsCappedAtOneBucket() {
+        consume(1);
+        bucket.applyGlobal(1, bucket.drainPending(), CAPACITY);
+        bucket.applyGlobal(1_000, 0, CAPACITY);
+
+        // 10 tokens of debt at 1 token/s: back to zero after 10 s, one token a second later
+        assertThat(bucket.tryConsume(1, RATE, CAPACITY, seconds(CAPACITY))).isEqualTo(-1);
+        assertThat(bucket.tryConsume(1, RATE, CAPACITY, seconds(CAPACITY + 1))).isZero();
+    }
+
+    @Test
+    void evictedBucketTakesNoMoreTokens() {
+        consume(1);
+        assertThat(bucket.evictIfIdle(seconds(60), seconds(30))).isFalse();
+        bucket.drainPending();
+
+        assertThat(bucket.evictIfIdle(seconds(60), seconds(30))).isTrue();
+        assertThat(bucket.tryConsume(1, RATE, CAPACITY, seconds(61))).isEqualTo(LocalTokenBucket.EVICTED);
+        assertThat(bucket.hasPending()).isFalse();
+    }
+
+    @Test
+    void failedSyncReportsTokensAgain() {
+        consume(3);
+        long drained = bucket.drainPending();
+        bucket.restorePending(drained, CAPACITY);
+        consume(1);
+
+        assertThat(bucket.drainPending()).isEqualTo(4);
+    }
+
+    private long consume(long tokens) {
+        return bucket.tryConsume(tokens, RATE, CAPACITY, 0);
+    }
+
+    private static long seconds(long seconds) {
+        return seconds * 1_000_000_000L;
+    }
+}
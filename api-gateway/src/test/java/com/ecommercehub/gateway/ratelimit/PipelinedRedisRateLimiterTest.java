@@ -0,0 +1,191 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelinedRedisRateLimiterTest {
+
+    private static final String ROUTE = "product-service";
+    private static final Duration WINDOW = Duration.ofMillis(1);
+
+    private final InMemoryRedis redis = new InMemoryRedis();
+    private final WindowScheduler scheduler = new WindowScheduler();
+    private final PipelinedRedisRateLimiter limiter = new PipelinedRedisRateLimiter(redis, 1, 2, 1)
+            .setBatchWindow(WINDOW)
+            .setMaxBatchSize(4)
+            .setScheduler(scheduler);
+
+    @Test
+    void checksWithinTheWindowShareOneScriptCall() {
+        List<RateLimiter.Response> responses = check("alice", "bob", "carol");
+
+        assertThat(redis.calls).isEmpty();
+        assertThat(scheduler.delays).containsExactly(WINDOW.toNanos());
+        scheduler.endWindow();
+
+        assertThat(redis.calls).hasSize(1);
+        assertThat(redis.calls.get(0)).containsExactly(
+                "request_rate_limiter.{alice}.tokens", "request_rate_limiter.{alice}.timestamp",
+                "request_rate_limiter.{bob}.tokens", "request_rate_limiter.{bob}.timestamp",
+                "request_rate_limiter.{carol}.tokens", "request_rate_limiter.{carol}.timestamp");
+        assertThat(responses).hasSize(3).allMatch(RateLimiter.Response::isAllowed);
+        assertThat(limiter.roundTripCount()).isEqualTo(1);
+        assertThat(limiter.checkCount()).isEqualTo(3);
+    }
+
+    @Test
+    void checksOfOneKeyInOneBatchSeeEachOther() {
+        List<RateLimiter.Response> responses = check("alice", "alice", "alice");
+        scheduler.endWindow();
+
+        assertThat(responses).extracting(RateLimiter.Response::isAllowed).containsExactly(true, true, false);
+        assertThat(responses).extracting(response -> response.getHeaders().get(RedisRateLimiter.REMAINING_HEADER))
+                .containsExactly("1", "0", "0");
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() {
+        List<RateLimiter.Response> responses = check("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+
+        assertThat(redis.calls).extracting(List::size).containsExactly(8, 8);
+        assertThat(responses).hasSize(8);
+
+        scheduler.endWindow();
+        assertThat(redis.calls).extracting(List::size).containsExactly(8, 8, 4);
+        assertThat(responses).hasSize(10);
+    }
+
+    @Test
+    void requestCostIsChargedAndReported() {
+        List<RateLimiter.Response> responses = new CopyOnWriteArrayList<>();
+        limiter.isAllowed(ROUTE, "alice")
+                .contextWrite(context -> context.put(RequestCost.CONTEXT_KEY, 5L))
+                .subscribe(responses::add);
+        scheduler.endWindow();
+
+        // Clamped to the burst capacity of 2
+        assertThat(redis.args.get(0)).containsExactly("1", "2", "2");
+        assertThat(responses.get(0).getHeaders())
+                .containsEntry(RedisRateLimiter.REQUESTED_TOKENS_HEADER, "2")
+                .containsEntry(RedisRateLimiter.REMAINING_HEADER, "0");
+    }
+
+    @Test
+    void routeConfigIsSentPerCheck() {
+        limiter.getConfig().put("search-service", new RedisRateLimiter.Config()
+                .setReplenishRate(10).setBurstCapacity(20).setRequestedTokens(3));
+
+        limiter.isAllowed("search-service", "alice").subscribe();
+        limiter.isAllowed(ROUTE, "alice").subscribe();
+        scheduler.endWindow();
+
+        assertThat(redis.args.get(0)).containsExactly("10", "20", "3", "1", "2", "1");
+    }
+
+    @Test
+    void redisFailureAllowsTheWholeBatch() {
+        redis.failing = true;
+
+        List<RateLimiter.Response> responses = check("alice", "alice", "alice");
+        scheduler.endWindow();
+
+        assertThat(responses).hasSize(3).allMatch(RateLimiter.Response::isAllowed);
+        assertThat(responses).extracting(response -> response.getHeaders().get(RedisRateLimiter.REMAINING_HEADER))
+                .containsOnly("-1");
+    }
+
+    private List<RateLimiter.Response> check(String... ids) {
+        List<RateLimiter.Response> responses = new CopyOnWriteArrayList<>();
+        for (String id : ids) {
+            limiter.isAllowed(ROUTE, id).subscribe(responses::add);
+        }
+        return responses;
+    }
+
+    /**
+     * Holds the scheduled flushes until the test ends the batch window
+     */
+    private static final class WindowScheduler implements Scheduler {
+
+        final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+        final List<Long> delays = new CopyOnWriteArrayList<>();
+
+        void endWindow() {
+            List<Runnable> due = List.copyOf(tasks);
+            tasks.clear();
+            due.forEach(Runnable::run);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            return schedule(task, 0, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            tasks.add(task);
+            delays.add(unit.toNanos(delay));
+            return () -> tasks.remove(task);
+        }
+
+        @Override
+        public Worker createWorker() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Runs the batch script's token bucket, with a clock that stands still
+     */
+    private static final class InMemoryRedis extends ReactiveStringRedisTemplate {
+
+        final Map<String, Long> tokens = new HashMap<>();
+        final List<List<String>> calls = new CopyOnWriteArrayList<>();
+        final List<List<String>> args = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+
+        InMemoryRedis() {
+            super(new LettuceConnectionFactory());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Flux<T> execute(RedisScript<T> script, List<String> keys, List<?> args) {
+            calls.add(List.copyOf(keys));
+            this.args.add(args.stream().map(Object::toString).toList());
+            if (failing) {
+                return Flux.error(new IllegalStateException("Redis is down"));
+            }
+            List<Long> results = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size() / 2; i++) {
+                long capacity = Long.parseLong(args.get(i * 3 + 1).toString());
+                long requested = Long.parseLong(args.get(i * 3 + 2).toString());
+                long available = tokens.getOrDefault(keys.get(i * 2), capacity);
+                boolean allowed = available >= requested;
+                long left = allowed ? available - requested : available;
+                tokens.put(keys.get(i * 2), left);
+                results.add(allowed ? 1L : 0L);
+                results.add(left);
+            }
+            return Mono.just((T) results).flux();
+        }
+    }
+}
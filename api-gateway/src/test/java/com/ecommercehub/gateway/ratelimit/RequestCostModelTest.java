@@ -0,0 +1,123 @@
+package com.ecommercehub.gateway.ratelimit;
+
+import com.ecommercehub.gateway.metrics.ExchangeTimings;
+import com.ecommercehub.gateway.metrics.LatencyPhase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCostModelTest {
+
+    private static final String ROUTE = "search-service";
+    private static final Duration REFERENCE = Duration.ofMillis(100);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCostModel model = new RequestCostModel(meterRegistry);
+
+    private final List<RequestCostRule> rules = List.of(
+            new RequestCostRule("facets", List.of(HttpMethod.GET), List.of("/api/search/**"), List.of("facets=all"), 5),
+            new RequestCostRule("search", List.of(), List.of("/api/search/**"), List.of(), 2));
+
+    @Test
+    void firstMatchingRuleSetsTheCost() {
+        GatewayFilter filter = model.filter(ROUTE, rules, 1, false, REFERENCE, 10);
+
+        assertThat(charge(filter, get("/api/search/products?facets=all"))).isEqualTo(5);
+        assertThat(charge(filter, get("/api/search/products?facets=brand"))).isEqualTo(2);
+        assertThat(charge(filter, post("/api/search/products?facets=all"))).isEqualTo(2);
+        assertThat(charge(filter, get("/api/products?facets=all"))).isEqualTo(1);
+    }
+
+    @Test
+    void costIsReturnedInTheHeaderAndRecordedPerClass() {
+        GatewayFilter filter = model.filter(ROUTE, rules, 1, false, REFERENCE, 10);
+        MockServerWebExchange exchange = get("/api/search/products?facets=all");
+
+        charge(filter, exchange);
+        charge(filter, get("/api/products"));
+
+        assertThat(exchange.getResponse().getHeaders().getFirst(RequestCost.HEADER)).isEqualTo("5");
+        assertThat(meterRegistry.get("gateway.ratelimit.cost").tag("route", ROUTE).tag("class", "facets")
+                .summary().totalAmount()).isEqualTo(5);
+        assertThat(meterRegistry.get("gateway.ratelimit.cost").tag("route", ROUTE).tag("class", "default")
+                .summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void costIsAMultipleOfRequestedTokensCappedAtMaxCost() {
+        GatewayFilter filter = model.filter(ROUTE, rules, 3, false, REFERENCE, 4);
+
+        assertThat(charge(filter, get("/api/search/products?facets=all"))).isEqualTo(12);
+        assertThat(charge(filter, get("/api/search/products"))).isEqualTo(6);
+    }
+
+    @Test
+    void adaptiveCostFollowsTheUpstreamLatencyOfTheClass() {
+        GatewayFilter filter = model.filter(ROUTE, rules, 1, true, REFERENCE, 10);
+
+        // First sample sets the average: 350 ms against 100 ms costs 4
+        assertThat(charge(filter, get("/api/products"), Duration.ofMillis(350))).isEqualTo(1);
+        assertThat(charge(filter, get("/api/products"), Duration.ofMillis(350))).isEqualTo(4);
+        // A rule's own cost stays the floor; other classes are not affected
+        assertThat(charge(filter, get("/api/search/products?facets=all"))).isEqualTo(5);
+    }
+
+    @Test
+    void adaptiveCostIsCappedAtMaxCost() {
+        GatewayFilter filter = model.filter(ROUTE, rules, 1, true, REFERENCE, 10);
+
+        charge(filter, get("/api/products"), Duration.ofSeconds(5));
+
+        assertThat(charge(filter, get("/api/products"))).isEqualTo(10);
+    }
+
+    @Test
+    void limiterClampsTheCostToTheBurstCapacity() {
+        assertThat(RequestCost.tokens(Context.of(RequestCost.CONTEXT_KEY, 50L), 1, 10)).isEqualTo(10);
+        assertThat(RequestCost.tokens(Context.of(RequestCost.CONTEXT_KEY, 0L), 1, 10)).isEqualTo(1);
+        assertThat(RequestCost.tokens(Context.empty(), 3, 10)).isEqualTo(3);
+    }
+
+    private static long charge(GatewayFilter filter, MockServerWebExchange exchange) {
+        return charge(filter, exchange, null);
+    }
+
+    /**
+     * Runs the filter; the chain stands in for the rate limiter and, if given, the upstream call
+     */
+    private static long charge(GatewayFilter filter, MockServerWebExchange exchange, Duration upstream) {
+        AtomicLong charged = new AtomicLong(-1);
+        GatewayFilterChain chain = ex -> Mono.deferContextual(context -> {
+            charged.set(context.get(RequestCost.CONTEXT_KEY));
+            if (upstream != null) {
+                ExchangeTimings timings = new ExchangeTimings(1);
+                timings.mark(LatencyPhase.UPSTREAM, 1);
+                timings.markUpstreamEnd(1 + upstream.toNanos());
+                ex.getAttributes().put(ExchangeTimings.ATTRIBUTE, timings);
+            }
+            return Mono.empty();
+        });
+        filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+        return charged.get();
+    }
+
+    private static MockServerWebExchange get(String uri) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+    }
+
+    private static MockServerWebExchange post(String uri) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post(uri));
+    }
+}
@@ -0,0 +1,187 @@
+package com.ecommercehub.gateway.registry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the client against a fake registry feed served from a sink
+ */
+class RegistryFeedClientTest {
+
+    private static final String SERVICE = "product-service";
+
+    private final List<String> lastEventIds = new CopyOnWriteArrayList<>();
+    private volatile Sinks.Many<String> frames;
+    private DisposableServer server;
+    private RegistryFeedClient client;
+
+    @BeforeEach
+    void start() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/registry/changes", (request, response) -> {
+                    frames = Sinks.many().unicast().onBackpressureBuffer();
+                    lastEventIds.add(String.valueOf(request.requestHeaders().get("Last-Event-ID")));
+                    return response.header("Content-Type", "text/event-stream")
+                            .sendString(frames.asFlux());
+                }))
+                .bindNow();
+
+        RegistryFeedProperties properties = new RegistryFeedProperties();
+        properties.setEnabled(true);
+        properties.setUrl(URI.create("http://localhost:" + server.port() + "/registry/changes"));
+        properties.setReconnectDelay(Duration.ofMillis(50));
+        client = new RegistryFeedClient(properties, WebClient.builder(), new ObjectMapper(), new SimpleMeterRegistry());
+        client.start();
+    }
+
+    @AfterEach
+    void stop() {
+        client.stop();
+        server.disposeNow();
+    }
+
+    @Test
+    void cancelledInstanceLeavesRotationWithinMilliseconds() {
+        awaitConnection(1);
+        emit("e1:3", "snapshot", snapshot("e1", 3, 1, 2, 3));
+        awaitUntil(() -> instanceIds().size() == 3);
+
+        RoundRobinLoadBalancer balancer = new RoundRobinLoadBalancer(new SimpleObjectProvider<>(
+                new RegistryFeedServiceInstanceListSupplier(SERVICE,
+                        new SimpleObjectProvider<>(new NoopServiceInstanceListSupplier()), client)), SERVICE);
+
+        long emitted = System.nanoTime();
+        emit("e1:4", "change", change(4, "CANCELLED", 2));
+        // Three choices in a row without instance 2: round robin over three would have reached it
+        int cleanChoices = 0;
+        while (cleanChoices < 3) {
+            String chosen = balancer.choose(new DefaultRequest<>()).block().getServer().getInstanceId();
+            cleanChoices = chosen.equals(instanceId(2)) ? 0 : cleanChoices + 1;
+            assertThat(System.nanoTime() - emitted).isLessThan(Duration.ofSeconds(5).toNanos());
+        }
+        Duration propagation = Duration.ofNanos(System.nanoTime() - emitted);
+
+        // Against 30 s polling plus 30 s of response cache
+        assertThat(propagation).isLessThan(Duration.ofMillis(500));
+        assertThat(instanceIds()).containsExactlyInAnyOrder(instanceId(1), instanceId(3));
+    }
+
+    @Test
+    void sequenceGapStartsOverFromSnapshot() {
+        awaitConnection(1);
+        emit("e1:3", "snapshot", snapshot("e1", 3, 1, 2, 3));
+        awaitUntil(() -> instanceIds().size() == 3);
+
+        // Change 5 without change 4
+        emit("e1:5", "change", change(5, "CANCELLED", 1));
+        awaitConnection(2);
+        assertThat(lastEventIds.get(1)).isEqualTo("null");
+
+        emit("e1:9", "snapshot", snapshot("e1", 9, 2, 3, 4));
+        awaitUntil(() -> instanceIds().equals(Set.of(instanceId(2), instanceId(3), instanceId(4))));
+
+        // A dropped connection then resumes where it left off
+        frames.tryEmitComplete();
+        awaitConnection(3);
+        assertThat(lastEventIds.get(2)).isEqualTo("e1:9");
+    }
+
+    @Test
+    void fallsBackToPolledRegistryUntilSynced() {
+        ServiceInstanceListSupplier polled = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return SERVICE;
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(List.of(new DefaultServiceInstance("polled", SERVICE, "10.0.0.9", 8080, false)));
+            }
+        };
+        ServiceInstanceListSupplier supplier = new RegistryFeedServiceInstanceListSupplier(SERVICE,
+                new SimpleObjectProvider<>(polled), client);
+
+        assertThat(supplier.get().blockFirst()).extracting(ServiceInstance::getHost).containsExactly("10.0.0.9");
+
+        awaitConnection(1);
+        emit("e1:1", "snapshot", snapshot("e1", 1, 1));
+        awaitUntil(client::isLive);
+        assertThat(supplier.get().blockFirst()).extracting(ServiceInstance::getInstanceId)
+                .containsExactly(instanceId(1));
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 5 s").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    private void awaitConnection(int connections) {
+        awaitUntil(() -> lastEventIds.size() >= connections);
+        awaitUntil(() -> frames != null && frames.currentSubscriberCount() > 0);
+    }
+
+    private void emit(String id, String event, String data) {
+        frames.tryEmitNext("id:" + id + "\nevent:" + event + "\ndata:" + data + "\n\n");
+    }
+
+    private Set<String> instanceIds() {
+        List<ServiceInstance> instances = client.instances(SERVICE);
+        Set<String> ids = new HashSet<>();
+        if (instances != null) {
+            instances.forEach(instance -> ids.add(instance.getInstanceId()));
+        }
+        return ids;
+    }
+
+    private static String snapshot(String epoch, long seq, int... instances) {
+        StringBuilder json = new StringBuilder("{\"epoch\":\"" + epoch + "\",\"seq\":" + seq + ",\"instances\":[");
+        for (int i = 0; i < instances.length; i++) {
+            json.append(i > 0 ? "," : "").append(instance(0, "REGISTERED", instances[i]));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String change(long seq, String type, int instance) {
+        return instance(seq, type, instance);
+    }
+
+    private static String instance(long seq, String type, int instance) {
+        return ("{\"seq\":%d,\"type\":\"%s\",\"app\":\"PRODUCT-SERVICE\",\"instanceId\":\"%s\","
+                + "\"host\":\"10.0.0.%d\",\"port\":8080,\"secure\":false,\"status\":\"UP\",\"metadata\":{},"
+                + "\"timestamp\":%d}").formatted(seq, type, instanceId(instance), instance, System.currentTimeMillis());
+    }
+
+    private static String instanceId(int instance) {
+        return SERVICE + "-" + instance;
+    }
+}
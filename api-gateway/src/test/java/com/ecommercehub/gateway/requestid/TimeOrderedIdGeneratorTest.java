@@ -0,0 +1,98 @@
+package com.ecommercehub.gateway.requestid;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        Set<String> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    String previous = "";
+                    boolean ordered = true;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        String id = generator.nextId();
+                        ids.add(id);
+                        ordered &= id.compareTo(previous) > 0;
+                        previous = id;
+                    }
+                    return ordered;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).as("IDs of one thread are increasing").isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void idsAreVersion7Uuids() {
+        long now = System.currentTimeMillis();
+        UUID uuid = UUID.fromString(new TimeOrderedIdGenerator(() -> now).nextId());
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        assertThat(uuid.getMostSignificantBits() >>> 16).isEqualTo(now);
+    }
+
+    @Test
+    void staysUniqueWhenCounterOverflowsOrClockGoesBack() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+        Set<String> ids = new HashSet<>();
+        String previous = "";
+
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                clock.addAndGet(-1_000);
+            }
+            String id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            ids.add(id);
+            previous = id;
+        }
+
+        assertThat(ids).hasSize(10_000);
+    }
+
+    @Test
+    void traceParentUsesRequestIdAsTraceId() {
+        String id = new TimeOrderedIdGenerator().nextId();
+
+        String traceParent = TraceParent.fromRequestId(id, true);
+
+        assertThat(traceParent).matches("00-[0-9a-f]{32}-[0-9a-f]{16}-01");
+        assertThat(traceParent.substring(3, 35)).isEqualTo(id.replace("-", ""));
+        assertThat(TraceParent.fromRequestId("not-a-uuid", true)).isNull();
+        assertThat(TraceParent.fromRequestId("00000000-0000-0000-0000-000000000000", true)).isNull();
+    }
+}
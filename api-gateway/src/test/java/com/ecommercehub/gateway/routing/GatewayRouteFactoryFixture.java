@@ -0,0 +1,128 @@
+package com.ecommercehub.gateway.routing;
+
+import com.ecommercehub.gateway.cache.CoalescingProperties;
+import com.ecommercehub.gateway.cache.RequestCoalescingFilter;
+import com.ecommercehub.gateway.cache.ResponseCacheFilter;
+import com.ecommercehub.gateway.cache.ResponseCacheProperties;
+import com.ecommercehub.gateway.cache.StaleResponseProperties;
+import com.ecommercehub.gateway.cache.StaleResponseRecorder;
+import com.ecommercehub.gateway.cache.StaleResponseStore;
+import com.ecommercehub.gateway.compression.CompressionProperties;
+import com.ecommercehub.gateway.compression.ResponseCompressionFilter;
+import com.ecommercehub.gateway.compression.ResponseCompressor;
+import com.ecommercehub.gateway.concurrency.AdaptiveConcurrencyLimiter;
+import com.ecommercehub.gateway.concurrency.ConcurrencyLimitProperties;
+import com.ecommercehub.gateway.hedging.HedgingProperties;
+import com.ecommercehub.gateway.hedging.RequestHedger;
+import com.ecommercehub.gateway.metrics.GatewayLatencyMetrics;
+import com.ecommercehub.gateway.metrics.LatencySloProperties;
+import com.ecommercehub.gateway.outlier.OutlierDetectionProperties;
+import com.ecommercehub.gateway.outlier.OutlierDetector;
+import com.ecommercehub.gateway.ratelimit.HybridRateLimiter;
+import com.ecommercehub.gateway.ratelimit.RequestCostModel;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigurationProperties;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.SpringCloudCircuitBreakerResilience4JFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.web.reactive.DispatcherHandler;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * The gateway's real {@link GatewayRouteFactory} over in-process collaborators
+ * <p>
+ * Limiters keep their buckets in memory (the hybrid limiter is never synced), breakers
+ * live in a fresh registry, and the stale-response store is off. {@link #handle} runs a
+ * built route's filter chain with the given global filter standing in for the proxy.
+ */
+final class GatewayRouteFactoryFixture {
+
+    // Every request comes from the same client
+    static final KeyResolver SAME_CLIENT = exchange -> Mono.just("client");
+
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    final HybridRateLimiter hybridRateLimiter = new HybridRateLimiter(
+            new ReactiveStringRedisTemplate(new LettuceConnectionFactory()), 10, 20, 1);
+    final GatewayRouteFactory routeFactory;
+
+    GatewayRouteFactoryFixture() {
+        ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory = new ReactiveResilience4JCircuitBreakerFactory(
+                circuitBreakerRegistry, TimeLimiterRegistry.ofDefaults(), new Resilience4JConfigurationProperties());
+        GatewayLatencyMetrics latencyMetrics = new GatewayLatencyMetrics(meterRegistry, new LatencySloProperties());
+        StaleResponseProperties staleProperties = new StaleResponseProperties();
+        staleProperties.setEnabled(false);
+        OutlierDetector outlierDetector = new OutlierDetector(new OutlierDetectionProperties(), circuitBreakerFactory,
+                meterRegistry);
+
+        this.routeFactory = new GatewayRouteFactory(
+                new RequestRateLimiterGatewayFilterFactory(hybridRateLimiter, SAME_CLIENT),
+                new SpringCloudCircuitBreakerResilience4JFilterFactory(circuitBreakerFactory,
+                        new StaticListableBeanFactory().getBeanProvider(DispatcherHandler.class)),
+                circuitBreakerFactory,
+                hybridRateLimiter,
+                new RedisRateLimiter(10, 20),
+                SAME_CLIENT,
+                SAME_CLIENT,
+                new RequestCostModel(meterRegistry),
+                new ResponseCacheFilter(new ResponseCacheProperties(), meterRegistry),
+                new ResponseCompressionFilter(new ResponseCompressor(new CompressionProperties(), meterRegistry)),
+                new RequestCoalescingFilter(new CoalescingProperties(), meterRegistry),
+                new StaleResponseRecorder(new StaleResponseStore(staleProperties, meterRegistry), staleProperties),
+                new RequestHedger(new HedgingProperties(), latencyMetrics, circuitBreakerFactory, new NoDiscovery(),
+                        outlierDetector, WebClient.builder(), meterRegistry),
+                new AdaptiveConcurrencyLimiter(new ConcurrencyLimitProperties(), meterRegistry),
+                latencyMetrics);
+    }
+
+    /**
+     * Builds the route and pushes its limits and breaker, as a reload does
+     */
+    Route route(String id, RouteTableProperties.RouteSpec spec) {
+        Route route = routeFactory.build(id, spec);
+        routeFactory.apply(id, spec);
+        return route;
+    }
+
+    static Mono<Void> handle(Route route, ServerWebExchange exchange, GlobalFilter upstream) {
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        return new FilteringWebHandler(List.of(upstream)).handle(exchange);
+    }
+
+    private static final class NoDiscovery implements ReactiveDiscoveryClient {
+
+        @Override
+        public String description() {
+            return "none";
+        }
+
+        @Override
+        public Flux<ServiceInstance> getInstances(String serviceId) {
+            return Flux.empty();
+        }
+
+        @Override
+        public Flux<String> getServices() {
+            return Flux.empty();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.ecommercehub.gateway.routing;
+
+import com.ecommercehub.gateway.cache.RequestCoalescingFilter;
+import com.ecommercehub.gateway.routing.RouteTableProperties.RateLimit;
+import com.ecommercehub.gateway.routing.RouteTableProperties.RouteSpec;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes as the gateway builds them, run through their filter chain
+ */
+class GatewayRouteFactoryTest {
+
+    private final GatewayRouteFactoryFixture fixture = new GatewayRouteFactoryFixture();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final Sinks.Empty<Void> upstreamDone = Sinks.empty();
+
+    private final GlobalFilter upstream = (exchange, chain) -> {
+        upstreamCalls.incrementAndGet();
+        return upstreamDone.asMono().then(Mono.defer(() -> write(exchange.getResponse(), "product 1")));
+    };
+
+    @Test
+    void coalescedWaiterOverQuotaIsRejected() {
+        Route route = fixture.route("products", coalescingRoute(2));
+
+        CompletableFuture<Void> leader = request(route).toFuture();
+        MockServerWebExchange waiter = exchange();
+        CompletableFuture<Void> waiting = GatewayRouteFactoryFixture.handle(route, waiter, upstream).toFuture();
+        MockServerWebExchange overQuota = exchange();
+        GatewayRouteFactoryFixture.handle(route, overQuota, upstream).block(Duration.ofSeconds(5));
+
+        // Rejected at once, without waiting for the call in flight
+        assertThat(overQuota.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(leader).isNotDone();
+
+        upstreamDone.tryEmitEmpty();
+        leader.join();
+        waiting.join();
+
+        assertThat(waiter.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(waiter.getResponse().getHeaders().getFirst(RequestCoalescingFilter.COALESCED_HEADER)).isEqualTo("true");
+        assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo("product 1");
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void leaderOverQuotaNeverGoesUpstream() {
+        Route route = fixture.route("products", coalescingRoute(1));
+        upstreamDone.tryEmitEmpty();
+        request(route).block(Duration.ofSeconds(5));
+
+        MockServerWebExchange leader = exchange();
+        MockServerWebExchange waiter = exchange();
+        CompletableFuture<Void> leading = GatewayRouteFactoryFixture.handle(route, leader, upstream).toFuture();
+        CompletableFuture<Void> waiting = GatewayRouteFactoryFixture.handle(route, waiter, upstream).toFuture();
+        leading.join();
+        waiting.join();
+
+        assertThat(leader.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(waiter.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    private Mono<Void> request(Route route) {
+        return GatewayRouteFactoryFixture.handle(route, exchange(), upstream);
+    }
+
+    private static RouteSpec coalescingRoute(int burstCapacity) {
+        RateLimit rateLimit = new RateLimit();
+        rateLimit.setReplenishRate(1);
+        rateLimit.setBurstCapacity(burstCapacity);
+        RouteSpec spec = new RouteSpec();
+        spec.setPaths(List.of("/api/products/**"));
+        spec.setUri(URI.create("http://localhost:8082"));
+        spec.setCoalesce(true);
+        spec.setRateLimit(rateLimit);
+        return spec;
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, String body) {
+        response.setStatusCode(HttpStatus.OK);
+        return response.writeWith(Flux.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+}
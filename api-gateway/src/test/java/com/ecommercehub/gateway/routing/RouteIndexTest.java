@@ -0,0 +1,143 @@
+package com.ecommercehub.gateway.routing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ROUTE_ID_ATTR;
+
+/**
+ * The index must pick the same route as evaluating every predicate in order
+ */
+class RouteIndexTest {
+
+    private static final List<String> PATHS = List.of(
+            "/api/users/me", "/api/users", "/api/users/", "/api/products/42", "/api/categories/7/products",
+            "/api/orders/1/items/2", "/api/orders/1/items", "/api/v2/orders/1", "/api/tenants/acme/v1/items/9",
+            "/api/tenants/acme/v2/items/9", "/api/tenants/acme/v1/items", "/api/search", "/api/search/",
+            "/api/catalog/file.json", "/api/catalog/file.xml", "/api/%70roducts/1", "/internal/notifications/x",
+            "/", "/unknown", "/api/legacy/anything/deep", "/api/orders/1/items/2/", "/api/v2/orders/1/",
+            "/api/tenants/acme/v1/items/9/", "/api/catalog/file.json/");
+
+    private final List<Route> routes = new ArrayList<>(List.of(
+            route("users-get", IndexedRoutePredicate.path("/api/users/**").methods(HttpMethod.GET)),
+            route("users-write", IndexedRoutePredicate.path("/api/users/**").methods(HttpMethod.POST)),
+            route("products", IndexedRoutePredicate.path("/api/products/**", "/api/categories/**")),
+            route("order-item", IndexedRoutePredicate.path("/api/orders/{id}/items/{item}")),
+            route("orders", IndexedRoutePredicate.path("/api/orders/**")),
+            route("versioned-orders", IndexedRoutePredicate.path("/api/v*/orders/{id}")),
+            route("tenant-v1", IndexedRoutePredicate.path("/api/tenants/{tenant}/v1/items/*")),
+            route("tenant-any", IndexedRoutePredicate.path("/api/tenants/{tenant}/{version}/items/{*rest}")),
+            // Not indexable, evaluated in place
+            Route.async().id("legacy").uri("lb://LEGACY")
+                    .predicate(exchange -> exchange.getRequest().getPath().value().startsWith("/api/legacy"))
+                    .build(),
+            route("search", IndexedRoutePredicate.path("/api/search/**")),
+            route("json", IndexedRoutePredicate.path("/api/catalog/*.json")),
+            route("notifications", IndexedRoutePredicate.path("/internal/notifications/**"))));
+
+    @Test
+    void matchesLinearEvaluation() {
+        RouteIndex index = RouteIndex.compile(routes);
+        assertThat(index.unindexedCount()).isEqualTo(1);
+
+        for (HttpMethod method : List.of(HttpMethod.GET, HttpMethod.POST, HttpMethod.DELETE)) {
+            for (String path : PATHS) {
+                String expected = routeId(linear(exchange(method, path)).block());
+                String actual = routeId(index.lookup(exchange(method, path)).block());
+                assertThat(actual).as("%s %s", method, path).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void indexedRoutesOnlyLookupIsSynchronous() {
+        routes.removeIf(route -> route.getId().equals("legacy"));
+        RouteIndex index = RouteIndex.compile(routes);
+
+        Route route = index.lookup(exchange(HttpMethod.GET, "/api/orders/1/items/2")).block();
+
+        assertThat(index.unindexedCount()).isZero();
+        assertThat(route.getId()).isEqualTo("order-item");
+    }
+
+    @Test
+    void exposesUriVariables() {
+        MockServerWebExchange exchange = exchange(HttpMethod.GET, "/api/orders/17/items/3");
+
+        RouteIndex.compile(routes).lookup(exchange).block();
+
+        assertThat(ServerWebExchangeUtils.getUriTemplateVariables(exchange))
+                .containsEntry("id", "17")
+                .containsEntry("item", "3");
+    }
+
+    @Test
+    void matchesTrailingSlashesLikeTheBuiltInPathPredicate() {
+        List<String> patterns = List.of("/api/orders/{id}", "/api/orders/{id}/items/*", "/api/products/**",
+                "/api/catalog/*.json", "/api/search");
+        List<String> paths = List.of("/api/orders/1", "/api/orders/1/", "/api/orders/1/items/2/", "/api/products/",
+                "/api/products", "/api/catalog/file.json/", "/api/search/", "/api/search//");
+        PathRoutePredicateFactory builtIn = new PathRoutePredicateFactory();
+
+        for (boolean matchTrailingSlash : List.of(true, false)) {
+            for (String pattern : patterns) {
+                IndexedRoutePredicate indexed = IndexedRoutePredicate.path(pattern)
+                        .matchTrailingSlash(matchTrailingSlash);
+                Predicate<ServerWebExchange> expected = builtIn.apply(new PathRoutePredicateFactory.Config()
+                        .setPatterns(List.of(pattern))
+                        .setMatchTrailingSlash(matchTrailingSlash));
+                for (String path : paths) {
+                    assertThat(indexed.matches(exchange(HttpMethod.GET, path)))
+                            .as("%s %s, trailing slash %s", pattern, path, matchTrailingSlash)
+                            .isEqualTo(expected.test(exchange(HttpMethod.GET, path)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void exposesMatchedPatternAndRoute() {
+        MockServerWebExchange exchange = exchange(HttpMethod.GET, "/api/orders/17/items/3/");
+
+        Route route = RouteIndex.compile(routes).lookup(exchange).block();
+
+        assertThat(route.getId()).isEqualTo("order-item");
+        assertThat((String) exchange.getAttribute(GATEWAY_PREDICATE_MATCHED_PATH_ATTR))
+                .isEqualTo("/api/orders/{id}/items/{item}");
+        assertThat((String) exchange.getAttribute(GATEWAY_PREDICATE_MATCHED_PATH_ROUTE_ID_ATTR))
+                .isEqualTo("order-item");
+    }
+
+    private Mono<Route> linear(MockServerWebExchange exchange) {
+        return Flux.fromIterable(routes)
+                .concatMap(route -> Mono.just(route).filterWhen(r -> r.getPredicate().apply(exchange)))
+                .next();
+    }
+
+    private static Route route(String id, IndexedRoutePredicate predicate) {
+        return Route.async().id(id).uri("lb://" + id.toUpperCase()).asyncPredicate(predicate).build();
+    }
+
+    private static MockServerWebExchange exchange(HttpMethod method, String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.method(method, URI.create(path)));
+    }
+
+    private static String routeId(Route route) {
+        return route != null ? route.getId() : null;
+    }
+}
@@ -0,0 +1,274 @@
+package com.ecommercehub.gateway.routing;
+
+import com.ecommercehub.gateway.ratelimit.HybridRateLimiter;
+import com.ecommercehub.gateway.routing.RouteTableProperties.RouteSpec;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.env.MockPropertySource;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Route table reloads: what is kept, what is rebuilt, and what readers see meanwhile
+ */
+class SnapshotRouteLocatorTest {
+
+    private static final String ROUTES = RouteTableProperties.PREFIX + ".routes.";
+
+    private final MockEnvironment environment = new MockEnvironment();
+    private final TestRouteFactory routeFactory = new TestRouteFactory();
+
+    @Test
+    void rebuildsOnlyChangedRoutes() {
+        route("users", "/api/users/**", "lb://USER-SERVICE");
+        route("orders", "/api/orders/**", "lb://ORDER-SERVICE");
+        route("search", "/api/search/**", "lb://SEARCH-SERVICE");
+        SnapshotRouteLocator locator = new SnapshotRouteLocator(routeFactory, environment);
+        List<Object> events = new ArrayList<>();
+        locator.setApplicationEventPublisher(events::add);
+        SnapshotRouteLocator.Snapshot before = locator.current();
+        routeFactory.applied.clear();
+
+        environment.setProperty(ROUTES + "orders.uri", "lb://ORDER-SERVICE-V2");
+        removeRoute("search");
+        route("carts", "/api/cart/**", "lb://CART-SERVICE");
+        refresh(locator, "orders.uri");
+
+        SnapshotRouteLocator.Snapshot after = locator.current();
+        assertThat(after.version).isEqualTo(before.version + 1);
+        assertThat(after.route("users")).isSameAs(before.route("users"));
+        assertThat(after.route("orders")).isNotSameAs(before.route("orders"));
+        assertThat(after.route("orders").getUri()).isEqualTo(URI.create("lb://ORDER-SERVICE-V2"));
+        assertThat(after.route("search")).isNull();
+        assertThat(after.route("carts")).isNotNull();
+        assertThat(routeFactory.applied).containsExactlyInAnyOrder("orders", "carts");
+        assertThat(routeFactory.released).containsExactly("search");
+        assertThat(events).singleElement().isInstanceOf(RefreshRoutesEvent.class);
+
+        // Nothing changed, nothing rebuilt
+        int builds = routeFactory.builds.get();
+        refresh(locator, "users.uri");
+        assertThat(routeFactory.builds.get()).isEqualTo(builds);
+        assertThat(locator.current().route("orders")).isSameAs(after.route("orders"));
+    }
+
+    @Test
+    void keepsCurrentSnapshotWhenARouteFailsToBuild() {
+        route("users", "/api/users/**", "lb://USER-SERVICE");
+        route("orders", "/api/orders/**", "lb://ORDER-SERVICE");
+        SnapshotRouteLocator locator = new SnapshotRouteLocator(routeFactory, environment);
+        SnapshotRouteLocator.Snapshot before = locator.current();
+
+        environment.setProperty(ROUTES + "users.uri", "lb://USER-SERVICE-V2");
+        environment.setProperty(ROUTES + "orders.uri", "lb://FAIL");
+        refresh(locator, "orders.uri");
+
+        assertThat(locator.current()).isSameAs(before);
+        assertThat(routeFactory.applied).containsExactlyInAnyOrder("users", "orders"); // start-up only
+    }
+
+    /**
+     * Readers look routes up through an index rebuilt on every refresh event, like the
+     * gateway's handler mapping, while reloads that rebuild every route with the real
+     * route factory run back to back. Readers must always see one whole version of the
+     * table, and afterwards requests must run on the last version's breakers and limits.
+     */
+    @Test
+    void readersSeeWholeSnapshotsAndRequestsUseTheReplacedBreakersAndLimits() throws InterruptedException {
+        GatewayRouteFactoryFixture fixture = new GatewayRouteFactoryFixture();
+        int routeCount = 50;
+        for (int i = 0; i < routeCount; i++) {
+            route("svc-" + i, "/api/svc-" + i + "/**", "lb://SVC-" + i + "-R0");
+            limits("svc-" + i, 0);
+        }
+        SnapshotRouteLocator locator = new SnapshotRouteLocator(fixture.routeFactory, environment);
+        IndexHolder index = new IndexHolder(locator);
+        locator.setApplicationEventPublisher(event -> index.recompile());
+        index.recompile();
+        CircuitBreaker firstBreaker = fixture.circuitBreakerRegistry.circuitBreaker("svc-0-cb");
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger reads = new AtomicInteger();
+        List<String> violations = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                long lastSeen = 0;
+                while (!stop.get()) {
+                    List<Route> routes = locator.getRoutes().collectList().block();
+                    Set<Long> versions = routes.stream()
+                            .map(SnapshotRouteLocatorTest::generation)
+                            .collect(Collectors.toSet());
+                    if (routes.size() != routeCount || versions.size() != 1) {
+                        violations.add(routes.size() + " routes from versions " + versions);
+                    }
+
+                    int n = ThreadLocalRandom.current().nextInt(routeCount);
+                    Route route = index.current.lookup(request("/api/svc-" + n + "/items/1")).block();
+                    if (route == null || !route.getId().equals("svc-" + n)) {
+                        violations.add("svc-" + n + " not found");
+                    } else if (generation(route) < lastSeen) {
+                        violations.add("svc-" + n + " went back from " + lastSeen + " to " + generation(route));
+                    } else {
+                        lastSeen = generation(route);
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+            reader.start();
+            threads.add(reader);
+        }
+
+        while (reads.get() == 0) {
+            Thread.sleep(1);
+        }
+        int readsBefore = reads.get();
+        int reloads = 20;
+        for (int g = 1; g <= reloads; g++) {
+            for (int i = 0; i < routeCount; i++) {
+                environment.setProperty(ROUTES + "svc-" + i + ".uri", "lb://SVC-" + i + "-R" + g);
+                limits("svc-" + i, g);
+            }
+            refresh(locator, "svc-0.uri");
+        }
+        int readsDuringReloads = reads.get() - readsBefore;
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(violations).isEmpty();
+        assertThat(readsDuringReloads).isPositive();
+        assertThat(locator.current().version).isEqualTo(1 + reloads);
+
+        // The route as a request finds it runs on the breaker and limit of the last reload
+        MockServerWebExchange exchange = request("/api/svc-0/items/1");
+        Route route = index.current.lookup(exchange).block();
+        GatewayRouteFactoryFixture.handle(route, exchange, (ex, chain) -> {
+            ex.getResponse().setStatusCode(HttpStatus.OK);
+            return ex.getResponse().setComplete();
+        }).block(Duration.ofSeconds(5));
+
+        CircuitBreaker breaker = fixture.circuitBreakerRegistry.find("svc-0-cb").orElseThrow();
+        assertThat(generation(route)).isEqualTo(reloads);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HybridRateLimiter.BURST_CAPACITY_HEADER))
+                .isEqualTo(Integer.toString(burstCapacity(reloads)));
+        assertThat(breaker).isNotSameAs(firstBreaker);
+        assertThat(breaker.getCircuitBreakerConfig().getSlidingWindowSize()).isEqualTo(slidingWindow(reloads));
+        assertThat(breaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+        assertThat(firstBreaker.getMetrics().getNumberOfBufferedCalls()).isZero();
+    }
+
+    /**
+     * Rate limit and breaker settings of one table version
+     */
+    private void limits(String id, int generation) {
+        environment.setProperty(ROUTES + id + ".rate-limit.burst-capacity",
+                Integer.toString(burstCapacity(generation)));
+        environment.setProperty(ROUTES + id + ".circuit-breaker.sliding-window-size",
+                Integer.toString(slidingWindow(generation)));
+    }
+
+    private static int burstCapacity(int generation) {
+        return 100 + generation;
+    }
+
+    private static int slidingWindow(int generation) {
+        return 10 + generation;
+    }
+
+    /**
+     * Table version a route was built from, the -R suffix of its host
+     */
+    private static long generation(Route route) {
+        String host = route.getUri().getHost();
+        return Long.parseLong(host.substring(host.lastIndexOf("-R") + 2));
+    }
+
+    private static MockServerWebExchange request(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.method(HttpMethod.GET, URI.create(path)));
+    }
+
+    private void route(String id, String path, String uri) {
+        environment.setProperty(ROUTES + id + ".paths", path);
+        environment.setProperty(ROUTES + id + ".uri", uri);
+    }
+
+    private void removeRoute(String id) {
+        MapPropertySource properties = (MapPropertySource) environment.getPropertySources()
+                .get(MockPropertySource.MOCK_PROPERTIES_PROPERTY_SOURCE_NAME);
+        properties.getSource().keySet().removeIf(name -> name.startsWith(ROUTES + id + "."));
+    }
+
+    private static void refresh(SnapshotRouteLocator locator, String changedKey) {
+        locator.onApplicationEvent(new EnvironmentChangeEvent(Set.of(ROUTES + changedKey)));
+    }
+
+    /**
+     * Recompiles the route index on each refresh, as the indexed handler mapping does
+     */
+    private static final class IndexHolder {
+
+        private final SnapshotRouteLocator locator;
+        volatile RouteIndex current;
+
+        IndexHolder(SnapshotRouteLocator locator) {
+            this.locator = locator;
+        }
+
+        void recompile() {
+            current = RouteIndex.compile(locator.getRoutes().collectList().block());
+        }
+    }
+
+    private static final class TestRouteFactory implements RouteFactory {
+
+        final AtomicInteger builds = new AtomicInteger();
+        final List<String> applied = new ArrayList<>();
+        final List<String> released = new ArrayList<>();
+
+        @Override
+        public Route build(String id, RouteSpec spec) {
+            builds.incrementAndGet();
+            if ("FAIL".equals(spec.getUri().getHost())) {
+                throw new IllegalArgumentException("Cannot build " + id);
+            }
+            return Route.async()
+                    .id(id)
+                    .uri(spec.getUri())
+                    .asyncPredicate(IndexedRoutePredicate.path(spec.getPaths().toArray(String[]::new)))
+                    .build();
+        }
+
+        @Override
+        public void apply(String id, RouteSpec spec) {
+            applied.add(id);
+        }
+
+        @Override
+        public void release(String id, RouteSpec spec) {
+            released.add(id);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ecommercehub.gateway.upstream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamPoolManagerTest {
+
+    private final UpstreamPoolProperties properties = new UpstreamPoolProperties();
+    private final UpstreamPools pools = new UpstreamPools(properties, new SimpleMeterRegistry());
+    private final Registry registry = new Registry();
+    private final HttpClient httpClient = HttpClient.create(
+            new InstanceConnectionProvider(pools, ConnectionProvider.newConnection()));
+    private final UpstreamPoolManager manager = new UpstreamPoolManager(registry, pools, properties,
+            new SimpleObjectProvider<>(httpClient), "api-gateway");
+
+    private DisposableServer server;
+
+    @AfterEach
+    void tearDown() {
+        pools.closeAll().block(Duration.ofSeconds(5));
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void poolsFollowTheRegistry() {
+        properties.getDefaults().setWarmConnections(0);
+        registry.put("API-GATEWAY", instance("api-gateway", 8080));
+        registry.put("PRODUCT-SERVICE", instance("product-service", 8082), instance("product-service", 8092));
+
+        manager.onRegistryChange();
+        assertThat(pools.addresses()).containsExactlyInAnyOrder("localhost:8082", "localhost:8092");
+
+        registry.put("PRODUCT-SERVICE", instance("product-service", 8082));
+        registry.put("ORDER-SERVICE", instance("order-service", 8083));
+        manager.onRegistryChange();
+        assertThat(pools.addresses()).containsExactlyInAnyOrder("localhost:8082", "localhost:8083");
+    }
+
+    @Test
+    void emptyRegistryDrainsNothing() {
+        properties.getDefaults().setWarmConnections(0);
+        registry.put("PRODUCT-SERVICE", instance("product-service", 8082));
+        manager.onRegistryChange();
+
+        registry.clear();
+        manager.onRegistryChange();
+
+        assertThat(pools.addresses()).containsExactly("localhost:8082");
+    }
+
+    @Test
+    void disabledPoolsAreNeverOpened() {
+        properties.setEnabled(false);
+        registry.put("PRODUCT-SERVICE", instance("product-service", 8082));
+
+        manager.onRegistryChange();
+
+        assertThat(pools.addresses()).isEmpty();
+    }
+
+    @Test
+    void newInstanceIsWarmedWithConcurrentRequests() {
+        AtomicInteger connections = new AtomicInteger();
+        List<String> paths = new CopyOnWriteArrayList<>();
+        server = HttpServer.create()
+                .port(0)
+                .doOnChannelInit((observer, channel, remoteAddress) -> connections.incrementAndGet())
+                .handle((request, response) -> {
+                    paths.add(request.uri());
+                    // Slow enough that every warm-up request needs its own connection
+                    return response.sendString(Mono.just("UP").delayElement(Duration.ofMillis(100)));
+                })
+                .bindNow();
+        properties.getDefaults().setWarmConnections(3);
+        registry.put("PRODUCT-SERVICE", instance("product-service", server.port()));
+
+        manager.onRegistryChange();
+
+        awaitUntil(() -> paths.size() == 3);
+        assertThat(paths).containsOnly("/actuator/health");
+        assertThat(connections).hasValue(3);
+
+        // Already open: no second warm-up
+        manager.onRegistryChange();
+        assertThat(paths).hasSize(3);
+    }
+
+    private static ServiceInstance instance(String serviceId, int port) {
+        return new DefaultServiceInstance(serviceId + "-" + port, serviceId, "localhost", port, false);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 5 s").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Registry contents as the Eureka client would report them after a fetch
+     */
+    private static final class Registry implements DiscoveryClient {
+
+        private final Map<String, List<ServiceInstance>> services = new ConcurrentHashMap<>();
+
+        void put(String serviceId, ServiceInstance... instances) {
+            services.put(serviceId, List.of(instances));
+        }
+
+        void clear() {
+            services.clear();
+        }
+
+        @Override
+        public String description() {
+            return "in-memory";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            return services.getOrDefault(serviceId, List.of());
+        }
+
+        @Override
+        public List<String> getServices() {
+            return List.copyOf(services.keySet());
+        }
+    }
+}
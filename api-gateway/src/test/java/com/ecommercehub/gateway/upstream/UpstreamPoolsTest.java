@@ -0,0 +1,124 @@
+package com.ecommercehub.gateway.upstream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamPoolsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger connections = new AtomicInteger();
+    private UpstreamPools pools;
+    private DisposableServer server;
+
+    @BeforeEach
+    void setUp() {
+        UpstreamPoolProperties properties = new UpstreamPoolProperties();
+        UpstreamPoolProperties.Pool orders = new UpstreamPoolProperties.Pool();
+        orders.setMaxConnections(5);
+        properties.getServices().put("order-service", orders);
+        pools = new UpstreamPools(properties, meterRegistry);
+        server = HttpServer.create()
+                .port(0)
+                .doOnChannelInit((observer, channel, remoteAddress) -> connections.incrementAndGet())
+                .handle((request, response) -> response.sendString(Mono.just("ok")))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pools.closeAll().block(Duration.ofSeconds(5));
+        server.disposeNow();
+    }
+
+    @Test
+    void oneInstanceGetsOnePoolSizedForItsService() {
+        assertThat(pools.open(instance("ORDER-SERVICE", 8083))).isTrue();
+        assertThat(pools.open(instance("ORDER-SERVICE", 8083))).isFalse();
+        assertThat(pools.open(instance("product-service", 8082))).isTrue();
+
+        UpstreamPools.InstancePool orders = pools.find(InetSocketAddress.createUnresolved("localhost", 8083));
+        assertThat(orders.serviceId).isEqualTo("order-service");
+        assertThat(orders.provider.maxConnections()).isEqualTo(5);
+        assertThat(pools.find(InetSocketAddress.createUnresolved("localhost", 8082)).provider.maxConnections())
+                .isEqualTo(50);
+        assertThat(pools.find(InetSocketAddress.createUnresolved("localhost", 9999))).isNull();
+        assertThat(pools.find(null)).isNull();
+        assertThat(pools.addresses()).containsExactlyInAnyOrder("localhost:8083", "localhost:8082");
+    }
+
+    @Test
+    void requestsToAnInstanceReuseItsPool() {
+        pools.open(instance("product-service", server.port()));
+        ConnectionProvider fallback = ConnectionProvider.create("fallback", 1);
+        HttpClient client = HttpClient.create(new InstanceConnectionProvider(pools, fallback));
+
+        String instance = UpstreamPools.address("localhost", server.port());
+        for (int i = 0; i < 3; i++) {
+            assertThat(get(client, "http://localhost:" + server.port() + "/api/products")).isEqualTo("ok");
+            // Back in the pool before the next request
+            awaitUntil(() -> gauge(instance, "idle") == 1);
+        }
+
+        assertThat(connections).hasValue(1);
+        assertThat(gauge(instance, "active")).isZero();
+        assertThat(meterRegistry.get("gateway.upstream.pool.acquire").tag("instance", instance)
+                .tag("outcome", "acquired").timer().count()).isEqualTo(3);
+        fallback.disposeLater().block(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void retiredPoolIsClosedAndItsMetersRemoved() {
+        pools.open(instance("product-service", server.port()));
+        HttpClient client = HttpClient.create(
+                new InstanceConnectionProvider(pools, ConnectionProvider.newConnection()));
+        get(client, "http://localhost:" + server.port() + "/api/products");
+        String instance = UpstreamPools.address("localhost", server.port());
+        assertThat(meterRegistry.find("gateway.upstream.pool.connections").tag("instance", instance).gauges())
+                .hasSize(2);
+
+        pools.retire(instance);
+
+        assertThat(pools.addresses()).isEmpty();
+        awaitUntil(() -> meterRegistry.find("gateway.upstream.pool.connections").tag("instance", instance)
+                .gauges().isEmpty()
+                && meterRegistry.find("gateway.upstream.pool.acquire").tag("instance", instance).timers().isEmpty());
+        assertThat(meterRegistry.find("gateway.upstream.pool.pending").tag("instance", instance).gauge()).isNull();
+    }
+
+    private double gauge(String instance, String state) {
+        return meterRegistry.get("gateway.upstream.pool.connections").tag("instance", instance).tag("state", state)
+                .gauge().value();
+    }
+
+    private static String get(HttpClient client, String uri) {
+        return client.get().uri(uri).responseContent().aggregate().asString().block(Duration.ofSeconds(5));
+    }
+
+    private static ServiceInstance instance(String serviceId, int port) {
+        return new DefaultServiceInstance(serviceId + "-" + port, serviceId, "localhost", port, false);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 5 s").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
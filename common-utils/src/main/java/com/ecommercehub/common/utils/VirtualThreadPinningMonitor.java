@@ -0,0 +1,147 @@
+package com.ecommercehub.common.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports virtual threads that pin their carrier thread
+ * <p>
+ * In virtual-thread mode (spring.threads.virtual.enabled, the "virtual-threads"
+ * profile of service-discovery and config-server) every request runs on its own
+ * virtual thread. A virtual thread that blocks inside a synchronized block or a native
+ * frame cannot unmount and holds one of the few carrier threads for as long as it
+ * blocks; enough of them at once and the server stalls like an exhausted thread pool.
+ * Eureka's registry and JGit behind the config server both block in synchronized code.
+ * <p>
+ * The JVM records these as JFR jdk.VirtualThreadPinned events. This monitor streams
+ * them in-process and:
+ * - times them in jvm.threads.virtual.pinned{site,thread}, where site is the first
+ *   frame outside the JDK and thread is "request" for Tomcat request threads
+ * - logs the stack trace the first time a site pins, so it can be fixed
+ * - counts virtual threads that could not be scheduled in jvm.threads.virtual.submit.failed
+ */
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+
+    // Tomcat's name prefix for its virtual request threads
+    private static final String REQUEST_THREAD_PREFIX = "tomcat-handler-";
+    private static final List<String> JDK_PACKAGES = List.of("java.", "javax.", "jdk.", "sun.", "com.sun.");
+    private static final int LOGGED_FRAMES = 16;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private final Counter submitFailed;
+
+    private volatile RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+        this.submitFailed = Counter.builder("jvm.threads.virtual.submit.failed")
+                .description("Virtual threads that could not be scheduled on a carrier")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.enable(SUBMIT_FAILED_EVENT);
+        recording.setMaxAge(Duration.ofMinutes(1));
+        recording.onEvent(PINNED_EVENT, this::pinned);
+        recording.onEvent(SUBMIT_FAILED_EVENT, event -> submitFailed.increment());
+        recording.startAsync();
+        stream = recording;
+        log.info("Reporting virtual threads pinned for {} ms or longer", threshold.toMillis());
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void pinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        String site = site(stackTrace);
+        RecordedThread thread = event.getThread();
+        String threadName = thread != null ? thread.getJavaName() : null;
+        boolean request = threadName != null && threadName.startsWith(REQUEST_THREAD_PREFIX);
+
+        timers.computeIfAbsent(site + (request ? "|request" : "|other"), key -> Timer.builder("jvm.threads.virtual.pinned")
+                        .description("Time virtual threads spent blocked while pinned to their carrier")
+                        .tag("site", site)
+                        .tag("thread", request ? "request" : "other")
+                        .register(meterRegistry))
+                .record(event.getDuration());
+
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread {} pinned its carrier for {} ms at {}; further pinning here is only counted\n{}",
+                    threadName, event.getDuration().toMillis(), site, frames(stackTrace));
+        }
+    }
+
+    /**
+     * First frame outside the JDK: the code that blocked while holding a monitor
+     */
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (JDK_PACKAGES.stream().noneMatch(type::startsWith)) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        RecordedFrame top = stackTrace.getFrames().get(0);
+        return top.getMethod().getType().getName() + "." + top.getMethod().getName();
+    }
+
+    private static String frames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "\t(no stack trace)";
+        }
+        StringBuilder sb = new StringBuilder();
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = 0; i < Math.min(frames.size(), LOGGED_FRAMES); i++) {
+            RecordedFrame frame = frames.get(i);
+            sb.append("\tat ").append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber()).append('\n');
+        }
+        if (frames.size() > LOGGED_FRAMES || stackTrace.isTruncated()) {
+            sb.append("\t...\n");
+        }
+        return sb.toString();
+    }
+}
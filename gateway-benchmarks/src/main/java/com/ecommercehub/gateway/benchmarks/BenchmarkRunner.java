@@ -0,0 +1,37 @@
+package com.ecommercehub.gateway.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar
+ * <p>
+ * Accepts the usual JMH command line (e.g. a benchmark regex, -f, -wi, -i) and adds
+ * two defaults so every run can be diffed against the previous build:
+ * - results are written as JSON to jmh-result.json (override with -rff)
+ * - the GC profiler is on, so gc.alloc.rate.norm reports bytes allocated per request
+ * <p>
+ * Usage: java -jar gateway-benchmarks/target/benchmarks.jar [jmh options]
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse("jmh-result.json"))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.ecommercehub.gateway.benchmarks;
+
+import com.ecommercehub.gateway.accesslog.AccessLogFilter;
+import com.ecommercehub.gateway.accesslog.AccessLogProperties;
+import com.ecommercehub.gateway.accesslog.AccessLogWriter;
+import com.ecommercehub.gateway.benchmarks.baseline.LegacyRequestLoggingFilter;
+import com.ecommercehub.gateway.benchmarks.baseline.LegacyResponseLoggingFilter;
+import com.ecommercehub.gateway.benchmarks.support.BenchmarkFilterChain;
+import com.ecommercehub.gateway.benchmarks.support.Exchanges;
+import com.ecommercehub.gateway.filter.CorrelationIdFilter;
+import com.ecommercehub.gateway.metrics.GatewayLatencyMetrics;
+import com.ecommercehub.gateway.metrics.LatencyMetricsFilter;
+import com.ecommercehub.gateway.metrics.LatencySloProperties;
+import com.ecommercehub.gateway.metrics.UpstreamTimingFilter;
+import com.ecommercehub.gateway.requestid.RequestIdProperties;
+import com.ecommercehub.gateway.requestid.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the gateway's global filters for a single request
+ * <p>
+ * - exchangeOnly: building the mock exchange, subtracted mentally from the rest
+ * - legacyLogging: the request/response logging filters the access log replaced
+ * - accessLog: the ring-buffer access log on its own
+ * - globalChain: everything that runs on every request (access log, latency
+ *   metrics, correlation ID, upstream timing)
+ * <p>
+ * The chain ends with a stub upstream, so only filter overhead is measured.
+ * Run with the GC profiler (on by default in {@link BenchmarkRunner}) to see bytes per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlobalFilterChainBenchmark {
+
+    private AccessLogWriter accessLogWriter;
+    private GatewayFilterChain legacyLogging;
+    private GatewayFilterChain accessLog;
+    private GatewayFilterChain globalChain;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AccessLogProperties accessLogProperties = new AccessLogProperties();
+        accessLogWriter = new AccessLogWriter(accessLogProperties, registry);
+        accessLogWriter.start();
+        AccessLogFilter accessLogFilter = new AccessLogFilter(accessLogProperties, accessLogWriter);
+        GatewayLatencyMetrics latencyMetrics = new GatewayLatencyMetrics(registry, new LatencySloProperties());
+        CorrelationIdFilter correlationIdFilter =
+                new CorrelationIdFilter(new TimeOrderedIdGenerator(), new RequestIdProperties());
+
+        legacyLogging = new BenchmarkFilterChain(List.of(
+                new LegacyRequestLoggingFilter(),
+                correlationIdFilter,
+                new LegacyResponseLoggingFilter()));
+        accessLog = new BenchmarkFilterChain(List.of(accessLogFilter));
+        globalChain = new BenchmarkFilterChain(List.of(
+                accessLogFilter,
+                new LatencyMetricsFilter(latencyMetrics),
+                correlationIdFilter,
+                new UpstreamTimingFilter()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        accessLogWriter.stop();
+    }
+
+    @Benchmark
+    public ServerWebExchange exchangeOnly() {
+        return Exchanges.productGet();
+    }
+
+    @Benchmark
+    public void legacyLogging() {
+        legacyLogging.filter(Exchanges.productGet()).block();
+    }
+
+    @Benchmark
+    public void accessLog() {
+        accessLog.filter(Exchanges.productGet()).block();
+    }
+
+    @Benchmark
+    public void globalChain() {
+        globalChain.filter(Exchanges.productGet()).block();
+    }
+}
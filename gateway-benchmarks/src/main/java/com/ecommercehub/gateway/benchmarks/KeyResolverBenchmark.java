@@ -0,0 +1,60 @@
+package com.ecommercehub.gateway.benchmarks;
+
+import com.ecommercehub.gateway.benchmarks.support.Exchanges;
+import com.ecommercehub.gateway.config.RateLimitConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving the rate limit key, which happens on every limited request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyResolverBenchmark {
+
+    private KeyResolver userKeyResolver;
+    private KeyResolver ipKeyResolver;
+    private ServerWebExchange withUserId;
+    private ServerWebExchange anonymous;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RateLimitConfig config = new RateLimitConfig();
+        userKeyResolver = config.userKeyResolver();
+        ipKeyResolver = config.ipKeyResolver();
+        withUserId = Exchanges.userGet();
+        anonymous = Exchanges.productGet();
+    }
+
+    @Benchmark
+    public String userKeyWithUserId() {
+        return userKeyResolver.resolve(withUserId).block();
+    }
+
+    @Benchmark
+    public String userKeyFallbackToIp() {
+        return userKeyResolver.resolve(anonymous).block();
+    }
+
+    @Benchmark
+    public String ipKey() {
+        return ipKeyResolver.resolve(anonymous).block();
+    }
+}
@@ -0,0 +1,136 @@
+package com.ecommercehub.gateway.benchmarks;
+
+import com.ecommercehub.gateway.benchmarks.support.FakeRedisTemplate;
+import com.ecommercehub.gateway.ratelimit.PipelinedRedisRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis round trips per request: one script call per check vs pipelined batches
+ * <p>
+ * Each benchmark thread plays one event loop with inFlight exchanges waiting on their
+ * rate-limit check at the same time. Redis is {@link FakeRedisTemplate} with a fixed
+ * round trip; it counts the script calls it answers, and every iteration prints
+ * round trips per request: 1.0 for the stock limiter, about 1/inFlight (one call per
+ * batch window per event loop) for the pipelined one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PipelinedRateLimiterBenchmark {
+
+    private static final String ROUTE_ID = "order-service";
+    private static final int REPLENISH_RATE = 1_000_000;
+    private static final int BURST_CAPACITY = 2_000_000;
+
+    @Param({"200"})
+    public long redisRoundTripMicros;
+
+    @Param({"1", "16", "64"})
+    public int inFlight;
+
+    private final LongAdder scriptCalls = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private RedisRateLimiter redisRateLimiter;
+    private PipelinedRedisRateLimiter pipelinedRateLimiter;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Duration roundTrip = Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(redisRoundTripMicros));
+
+        // Both scripts answer "allowed" for every bucket they are given
+        FakeRedisTemplate redis = new FakeRedisTemplate((redisKeys, args) -> {
+            scriptCalls.increment();
+            List<Long> results = new ArrayList<>(redisKeys.size());
+            for (int i = 0; i < redisKeys.size() / 2; i++) {
+                results.add(1L);
+                results.add((long) BURST_CAPACITY - 1);
+            }
+            return results;
+        }, roundTrip);
+
+        RedisScript<List<Long>> script = RedisScript.of("return {1, 0}", (Class<List<Long>>) (Class<?>) List.class);
+        redisRateLimiter = new RedisRateLimiter(redis, script, null);
+        redisRateLimiter.getConfig().put(ROUTE_ID, config());
+
+        pipelinedRateLimiter = new PipelinedRedisRateLimiter(redis, REPLENISH_RATE, BURST_CAPACITY, 1);
+        pipelinedRateLimiter.getConfig().put(ROUTE_ID, config());
+
+        keys = new String[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "user-" + i;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        scriptCalls.reset();
+        requests.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportRoundTrips() {
+        // Each benchmark method runs in its own fork, so the counts are that method's only
+        System.out.printf("%n  redis calls: %d, requests: %d, round trips per request: %.3f%n",
+                scriptCalls.sum(), requests.sum(), (double) scriptCalls.sum() / Math.max(1, requests.sum()));
+    }
+
+    @Benchmark
+    public long perRequestScript() {
+        return check(redisRateLimiter);
+    }
+
+    @Benchmark
+    public long pipelined() {
+        return check(pipelinedRateLimiter);
+    }
+
+    private long check(RateLimiter<?> limiter) {
+        requests.add(inFlight);
+        return Flux.range(0, inFlight)
+                .flatMap(i -> limiter.isAllowed(ROUTE_ID, nextKey()))
+                .filter(RateLimiter.Response::isAllowed)
+                .count()
+                .block();
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+
+    private static RedisRateLimiter.Config config() {
+        return new RedisRateLimiter.Config()
+                .setReplenishRate(REPLENISH_RATE)
+                .setBurstCapacity(BURST_CAPACITY)
+                .setRequestedTokens(1);
+    }
+}
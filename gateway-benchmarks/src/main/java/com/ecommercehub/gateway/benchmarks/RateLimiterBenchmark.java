@@ -0,0 +1,114 @@
+package com.ecommercehub.gateway.benchmarks;
+
+import com.ecommercehub.gateway.benchmarks.support.FakeRedisTemplate;
+import com.ecommercehub.gateway.ratelimit.HybridRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the Redis token bucket vs the hybrid local/Redis limiter
+ * <p>
+ * Redis is replaced by {@link FakeRedisTemplate}; redisRoundTripMicros adds a fixed
+ * delay per script call to model the network. The Redis limiter pays it on every
+ * request, the hybrid limiter only in its background sync. Limits are high enough
+ * that requests are always allowed, so both take their common path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final String ROUTE_ID = "product-service";
+    private static final int REPLENISH_RATE = 1_000_000;
+    private static final int BURST_CAPACITY = 2_000_000;
+
+    @Param({"0", "500"})
+    public long redisRoundTripMicros;
+
+    @Param({"1000"})
+    public int distinctKeys;
+
+    private RedisRateLimiter redisRateLimiter;
+    private HybridRateLimiter hybridRateLimiter;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Duration roundTrip = Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(redisRoundTripMicros));
+
+        // Token bucket script answer: [allowed, tokens left]
+        FakeRedisTemplate bucketRedis = new FakeRedisTemplate(
+                (redisKeys, args) -> List.of(1L, (long) BURST_CAPACITY - 1), roundTrip);
+        RedisScript<List<Long>> script = RedisScript.of("return {1, 0}", (Class<List<Long>>) (Class<?>) List.class);
+        redisRateLimiter = new RedisRateLimiter(bucketRedis, script, null);
+        redisRateLimiter.getConfig().put(ROUTE_ID, new RedisRateLimiter.Config()
+                .setReplenishRate(REPLENISH_RATE)
+                .setBurstCapacity(BURST_CAPACITY)
+                .setRequestedTokens(1));
+
+        // Sync script answer: INCRBY per key, i.e. this is the only node consuming
+        Map<String, Long> counters = new ConcurrentHashMap<>();
+        FakeRedisTemplate syncRedis = new FakeRedisTemplate((redisKeys, args) -> {
+            List<Long> totals = new ArrayList<>(redisKeys.size());
+            for (int i = 0; i < redisKeys.size(); i++) {
+                long delta = Long.parseLong(args.get(i + 1).toString());
+                totals.add(counters.merge(redisKeys.get(i), delta, Long::sum));
+            }
+            return totals;
+        }, roundTrip);
+        hybridRateLimiter = new HybridRateLimiter(syncRedis, REPLENISH_RATE, BURST_CAPACITY, 1);
+        hybridRateLimiter.afterPropertiesSet();
+
+        keys = new String[distinctKeys];
+        for (int i = 0; i < distinctKeys; i++) {
+            keys[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hybridRateLimiter.destroy();
+    }
+
+    @Benchmark
+    public RateLimiter.Response redis() {
+        return redisRateLimiter.isAllowed(ROUTE_ID, nextKey()).block();
+    }
+
+    @Benchmark
+    public RateLimiter.Response hybrid() {
+        return hybridRateLimiter.isAllowed(ROUTE_ID, nextKey()).block();
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+}
@@ -0,0 +1,51 @@
+package com.ecommercehub.gateway.benchmarks;
+
+import com.ecommercehub.gateway.requestid.RequestIdGenerator;
+import com.ecommercehub.gateway.requestid.TimeOrderedIdGenerator;
+import com.ecommercehub.gateway.requestid.TraceParent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Correlation ID generation: UUID.randomUUID() vs the time-ordered generator
+ * <p>
+ * Runs on several threads because the cost of randomUUID() is mostly contention
+ * on the shared SecureRandom, which a single-threaded run does not show.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RequestIdBenchmark {
+
+    private final RequestIdGenerator generator = new TimeOrderedIdGenerator();
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String timeOrdered() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    public String timeOrderedWithTraceParent() {
+        return TraceParent.fromRequestId(generator.nextId(), true);
+    }
+}
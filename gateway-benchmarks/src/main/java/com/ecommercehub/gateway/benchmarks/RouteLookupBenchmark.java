@@ -0,0 +1,134 @@
+package com.ecommercehub.gateway.benchmarks;
+
+import com.ecommercehub.gateway.benchmarks.baseline.LinearRouteLookup;
+import com.ecommercehub.gateway.routing.IndexedRoutePredicate;
+import com.ecommercehub.gateway.routing.RouteIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route lookup cost as the route table grows: the gateway's linear predicate scan vs
+ * the compiled route index
+ * <p>
+ * The table mixes per-tenant, versioned and canary routes, as we expect them:
+ * - /api/tenants/tenant-N/v1/orders/** (literal prefix)
+ * - /api/tenants/tenant-N/{version}/items/{id} (variables)
+ * - canary copies of every tenth route restricted to POST
+ * <p>
+ * Three lookups: a route near the start, one near the end and a path no route matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteLookupBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int routeCount;
+
+    private LinearRouteLookup linear;
+    private RouteIndex index;
+    private ServerWebExchange firstRoute;
+    private ServerWebExchange lastRoute;
+    private ServerWebExchange noRoute;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PathRoutePredicateFactory pathFactory = new PathRoutePredicateFactory();
+        MethodRoutePredicateFactory methodFactory = new MethodRoutePredicateFactory();
+        List<Route> builtIn = new ArrayList<>(routeCount);
+        List<Route> indexed = new ArrayList<>(routeCount);
+
+        for (int i = 0; builtIn.size() < routeCount; i++) {
+            String pattern = i % 2 == 0
+                    ? "/api/tenants/tenant-" + i + "/v1/orders/**"
+                    : "/api/tenants/tenant-" + i + "/{version}/items/{id}";
+            boolean canary = i % 10 == 0 && builtIn.size() + 1 < routeCount;
+            if (canary) {
+                builtIn.add(Route.async().id("canary-" + i).uri("lb://CANARY")
+                        .asyncPredicate(pathFactory.applyAsync(c -> c.setPatterns(List.of(pattern)))
+                                .and(methodFactory.applyAsync(c -> c.setMethods(HttpMethod.POST))))
+                        .build());
+                indexed.add(Route.async().id("canary-" + i).uri("lb://CANARY")
+                        .asyncPredicate(IndexedRoutePredicate.path(pattern).methods(HttpMethod.POST))
+                        .build());
+            }
+            builtIn.add(Route.async().id("route-" + i).uri("lb://SERVICE")
+                    .asyncPredicate(pathFactory.applyAsync(c -> c.setPatterns(List.of(pattern))))
+                    .build());
+            indexed.add(Route.async().id("route-" + i).uri("lb://SERVICE")
+                    .asyncPredicate(IndexedRoutePredicate.path(pattern))
+                    .build());
+        }
+
+        linear = new LinearRouteLookup(builtIn);
+        index = RouteIndex.compile(indexed);
+        firstRoute = get("/api/tenants/tenant-1/v2/items/42");
+        lastRoute = get(lastPath(routeCount));
+        noRoute = get("/api/tenants/unknown/v1/orders/1");
+    }
+
+    @Benchmark
+    public Route linearFirstRoute() {
+        return linear.lookup(firstRoute).block();
+    }
+
+    @Benchmark
+    public Route indexedFirstRoute() {
+        return index.lookup(firstRoute).block();
+    }
+
+    @Benchmark
+    public Route linearLastRoute() {
+        return linear.lookup(lastRoute).block();
+    }
+
+    @Benchmark
+    public Route indexedLastRoute() {
+        return index.lookup(lastRoute).block();
+    }
+
+    @Benchmark
+    public Route linearNoRoute() {
+        return linear.lookup(noRoute).block();
+    }
+
+    @Benchmark
+    public Route indexedNoRoute() {
+        return index.lookup(noRoute).block();
+    }
+
+    private static String lastPath(int routeCount) {
+        // About 90% into the table; odd tenants have the items route
+        int tenant = routeCount * 9 / 10 - 1;
+        tenant = tenant % 2 == 1 ? tenant : tenant - 1;
+        return "/api/tenants/tenant-" + tenant + "/v3/items/7";
+    }
+
+    private static ServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+}
@@ -1,23 +1,21 @@
-package com.ecommercehub.gateway.filter;
+package com.ecommercehub.gateway.benchmarks.baseline;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
- * Global filter for logging incoming requests
+ * Copy of the request logging filter the access log replaced, kept as a baseline
  * Implements Ordered to control filter execution order
  */
-@Component
 @Slf4j
-public class RequestLoggingFilter implements GlobalFilter, Ordered {
+public class LegacyRequestLoggingFilter implements GlobalFilter, Ordered {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
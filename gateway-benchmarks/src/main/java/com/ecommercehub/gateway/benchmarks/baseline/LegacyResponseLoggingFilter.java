@@ -1,22 +1,20 @@
-package com.ecommercehub.gateway.filter;
+package com.ecommercehub.gateway.benchmarks.baseline;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
 import org.springframework.http.server.reactive.ServerHttpResponse;
-import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
- * Global filter for logging outgoing responses
+ * Copy of the response logging filter the access log replaced, kept as a baseline
  */
-@Component
 @Slf4j
-public class ResponseLoggingFilter implements GlobalFilter, Ordered {
+public class LegacyResponseLoggingFilter implements GlobalFilter, Ordered {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
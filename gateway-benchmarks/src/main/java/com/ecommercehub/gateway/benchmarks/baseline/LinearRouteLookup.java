@@ -0,0 +1,34 @@
+package com.ecommercehub.gateway.benchmarks.baseline;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Route lookup as done by the gateway's RoutePredicateHandlerMapping: every
+ * predicate in route order until one matches
+ */
+public final class LinearRouteLookup {
+
+    private final List<Route> routes;
+
+    public LinearRouteLookup(List<Route> routes) {
+        this.routes = routes;
+    }
+
+    public Mono<Route> lookup(ServerWebExchange exchange) {
+        return Flux.fromIterable(routes)
+                .concatMap(route -> Mono.just(route)
+                        .filterWhen(r -> {
+                            exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, r.getId());
+                            return r.getPredicate().apply(exchange);
+                        })
+                        .onErrorResume(e -> Mono.empty()))
+                .next();
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecommercehub.gateway.benchmarks.support;
+
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Redis template that answers Lua scripts in memory
+ * <p>
+ * Takes the network out of rate limiter benchmarks; an optional fixed delay stands in
+ * for the round trip. The connection factory is never started, so nothing connects.
+ */
+public class FakeRedisTemplate extends ReactiveStringRedisTemplate {
+
+    private final BiFunction<List<String>, List<?>, List<Long>> answer;
+    private final Duration roundTrip;
+
+    public FakeRedisTemplate(BiFunction<List<String>, List<?>, List<Long>> answer, Duration roundTrip) {
+        super(new LettuceConnectionFactory());
+        this.answer = answer;
+        this.roundTrip = roundTrip;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> execute(RedisScript<T> script, List<String> keys, List<?> args) {
+        Flux<T> result = Flux.just((T) answer.apply(keys, args));
+        return roundTrip.isZero() ? result : result.delaySubscription(roundTrip);
+    }
+}
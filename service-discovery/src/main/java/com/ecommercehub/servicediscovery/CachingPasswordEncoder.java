@@ -0,0 +1,132 @@
+package com.ecommercehub.servicediscovery;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Password encoder that remembers the credentials it has already verified
+ * <p>
+ * HTTP Basic checks the password on every request, so with plain BCrypt every
+ * registration, every 30 s lease renewal and every registry fetch of every instance
+ * pays a full BCrypt hash (tens of milliseconds of CPU). With a few thousand instances
+ * that is most of what the server does.
+ * <p>
+ * Once the delegate has accepted a password, this keeps an HMAC-SHA256 of it for ttl,
+ * keyed by the stored hash it matched. The HMAC key is random per process and never
+ * leaves it; the plain password is not kept. A later check of the same password
+ * computes the HMAC and compares it in constant time instead of running BCrypt.
+ * <p>
+ * - wrong passwords always go to the delegate, so guessing is as slow as before
+ * - a changed password has a new stored hash, so entries for the old one are never
+ *   used again and age out
+ * - at most maxEntries entries; expired ones are dropped first, then all
+ * <p>
+ * Meter: eureka.auth.credential.cache{result=hit|miss}
+ */
+public class CachingPasswordEncoder implements PasswordEncoder {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final PasswordEncoder delegate;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final SecretKeySpec key;
+    private final Map<String, Verified> verified = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingPasswordEncoder(PasswordEncoder delegate, Duration ttl, int maxEntries, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = Math.max(1, maxEntries);
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+
+        FunctionCounter.builder("eureka.auth.credential.cache", hits, LongAdder::sum)
+                .description("Password checks answered from verified credentials")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("eureka.auth.credential.cache", misses, LongAdder::sum)
+                .description("Password checks answered from verified credentials")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        byte[] digest = digest(rawPassword, encodedPassword);
+        long now = System.nanoTime();
+        Verified entry = verified.get(encodedPassword);
+        if (entry != null && now - entry.expiresAt < 0 && MessageDigest.isEqual(entry.digest, digest)) {
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        if (!delegate.matches(rawPassword, encodedPassword)) {
+            return false;
+        }
+        if (entry == null && verified.size() >= maxEntries) {
+            prune(now);
+        }
+        verified.put(encodedPassword, new Verified(digest, now + ttlNanos));
+        return true;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private byte[] digest(CharSequence rawPassword, String encodedPassword) {
+        try {
+            // Not cached per thread: request threads may be virtual
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    private void prune(long now) {
+        verified.values().removeIf(entry -> now - entry.expiresAt >= 0);
+        if (verified.size() >= maxEntries) {
+            verified.clear();
+        }
+    }
+
+    private static final class Verified {
+
+        final byte[] digest;
+        final long expiresAt;
+
+        Verified(byte[] digest, long expiresAt) {
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,27 +1,31 @@
 package com.ecommercehub.servicediscovery;
 
-import com.netflix.discovery.shared.Application;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerContextHolder;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 
 /**
  * Custom Health Indicator for Eureka Server Registry Details
  * <p>
  * This provides detailed health information about the Eureka Server including:
  * - Number of registered services
- * - Status of each registered service
+ * - Instances of each registered service, by status
  * - Registry statistics
  * <p>
+ * The details come from {@link RegistryStatistics} rather than a walk over the
+ * registry, and are built at most once per discovery.health.max-staleness; probes in
+ * between get the cached result.
+ * <p>
  * Note: This is separate from Spring Cloud's built-in eurekaHealthIndicator
  * which focuses on Eureka client functionality.
  */
@@ -29,8 +33,32 @@ import java.util.stream.Collectors;
 @Component("eurekaServerHealthIndicator")  // Explicit bean name to avoid conflict
 public class EurekaServerHealthIndicator implements HealthIndicator {
 
+    private final RegistryStatistics statistics;
+    private final long maxStalenessNanos;
+
+    private volatile Health cached;
+    private volatile long cachedAt;
+
+    public EurekaServerHealthIndicator(RegistryStatistics statistics,
+                                       @Value("${discovery.health.max-staleness:5s}") Duration maxStaleness) {
+        this.statistics = statistics;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+    }
+
     @Override
     public Health health() {
+        Health health = cached;
+        if (health != null && System.nanoTime() - cachedAt < maxStalenessNanos) {
+            return health;
+        }
+        // Concurrent probes may both rebuild; either result is fine
+        health = build();
+        cachedAt = System.nanoTime();
+        cached = health;
+        return health;
+    }
+
+    private Health build() {
         try {
             // Get the Eureka server context
             EurekaServerContext context = EurekaServerContextHolder.getInstance().getServerContext();
@@ -47,28 +75,21 @@ public class EurekaServerHealthIndicator implements HealthIndicator {
             // Collect registry statistics
             Map<String, Object> details = new HashMap<>();
 
-            // Get all registered applications
-            List<Application> apps = registry.getApplications().getRegisteredApplications();
-
-            // Count total instances
-            int totalInstances = apps.stream()
-                    .mapToInt(app -> app.getInstances().size())
-                    .sum();
-
-            // Create a map of service names to instance counts
-            Map<String, Integer> serviceInstanceCounts = apps.stream()
-                    .collect(Collectors.toMap(
-                            Application::getName,
-                            app -> app.getInstances().size()
-                    ));
+            Map<String, Map<String, Integer>> byApp = statistics.byApp();
+            Map<String, Integer> serviceInstanceCounts = new TreeMap<>();
+            byApp.forEach((app, statuses) -> serviceInstanceCounts.put(app,
+                    statuses.values().stream().mapToInt(Integer::intValue).sum()));
 
             // Add details to health check
-            details.put("registeredApplications", apps.size());
-            details.put("totalInstances", totalInstances);
+            details.put("registeredApplications", statistics.getServices());
+            details.put("totalInstances", statistics.getInstances());
             details.put("services", serviceInstanceCounts);
+            details.put("instancesByStatus", byApp);
 
             // Add registry metrics
             details.put("numberOfRenewsPerMin", registry.getNumOfRenewsPerMinThreshold());
+            details.put("renewsLastMinute", statistics.getRenewalsLastMinute());
+            details.put("evictions", statistics.getEvictions());
             details.put("isSelfPreservationModeEnabled", registry.isSelfPreservationModeEnabled());
             details.put("status", "running");
 
@@ -84,4 +105,4 @@ public class EurekaServerHealthIndicator implements HealthIndicator {
                     .build();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package com.ecommercehub.servicediscovery;
+
+import org.springframework.cloud.netflix.eureka.server.ReplicationClientAdditionalFilters;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Peer Replication Configuration for HA Eureka clusters
+ * <p>
+ * Replaces the (empty) default set of additional replication client filters, so every
+ * peer's replication client compresses and measures its batches. See
+ * {@link PeerReplicationInterceptor}.
+ */
+@Configuration
+public class PeerReplicationConfiguration {
+
+    @Bean
+    public ReplicationClientAdditionalFilters replicationClientAdditionalFilters(PeerReplicationInterceptor interceptor) {
+        return new ReplicationClientAdditionalFilters(List.of(interceptor));
+    }
+}
@@ -0,0 +1,225 @@
+package com.ecommercehub.servicediscovery;
+
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses and measures the batches this node replicates to its peers
+ * <p>
+ * Eureka already queues replication per peer: renewals and status changes of the same
+ * instance replace each other while queued (dedup by task id), the queue is bounded
+ * (eureka.server.max-elements-in-peer-replication-pool, oldest dropped when full),
+ * and up to 250 tasks go out together as one POST to /peerreplication/batch, retried
+ * with backoff while the peer is unavailable. What it sends is uncompressed JSON,
+ * and it reports nothing to Micrometer.
+ * <p>
+ * Registered with the replication client, this:
+ * - gzips each batch (discovery.replication.compression, off by default) for
+ *   {@link ReplicationDecompressionFilter} on the receiving node
+ * - records per peer the tasks and bytes per batch, and the lag from a local
+ *   registration, renewal or cancel to the batch that carries it
+ * <p>
+ * Meters:
+ * - eureka.replication.batch.size{peer}: tasks per batch
+ * - eureka.replication.batch.bytes{peer}: bytes per batch as sent
+ * - eureka.replication.lag{peer}: from the oldest unsent local change of an instance
+ *   to its replication; coalesced renewals count from the first
+ * - eureka.replication.pending{peer}: instances with changes not yet sent
+ * <p>
+ * Turn compression on only after every node of the cluster runs
+ * ReplicationDecompressionFilter, i.e. after a full rollout of this version; a peer
+ * without it rejects every gzipped batch and replication to it stops.
+ */
+@Component
+public class PeerReplicationInterceptor implements ClientRequestFilter, WriterInterceptor {
+
+    private static final String PEER = PeerReplicationInterceptor.class.getName() + ".peer";
+    private static final String GZIP = "gzip";
+
+    private final ObjectProvider<PeerEurekaNodes> peerEurekaNodes;
+    private final MeterRegistry meterRegistry;
+    private final boolean compression;
+
+    // Peer (host:port) -> instance -> nanoTime of its oldest change not yet sent there
+    private final Map<String, Map<String, Long>> pending = new ConcurrentHashMap<>();
+    private final Map<String, PeerMeters> meters = new ConcurrentHashMap<>();
+
+    public PeerReplicationInterceptor(ObjectProvider<PeerEurekaNodes> peerEurekaNodes,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${discovery.replication.compression:false}") boolean compression) {
+        this.peerEurekaNodes = peerEurekaNodes;
+        this.meterRegistry = meterRegistry;
+        this.compression = compression;
+    }
+
+    @EventListener
+    public void onRegistered(EurekaInstanceRegisteredEvent event) {
+        if (!event.isReplication()) {
+            changed(event.getInstanceInfo().getAppName(), event.getInstanceInfo().getId());
+        }
+    }
+
+    @EventListener
+    public void onRenewed(EurekaInstanceRenewedEvent event) {
+        if (!event.isReplication()) {
+            changed(event.getAppName(), event.getServerId());
+        }
+    }
+
+    @EventListener
+    public void onCanceled(EurekaInstanceCanceledEvent event) {
+        if (!event.isReplication()) {
+            changed(event.getAppName(), event.getServerId());
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        if (request.getEntity() instanceof ReplicationList) {
+            request.setProperty(PEER, peer(request.getUri()));
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Object peer = context.getProperty(PEER);
+        if (!(peer instanceof String peerName) || !(context.getEntity() instanceof ReplicationList batch)) {
+            context.proceed();
+            return;
+        }
+
+        PeerMeters peerMeters = meters(peerName);
+        Map<String, Long> unsent = pending.get(peerName);
+        long now = System.nanoTime();
+        for (ReplicationInstance task : batch.getReplicationList()) {
+            Long since = unsent != null ? unsent.remove(key(task.getAppName(), task.getId())) : null;
+            if (since != null) {
+                peerMeters.lag.record(now - since, TimeUnit.NANOSECONDS);
+            }
+        }
+        peerMeters.batchSize.record(batch.getReplicationList().size());
+
+        OutputStream wire = context.getOutputStream();
+        CountingOutputStream counted = new CountingOutputStream(wire);
+        if (compression) {
+            // Set here rather than in filter(): a content encoder registered by the
+            // client itself would otherwise compress the batch a second time
+            context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, GZIP);
+            GZIPOutputStream gzip = new GZIPOutputStream(counted, 8192) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+            context.setOutputStream(gzip);
+            context.proceed();
+            gzip.finish();
+        } else {
+            context.setOutputStream(counted);
+            context.proceed();
+        }
+        context.setOutputStream(wire);
+        peerMeters.batchBytes.record(counted.count);
+    }
+
+    private void changed(String app, String instanceId) {
+        PeerEurekaNodes nodes = peerEurekaNodes.getIfAvailable();
+        if (nodes == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        String key = key(app, instanceId);
+        for (PeerEurekaNode node : nodes.getPeerNodesView()) {
+            pending.computeIfAbsent(peer(URI.create(node.getServiceUrl())), peer -> new ConcurrentHashMap<>())
+                    .putIfAbsent(key, now);
+        }
+    }
+
+    private PeerMeters meters(String peer) {
+        return meters.computeIfAbsent(peer, PeerMeters::new);
+    }
+
+    private static String peer(URI uri) {
+        return uri.getHost() + ":" + uri.getPort();
+    }
+
+    private static String key(String app, String instanceId) {
+        return app.toUpperCase() + "/" + instanceId;
+    }
+
+    private final class PeerMeters {
+
+        final DistributionSummary batchSize;
+        final DistributionSummary batchBytes;
+        final Timer lag;
+
+        PeerMeters(String peer) {
+            this.batchSize = DistributionSummary.builder("eureka.replication.batch.size")
+                    .description("Replication tasks per batch sent to a peer")
+                    .tag("peer", peer)
+                    .register(meterRegistry);
+            this.batchBytes = DistributionSummary.builder("eureka.replication.batch.bytes")
+                    .description("Bytes per replication batch as sent to a peer")
+                    .baseUnit("bytes")
+                    .tag("peer", peer)
+                    .register(meterRegistry);
+            this.lag = Timer.builder("eureka.replication.lag")
+                    .description("Time from a local registry change to its replication to a peer")
+                    .tag("peer", peer)
+                    .register(meterRegistry);
+            Gauge.builder("eureka.replication.pending", pending,
+                            unsent -> unsent.getOrDefault(peer, Map.of()).size())
+                    .description("Instances with changes not yet replicated to a peer")
+                    .tag("peer", peer)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
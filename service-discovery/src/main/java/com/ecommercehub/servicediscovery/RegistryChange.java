@@ -0,0 +1,73 @@
+package com.ecommercehub.servicediscovery;
+
+import com.netflix.appinfo.InstanceInfo;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One entry of the registry change feed, sent as JSON
+ * <p>
+ * seq numbers the changes of this server process without gaps; a client that sees a
+ * gap has missed something and must start over from a snapshot.
+ */
+@Getter
+public class RegistryChange {
+
+    public enum Type {
+
+        REGISTERED,
+
+        /**
+         * The instance deregistered itself
+         */
+        CANCELLED,
+
+        /**
+         * The lease expired without renewals
+         */
+        EVICTED,
+
+        STATUS
+    }
+
+    private long seq;
+    private final Type type;
+    private final String app;
+    private final String instanceId;
+    private final String host;
+    private final int port;
+    private final boolean secure;
+    private final String status;
+    private final Map<String, String> metadata;
+    private final long timestamp;
+
+    private RegistryChange(Type type, String app, String instanceId, String host, int port, boolean secure,
+                           String status, Map<String, String> metadata) {
+        this.type = type;
+        this.app = app;
+        this.instanceId = instanceId;
+        this.host = host;
+        this.port = port;
+        this.secure = secure;
+        this.status = status;
+        this.metadata = metadata;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    static RegistryChange of(Type type, InstanceInfo instance) {
+        boolean secure = instance.isPortEnabled(InstanceInfo.PortType.SECURE);
+        return new RegistryChange(type, instance.getAppName(), instance.getId(), instance.getHostName(),
+                secure ? instance.getSecurePort() : instance.getPort(), secure, instance.getStatus().name(),
+                instance.getMetadata() != null ? new HashMap<>(instance.getMetadata()) : Map.of());
+    }
+
+    static RegistryChange removed(Type type, String app, String instanceId) {
+        return new RegistryChange(type, app, instanceId, null, 0, false, null, Map.of());
+    }
+
+    void setSeq(long seq) {
+        this.seq = seq;
+    }
+}
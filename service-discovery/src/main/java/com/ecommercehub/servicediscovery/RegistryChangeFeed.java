@@ -0,0 +1,345 @@
+package com.ecommercehub.servicediscovery;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaRegistryAvailableEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes registry changes to subscribers as they happen (GET /registry/changes, SSE)
+ * <p>
+ * Clients otherwise learn about a dead instance only after the response cache
+ * refreshes and their next 30 s fetch. Here every registration, cancel, eviction and
+ * status change goes out right away as a "change" event with the next sequence number.
+ * <p>
+ * The feed keeps its own copy of the registry, updated by the same changes, so a
+ * "snapshot" event (all instances plus the sequence number they are current to) and
+ * the changes after it always fit together. A new subscriber gets a snapshot; one that
+ * reconnects with Last-Event-ID gets the changes it missed, if they are still in the
+ * history, and a snapshot otherwise. Event ids are "epoch:seq", where epoch is new
+ * for every server process, so a restarted server is never resumed from.
+ * <p>
+ * Each subscriber has its own bounded queue and sender thread; one that falls too far
+ * behind is disconnected and resumes on reconnect.
+ * <p>
+ * Every change is also reported to {@link RegistryStatistics}, which keeps the
+ * registry's counts from them.
+ */
+@Slf4j
+@Component
+public class RegistryChangeFeed implements DisposableBean {
+
+    // Eureka expires leases on this timer thread; cancels seen on it are evictions
+    private static final String EVICTION_THREAD = "Eureka-EvictionTimer";
+    private static final Object KEEPALIVE = new Object();
+
+    private final PeerAwareInstanceRegistry registry;
+    private final RegistryStatistics statistics;
+    private final int historySize;
+    private final int subscriberBuffer;
+    private final Duration connectionTimeout;
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final ScheduledExecutorService keepalive;
+
+    // All guarded by lock; instances is only written under it, renewals read it without
+    private final Object lock = new Object();
+    private final Map<String, RegistryChange> instances = new ConcurrentHashMap<>();
+    private final ArrayDeque<RegistryChange> history = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private long seq;
+
+    public RegistryChangeFeed(PeerAwareInstanceRegistry registry,
+                              RegistryStatistics statistics,
+                              @Value("${discovery.change-feed.history:10000}") int historySize,
+                              @Value("${discovery.change-feed.subscriber-buffer:10000}") int subscriberBuffer,
+                              @Value("${discovery.change-feed.connection-timeout:30m}") Duration connectionTimeout,
+                              @Value("${discovery.change-feed.keepalive:15s}") Duration keepaliveInterval) {
+        this.registry = registry;
+        this.statistics = statistics;
+        this.historySize = historySize;
+        this.subscriberBuffer = subscriberBuffer;
+        this.connectionTimeout = connectionTimeout;
+        this.keepalive = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "registry-feed-keepalive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        keepalive.scheduleWithFixedDelay(this::sendKeepalive, keepaliveInterval.toMillis(),
+                keepaliveInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a subscription, resuming after lastEventId when possible
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        synchronized (lock) {
+            long resumeAfter = resumePoint(lastEventId);
+            if (resumeAfter >= 0) {
+                for (RegistryChange change : history) {
+                    if (change.getSeq() > resumeAfter) {
+                        subscriber.offer(change);
+                    }
+                }
+            } else {
+                subscriber.offer(new Snapshot(epoch, seq, List.copyOf(instances.values())));
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.start();
+        return emitter;
+    }
+
+    @EventListener
+    public void onRegistryAvailable(EurekaRegistryAvailableEvent event) {
+        // Whatever the registry holds by now (e.g. synced from peers) is the starting point
+        synchronized (lock) {
+            for (Application application : registry.getApplications().getRegisteredApplications()) {
+                for (InstanceInfo instance : application.getInstances()) {
+                    RegistryChange known = RegistryChange.of(RegistryChange.Type.REGISTERED, instance);
+                    if (instances.putIfAbsent(key(instance.getAppName(), instance.getId()), known) == null) {
+                        statistics.changed(null, known);
+                    }
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void onRegistered(EurekaInstanceRegisteredEvent event) {
+        publish(RegistryChange.of(RegistryChange.Type.REGISTERED, event.getInstanceInfo()));
+    }
+
+    @EventListener
+    public void onCanceled(EurekaInstanceCanceledEvent event) {
+        RegistryChange.Type type = Thread.currentThread().getName().startsWith(EVICTION_THREAD)
+                ? RegistryChange.Type.EVICTED : RegistryChange.Type.CANCELLED;
+        publish(RegistryChange.removed(type, event.getAppName(), event.getServerId()));
+    }
+
+    @EventListener
+    public void onRenewed(EurekaInstanceRenewedEvent event) {
+        statistics.renewed();
+        if (event.getInstanceInfo() != null) {
+            reconcile(event.getInstanceInfo());
+        }
+    }
+
+    /**
+     * The registry publishes no event for status updates; {@link RegistryStatusChangeFilter}
+     * calls this after one succeeded
+     */
+    void statusChanged(String app, String instanceId) {
+        InstanceInfo instance = registry.getInstanceByAppAndId(app, instanceId, false);
+        if (instance != null) {
+            reconcile(instance);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        keepalive.shutdownNow();
+        synchronized (lock) {
+            for (Subscriber subscriber : List.copyOf(subscribers)) {
+                subscriber.close();
+            }
+        }
+    }
+
+    /**
+     * Emitter for a new subscription, closed after discovery.change-feed.connection-timeout
+     */
+    SseEmitter newEmitter() {
+        return new SseEmitter(connectionTimeout.toMillis());
+    }
+
+    /**
+     * Publishes the instance if the feed does not know it or knows another status
+     * <p>
+     * Called on every renewal, nearly always for an instance the feed already has with
+     * the same status; that case is settled without taking the lock.
+     */
+    private void reconcile(InstanceInfo instance) {
+        String key = key(instance.getAppName(), instance.getId());
+        if (isKnown(instances.get(key), instance)) {
+            return;
+        }
+        synchronized (lock) {
+            RegistryChange known = instances.get(key);
+            if (known == null) {
+                publish(RegistryChange.of(RegistryChange.Type.REGISTERED, instance));
+            } else if (!instance.getStatus().name().equals(known.getStatus())) {
+                publish(RegistryChange.of(RegistryChange.Type.STATUS, instance));
+            }
+        }
+    }
+
+    private void publish(RegistryChange change) {
+        synchronized (lock) {
+            change.setSeq(++seq);
+            String key = key(change.getApp(), change.getInstanceId());
+            RegistryChange previous = switch (change.getType()) {
+                case CANCELLED, EVICTED -> instances.remove(key);
+                default -> instances.put(key, change);
+            };
+            statistics.changed(previous, change);
+            history.addLast(change);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            for (Subscriber subscriber : List.copyOf(subscribers)) {
+                if (!subscriber.offer(change)) {
+                    log.warn("Registry feed subscriber fell {} changes behind, disconnecting it", subscriberBuffer);
+                    subscriber.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sequence number to resume after, or -1 if the subscriber needs a snapshot
+     */
+    private long resumePoint(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + ":")) {
+            return -1;
+        }
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        long oldest = history.isEmpty() ? seq + 1 : history.peekFirst().getSeq();
+        boolean inHistory = after <= seq && after >= oldest - 1;
+        // A long replay would only overflow the subscriber's queue
+        return inHistory && seq - after <= subscriberBuffer / 2 ? after : -1;
+    }
+
+    private void sendKeepalive() {
+        synchronized (lock) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(KEEPALIVE);
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        synchronized (lock) {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    private static boolean isKnown(RegistryChange known, InstanceInfo instance) {
+        return known != null && instance.getStatus().name().equals(known.getStatus());
+    }
+
+    private String eventId(long seq) {
+        return epoch + ":" + seq;
+    }
+
+    private static String key(String app, String instanceId) {
+        return app.toUpperCase() + "/" + instanceId;
+    }
+
+    /**
+     * Every instance the feed knows, current as of change seq
+     */
+    @Getter
+    static final class Snapshot {
+
+        private final String epoch;
+        private final long seq;
+        private final List<RegistryChange> instances;
+
+        Snapshot(String epoch, long seq, List<RegistryChange> instances) {
+            this.epoch = epoch;
+            this.seq = seq;
+            this.instances = instances;
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(subscriberBuffer);
+        private volatile boolean closed;
+        private Thread sender;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        boolean offer(Object item) {
+            return closed || queue.offer(item);
+        }
+
+        void start() {
+            sender = Thread.ofVirtual().name("registry-feed-sender").start(this::run);
+        }
+
+        private void run() {
+            try {
+                while (!closed) {
+                    Object item = queue.take();
+                    if (item == KEEPALIVE) {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    } else if (item instanceof Snapshot snapshot) {
+                        emitter.send(SseEmitter.event().id(eventId(snapshot.getSeq())).name("snapshot")
+                                .data(snapshot, MediaType.APPLICATION_JSON));
+                    } else if (item instanceof RegistryChange change) {
+                        emitter.send(SseEmitter.event().id(eventId(change.getSeq())).name("change")
+                                .data(change, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Registry feed subscriber went away: {}", e.toString());
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            remove(this);
+            emitter.complete();
+            if (sender != null && sender != Thread.currentThread()) {
+                sender.interrupt();
+            }
+        }
+    }
+}
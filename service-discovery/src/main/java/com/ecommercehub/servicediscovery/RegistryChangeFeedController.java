@@ -0,0 +1,32 @@
+package com.ecommercehub.servicediscovery;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Registry change feed endpoint, see {@link RegistryChangeFeed}
+ * <p>
+ * Usage: GET http://localhost:8761/registry/changes (HTTP Basic, Accept: text/event-stream)
+ * <p>
+ * Events:
+ * - snapshot: {"epoch": "...", "seq": 41, "instances": [...]}
+ * - change: {"seq": 42, "type": "CANCELLED", "app": "PRODUCT-SERVICE", "instanceId": "...", ...}
+ * Reconnect with the last event id in Last-Event-ID to receive only what was missed.
+ */
+@RestController
+public class RegistryChangeFeedController {
+
+    private final RegistryChangeFeed feed;
+
+    public RegistryChangeFeedController(RegistryChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    @GetMapping(path = "/registry/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return feed.subscribe(lastEventId);
+    }
+}
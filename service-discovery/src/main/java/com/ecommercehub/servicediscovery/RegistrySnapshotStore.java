@@ -0,0 +1,460 @@
+package com.ecommercehub.servicediscovery;
+
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaRegistryAvailableEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the registry to a memory-mapped file and restores it on startup
+ * <p>
+ * A restarted server otherwise starts empty (waitTimeInMsWhenSyncEmpty is 0) and
+ * answers every fetch with nothing until each client's next heartbeat is refused and
+ * it registers again, up to a full renewal interval later.
+ * <p>
+ * Every interval the registry is written as a compact binary snapshot. The file holds
+ * two slots, written alternately, each with a generation number and a CRC32; a crash
+ * mid-write leaves the other slot intact, and restore takes the newest valid slot. The
+ * file is mapped once and grows (by rewriting it) only when the registry outgrows a slot.
+ * <p>
+ * On startup, instances from the snapshot that renewed within max-age and are not
+ * already registered (e.g. synced from a peer) are registered as provisional entries:
+ * - a renewal or registration of the instance confirms it
+ * - one still unconfirmed after provisional-ttl is cancelled
+ * - until confirmed it keeps its original renewal time in later snapshots, so an
+ *   instance that is gone does not survive restart after restart
+ * <p>
+ * Meters:
+ * - eureka.snapshot.write: time to write one snapshot
+ * - eureka.snapshot.size: bytes in the last snapshot
+ * - eureka.snapshot.restored / .confirmed / .expired: provisional entries
+ */
+@Slf4j
+@Component
+public class RegistrySnapshotStore implements SmartLifecycle {
+
+    private static final int MAGIC = 0x45524547; // "EREG"
+    private static final int VERSION = 1;
+    // magic, version, slot capacity
+    private static final int FILE_HEADER = 12;
+    // generation, length, crc
+    private static final int SLOT_HEADER = 16;
+    private static final int INITIAL_SLOT_CAPACITY = 1 << 20;
+
+    private final PeerAwareInstanceRegistry registry;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration interval;
+    private final Duration maxAge;
+    private final Duration provisionalTtl;
+    private final ScheduledExecutorService scheduler;
+    private final Timer writeTimer;
+    private final Counter restoredCounter;
+    private final Counter confirmedCounter;
+    private final Counter expiredCounter;
+
+    // Instance key -> renewal time from the snapshot, until confirmed
+    private final Map<String, Long> provisional = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int slotCapacity;
+    private long generation;
+    private volatile int lastSize;
+
+    // Set once restored; until then a write would replace the snapshot with an empty registry
+    private volatile boolean restored;
+    private volatile boolean running;
+
+    public RegistrySnapshotStore(PeerAwareInstanceRegistry registry,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${discovery.snapshot.enabled:true}") boolean enabled,
+                                 @Value("${discovery.snapshot.path:data/registry.snapshot}") Path path,
+                                 @Value("${discovery.snapshot.interval:30s}") Duration interval,
+                                 @Value("${discovery.snapshot.max-age:3m}") Duration maxAge,
+                                 @Value("${discovery.snapshot.provisional-ttl:90s}") Duration provisionalTtl) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.path = path;
+        this.interval = interval;
+        this.maxAge = maxAge;
+        this.provisionalTtl = provisionalTtl;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "registry-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.writeTimer = Timer.builder("eureka.snapshot.write")
+                .description("Time to write one registry snapshot")
+                .register(meterRegistry);
+        Gauge.builder("eureka.snapshot.size", this, store -> store.lastSize)
+                .description("Bytes in the last registry snapshot")
+                .register(meterRegistry);
+        this.restoredCounter = Counter.builder("eureka.snapshot.restored")
+                .description("Instances restored from the snapshot as provisional entries")
+                .register(meterRegistry);
+        this.confirmedCounter = Counter.builder("eureka.snapshot.confirmed")
+                .description("Provisional entries confirmed by a renewal or registration")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("eureka.snapshot.expired")
+                .description("Provisional entries cancelled because their instance never renewed")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onRegistryAvailable(EurekaRegistryAvailableEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            restore();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not restore the registry from {}, starting empty: {}", path, e.toString());
+        }
+        restored = true;
+        if (!provisional.isEmpty()) {
+            scheduler.schedule(this::expireProvisional, provisionalTtl.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener
+    public void onRegistered(EurekaInstanceRegisteredEvent event) {
+        confirm(event.getInstanceInfo().getAppName(), event.getInstanceInfo().getId());
+    }
+
+    @EventListener
+    public void onRenewed(EurekaInstanceRenewedEvent event) {
+        confirm(event.getAppName(), event.getServerId());
+    }
+
+    @Override
+    public void start() {
+        running = enabled;
+    }
+
+    /**
+     * Stops before the Eureka server lifecycle (higher phase), so the last snapshot
+     * still sees the full registry
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdownNow();
+        if (restored) {
+            writeQuietly();
+        }
+        synchronized (this) {
+            closeChannel();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    synchronized void write() throws IOException {
+        long started = System.nanoTime();
+        byte[] payload = encode();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        long next = generation + 1;
+        if (mapped == null || payload.length > slotCapacity - SLOT_HEADER) {
+            create(Math.max(INITIAL_SLOT_CAPACITY, Math.max(slotCapacity * 2, payload.length + payload.length / 2)),
+                    next, payload, (int) crc.getValue());
+        } else {
+            int offset = FILE_HEADER + (int) (next % 2) * slotCapacity;
+            // Generation last: the slot only counts once the rest is in place
+            mapped.putLong(offset, 0);
+            mapped.putInt(offset + 8, payload.length);
+            mapped.putInt(offset + 12, (int) crc.getValue());
+            mapped.put(offset + SLOT_HEADER, payload);
+            mapped.force();
+            mapped.putLong(offset, next);
+            mapped.force();
+        }
+        generation = next;
+        lastSize = payload.length;
+        writeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write the registry snapshot to {}: {}", path, e.toString());
+        }
+    }
+
+    private void restore() throws IOException {
+        if (!Files.exists(path)) {
+            log.info("No registry snapshot at {}, starting empty", path);
+            return;
+        }
+        ByteBuffer payload;
+        synchronized (this) {
+            open();
+            payload = newestSlot();
+        }
+        if (payload == null) {
+            log.warn("Registry snapshot {} has no valid slot, starting empty", path);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int count = payload.getInt();
+        int restored = 0;
+        for (int i = 0; i < count; i++) {
+            long renewedAt = payload.getLong();
+            InstanceInfo instance = decode(payload);
+            if (now - renewedAt > maxAge.toMillis()
+                    || registry.getInstanceByAppAndId(instance.getAppName(), instance.getId(), false) != null) {
+                continue;
+            }
+            // As a replication, so peers (which have their own copy) are not told
+            registry.register(instance, instance.getLeaseInfo().getDurationInSecs(), true);
+            provisional.put(key(instance.getAppName(), instance.getId()), renewedAt);
+            restored++;
+        }
+        restoredCounter.increment(restored);
+        log.info("Restored {} of {} instances from the registry snapshot (generation {})", restored, count, generation);
+    }
+
+    private void confirm(String app, String instanceId) {
+        if (!provisional.isEmpty() && provisional.remove(key(app, instanceId)) != null) {
+            confirmedCounter.increment();
+        }
+    }
+
+    private void expireProvisional() {
+        int expired = 0;
+        for (String key : List.copyOf(provisional.keySet())) {
+            String[] parts = key.split("/", 2);
+            if (provisional.remove(key) != null && registry.cancel(parts[0], parts[1], true)) {
+                expired++;
+            }
+        }
+        expiredCounter.increment(expired);
+        log.info("Cancelled {} restored instances that never renewed", expired);
+    }
+
+    private byte[] encode() throws IOException {
+        List<InstanceInfo> instances = new ArrayList<>();
+        for (Application application : registry.getApplications().getRegisteredApplications()) {
+            instances.addAll(application.getInstances());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(1024, lastSize));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(instances.size());
+        for (InstanceInfo instance : instances) {
+            LeaseInfo lease = instance.getLeaseInfo();
+            Long restoredRenewal = provisional.get(key(instance.getAppName(), instance.getId()));
+            out.writeLong(restoredRenewal != null ? restoredRenewal
+                    : lease != null ? lease.getRenewalTimestamp() : System.currentTimeMillis());
+            writeString(out, instance.getAppName());
+            writeString(out, instance.getId());
+            writeString(out, instance.getHostName());
+            writeString(out, instance.getIPAddr());
+            out.writeInt(instance.getPort());
+            out.writeBoolean(instance.isPortEnabled(InstanceInfo.PortType.UNSECURE));
+            out.writeInt(instance.getSecurePort());
+            out.writeBoolean(instance.isPortEnabled(InstanceInfo.PortType.SECURE));
+            writeString(out, instance.getVIPAddress());
+            writeString(out, instance.getSecureVipAddress());
+            writeString(out, instance.getHomePageUrl());
+            writeString(out, instance.getStatusPageUrl());
+            writeString(out, instance.getHealthCheckUrl());
+            writeString(out, instance.getSecureHealthCheckUrl());
+            writeString(out, instance.getStatus().name());
+            out.writeLong(instance.getLastDirtyTimestamp() != null ? instance.getLastDirtyTimestamp() : 0);
+            out.writeInt(lease != null ? lease.getDurationInSecs() : LeaseInfo.DEFAULT_LEASE_DURATION);
+            out.writeInt(lease != null ? lease.getRenewalIntervalInSecs() : LeaseInfo.DEFAULT_LEASE_RENEWAL_INTERVAL);
+            Map<String, String> metadata = instance.getMetadata() != null ? instance.getMetadata() : Map.of();
+            out.writeShort(metadata.size());
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static InstanceInfo decode(ByteBuffer in) {
+        InstanceInfo.Builder builder = InstanceInfo.Builder.newBuilder()
+                .setAppName(readString(in))
+                .setInstanceId(readString(in))
+                .setHostName(readString(in))
+                .setIPAddr(readString(in))
+                .setPort(in.getInt())
+                .enablePort(InstanceInfo.PortType.UNSECURE, in.get() != 0)
+                .setSecurePort(in.getInt())
+                .enablePort(InstanceInfo.PortType.SECURE, in.get() != 0)
+                .setVIPAddressDeser(readString(in))
+                .setSecureVIPAddressDeser(readString(in))
+                .setHomePageUrlForDeser(readString(in))
+                .setStatusPageUrlForDeser(readString(in))
+                .setHealthCheckUrlsForDeser(readString(in), readString(in))
+                .setStatus(InstanceInfo.InstanceStatus.toEnum(readString(in)))
+                .setLastDirtyTimestamp(in.getLong())
+                .setLeaseInfo(LeaseInfo.Builder.newBuilder()
+                        .setDurationInSecs(in.getInt())
+                        .setRenewalIntervalInSecs(in.getInt())
+                        .build())
+                // The platform's instances all run outside AWS
+                .setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn));
+        int metadataSize = in.getShort();
+        Map<String, String> metadata = new HashMap<>();
+        for (int i = 0; i < metadataSize; i++) {
+            metadata.put(readString(in), readString(in));
+        }
+        return builder.setMetadata(metadata).build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Payload of the newest slot whose CRC matches, positioned at its start, or null
+     */
+    private ByteBuffer newestSlot() {
+        ByteBuffer newest = null;
+        for (int slot = 0; slot < 2; slot++) {
+            int offset = FILE_HEADER + slot * slotCapacity;
+            long slotGeneration = mapped.getLong(offset);
+            int length = mapped.getInt(offset + 8);
+            if (slotGeneration <= generation || length < 0 || length > slotCapacity - SLOT_HEADER) {
+                continue;
+            }
+            ByteBuffer payload = mapped.slice(offset + SLOT_HEADER, length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() == mapped.getInt(offset + 12)) {
+                generation = slotGeneration;
+                newest = payload;
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Maps an existing snapshot file
+     */
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < FILE_HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            closeChannel();
+            throw new IOException("not a registry snapshot (version " + VERSION + ")");
+        }
+        slotCapacity = header.getInt();
+        if (slotCapacity < SLOT_HEADER || channel.size() < FILE_HEADER + 2L * slotCapacity) {
+            closeChannel();
+            throw new IOException("truncated");
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER + 2L * slotCapacity);
+    }
+
+    /**
+     * Replaces the file with one of the given slot capacity holding only the payload,
+     * and maps it
+     */
+    private void create(int capacity, long payloadGeneration, byte[] payload, int crc) throws IOException {
+        closeChannel();
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putInt(VERSION).putInt(capacity);
+            header.flip();
+            file.write(header, 0);
+            ByteBuffer slot = ByteBuffer.allocate(SLOT_HEADER + payload.length)
+                    .putLong(payloadGeneration).putInt(payload.length).putInt(crc).put(payload);
+            slot.flip();
+            file.write(slot, FILE_HEADER + (payloadGeneration % 2) * capacity);
+            // Sparse up to the end of the second slot
+            file.write(ByteBuffer.allocate(1), FILE_HEADER + 2L * capacity - 1);
+            file.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    private void closeChannel() {
+        mapped = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Could not close {}: {}", path, e.toString());
+            }
+            channel = null;
+        }
+    }
+
+    private static String key(String app, String instanceId) {
+        return app.toUpperCase() + "/" + instanceId;
+    }
+}
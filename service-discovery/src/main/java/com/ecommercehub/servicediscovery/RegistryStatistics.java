@@ -0,0 +1,150 @@
+package com.ecommercehub.servicediscovery;
+
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry counts kept up to date from the registry's own changes
+ * <p>
+ * Gauges that walk getRegisteredApplications() cost O(instances) on every Prometheus
+ * scrape and every Kubernetes probe. Here the {@link RegistryChangeFeed} reports each
+ * change together with what it replaced, and the counts move by one; reading them is
+ * O(1).
+ * <p>
+ * Meters:
+ * - eureka.services.count: services with at least one instance
+ * - eureka.instances.count: all instances
+ * - eureka.app.instances{app,status}: instances of one service in one status
+ * - eureka.renewals: lease renewals; eureka.renewals.per.second over the last minute
+ * - eureka.cancellations: instances that deregistered themselves
+ * - eureka.evictions: instances whose lease expired
+ */
+@Component
+public class RegistryStatistics {
+
+    private final MeterRegistry meterRegistry;
+    private final PeerAwareInstanceRegistry registry;
+
+    // app -> status -> count; written under the change feed's lock
+    private final Map<String, Map<String, AtomicInteger>> byApp = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> appTotals = new ConcurrentHashMap<>();
+    private final AtomicInteger services = new AtomicInteger();
+    private final AtomicInteger instances = new AtomicInteger();
+    private final LongAdder renewals = new LongAdder();
+    private final LongAdder cancellations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RegistryStatistics(MeterRegistry meterRegistry, PeerAwareInstanceRegistry registry) {
+        this.meterRegistry = meterRegistry;
+        this.registry = registry;
+
+        Gauge.builder("eureka.services.count", services, AtomicInteger::get)
+                .description("Number of registered services in Eureka")
+                .register(meterRegistry);
+        Gauge.builder("eureka.instances.count", instances, AtomicInteger::get)
+                .description("Total number of instances across all services")
+                .register(meterRegistry);
+        FunctionCounter.builder("eureka.renewals", renewals, LongAdder::sum)
+                .description("Lease renewals")
+                .register(meterRegistry);
+        Gauge.builder("eureka.renewals.per.second", registry, r -> r.getNumOfRenewsInLastMin() / 60.0)
+                .description("Lease renewals per second over the last minute")
+                .register(meterRegistry);
+        FunctionCounter.builder("eureka.cancellations", cancellations, LongAdder::sum)
+                .description("Instances that deregistered themselves")
+                .register(meterRegistry);
+        FunctionCounter.builder("eureka.evictions", evictions, LongAdder::sum)
+                .description("Instances removed because their lease expired")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Accounts for one change; previous is the feed's entry it replaces, or null
+     */
+    void changed(RegistryChange previous, RegistryChange change) {
+        switch (change.getType()) {
+            case CANCELLED -> cancellations.increment();
+            case EVICTED -> evictions.increment();
+            default -> {
+            }
+        }
+        if (previous != null) {
+            count(previous.getApp(), previous.getStatus(), -1);
+        }
+        if (change.getType() != RegistryChange.Type.CANCELLED && change.getType() != RegistryChange.Type.EVICTED) {
+            count(change.getApp(), change.getStatus(), 1);
+        }
+    }
+
+    void renewed() {
+        renewals.increment();
+    }
+
+    int getServices() {
+        return services.get();
+    }
+
+    int getInstances() {
+        return instances.get();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    long getRenewalsLastMinute() {
+        return registry.getNumOfRenewsInLastMin();
+    }
+
+    /**
+     * Instance counts per service and status, sorted by service; O(services)
+     */
+    Map<String, Map<String, Integer>> byApp() {
+        Map<String, Map<String, Integer>> copy = new TreeMap<>();
+        byApp.forEach((app, statuses) -> {
+            Map<String, Integer> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> {
+                if (count.get() > 0) {
+                    counts.put(status, count.get());
+                }
+            });
+            if (!counts.isEmpty()) {
+                copy.put(app, counts);
+            }
+        });
+        return copy;
+    }
+
+    private void count(String app, String status, int delta) {
+        String appName = app.toUpperCase();
+        byApp.computeIfAbsent(appName, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(status, key -> gauge(appName, status))
+                .addAndGet(delta);
+        int appTotal = appTotals.computeIfAbsent(appName, key -> new AtomicInteger()).addAndGet(delta);
+        if (delta > 0 && appTotal == 1) {
+            services.incrementAndGet();
+        } else if (delta < 0 && appTotal == 0) {
+            services.decrementAndGet();
+        }
+        instances.addAndGet(delta);
+    }
+
+    private AtomicInteger gauge(String app, String status) {
+        AtomicInteger count = new AtomicInteger();
+        Gauge.builder("eureka.app.instances", count, AtomicInteger::get)
+                .description("Instances of one service in one status")
+                .tag("app", app)
+                .tag("status", status)
+                .register(meterRegistry);
+        return count;
+    }
+}
@@ -0,0 +1,50 @@
+package com.ecommercehub.servicediscovery;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tells the {@link RegistryChangeFeed} about successful status updates
+ * (PUT or DELETE /eureka/apps/{app}/{id}/status), which the registry does not publish
+ * <p>
+ * Ordered after the security filters and before the Jersey filter that serves
+ * /eureka/*, which ends the chain.
+ */
+@Component
+@Order(0)
+public class RegistryStatusChangeFilter extends OncePerRequestFilter {
+
+    private static final Pattern STATUS_PATH = Pattern.compile("/eureka/apps/([^/]+)/([^/]+)/status");
+
+    private final RegistryChangeFeed feed;
+
+    public RegistryStatusChangeFilter(RegistryChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("PUT".equals(method) || "DELETE".equals(method)) || !request.getRequestURI().endsWith("/status");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(request, response);
+
+        Matcher matcher = STATUS_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length()));
+        if (response.getStatus() == HttpServletResponse.SC_OK && matcher.matches()) {
+            feed.statusChanged(matcher.group(1), matcher.group(2));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.ecommercehub.servicediscovery;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Unzips replication batches sent gzipped by a peer's {@link PeerReplicationInterceptor}
+ * <p>
+ * Tomcat does not decode request bodies, so the body is unzipped here and the request
+ * passed on without Content-Encoding. A body that unzips to more than
+ * discovery.replication.max-batch-size fails with an IOException once the limit is
+ * passed, so a small gzip bomb cannot fill the heap.
+ * <p>
+ * Always active. discovery.replication.compression is off by default and should be
+ * turned on only once every node of the cluster runs this filter: a node without it
+ * would hand the gzipped bytes to Jersey as JSON and reject every batch.
+ */
+@Component
+@Order(0)
+public class ReplicationDecompressionFilter extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+
+    private final long maxBatchBytes;
+
+    public ReplicationDecompressionFilter(
+            @Value("${discovery.replication.max-batch-size:16MB}") DataSize maxBatchSize) {
+        this.maxBatchBytes = maxBatchSize.toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !GZIP.equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))
+                || !request.getRequestURI().contains("/peerreplication/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(new DecompressedRequest(request, maxBatchBytes), response);
+    }
+
+    private static final class DecompressedRequest extends HttpServletRequestWrapper {
+
+        private final long maxBytes;
+        private ServletInputStream body;
+
+        DecompressedRequest(HttpServletRequest request, long maxBytes) {
+            super(request);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body == null) {
+                body = new DecompressedInputStream(new GZIPInputStream(super.getInputStream(), 8192), maxBytes);
+            }
+            return body;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isHidden(name))
+                    .toList());
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        private static boolean isHidden(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    private static final class DecompressedInputStream extends ServletInputStream {
+
+        private final InputStream in;
+        private final long maxBytes;
+        private long remaining;
+        private boolean finished;
+
+        DecompressedInputStream(InputStream in, long maxBytes) {
+            this.in = in;
+            this.maxBytes = maxBytes;
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            finished = b < 0;
+            if (!finished) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            // Never unzips more than one byte past the limit
+            int n = in.read(b, off, (int) Math.min(len, remaining + 1));
+            finished = n < 0;
+            if (n > 0) {
+                consumed(n);
+            }
+            return n;
+        }
+
+        private void consumed(int n) throws IOException {
+            remaining -= n;
+            if (remaining < 0) {
+                throw new IOException("Replication batch unzips to more than " + maxBytes + " bytes");
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Replication batches are read blocking");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
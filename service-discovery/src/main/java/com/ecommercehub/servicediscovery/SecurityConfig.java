@@ -1,5 +1,7 @@
 package com.ecommercehub.servicediscovery;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -12,6 +14,8 @@ import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.Customizer;
 
+import java.time.Duration;
+
 /**
  * Security Configuration for Eureka Server
  * <p>
@@ -67,24 +71,33 @@ public class SecurityConfig {
      * In production, integrate with your identity provider
      */
     @Bean
-    public InMemoryUserDetailsManager userDetailsService() {
+    public InMemoryUserDetailsManager userDetailsService(PasswordEncoder passwordEncoder) {
         UserDetails admin = User.builder()
                 .username("admin")
-                .password(passwordEncoder().encode("admin123"))
+                .password(passwordEncoder.encode("admin123"))
                 .roles("ADMIN")
                 .build();
 
         UserDetails service = User.builder()
                 .username("service")
-                .password(passwordEncoder().encode("service123"))
+                .password(passwordEncoder.encode("service123"))
                 .roles("SERVICE")
                 .build();
 
         return new InMemoryUserDetailsManager(admin, service);
     }
 
+    /**
+     * BCrypt, behind a cache of verified credentials unless discovery.credential-cache.enabled is false
+     * <p>
+     * Every renewal and registry fetch authenticates; see {@link CachingPasswordEncoder}
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${discovery.credential-cache.enabled:true}") boolean cacheEnabled,
+                                           @Value("${discovery.credential-cache.ttl:10m}") Duration ttl,
+                                           @Value("${discovery.credential-cache.max-entries:1024}") int maxEntries,
+                                           MeterRegistry meterRegistry) {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        return cacheEnabled ? new CachingPasswordEncoder(bcrypt, ttl, maxEntries, meterRegistry) : bcrypt;
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.ecommercehub.servicediscovery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingPasswordEncoderTest {
+
+    private final CountingEncoder delegate = new CountingEncoder();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final String stored = delegate.encode("secret");
+
+    @Test
+    void verifiedPasswordIsNotHashedAgain() {
+        CachingPasswordEncoder encoder = encoder(Duration.ofMinutes(5), 100);
+
+        assertThat(encoder.matches("secret", stored)).isTrue();
+        assertThat(encoder.matches("secret", stored)).isTrue();
+        assertThat(encoder.matches("secret", stored)).isTrue();
+
+        assertThat(delegate.checks).hasValue(1);
+        assertThat(count("hit")).isEqualTo(2);
+        assertThat(count("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void wrongPasswordAlwaysGoesToTheDelegate() {
+        CachingPasswordEncoder encoder = encoder(Duration.ofMinutes(5), 100);
+        encoder.matches("secret", stored);
+
+        assertThat(encoder.matches("guess", stored)).isFalse();
+        assertThat(encoder.matches("guess", stored)).isFalse();
+        assertThat(encoder.matches("secret ", stored)).isFalse();
+
+        assertThat(delegate.checks).hasValue(4);
+        // The right password is still remembered
+        assertThat(encoder.matches("secret", stored)).isTrue();
+        assertThat(delegate.checks).hasValue(4);
+    }
+
+    @Test
+    void entryOnlyVouchesForTheStoredHashItMatched() {
+        CachingPasswordEncoder encoder = encoder(Duration.ofMinutes(5), 100);
+        encoder.matches("secret", stored);
+
+        // Password changed: same plain text, new stored hash
+        String changed = delegate.encode("rotated");
+        assertThat(encoder.matches("secret", changed)).isFalse();
+        assertThat(encoder.matches("rotated", changed)).isTrue();
+
+        assertThat(delegate.checks).hasValue(3);
+    }
+
+    @Test
+    void expiredEntryIsCheckedAgain() {
+        CachingPasswordEncoder encoder = encoder(Duration.ZERO, 100);
+
+        assertThat(encoder.matches("secret", stored)).isTrue();
+        assertThat(encoder.matches("secret", stored)).isTrue();
+
+        assertThat(delegate.checks).hasValue(2);
+        assertThat(count("hit")).isZero();
+    }
+
+    @Test
+    void cacheStaysWithinMaxEntries() {
+        CachingPasswordEncoder encoder = encoder(Duration.ofMinutes(5), 2);
+        String other = delegate.encode("other");
+        String third = delegate.encode("third");
+
+        encoder.matches("secret", stored);
+        encoder.matches("other", other);
+        // Full: everything still valid is dropped to make room
+        encoder.matches("third", third);
+        delegate.checks.set(0);
+
+        assertThat(encoder.matches("third", third)).isTrue();
+        assertThat(encoder.matches("secret", stored)).isTrue();
+        assertThat(delegate.checks).hasValue(1);
+    }
+
+    @Test
+    void missingPasswordIsLeftToTheDelegate() {
+        CachingPasswordEncoder encoder = encoder(Duration.ofMinutes(5), 100);
+
+        assertThat(encoder.matches(null, stored)).isFalse();
+        assertThat(encoder.matches("secret", null)).isFalse();
+        assertThat(delegate.checks).hasValue(2);
+    }
+
+    private CachingPasswordEncoder encoder(Duration ttl, int maxEntries) {
+        return new CachingPasswordEncoder(delegate, ttl, maxEntries, meterRegistry);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("eureka.auth.credential.cache").tag("result", result).functionCounter().count();
+    }
+
+    /**
+     * Cheap BCrypt that counts the hashes it is asked to check
+     */
+    private static final class CountingEncoder implements PasswordEncoder {
+
+        final BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        final AtomicInteger checks = new AtomicInteger();
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return bcrypt.encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            checks.incrementAndGet();
+            return rawPassword != null && encodedPassword != null && bcrypt.matches(rawPassword, encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.ecommercehub.servicediscovery;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lease renewals per second with plain BCrypt vs the verified-credential cache
+ * <p>
+ * Starts the registry once with discovery.credential-cache.enabled=false and once with
+ * it on, registers INSTANCES instances as the "service" user, then has CLIENTS clients
+ * renew them round robin (PUT /eureka/apps/{app}/{id}, HTTP Basic) for a few seconds.
+ * Prints renewals per second and failures for both runs.
+ * <p>
+ * Only runs on request:
+ * mvn -pl service-discovery test -Dtest=HeartbeatThroughputLoadTest -Dloadtest=true
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class HeartbeatThroughputLoadTest {
+
+    private static final String APP = "LOAD-TEST";
+    private static final int INSTANCES = 50;
+    private static final int CLIENTS = 32;
+    private static final Duration RUN = Duration.ofSeconds(5);
+    private static final String AUTHORIZATION = "Basic " + Base64.getEncoder()
+            .encodeToString("service:service123".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void cachedCredentialsRenewFaster() throws Exception {
+        Result bcrypt = run(false);
+        Result cached = run(true);
+
+        System.out.printf("%n%-18s %12s %9s%n", "credentials", "renewals/s", "failed");
+        System.out.printf("%-18s %12.0f %9d%n", "bcrypt", bcrypt.throughput(), bcrypt.failures.get());
+        System.out.printf("%-18s %12.0f %9d%n", "verified cache", cached.throughput(), cached.failures.get());
+
+        assertThat(bcrypt.failures.get()).isZero();
+        assertThat(cached.failures.get()).isZero();
+        // One BCrypt hash costs more than the whole rest of a renewal
+        assertThat(cached.throughput()).isGreaterThan(bcrypt.throughput() * 5);
+    }
+
+    private static Result run(boolean credentialCache) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ServiceDiscoveryApplication.class)
+                .run("--server.port=0",
+                        "--discovery.credential-cache.enabled=" + credentialCache,
+                        "--spring.cloud.config.enabled=false",
+                        "--spring.cloud.config.fail-fast=false",
+                        "--logging.file.name=",
+                        "--logging.level.root=WARN");
+             ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().executor(clientThreads).build()) {
+            String app = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                    + "/eureka/apps/" + APP;
+            for (int i = 0; i < INSTANCES; i++) {
+                HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(app))
+                        .header("Authorization", AUTHORIZATION)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(registration(i)))
+                        .build(), HttpResponse.BodyHandlers.discarding());
+                assertThat(response.statusCode()).isEqualTo(204);
+            }
+
+            Result result = new Result();
+            AtomicLong next = new AtomicLong();
+            long deadline = System.nanoTime() + RUN.toNanos();
+            for (int c = 0; c < CLIENTS; c++) {
+                clientThreads.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long instance = next.getAndIncrement() % INSTANCES;
+                        HttpRequest renewal = HttpRequest.newBuilder(URI.create(app + "/instance-" + instance + "?status=UP"))
+                                .header("Authorization", AUTHORIZATION)
+                                .PUT(HttpRequest.BodyPublishers.noBody())
+                                .build();
+                        try {
+                            if (client.send(renewal, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                                result.renewals.incrementAndGet();
+                            } else {
+                                result.failures.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            result.failures.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            clientThreads.shutdown();
+            clientThreads.awaitTermination(RUN.toSeconds() + 30, TimeUnit.SECONDS);
+            return result;
+        }
+    }
+
+    private static String registration(int instance) {
+        return """
+                {"instance": {
+                  "instanceId": "instance-%d",
+                  "hostName": "localhost",
+                  "app": "%s",
+                  "ipAddr": "127.0.0.1",
+                  "status": "UP",
+                  "port": {"$": %d, "@enabled": "true"},
+                  "dataCenterInfo": {
+                    "@class": "com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo",
+                    "name": "MyOwn"
+                  }
+                }}""".formatted(instance, APP, 10_000 + instance);
+    }
+
+    private static final class Result {
+
+        final AtomicLong renewals = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        double throughput() {
+            return (double) renewals.get() / RUN.toSeconds();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.ecommercehub.servicediscovery;
+
+import com.netflix.appinfo.InstanceInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The feed with a history of 5 changes; subscribers record the events they are sent
+ */
+class RegistryChangeFeedTest {
+
+    private static final int HISTORY = 5;
+
+    private int sendPermits = Integer.MAX_VALUE;
+    private final RegistryChangeFeed feed = feed(100);
+
+    @AfterEach
+    void tearDown() {
+        feed.destroy();
+    }
+
+    @Test
+    void newSubscriberGetsSnapshotThenChanges() throws InterruptedException {
+        register(feed, "a1");
+        register(feed, "a2");
+
+        RecordingEmitter emitter = subscribe(feed, null);
+        RegistryChangeFeed.Snapshot snapshot = (RegistryChangeFeed.Snapshot) emitter.next();
+        assertThat(snapshot.getSeq()).isEqualTo(2);
+        assertThat(snapshot.getInstances()).extracting(RegistryChange::getInstanceId)
+                .containsExactlyInAnyOrder("a1", "a2");
+
+        feed.onCanceled(new EurekaInstanceCanceledEvent(this, "orders", "a1", false));
+        RegistryChange change = (RegistryChange) emitter.next();
+        assertThat(change.getSeq()).isEqualTo(3);
+        assertThat(change.getType()).isEqualTo(RegistryChange.Type.CANCELLED);
+    }
+
+    @Test
+    void resumeInsideHistoryGetsOnlyMissedChanges() throws InterruptedException {
+        String epoch = epoch();
+        for (int i = 1; i <= 8; i++) {
+            register(feed, "a" + i);
+        }
+
+        // History holds changes 4 to 8; after 5 and after 3 both continue without a gap
+        assertThat(seqs(subscribe(feed, epoch + ":5"), 3)).containsExactly(6L, 7L, 8L);
+        assertThat(seqs(subscribe(feed, epoch + ":3"), 5)).containsExactly(4L, 5L, 6L, 7L, 8L);
+
+        RecordingEmitter current = subscribe(feed, epoch + ":8");
+        register(feed, "a9");
+        assertThat(seqs(current, 1)).containsExactly(9L);
+    }
+
+    @Test
+    void resumeOutsideHistoryFallsBackToSnapshot() throws InterruptedException {
+        String epoch = epoch();
+        for (int i = 1; i <= 8; i++) {
+            register(feed, "a" + i);
+        }
+        feed.onCanceled(new EurekaInstanceCanceledEvent(this, "orders", "a1", false));
+
+        List<String> ids = List.of(epoch + ":2", epoch + ":10", "restarted:5", epoch + ":x");
+        for (String lastEventId : ids) {
+            Object first = subscribe(feed, lastEventId).next();
+            assertThat(first).as(lastEventId).isInstanceOf(RegistryChangeFeed.Snapshot.class);
+            RegistryChangeFeed.Snapshot snapshot = (RegistryChangeFeed.Snapshot) first;
+            assertThat(snapshot.getSeq()).isEqualTo(9);
+            assertThat(snapshot.getInstances()).hasSize(7);
+        }
+    }
+
+    @Test
+    void renewalsPublishOnlyUnknownInstancesAndStatusChanges() throws InterruptedException {
+        register(feed, "a1");
+        RecordingEmitter emitter = subscribe(feed, null);
+        emitter.next();
+
+        feed.onRenewed(renewed("a1", InstanceInfo.InstanceStatus.UP));
+        feed.onRenewed(renewed("a2", InstanceInfo.InstanceStatus.UP));
+        feed.onRenewed(renewed("a2", InstanceInfo.InstanceStatus.UP));
+        feed.onRenewed(renewed("a1", InstanceInfo.InstanceStatus.OUT_OF_SERVICE));
+
+        RegistryChange registered = (RegistryChange) emitter.next();
+        RegistryChange status = (RegistryChange) emitter.next();
+        assertThat(registered.getType()).isEqualTo(RegistryChange.Type.REGISTERED);
+        assertThat(registered.getInstanceId()).isEqualTo("a2");
+        assertThat(status.getType()).isEqualTo(RegistryChange.Type.STATUS);
+        assertThat(status.getStatus()).isEqualTo("OUT_OF_SERVICE");
+        assertThat(emitter.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void slowSubscriberIsDisconnectedAndOthersKeepUp() throws InterruptedException {
+        RegistryChangeFeed small = feed(4);
+        try {
+            RecordingEmitter fast = subscribe(small, null);
+            fast.next();
+            // The slow subscriber's sender blocks on its first event
+            sendPermits = 0;
+            RecordingEmitter slow = subscribe(small, null);
+
+            for (int i = 1; i <= 5; i++) {
+                register(small, "a" + i);
+                // The fast subscriber keeps up: each change is sent before the next one
+                assertThat(seqs(fast, 1)).containsExactly((long) i);
+            }
+
+            // Snapshot and changes overflow the slow one's 4 slots at the latest on change 5
+            assertThat(slow.completed).isTrue();
+            assertThat(fast.completed).isFalse();
+            assertThat(slow.events).isEmpty();
+        } finally {
+            small.destroy();
+        }
+    }
+
+    private RegistryChangeFeed feed(int subscriberBuffer) {
+        return new RegistryChangeFeed(null, new RegistryStatistics(new SimpleMeterRegistry(), null),
+                HISTORY, subscriberBuffer, Duration.ofMinutes(30), Duration.ofHours(1)) {
+
+            @Override
+            SseEmitter newEmitter() {
+                return new RecordingEmitter(sendPermits);
+            }
+        };
+    }
+
+    private String epoch() throws InterruptedException {
+        return ((RegistryChangeFeed.Snapshot) subscribe(feed, null).next()).getEpoch();
+    }
+
+    private void register(RegistryChangeFeed target, String id) {
+        target.onRegistered(new EurekaInstanceRegisteredEvent(this, instance(id, InstanceInfo.InstanceStatus.UP),
+                90, false));
+    }
+
+    private EurekaInstanceRenewedEvent renewed(String id, InstanceInfo.InstanceStatus status) {
+        return new EurekaInstanceRenewedEvent(this, "ORDERS", id, instance(id, status), false);
+    }
+
+    private static RecordingEmitter subscribe(RegistryChangeFeed target, String lastEventId) {
+        return (RecordingEmitter) target.subscribe(lastEventId);
+    }
+
+    private static List<Long> seqs(RecordingEmitter emitter, int count) throws InterruptedException {
+        List<Long> seqs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            seqs.add(((RegistryChange) emitter.next()).getSeq());
+        }
+        return seqs;
+    }
+
+    private static InstanceInfo instance(String id, InstanceInfo.InstanceStatus status) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName("orders")
+                .setInstanceId(id)
+                .setHostName("localhost")
+                .setStatus(status)
+                .build();
+    }
+
+    /**
+     * Keeps the snapshots and changes it is sent; each send waits for one of its permits
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        private final Semaphore permits;
+        private volatile boolean completed;
+
+        RecordingEmitter(int permits) {
+            this.permits = new Semaphore(permits);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            for (DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof RegistryChange || data.getData() instanceof RegistryChangeFeed.Snapshot) {
+                    events.add(data.getData());
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+
+        Object next() throws InterruptedException {
+            Object event = events.poll(5, TimeUnit.SECONDS);
+            assertThat(event).as("event within 5 s").isNotNull();
+            return event;
+        }
+    }
+}
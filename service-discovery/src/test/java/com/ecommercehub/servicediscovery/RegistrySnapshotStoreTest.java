@@ -0,0 +1,241 @@
+package com.ecommercehub.servicediscovery;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegistrySnapshotStoreTest {
+
+    // Snapshot file header, then each slot's generation, length and CRC
+    private static final int FIRST_SLOT_PAYLOAD = 12 + 16;
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<RegistrySnapshotStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(RegistrySnapshotStore::stop);
+    }
+
+    @Test
+    void restartedServerGetsTheSnapshottedInstancesBack() throws IOException {
+        Registry before = new Registry();
+        before.add(instance("orders", "orders-1", System.currentTimeMillis()));
+        before.add(instance("payments", "payments-1", System.currentTimeMillis()));
+        RegistrySnapshotStore old = store(before, Duration.ofMinutes(5));
+        old.write();
+        old.stop();
+
+        Registry after = new Registry();
+        store(after, Duration.ofMinutes(5)).onRegistryAvailable(null);
+
+        assertThat(after.instances).containsOnlyKeys("ORDERS/orders-1", "PAYMENTS/payments-1");
+        InstanceInfo restored = after.instances.get("ORDERS/orders-1");
+        assertThat(restored.getHostName()).isEqualTo("orders-1.internal");
+        assertThat(restored.getIPAddr()).isEqualTo("10.0.0.7");
+        assertThat(restored.getPort()).isEqualTo(8083);
+        assertThat(restored.getVIPAddress()).isEqualTo("orders");
+        assertThat(restored.getHealthCheckUrl()).isEqualTo("http://orders-1.internal:8083/actuator/health");
+        assertThat(restored.getStatus()).isEqualTo(InstanceInfo.InstanceStatus.UP);
+        assertThat(restored.getMetadata()).containsEntry("zone", "eu-1");
+        assertThat(restored.getLeaseInfo().getDurationInSecs()).isEqualTo(90);
+        assertThat(meterRegistry.get("eureka.snapshot.restored").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void staleAndAlreadyKnownInstancesAreNotRestored() throws IOException {
+        long now = System.currentTimeMillis();
+        Registry before = new Registry();
+        before.add(instance("orders", "fresh", now));
+        before.add(instance("orders", "stale", now - Duration.ofMinutes(10).toMillis()));
+        before.add(instance("orders", "synced", now));
+        RegistrySnapshotStore old = store(before, Duration.ofMinutes(5));
+        old.write();
+        old.stop();
+
+        Registry after = new Registry();
+        // Already replicated from a peer, with a newer status
+        InstanceInfo synced = instance("orders", "synced", now);
+        synced.setStatusWithoutDirty(InstanceInfo.InstanceStatus.DOWN);
+        after.add(synced);
+        store(after, Duration.ofMinutes(5)).onRegistryAvailable(null);
+
+        assertThat(after.instances).containsOnlyKeys("ORDERS/fresh", "ORDERS/synced");
+        assertThat(after.instances.get("ORDERS/synced").getStatus()).isEqualTo(InstanceInfo.InstanceStatus.DOWN);
+    }
+
+    @Test
+    void tornNewestSlotFallsBackToThePreviousSnapshot() throws IOException {
+        Registry before = new Registry();
+        before.add(instance("orders", "orders-1", System.currentTimeMillis()));
+        RegistrySnapshotStore old = store(before, Duration.ofMinutes(5));
+        old.write();
+        before.add(instance("orders", "orders-2", System.currentTimeMillis()));
+        // Second generation goes to the first slot
+        old.write();
+        old.stop();
+        try (FileChannel file = FileChannel.open(path(), StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.wrap(new byte[] {0x7f}), FIRST_SLOT_PAYLOAD + 6);
+        }
+
+        Registry after = new Registry();
+        store(after, Duration.ofMinutes(5)).onRegistryAvailable(null);
+
+        assertThat(after.instances).containsOnlyKeys("ORDERS/orders-1");
+    }
+
+    @Test
+    void unreadableFileIsReplacedByTheNextSnapshot() throws IOException {
+        Files.write(path(), "not a snapshot".getBytes());
+
+        Registry registry = new Registry();
+        RegistrySnapshotStore store = store(registry, Duration.ofMinutes(5));
+        store.onRegistryAvailable(null);
+        assertThat(registry.instances).isEmpty();
+
+        registry.add(instance("orders", "orders-1", System.currentTimeMillis()));
+        // Writes the last snapshot on shutdown
+        store.stop();
+
+        Registry after = new Registry();
+        store(after, Duration.ofMinutes(5)).onRegistryAvailable(null);
+        assertThat(after.instances).containsOnlyKeys("ORDERS/orders-1");
+    }
+
+    @Test
+    void restoredInstancesThatNeverRenewAreCancelled() throws IOException {
+        Registry before = new Registry();
+        before.add(instance("orders", "alive", System.currentTimeMillis()));
+        before.add(instance("orders", "gone", System.currentTimeMillis()));
+        RegistrySnapshotStore old = store(before, Duration.ofMinutes(5));
+        old.write();
+        old.stop();
+
+        Registry after = new Registry();
+        RegistrySnapshotStore store = store(after, Duration.ofMillis(200));
+        store.onRegistryAvailable(null);
+        store.onRenewed(new EurekaInstanceRenewedEvent(this, "orders", "alive",
+                after.instances.get("ORDERS/alive"), false));
+
+        awaitUntil(() -> !after.cancelled.isEmpty());
+        assertThat(after.cancelled).containsExactly("ORDERS/gone");
+        assertThat(after.instances).containsOnlyKeys("ORDERS/alive");
+        assertThat(meterRegistry.get("eureka.snapshot.confirmed").counter().count()).isEqualTo(1);
+        awaitUntil(() -> meterRegistry.get("eureka.snapshot.expired").counter().count() == 1);
+    }
+
+    private RegistrySnapshotStore store(Registry registry, Duration provisionalTtl) {
+        RegistrySnapshotStore store = new RegistrySnapshotStore(registry.proxy, meterRegistry, true, path(),
+                Duration.ofHours(1), Duration.ofMinutes(3), provisionalTtl);
+        store.start();
+        stores.add(store);
+        return store;
+    }
+
+    private Path path() {
+        return dir.resolve("registry.snapshot");
+    }
+
+    private static InstanceInfo instance(String app, String id, long renewedAt) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName(app)
+                .setInstanceId(id)
+                .setHostName(id + ".internal")
+                .setIPAddr("10.0.0.7")
+                .setPort(8083)
+                .setVIPAddress(app)
+                .setHealthCheckUrls("/actuator/health", "http://" + id + ".internal:8083/actuator/health", null)
+                .setStatus(InstanceInfo.InstanceStatus.UP)
+                .setMetadata(Map.of("zone", "eu-1"))
+                .setLeaseInfo(LeaseInfo.Builder.newBuilder()
+                        .setRenewalTimestamp(renewedAt)
+                        .setDurationInSecs(90)
+                        .build())
+                .build();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 5 s").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Just the registry operations the snapshot store uses
+     */
+    private static final class Registry {
+
+        final Map<String, InstanceInfo> instances = new ConcurrentHashMap<>();
+        final List<String> cancelled = new CopyOnWriteArrayList<>();
+        final PeerAwareInstanceRegistry proxy = (PeerAwareInstanceRegistry) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {PeerAwareInstanceRegistry.class},
+                (proxy, method, args) -> invoke(method, args));
+
+        void add(InstanceInfo instance) {
+            instances.put(key(instance.getAppName(), instance.getId()), instance);
+        }
+
+        private Object invoke(Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getApplications":
+                    Applications applications = new Applications();
+                    instances.values().forEach(instance -> {
+                        Application application = applications.getRegisteredApplications(instance.getAppName());
+                        if (application == null) {
+                            application = new Application(instance.getAppName());
+                            applications.addApplication(application);
+                        }
+                        application.addInstance(instance);
+                    });
+                    return applications;
+                case "getInstanceByAppAndId":
+                    return instances.get(key((String) args[0], (String) args[1]));
+                case "register":
+                    add((InstanceInfo) args[0]);
+                    return null;
+                case "cancel":
+                    String key = key((String) args[0], (String) args[1]);
+                    cancelled.add(key);
+                    return instances.remove(key) != null;
+                case "toString":
+                    return "in-memory registry";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private static String key(String app, String id) {
+            return app.toUpperCase() + "/" + id;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.ecommercehub.servicediscovery;
+
+import com.netflix.appinfo.InstanceInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegistryStatisticsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RegistryStatistics statistics = new RegistryStatistics(meterRegistry, null);
+
+    @Test
+    void countsFollowRegistrationsStatusChangesAndRemovals() {
+        RegistryChange a1 = registered("orders", "a1", InstanceInfo.InstanceStatus.UP);
+        RegistryChange a2 = registered("orders", "a2", InstanceInfo.InstanceStatus.UP);
+        RegistryChange b1 = registered("payments", "b1", InstanceInfo.InstanceStatus.STARTING);
+        statistics.changed(null, a1);
+        statistics.changed(null, a2);
+        statistics.changed(null, b1);
+
+        RegistryChange a2Down = change(RegistryChange.Type.STATUS, "orders", "a2", InstanceInfo.InstanceStatus.DOWN);
+        statistics.changed(a2, a2Down);
+        statistics.changed(b1, RegistryChange.removed(RegistryChange.Type.EVICTED, "payments", "b1"));
+
+        assertThat(statistics.getServices()).isEqualTo(1);
+        assertThat(statistics.getInstances()).isEqualTo(2);
+        assertThat(statistics.getEvictions()).isEqualTo(1);
+        assertThat(statistics.byApp()).isEqualTo(Map.of("ORDERS", Map.of("UP", 1, "DOWN", 1)));
+        assertThat(meterRegistry.get("eureka.app.instances").tag("app", "ORDERS").tag("status", "DOWN")
+                .gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("eureka.app.instances").tag("app", "PAYMENTS").tag("status", "STARTING")
+                .gauge().value()).isZero();
+        assertThat(meterRegistry.get("eureka.instances.count").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void cancelOfUnknownInstanceOnlyCounts() {
+        statistics.changed(null, RegistryChange.removed(RegistryChange.Type.CANCELLED, "orders", "a1"));
+
+        assertThat(statistics.getInstances()).isZero();
+        assertThat(statistics.getServices()).isZero();
+        assertThat(meterRegistry.get("eureka.cancellations").functionCounter().count()).isEqualTo(1);
+    }
+
+    private static RegistryChange registered(String app, String id, InstanceInfo.InstanceStatus status) {
+        return change(RegistryChange.Type.REGISTERED, app, id, status);
+    }
+
+    private static RegistryChange change(RegistryChange.Type type, String app, String id,
+                                         InstanceInfo.InstanceStatus status) {
+        return RegistryChange.of(type, InstanceInfo.Builder.newBuilder()
+                .setAppName(app)
+                .setInstanceId(id)
+                .setHostName("localhost")
+                .setStatus(status)
+                .build());
+    }
+}
@@ -0,0 +1,64 @@
+package com.ecommercehub.servicediscovery;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicationDecompressionFilterTest {
+
+    private final ReplicationDecompressionFilter filter = new ReplicationDecompressionFilter(DataSize.ofKilobytes(64));
+
+    @Test
+    void gzippedBatchIsPassedOnUnzipped() throws Exception {
+        byte[] batch = "{\"replicationList\": []}".getBytes(StandardCharsets.UTF_8);
+        AtomicReference<byte[]> received = new AtomicReference<>();
+        MockHttpServletRequest request = batch(gzip(batch));
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            assertThat(((HttpServletRequest) req).getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+            received.set(req.getInputStream().readAllBytes());
+        });
+
+        assertThat(received.get()).isEqualTo(batch);
+    }
+
+    @Test
+    void batchUnzippingPastTheLimitIsRejected() throws IOException {
+        // 1 MB of zeros, about 1 KB on the wire
+        byte[] bomb = gzip(new byte[1024 * 1024]);
+        assertThat(bomb.length).isLessThan(2048);
+        MockHttpServletRequest request = batch(bomb);
+
+        assertThatThrownBy(() -> filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> req.getInputStream().readAllBytes()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("65536 bytes");
+    }
+
+    private static MockHttpServletRequest batch(byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/eureka/peerreplication/batch");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContent(body);
+        return request;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
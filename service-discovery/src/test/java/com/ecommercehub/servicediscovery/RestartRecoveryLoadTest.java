@@ -0,0 +1,169 @@
+package com.ecommercehub.servicediscovery;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Time from a registry restart until fetches return every instance again, with and
+ * without the registry snapshot
+ * <p>
+ * Registers INSTANCES instances, stops the server and starts it again on the same port
+ * while the instances keep heartbeating every HEARTBEAT (a shortened lease renewal
+ * interval); an instance whose renewal is refused registers again, as the Eureka
+ * client does. Prints the time from the restarted server being up until
+ * GET /eureka/apps/{app} lists all instances.
+ * <p>
+ * Only runs on request:
+ * mvn -pl service-discovery test -Dtest=RestartRecoveryLoadTest -Dloadtest=true
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class RestartRecoveryLoadTest {
+
+    private static final String APP = "LOAD-TEST";
+    private static final int INSTANCES = 200;
+    private static final Duration HEARTBEAT = Duration.ofSeconds(10);
+    private static final String AUTHORIZATION = "Basic " + Base64.getEncoder()
+            .encodeToString("service:service123".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void snapshotRestoresRegistryRightAway() throws Exception {
+        Duration empty = run(false);
+        Duration restored = run(true);
+
+        System.out.printf("%n%-12s %20s%n", "snapshot", "to full registry ms");
+        System.out.printf("%-12s %20d%n", "off", empty.toMillis());
+        System.out.printf("%-12s %20d%n", "on", restored.toMillis());
+
+        // Without it the last instance comes back only on its next heartbeat
+        assertThat(restored).isLessThan(empty.dividedBy(4));
+    }
+
+    private static Duration run(boolean snapshot) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Path snapshotPath = Files.createTempDirectory("registry-snapshot").resolve("registry.snapshot");
+        String app = "http://localhost:" + port + "/eureka/apps/" + APP;
+
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().executor(clientThreads).build()) {
+            try (ConfigurableApplicationContext first = start(port, snapshot, snapshotPath)) {
+                for (int i = 0; i < INSTANCES; i++) {
+                    assertThat(register(client, app, i)).isEqualTo(204);
+                }
+                assertThat(count(client, app)).isEqualTo(INSTANCES);
+            }
+
+            for (int i = 0; i < INSTANCES; i++) {
+                int instance = i;
+                Duration offset = HEARTBEAT.multipliedBy(i).dividedBy(INSTANCES);
+                clientThreads.submit(() -> heartbeat(client, app, instance, offset));
+            }
+
+            try (ConfigurableApplicationContext second = start(port, snapshot, snapshotPath)) {
+                long started = System.nanoTime();
+                long deadline = started + HEARTBEAT.multipliedBy(3).toNanos();
+                while (count(client, app) < INSTANCES) {
+                    assertThat(System.nanoTime()).as("registry complete in time").isLessThan(deadline);
+                    Thread.sleep(20);
+                }
+                Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+                clientThreads.shutdownNow();
+                return elapsed;
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(int port, boolean snapshot, Path snapshotPath) {
+        return new SpringApplicationBuilder(ServiceDiscoveryApplication.class)
+                .run("--server.port=" + port,
+                        "--discovery.snapshot.enabled=" + snapshot,
+                        "--discovery.snapshot.path=" + snapshotPath,
+                        // Fetches see registrations at once instead of after the 30 s cache refresh
+                        "--eureka.server.use-read-only-response-cache=false",
+                        "--spring.cloud.config.enabled=false",
+                        "--spring.cloud.config.fail-fast=false",
+                        "--logging.file.name=",
+                        "--logging.level.root=WARN");
+    }
+
+    /**
+     * Renews every HEARTBEAT and registers again when the renewal is refused
+     */
+    private static void heartbeat(HttpClient client, String app, int instance, Duration offset) {
+        try {
+            Thread.sleep(offset);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    HttpRequest renewal = HttpRequest.newBuilder(URI.create(app + "/instance-" + instance + "?status=UP"))
+                            .header("Authorization", AUTHORIZATION)
+                            .PUT(HttpRequest.BodyPublishers.noBody())
+                            .build();
+                    if (client.send(renewal, HttpResponse.BodyHandlers.discarding()).statusCode() == 404) {
+                        register(client, app, instance);
+                    }
+                } catch (IOException e) {
+                    // Server down; retry on the next heartbeat
+                }
+                Thread.sleep(HEARTBEAT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int register(HttpClient client, String app, int instance) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(app))
+                .header("Authorization", AUTHORIZATION)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(registration(instance)))
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static int count(HttpClient client, String app) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(app))
+                .header("Authorization", AUTHORIZATION)
+                .header("Accept", "application/json")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return 0;
+        }
+        return response.body().split("\"instanceId\"", -1).length - 1;
+    }
+
+    private static String registration(int instance) {
+        return """
+                {"instance": {
+                  "instanceId": "instance-%d",
+                  "hostName": "localhost",
+                  "app": "%s",
+                  "ipAddr": "127.0.0.1",
+                  "status": "UP",
+                  "port": {"$": %d, "@enabled": "true"},
+                  "dataCenterInfo": {
+                    "@class": "com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo",
+                    "name": "MyOwn"
+                  }
+                }}""".formatted(instance, APP, 10_000 + instance);
+    }
+}
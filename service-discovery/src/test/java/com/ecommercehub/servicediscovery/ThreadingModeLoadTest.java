@@ -0,0 +1,206 @@
+package com.ecommercehub.servicediscovery;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent-client capacity of the server: Tomcat's platform-thread pool vs virtual threads
+ * <p>
+ * Starts the server once per threading mode. For each client count, that many clients
+ * call an endpoint that blocks for 50 ms (standing in for the blocking work behind a
+ * request during a restart storm) back to back for a few seconds. Per mode and client
+ * count it logs throughput, p99 latency, failures, peak live platform threads and
+ * heap in use. Client and server share the JVM; the clients are the same in both modes,
+ * so the differences are the server's.
+ * <p>
+ * Takes about a minute, so it only runs on request:
+ * mvn -pl service-discovery test -Dtest=ThreadingModeLoadTest -Dloadtest=true
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class ThreadingModeLoadTest {
+
+    private static final int[] CLIENTS = {100, 500, 2000};
+    private static final Duration BLOCKING = Duration.ofMillis(50);
+    private static final Duration RUN = Duration.ofSeconds(5);
+    private static final String PATH = "/load-test/blocking";
+
+    @Test
+    void virtualThreadsServeMoreConcurrentClients() throws Exception {
+        Map<Integer, Result> platform = run(false);
+        Map<Integer, Result> virtual = run(true);
+
+        log.info(String.format("%-9s %8s %10s %9s %9s %9s %10s",
+                "threads", "clients", "req/s", "p99 ms", "failed", "platform", "heap MB"));
+        for (int clients : CLIENTS) {
+            platform.get(clients).print("platform");
+            virtual.get(clients).print("virtual");
+        }
+
+        // The 200-thread pool serves at most 200 / 50 ms = 4000 req/s; beyond 200
+        // clients the rest queue. Virtual threads keep up until CPU runs out.
+        Result platformMax = platform.get(CLIENTS[CLIENTS.length - 1]);
+        Result virtualMax = virtual.get(CLIENTS[CLIENTS.length - 1]);
+        assertThat(virtualMax.failures).hasValue(0);
+        assertThat(virtualMax.throughput()).isGreaterThan(platformMax.throughput() * 1.5);
+        assertThat(virtualMax.p99Millis()).isLessThan(platformMax.p99Millis());
+        assertThat(virtualMax.peakThreads).isLessThan(platformMax.peakThreads);
+    }
+
+    private static Map<Integer, Result> run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                ServiceDiscoveryApplication.class, LoadTestEndpoint.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.cloud.config.enabled=false",
+                        "--spring.cloud.config.fail-fast=false",
+                        "--logging.file.name=",
+                        "--logging.level.root=WARN",
+                        // The results table, logged after the servers have stopped
+                        "--logging.level." + ThreadingModeLoadTest.class.getName() + "=INFO")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + PATH);
+
+            Map<Integer, Result> results = new LinkedHashMap<>();
+            for (int clients : CLIENTS) {
+                results.put(clients, load(uri, clients));
+            }
+            return results;
+        }
+    }
+
+    private static Result load(URI uri, int clients) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        threads.resetPeakThreadCount();
+
+        Result result = new Result(clients);
+        long deadline = System.nanoTime() + RUN.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clientThreads)
+                     .build()) {
+            for (int i = 0; i < clients; i++) {
+                clientThreads.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                result.record(System.nanoTime() - start);
+                            } else {
+                                result.failures.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            result.failures.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            clientThreads.shutdown();
+            clientThreads.awaitTermination(RUN.toSeconds() + 30, TimeUnit.SECONDS);
+            result.heapBytes = Math.max(0, memory.getHeapMemoryUsage().getUsed() - heapBefore);
+        }
+        result.peakThreads = threads.getPeakThreadCount();
+        return result;
+    }
+
+    /**
+     * Permits the blocking endpoint without credentials, so password hashing stays out of the numbers
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class LoadTestEndpoint {
+
+        @Bean
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        SecurityFilterChain loadTestFilterChain(HttpSecurity http) throws Exception {
+            return http.securityMatcher(PATH)
+                    .authorizeHttpRequests(authz -> authz.anyRequest().permitAll())
+                    .build();
+        }
+
+        @Bean
+        RouterFunction<ServerResponse> loadTestRoute() {
+            return RouterFunctions.route()
+                    .GET(PATH, request -> {
+                        Thread.sleep(BLOCKING.toMillis());
+                        return ServerResponse.ok().body("ok");
+                    })
+                    .build();
+        }
+    }
+
+    private static final class Result {
+
+        final int clients;
+        final AtomicLong failures = new AtomicLong();
+        long[] latencies = new long[1 << 16];
+        int count;
+        int peakThreads;
+        long heapBytes;
+
+        Result(int clients) {
+            this.clients = clients;
+        }
+
+        synchronized void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        double throughput() {
+            return (double) count / RUN.toSeconds();
+        }
+
+        synchronized double p99Millis() {
+            if (count == 0) {
+                return Double.MAX_VALUE;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.ceil(count * 0.99) - 1)] / 1_000_000.0;
+        }
+
+        void print(String mode) {
+            log.info(String.format("%-9s %8d %10.0f %9.1f %9d %9d %10.1f", mode, clients, throughput(),
+                    p99Millis(), failures.get(), peakThreads, heapBytes / (1024.0 * 1024.0)));
+        }
+    }
+}